@@ -5,7 +5,7 @@ import java.lang.reflect.Method;
 import java.security.ProtectionDomain;
 import java.util.WeakHashMap;
 
-class AccessClassLoader extends ClassLoader {
+public class AccessClassLoader extends ClassLoader {
 	// Weak-references to class loaders, to avoid perm gen memory leaks, for example in app servers/web containters if the
 	// reflectasm library (including this class) is loaded outside the deployed applications (WAR/EAR) using ReflectASM/Kryo (exts,
 	// user classpath, etc).
@@ -44,6 +44,19 @@ class AccessClassLoader extends ClassLoader {
 		}
 	}
 
+	/** Returns the named class from the access class loader of the type, defining it from the bytes if it is not loaded yet. Used
+	 * by generators outside this package, the generated class must not depend on classes the type's class loader cannot see. */
+	public static Class<?> loadOrDefine (Class<?> type, String name, byte[] bytes) {
+		AccessClassLoader loader = get(type);
+		synchronized (loader) {
+			try {
+				return loader.loadClass(name);
+			} catch (ClassNotFoundException ignored) {
+			}
+			return loader.defineClass(name, bytes);
+		}
+	}
+
 	public static void remove (ClassLoader parent) {
 		// 1. fast-path:
 		if (selfContextParentClassLoader.equals(parent)) {
@@ -71,6 +84,8 @@ class AccessClassLoader extends ClassLoader {
 		if (name.equals(FieldAccess.class.getName())) return FieldAccess.class;
 		if (name.equals(MethodAccess.class.getName())) return MethodAccess.class;
 		if (name.equals(ConstructorAccess.class.getName())) return ConstructorAccess.class;
+		if (name.equals(CopyAccess.class.getName())) return CopyAccess.class;
+		if (name.equals(CopyAccess.Copier.class.getName())) return CopyAccess.Copier.class;
 		// All other classes come from the classloader that loaded the type we are accessing.
 		return super.loadClass(name, resolve);
 	}
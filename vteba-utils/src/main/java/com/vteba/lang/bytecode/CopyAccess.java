@@ -0,0 +1,197 @@
+package com.vteba.lang.bytecode;
+
+import static org.objectweb.asm.Opcodes.*;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+
+import sun.misc.Unsafe;
+
+/** Copies every instance field of one object to another with generated bytecode. Only the fields themselves are read and
+ * written, getters and setters are never called. Fields that are public, or non-private and declared in the same package, are
+ * accessed with GETFIELD/PUTFIELD (package access requires the access class to be defined in the type's class loader); private
+ * and final fields are accessed through sun.misc.Unsafe with the offset of the declared field, so a field hidden by a subclass
+ * field of the same name is still copied separately. Primitive fields and fields declared as String or a boxed primitive are
+ * assigned as is, every other reference field is passed through the {@link Copier} first, which decides between sharing and deep
+ * copying. */
+public abstract class CopyAccess {
+	/** Used by the generated classes for fields they can't access directly, null if sun.misc.Unsafe is not available. */
+	static protected final Unsafe unsafe;
+	static {
+		Unsafe value = null;
+		try {
+			Field field = Unsafe.class.getDeclaredField("theUnsafe");
+			field.setAccessible(true);
+			value = (Unsafe)field.get(null);
+		} catch (Throwable ignored) {
+		}
+		unsafe = value;
+	}
+
+	private String[] fieldNames;
+
+	/** Copies the fields of source to target, both must be instances of the type this access was created for. */
+	abstract public void copyFields (Object source, Object target, Copier copier);
+
+	public String[] getFieldNames () {
+		return fieldNames;
+	}
+
+	/** Called for every reference field value that may be mutable. */
+	public interface Copier {
+		Object copyValue (Object value);
+	}
+
+	/** @throws IllegalArgumentException if a field is private or final and sun.misc.Unsafe is not available. */
+	static public CopyAccess get (Class<?> type) {
+		if (type.isInterface() || type.isArray() || type.isPrimitive() || Modifier.isAbstract(type.getModifiers()))
+			throw new IllegalArgumentException("Not a concrete class: " + type.getName());
+		String className = type.getName();
+		if (className.startsWith("java.")) throw new IllegalArgumentException("JDK classes are not supported: " + className);
+
+		ArrayList<Field> fields = new ArrayList<Field>();
+		ArrayList<Boolean> direct = new ArrayList<Boolean>();
+		Class<?> nextClass = type;
+		while (nextClass != Object.class) {
+			Field[] declaredFields = nextClass.getDeclaredFields();
+			for (int i = 0, n = declaredFields.length; i < n; i++) {
+				Field field = declaredFields[i];
+				int modifiers = field.getModifiers();
+				if (Modifier.isStatic(modifiers)) continue;
+				boolean accessible = isDirectlyAccessible(type, field);
+				if (!accessible && unsafe == null)
+					throw new IllegalArgumentException("Field is not accessible and sun.misc.Unsafe is not available: "
+						+ nextClass.getName() + "." + field.getName());
+				fields.add(field);
+				direct.add(accessible);
+			}
+			nextClass = nextClass.getSuperclass();
+		}
+
+		String[] fieldNames = new String[fields.size()];
+		for (int i = 0, n = fieldNames.length; i < n; i++)
+			fieldNames[i] = fields.get(i).getName();
+
+		String accessClassName = className + "CopyAccess";
+		Class<?> accessClass = null;
+
+		AccessClassLoader loader = AccessClassLoader.get(type);
+		synchronized (loader) {
+			try {
+				accessClass = loader.loadClass(accessClassName);
+			} catch (ClassNotFoundException ignored) {
+				String accessClassNameInternal = accessClassName.replace('.', '/');
+				String classNameInternal = className.replace('.', '/');
+
+				ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+				cw.visit(V1_1, ACC_PUBLIC + ACC_SUPER, accessClassNameInternal, null, "com/vteba/lang/bytecode/CopyAccess", null);
+				insertConstructor(cw);
+				insertCopyFields(cw, classNameInternal, fields, direct);
+				cw.visitEnd();
+				accessClass = loader.defineClass(accessClassName, cw.toByteArray());
+			}
+		}
+		try {
+			CopyAccess access = (CopyAccess)accessClass.newInstance();
+			access.fieldNames = fieldNames;
+			return access;
+		} catch (Exception ex) {
+			throw new RuntimeException("Error constructing copy access class: " + accessClassName, ex);
+		}
+	}
+
+	/** Public fields, and package-private or protected fields declared in the same package as type. */
+	static private boolean isDirectlyAccessible (Class<?> type, Field field) {
+		int modifiers = field.getModifiers();
+		if (Modifier.isPrivate(modifiers) || Modifier.isFinal(modifiers)) return false;
+		if (Modifier.isPublic(modifiers)) return true;
+		return packageName(field.getDeclaringClass()).equals(packageName(type));
+	}
+
+	static private String packageName (Class<?> type) {
+		String name = type.getName();
+		int index = name.lastIndexOf('.');
+		return index == -1 ? "" : name.substring(0, index);
+	}
+
+	/** Field types whose values are assigned without calling the copier. */
+	static private boolean isImmutable (Class<?> type) {
+		return type.isPrimitive() || type == String.class || type == Integer.class || type == Long.class || type == Boolean.class
+			|| type == Double.class || type == Float.class || type == Short.class || type == Byte.class || type == Character.class;
+	}
+
+	static private void insertConstructor (ClassWriter cw) {
+		MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+		mv.visitCode();
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitMethodInsn(INVOKESPECIAL, "com/vteba/lang/bytecode/CopyAccess", "<init>", "()V");
+		mv.visitInsn(RETURN);
+		mv.visitMaxs(1, 1);
+		mv.visitEnd();
+	}
+
+	static private void insertCopyFields (ClassWriter cw, String classNameInternal, ArrayList<Field> fields,
+		ArrayList<Boolean> direct) {
+		MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "copyFields",
+			"(Ljava/lang/Object;Ljava/lang/Object;Lcom/vteba/lang/bytecode/CopyAccess$Copier;)V", null, null);
+		mv.visitCode();
+		mv.visitVarInsn(ALOAD, 1);
+		mv.visitTypeInsn(CHECKCAST, classNameInternal);
+		mv.visitVarInsn(ASTORE, 4);
+		mv.visitVarInsn(ALOAD, 2);
+		mv.visitTypeInsn(CHECKCAST, classNameInternal);
+		mv.visitVarInsn(ASTORE, 5);
+
+		for (int i = 0, n = fields.size(); i < n; i++) {
+			Field field = fields.get(i);
+			Class<?> fieldClass = field.getType();
+			Type fieldType = Type.getType(fieldClass);
+			boolean copy = !isImmutable(fieldClass);
+
+			if (direct.get(i)) {
+				String owner = Type.getInternalName(field.getDeclaringClass());
+				mv.visitVarInsn(ALOAD, 5);
+				if (copy) mv.visitVarInsn(ALOAD, 3);
+				mv.visitVarInsn(ALOAD, 4);
+				mv.visitFieldInsn(GETFIELD, owner, field.getName(), fieldType.getDescriptor());
+				if (copy) insertCopyValue(mv, fieldType);
+				mv.visitFieldInsn(PUTFIELD, owner, field.getName(), fieldType.getDescriptor());
+			} else {
+				Long offset = unsafe.objectFieldOffset(field);
+				String name = unsafeTypeName(fieldClass);
+				String descriptor = fieldClass.isPrimitive() ? fieldType.getDescriptor() : "Ljava/lang/Object;";
+				mv.visitFieldInsn(GETSTATIC, "com/vteba/lang/bytecode/CopyAccess", "unsafe", "Lsun/misc/Unsafe;");
+				mv.visitVarInsn(ALOAD, 5);
+				mv.visitLdcInsn(offset);
+				if (copy) mv.visitVarInsn(ALOAD, 3);
+				mv.visitFieldInsn(GETSTATIC, "com/vteba/lang/bytecode/CopyAccess", "unsafe", "Lsun/misc/Unsafe;");
+				mv.visitVarInsn(ALOAD, 4);
+				mv.visitLdcInsn(offset);
+				mv.visitMethodInsn(INVOKEVIRTUAL, "sun/misc/Unsafe", "get" + name, "(Ljava/lang/Object;J)" + descriptor);
+				if (copy) insertCopyValue(mv, fieldType);
+				mv.visitMethodInsn(INVOKEVIRTUAL, "sun/misc/Unsafe", "put" + name, "(Ljava/lang/Object;J" + descriptor + ")V");
+			}
+		}
+		mv.visitInsn(RETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+	}
+
+	static private void insertCopyValue (MethodVisitor mv, Type fieldType) {
+		mv.visitMethodInsn(INVOKEINTERFACE, "com/vteba/lang/bytecode/CopyAccess$Copier", "copyValue",
+			"(Ljava/lang/Object;)Ljava/lang/Object;");
+		mv.visitTypeInsn(CHECKCAST, fieldType.getInternalName());
+	}
+
+	/** Suffix of the sun.misc.Unsafe get/put methods for the field type. */
+	static private String unsafeTypeName (Class<?> type) {
+		if (!type.isPrimitive()) return "Object";
+		String name = type.getName();
+		return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+	}
+}
@@ -113,7 +113,9 @@ public abstract class MethodAccess {
 			if (method.getGenericParameterTypes() != null && method.getGenericParameterTypes().length == 1) {
 			    java.lang.reflect.Type gentype = method.getGenericParameterTypes()[0];
 			    if (gentype instanceof ParameterizedType) {
-			        genericTypes[i] = (Class<?>) ((ParameterizedType)gentype).getActualTypeArguments()[0];
+			        // 继承自泛型父类的方法，类型参数可能是TypeVariable（如saveAll(List<T>)）或者通配符，不是Class时为null
+			        java.lang.reflect.Type argType = ((ParameterizedType)gentype).getActualTypeArguments()[0];
+			        genericTypes[i] = argType instanceof Class ? (Class<?>) argType : null;
 			    } else {
 			        genericTypes[i] = null;
 			    }
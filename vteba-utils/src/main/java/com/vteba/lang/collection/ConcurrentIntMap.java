@@ -0,0 +1,394 @@
+package com.vteba.lang.collection;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 以int为键的并发Map，用于多线程共享的查找表（租户id、地区编码等），代替ConcurrentHashMap&lt;Integer, V&gt;，键不装箱，
+ * 每个条目不创建对象。
+ * <p>和ConcurrentHashMap一样分成多个段，每个段是一个开放寻址、线性探测的哈希表，键和值分别放在AtomicIntegerArray和
+ * AtomicReferenceArray中：
+ * <ul>
+ * <li>读不加锁：读取段当前的表，按探测序列读键，找到后读值。写入新条目时先写值再写键，读到键时一定能读到值。</li>
+ * <li>写只锁所在的段。删除时只把值设为null，键留在原位置作为墓碑，探测序列不会断开，再次put同一个键时重用。</li>
+ * <li>扩容（或者墓碑太多时清理）只在一个段内进行：持有该段的锁复制到新表再替换，期间读照常读旧表，其他段不受影响。</li>
+ * </ul>
+ * 值不能为null。size()是各段大小的和，并发修改时不精确。和IntMap一样，0不能作为表中的空位，键为0的值单独保存。
+ * @author yinlei
+ * @since 2014-10-9
+ */
+public class ConcurrentIntMap<V> {
+	private static final int EMPTY = 0;
+	private static final int MAXIMUM_CAPACITY = 1 << 30;
+	/** 包括墓碑在内的装载因子，超过时扩容或者清理墓碑 */
+	private static final float LOAD_FACTOR = 0.75f;
+
+	private final Segment<V>[] segments;
+	private final int segmentShift;
+	private final int segmentMask;
+	private final AtomicReference<V> zeroValue = new AtomicReference<V>();
+
+	/**
+	 * 初始容量256，16个段。
+	 */
+	public ConcurrentIntMap() {
+		this(256, 16);
+	}
+
+	/**
+	 * @param initialCapacity 初始容量
+	 */
+	public ConcurrentIntMap(int initialCapacity) {
+		this(initialCapacity, 16);
+	}
+
+	/**
+	 * @param initialCapacity 初始容量，平均分给各个段
+	 * @param concurrencyLevel 预计同时写的线程数，段的个数是不小于它的2的幂
+	 */
+	@SuppressWarnings("unchecked")
+	public ConcurrentIntMap(int initialCapacity, int concurrencyLevel) {
+		if (initialCapacity < 0) {
+			throw new IllegalArgumentException("initialCapacity must be >= 0: " + initialCapacity);
+		}
+		if (concurrencyLevel <= 0 || concurrencyLevel > 1 << 16) {
+			throw new IllegalArgumentException("concurrencyLevel must be in [1, 65536]: " + concurrencyLevel);
+		}
+		int count = ObjectMap.nextPowerOfTwo(concurrencyLevel);
+		segmentShift = 32 - Integer.numberOfTrailingZeros(count);
+		segmentMask = count - 1;
+		int capacity = Math.min(initialCapacity, MAXIMUM_CAPACITY) / count;
+		capacity = ObjectMap.nextPowerOfTwo(Math.max(4, (int) (capacity / LOAD_FACTOR) + 1));
+		segments = new Segment[count];
+		for (int i = 0; i < count; i++) {
+			segments[i] = new Segment<V>(capacity);
+		}
+	}
+
+	/**
+	 * 打散键的各位，低位用于段内的位置，高位用于选择段。
+	 */
+	private static int hash(int key) {
+		int h = key * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	private Segment<V> segmentFor(int hash) {
+		// 只有一个段时segmentShift是32，移位实际是0位，和segmentMask与之后还是0
+		return segments[(hash >>> segmentShift) & segmentMask];
+	}
+
+	/**
+	 * @return 键对应的值，不存在时返回null
+	 */
+	public V get(int key) {
+		if (key == EMPTY) {
+			return zeroValue.get();
+		}
+		int hash = hash(key);
+		return segmentFor(hash).get(key, hash);
+	}
+
+	/**
+	 * @param defaultValue 键不存在时返回的值
+	 */
+	public V get(int key, V defaultValue) {
+		V value = get(key);
+		return value == null ? defaultValue : value;
+	}
+
+	public boolean containsKey(int key) {
+		return get(key) != null;
+	}
+
+	/**
+	 * @return 原来的值，没有时返回null
+	 * @throws NullPointerException 值为null
+	 */
+	public V put(int key, V value) {
+		if (value == null) {
+			throw new NullPointerException();
+		}
+		if (key == EMPTY) {
+			return zeroValue.getAndSet(value);
+		}
+		int hash = hash(key);
+		return segmentFor(hash).put(key, hash, value, false);
+	}
+
+	/**
+	 * 键不存在时才放入。
+	 * @return 已有的值，放入时返回null
+	 * @throws NullPointerException 值为null
+	 */
+	public V putIfAbsent(int key, V value) {
+		if (value == null) {
+			throw new NullPointerException();
+		}
+		if (key == EMPTY) {
+			return zeroValue.compareAndSet(null, value) ? null : zeroValue.get();
+		}
+		int hash = hash(key);
+		return segmentFor(hash).put(key, hash, value, true);
+	}
+
+	/**
+	 * @return 删除的值，键不存在时返回null
+	 */
+	public V remove(int key) {
+		if (key == EMPTY) {
+			return zeroValue.getAndSet(null);
+		}
+		int hash = hash(key);
+		return segmentFor(hash).remove(key, hash, null);
+	}
+
+	/**
+	 * 键对应的值equals指定的值时才删除。
+	 * @return 是否删除了
+	 */
+	public boolean remove(int key, V value) {
+		if (value == null) {
+			return false;
+		}
+		if (key == EMPTY) {
+			for (;;) {
+				V current = zeroValue.get();
+				if (current == null || !current.equals(value)) {
+					return false;
+				}
+				if (zeroValue.compareAndSet(current, null)) {
+					return true;
+				}
+			}
+		}
+		int hash = hash(key);
+		return segmentFor(hash).remove(key, hash, value) != null;
+	}
+
+	/**
+	 * 各段大小的和，有并发修改时只是一个近似值。
+	 */
+	public int size() {
+		long size = zeroValue.get() == null ? 0 : 1;
+		for (Segment<V> segment : segments) {
+			size += segment.size;
+		}
+		return (int) Math.min(size, Integer.MAX_VALUE);
+	}
+
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/**
+	 * 逐个段清空，每个段恢复到初始容量。
+	 */
+	public void clear() {
+		zeroValue.set(null);
+		for (Segment<V> segment : segments) {
+			segment.clear();
+		}
+	}
+
+	/**
+	 * 当前所有键的快照，并发修改时可能包含也可能不包含修改的键。
+	 */
+	public IntArray keys() {
+		IntArray keys = new IntArray(true, size());
+		if (zeroValue.get() != null) {
+			keys.add(EMPTY);
+		}
+		for (Segment<V> segment : segments) {
+			Table table = segment.table;
+			for (int i = 0, n = table.mask + 1; i < n; i++) {
+				int key = table.keys.get(i);
+				if (key != EMPTY && table.values.get(i) != null) {
+					keys.add(key);
+				}
+			}
+		}
+		return keys;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder buffer = new StringBuilder(32);
+		buffer.append('{');
+		IntArray keys = keys();
+		for (int i = 0; i < keys.size; i++) {
+			int key = keys.items[i];
+			V value = get(key);
+			if (value == null) {
+				continue;
+			}
+			if (buffer.length() > 1) {
+				buffer.append(", ");
+			}
+			buffer.append(key).append('=').append(value);
+		}
+		return buffer.append('}').toString();
+	}
+
+	/**
+	 * 一个段的表，键和值一起替换，所以放在一个对象中。
+	 */
+	private static final class Table {
+		final AtomicIntegerArray keys;
+		final AtomicReferenceArray<Object> values;
+		final int mask;
+		final int threshold;
+
+		Table(int capacity) {
+			keys = new AtomicIntegerArray(capacity);
+			values = new AtomicReferenceArray<Object>(capacity);
+			mask = capacity - 1;
+			threshold = (int) (capacity * LOAD_FACTOR);
+		}
+	}
+
+	@SuppressWarnings("serial")
+	private static final class Segment<V> extends ReentrantLock {
+		private final int initialCapacity;
+		volatile Table table;
+		/** 有值的条目数 */
+		volatile int size;
+		/** 包括墓碑在内占用的位置数，只在持有锁时访问 */
+		private int used;
+
+		Segment(int initialCapacity) {
+			this.initialCapacity = initialCapacity;
+			this.table = new Table(initialCapacity);
+		}
+
+		@SuppressWarnings("unchecked")
+		V get(int key, int hash) {
+			Table table = this.table;
+			AtomicIntegerArray keys = table.keys;
+			int mask = table.mask;
+			for (int i = hash & mask;; i = (i + 1) & mask) {
+				int k = keys.get(i);
+				if (k == key) {
+					return (V) table.values.get(i);
+				}
+				if (k == EMPTY) {
+					return null;
+				}
+			}
+		}
+
+		@SuppressWarnings("unchecked")
+		V put(int key, int hash, V value, boolean onlyIfAbsent) {
+			lock();
+			try {
+				Table table = this.table;
+				AtomicIntegerArray keys = table.keys;
+				int mask = table.mask;
+				int i = hash & mask;
+				for (;; i = (i + 1) & mask) {
+					int k = keys.get(i);
+					if (k == key) {
+						V oldValue = (V) table.values.get(i);
+						if (oldValue == null) {
+							// 重用墓碑
+							table.values.set(i, value);
+							size++;
+						} else if (!onlyIfAbsent) {
+							table.values.set(i, value);
+						}
+						return oldValue;
+					}
+					if (k == EMPTY) {
+						break;
+					}
+				}
+				if (used >= table.threshold) {
+					table = rehash(table);
+					keys = table.keys;
+					mask = table.mask;
+					for (i = hash & mask; keys.get(i) != EMPTY; i = (i + 1) & mask) {
+					}
+				}
+				// 先写值再写键，读到键的线程一定能读到值
+				table.values.set(i, value);
+				keys.set(i, key);
+				used++;
+				size++;
+				return null;
+			} finally {
+				unlock();
+			}
+		}
+
+		@SuppressWarnings("unchecked")
+		V remove(int key, int hash, V expected) {
+			lock();
+			try {
+				Table table = this.table;
+				AtomicIntegerArray keys = table.keys;
+				int mask = table.mask;
+				for (int i = hash & mask;; i = (i + 1) & mask) {
+					int k = keys.get(i);
+					if (k == key) {
+						V oldValue = (V) table.values.get(i);
+						if (oldValue == null || (expected != null && !expected.equals(oldValue))) {
+							return null;
+						}
+						table.values.set(i, null);
+						size--;
+						return oldValue;
+					}
+					if (k == EMPTY) {
+						return null;
+					}
+				}
+			} finally {
+				unlock();
+			}
+		}
+
+		/**
+		 * 复制有值的条目到新表再替换，有一半以上是有效条目时容量加倍，否则只清理墓碑。持有锁时调用，读的线程继续读旧表。
+		 */
+		private Table rehash(Table old) {
+			int capacity = old.mask + 1;
+			if (size >= old.threshold / 2 && capacity < MAXIMUM_CAPACITY) {
+				capacity <<= 1;
+			}
+			Table table = new Table(capacity);
+			AtomicIntegerArray oldKeys = old.keys;
+			AtomicIntegerArray keys = table.keys;
+			int mask = table.mask;
+			for (int j = 0, n = old.mask + 1; j < n; j++) {
+				int key = oldKeys.get(j);
+				Object value = old.values.get(j);
+				if (key == EMPTY || value == null) {
+					continue;
+				}
+				int i = hash(key) & mask;
+				while (keys.get(i) != EMPTY) {
+					i = (i + 1) & mask;
+				}
+				// 新表还没有发布，不需要按顺序写
+				table.values.lazySet(i, value);
+				keys.lazySet(i, key);
+			}
+			this.table = table;
+			used = size;
+			return table;
+		}
+
+		void clear() {
+			lock();
+			try {
+				table = new Table(initialCapacity);
+				used = 0;
+				size = 0;
+			} finally {
+				unlock();
+			}
+		}
+	}
+}
@@ -0,0 +1,241 @@
+package com.vteba.lang.collection;
+
+import java.util.Arrays;
+
+/** A resizable, ordered or unordered float array. Avoids the boxing that occurs with ArrayList<Float>. If unordered, this class
+ * avoids a memory copy when removing elements (the last element is moved to the removed element's position).
+ * @author Nathan Sweet */
+public class FloatArray {
+	public float[] items;
+	public int size;
+	public boolean ordered;
+
+	/** Creates an ordered array with a capacity of 16. */
+	public FloatArray () {
+		this(true, 16);
+	}
+
+	/** Creates an ordered array with the specified capacity. */
+	public FloatArray (int capacity) {
+		this(true, capacity);
+	}
+
+	/** @param ordered If false, methods that remove elements may change the order of other elements in the array, which avoids a
+	 *           memory copy.
+	 * @param capacity Any elements added beyond this will cause the backing array to be grown. */
+	public FloatArray (boolean ordered, int capacity) {
+		this.ordered = ordered;
+		items = new float[capacity];
+	}
+
+	/** Creates a new array containing the elements in the specific array. The new array will be ordered if the specific array is
+	 * ordered. The capacity is set to the number of elements, so any subsequent elements added will cause the backing array to be
+	 * grown. */
+	public FloatArray (FloatArray array) {
+		this.ordered = array.ordered;
+		size = array.size;
+		items = new float[size];
+		System.arraycopy(array.items, 0, items, 0, size);
+	}
+
+	/** Creates a new ordered array containing the elements in the specified array. The capacity is set to the number of elements,
+	 * so any subsequent elements added will cause the backing array to be grown. */
+	public FloatArray (float[] array) {
+		this(true, array);
+	}
+
+	/** Creates a new array containing the elements in the specified array. The capacity is set to the number of elements, so any
+	 * subsequent elements added will cause the backing array to be grown.
+	 * @param ordered If false, methods that remove elements may change the order of other elements in the array, which avoids a
+	 *           memory copy. */
+	public FloatArray (boolean ordered, float[] array) {
+		this(ordered, array.length);
+		size = array.length;
+		System.arraycopy(array, 0, items, 0, size);
+	}
+
+	public void add (float value) {
+		float[] items = this.items;
+		if (size == items.length) items = resize(Math.max(8, (int)(size * 1.75f)));
+		items[size++] = value;
+	}
+
+	public void addAll (FloatArray array) {
+		addAll(array, 0, array.size);
+	}
+
+	public void addAll (FloatArray array, int offset, int length) {
+		if (offset + length > array.size)
+			throw new IllegalArgumentException("offset + length must be <= size: " + offset + " + " + length + " <= " + array.size);
+		addAll(array.items, offset, length);
+	}
+
+	public void addAll (float[] array) {
+		addAll(array, 0, array.length);
+	}
+
+	public void addAll (float[] array, int offset, int length) {
+		float[] items = this.items;
+		int sizeNeeded = size + length - offset;
+		if (sizeNeeded >= items.length) items = resize(Math.max(8, (int)(sizeNeeded * 1.75f)));
+		System.arraycopy(array, offset, items, size, length);
+		size += length;
+	}
+
+	public float get (int index) {
+		if (index >= size) throw new IndexOutOfBoundsException(String.valueOf(index));
+		return items[index];
+	}
+
+	public void set (int index, float value) {
+		if (index >= size) throw new IndexOutOfBoundsException(String.valueOf(index));
+		items[index] = value;
+	}
+
+	public void insert (int index, float value) {
+		float[] items = this.items;
+		if (size == items.length) items = resize(Math.max(8, (int)(size * 1.75f)));
+		if (ordered)
+			System.arraycopy(items, index, items, index + 1, size - index);
+		else
+			items[size] = items[index];
+		size++;
+		items[index] = value;
+	}
+
+	public void swap (int first, int second) {
+		if (first >= size) throw new IndexOutOfBoundsException(String.valueOf(first));
+		if (second >= size) throw new IndexOutOfBoundsException(String.valueOf(second));
+		float[] items = this.items;
+		float firstValue = items[first];
+		items[first] = items[second];
+		items[second] = firstValue;
+	}
+
+	public boolean contains (float value) {
+		int i = size - 1;
+		float[] items = this.items;
+		while (i >= 0)
+			if (items[i--] == value) return true;
+		return false;
+	}
+
+	public int indexOf (float value) {
+		float[] items = this.items;
+		for (int i = 0, n = size; i < n; i++)
+			if (items[i] == value) return i;
+		return -1;
+	}
+
+	public boolean removeValue (float value) {
+		float[] items = this.items;
+		for (int i = 0, n = size; i < n; i++) {
+			if (items[i] == value) {
+				removeIndex(i);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/** Removes and returns the item at the specified index. */
+	public float removeIndex (int index) {
+		if (index >= size) throw new IndexOutOfBoundsException(String.valueOf(index));
+		float[] items = this.items;
+		float value = items[index];
+		size--;
+		if (ordered)
+			System.arraycopy(items, index + 1, items, index, size - index);
+		else
+			items[index] = items[size];
+		return value;
+	}
+
+	/** Removes and returns the last item. */
+	public float pop () {
+		return items[--size];
+	}
+
+	/** Returns the last item. */
+	public float peek () {
+		return items[size - 1];
+	}
+
+	public void clear () {
+		size = 0;
+	}
+
+	/** Reduces the size of the backing array to the size of the actual items. This is useful to release memory when many items have
+	 * been removed, or if it is known that more items will not be added. */
+	public void shrink () {
+		resize(size);
+	}
+
+	/** Increases the size of the backing array to acommodate the specified number of additional items. Useful before adding many
+	 * items to avoid multiple backing array resizes.
+	 * @return {@link #items} */
+	public float[] ensureCapacity (int additionalCapacity) {
+		int sizeNeeded = size + additionalCapacity;
+		if (sizeNeeded >= items.length) resize(Math.max(8, sizeNeeded));
+		return items;
+	}
+
+	protected float[] resize (int newSize) {
+		float[] newItems = new float[newSize];
+		float[] items = this.items;
+		System.arraycopy(items, 0, newItems, 0, Math.min(items.length, newItems.length));
+		this.items = newItems;
+		return newItems;
+	}
+
+	public void sort () {
+		Arrays.sort(items, 0, size);
+	}
+
+	public void reverse () {
+		for (int i = 0, lastIndex = size - 1, n = size / 2; i < n; i++) {
+			int ii = lastIndex - i;
+			float temp = items[i];
+			items[i] = items[ii];
+			items[ii] = temp;
+		}
+	}
+
+	/** Reduces the size of the array to the specified size. If the array is already smaller than the specified size, no action is
+	 * taken. */
+	public void truncate (int newSize) {
+		if (size > newSize) size = newSize;
+	}
+
+	public float[] toArray () {
+		float[] array = new float[size];
+		System.arraycopy(items, 0, array, 0, size);
+		return array;
+	}
+
+	public String toString () {
+		if (size == 0) return "[]";
+		float[] items = this.items;
+		StringBuilder buffer = new StringBuilder(32);
+		buffer.append('[');
+		buffer.append(items[0]);
+		for (int i = 1; i < size; i++) {
+			buffer.append(", ");
+			buffer.append(items[i]);
+		}
+		buffer.append(']');
+		return buffer.toString();
+	}
+
+	public String toString (String separator) {
+		if (size == 0) return "";
+		float[] items = this.items;
+		StringBuilder buffer = new StringBuilder(32);
+		buffer.append(items[0]);
+		for (int i = 1; i < size; i++) {
+			buffer.append(separator);
+			buffer.append(items[i]);
+		}
+		return buffer.toString();
+	}
+}
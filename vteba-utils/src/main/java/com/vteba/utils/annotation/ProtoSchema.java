@@ -0,0 +1,19 @@
+package com.vteba.utils.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标记需要在编译期生成Protostuff Schema的类。vteba-utils在classpath中时，编译期会生成
+ * 同包下的类名$$ProtoSchema，{@link com.vteba.utils.serialize.Protos}优先使用生成的Schema，
+ * 避免第一次使用时RuntimeSchema反射的耗时。生成的Schema和RuntimeSchema的数据格式完全一致。
+ * @author yinlei
+ * @since 2014-9-25
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.CLASS)
+public @interface ProtoSchema {
+
+}
@@ -0,0 +1,291 @@
+package com.vteba.utils.date;
+
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * 固定宽度的日期格式的格式化和解析，用于{@link DateUtils}中的格式（YMDHMS、YMD、SYMDHMS、HMS等），
+ * 直接按位置读写数字，不创建Calendar，不需要同步，可以多线程共享。
+ * <p>格式只能由yyyy、MM、dd、HH、mm、ss、SSS和非字母的分隔符组成，结果和同样格式、同样时区的SimpleDateFormat相同。
+ * 不能保证相同的情况返回失败，由调用者交给SimpleDateFormat：年份不在1583到9999之间（SimpleDateFormat使用儒略历或者年份位数不同），
+ * 解析时字符串不是严格的格式（位数不同、超出范围的日期、多余的字符，SimpleDateFormat宽松模式下会进位或者忽略），
+ * 以及前后一天之内有夏令时等时区偏移的变化。
+ * @author yinlei
+ * @since 2014-10-9
+ */
+public final class DateCodec {
+	/** 解析失败 */
+	public static final long INVALID = Long.MIN_VALUE;
+	private static final long DAY = 24 * 60 * 60 * 1000L;
+	/** 1970-01-01到0000-03-01的天数 */
+	private static final int EPOCH_DAYS = 719468;
+	private static final int YEAR = 0;
+	private static final int MONTH = 1;
+	private static final int DAY_OF_MONTH = 2;
+	private static final int HOUR = 3;
+	private static final int MINUTE = 4;
+	private static final int SECOND = 5;
+	private static final int MILLISECOND = 6;
+	private static final int LITERAL = 7;
+
+	private final String pattern;
+	private final TimeZone zone;
+	/** 每个字符位置的类型，字段占几位就重复几次 */
+	private final byte[] kinds;
+	private final char[] literals;
+
+	/**
+	 * 使用默认时区。
+	 * @param pattern 日期格式
+	 * @throws IllegalArgumentException 不支持的格式
+	 */
+	public DateCodec(String pattern) {
+		this(pattern, TimeZone.getDefault());
+	}
+
+	/**
+	 * @param pattern 日期格式
+	 * @param zone 时区
+	 * @throws IllegalArgumentException 不支持的格式
+	 */
+	public DateCodec(String pattern, TimeZone zone) {
+		this.pattern = pattern;
+		this.zone = (TimeZone) zone.clone();
+		int length = pattern.length();
+		kinds = new byte[length];
+		literals = pattern.toCharArray();
+		for (int i = 0; i < length;) {
+			char c = pattern.charAt(i);
+			int n = 1;
+			while (i + n < length && pattern.charAt(i + n) == c) {
+				n++;
+			}
+			int kind;
+			if (c == 'y' && n == 4) {
+				kind = YEAR;
+			} else if (c == 'M' && n == 2) {
+				kind = MONTH;
+			} else if (c == 'd' && n == 2) {
+				kind = DAY_OF_MONTH;
+			} else if (c == 'H' && n == 2) {
+				kind = HOUR;
+			} else if (c == 'm' && n == 2) {
+				kind = MINUTE;
+			} else if (c == 's' && n == 2) {
+				kind = SECOND;
+			} else if (c == 'S' && n == 3) {
+				kind = MILLISECOND;
+			} else if ((c < 'a' || c > 'z') && (c < 'A' || c > 'Z') && c != '\'') {
+				kind = LITERAL;
+			} else {
+				throw new IllegalArgumentException("不支持的日期格式：" + pattern);
+			}
+			for (int j = 0; j < n; j++) {
+				kinds[i++] = (byte) kind;
+			}
+		}
+	}
+
+	/**
+	 * 是否是支持的格式。
+	 */
+	public static boolean isSupported(String pattern) {
+		try {
+			new DateCodec(pattern);
+			return true;
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+	}
+
+	public String getPattern() {
+		return pattern;
+	}
+
+	public TimeZone getTimeZone() {
+		return (TimeZone) zone.clone();
+	}
+
+	/**
+	 * 格式化后的长度，等于格式的长度。
+	 */
+	public int length() {
+		return kinds.length;
+	}
+
+	/**
+	 * 格式化到字符数组中。
+	 * @param millis 毫秒数
+	 * @param buf 字符数组，从off开始至少有{@link #length()}个位置
+	 * @param off 开始位置
+	 * @return 写入的字符数，年份超出范围时返回-1
+	 */
+	public int format(long millis, char[] buf, int off) {
+		long local = millis + zone.getOffset(millis);
+		long days = floorDiv(local, DAY);
+		int time = (int) (local - days * DAY);
+		// 按3月1日开始的年份计算，闰日在一年的最后（Howard Hinnant的civil_from_days）
+		long z = days + EPOCH_DAYS;
+		long era = floorDiv(z, 146097);
+		int dayOfEra = (int) (z - era * 146097);
+		int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+		int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+		int mp = (5 * dayOfYear + 2) / 153;
+		int day = dayOfYear - (153 * mp + 2) / 5 + 1;
+		int month = mp < 10 ? mp + 3 : mp - 9;
+		long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+		if (year < 1583 || year > 9999) {
+			return -1;
+		}
+		int length = kinds.length;
+		for (int i = 0; i < length;) {
+			switch (kinds[i]) {
+			case YEAR:
+				i = digits(buf, off, i, (int) year, 4);
+				break;
+			case MONTH:
+				i = digits(buf, off, i, month, 2);
+				break;
+			case DAY_OF_MONTH:
+				i = digits(buf, off, i, day, 2);
+				break;
+			case HOUR:
+				i = digits(buf, off, i, time / 3600000, 2);
+				break;
+			case MINUTE:
+				i = digits(buf, off, i, time / 60000 % 60, 2);
+				break;
+			case SECOND:
+				i = digits(buf, off, i, time / 1000 % 60, 2);
+				break;
+			case MILLISECOND:
+				i = digits(buf, off, i, time % 1000, 3);
+				break;
+			default:
+				buf[off + i] = literals[i];
+				i++;
+			}
+		}
+		return length;
+	}
+
+	private static int digits(char[] buf, int off, int i, int value, int n) {
+		for (int p = off + i + n - 1; p >= off + i; p--) {
+			buf[p] = (char) ('0' + value % 10);
+			value /= 10;
+		}
+		return i + n;
+	}
+
+	/**
+	 * 格式化日期。
+	 * @return 日期字符串，年份超出范围时返回null
+	 */
+	public String format(Date date) {
+		char[] buf = new char[kinds.length];
+		int n = format(date.getTime(), buf, 0);
+		return n < 0 ? null : new String(buf, 0, n);
+	}
+
+	/**
+	 * 解析严格符合格式的日期字符串。
+	 * @param chars 字符数组
+	 * @param off 开始位置
+	 * @param len 长度
+	 * @return 毫秒数，不能保证和SimpleDateFormat相同时返回{@link #INVALID}
+	 */
+	public long parse(char[] chars, int off, int len) {
+		int length = kinds.length;
+		if (len != length) {
+			return INVALID;
+		}
+		int year = 1970;
+		int month = 1;
+		int day = 1;
+		int hour = 0;
+		int minute = 0;
+		int second = 0;
+		int millisecond = 0;
+		for (int i = 0; i < length;) {
+			int kind = kinds[i];
+			if (kind == LITERAL) {
+				if (chars[off + i] != literals[i]) {
+					return INVALID;
+				}
+				i++;
+				continue;
+			}
+			int value = 0;
+			do {
+				int d = chars[off + i] - '0';
+				if (d < 0 || d > 9) {
+					return INVALID;
+				}
+				value = value * 10 + d;
+				i++;
+			} while (i < length && kinds[i] == kind);
+			switch (kind) {
+			case YEAR:
+				year = value;
+				break;
+			case MONTH:
+				month = value;
+				break;
+			case DAY_OF_MONTH:
+				day = value;
+				break;
+			case HOUR:
+				hour = value;
+				break;
+			case MINUTE:
+				minute = value;
+				break;
+			case SECOND:
+				second = value;
+				break;
+			default:
+				millisecond = value;
+			}
+		}
+		if (year < 1583 || month < 1 || month > 12 || day < 1 || day > daysOfMonth(year, month) || hour > 23 || minute > 59
+				|| second > 59) {
+			return INVALID;
+		}
+		// Howard Hinnant的days_from_civil
+		int y = month <= 2 ? year - 1 : year;
+		int era = y / 400;
+		int yearOfEra = y - era * 400;
+		int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+		int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		long days = era * 146097L + dayOfEra - EPOCH_DAYS;
+		long local = days * DAY + hour * 3600000L + minute * 60000L + second * 1000L + millisecond;
+		int offset = zone.getOffset(local - zone.getRawOffset());
+		long millis = local - offset;
+		// 附近有时区偏移的变化时，本地时间可能不存在或者对应两个时刻
+		if (zone.getOffset(millis) != offset || zone.getOffset(millis - DAY) != offset || zone.getOffset(millis + DAY) != offset) {
+			return INVALID;
+		}
+		return millis;
+	}
+
+	/**
+	 * 解析严格符合格式的日期字符串。
+	 * @return 日期，不能保证和SimpleDateFormat相同时返回null
+	 */
+	public Date parse(String text) {
+		long millis = parse(text.toCharArray(), 0, text.length());
+		return millis == INVALID ? null : new Date(millis);
+	}
+
+	private static int daysOfMonth(int year, int month) {
+		if (month == 2) {
+			return (year % 4 == 0 && year % 100 != 0) || year % 400 == 0 ? 29 : 28;
+		}
+		return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+	}
+
+	private static long floorDiv(long x, long y) {
+		long q = x / y;
+		return (x % y != 0 && (x ^ y) < 0) ? q - 1 : q;
+	}
+}
@@ -0,0 +1,48 @@
+package com.vteba.utils.json;
+
+import java.io.OutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * 写到ByteBuffer中的OutputStream，从buffer当前的position开始写，不会扩容，剩余空间不够时抛出BufferOverflowException。
+ * @author yinlei
+ * @since 2014-10-4
+ */
+class ByteBufferOutputStream extends OutputStream {
+	private final ByteBuffer buffer;
+	private boolean overflowed;
+
+	ByteBufferOutputStream(ByteBuffer buffer) {
+		this.buffer = buffer;
+	}
+
+	@Override
+	public void write(int b) {
+		if (!buffer.hasRemaining()) {
+			throw overflow();
+		}
+		buffer.put((byte) b);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) {
+		if (len > buffer.remaining()) {
+			throw overflow();
+		}
+		buffer.put(b, off, len);
+	}
+
+	private BufferOverflowException overflow() {
+		overflowed = true;
+		return new BufferOverflowException();
+	}
+
+	/**
+	 * 序列化框架可能把写出时的异常包装成IOException，或者关闭时再次写出，用这个标记判断是否空间不够。
+	 * @return 是否发生过剩余空间不够
+	 */
+	boolean isOverflowed() {
+		return overflowed;
+	}
+}
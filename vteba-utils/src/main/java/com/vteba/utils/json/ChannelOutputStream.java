@@ -0,0 +1,33 @@
+package com.vteba.utils.json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * 写到channel中的OutputStream，直接包装调用者的字节数组写出，不复制。close不会关闭channel。
+ * <p>只用于阻塞模式的channel，非阻塞的channel在写不出去时会一直重试。
+ * @author yinlei
+ * @since 2014-10-4
+ */
+class ChannelOutputStream extends OutputStream {
+	private final WritableByteChannel channel;
+
+	ChannelOutputStream(WritableByteChannel channel) {
+		this.channel = channel;
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		write(new byte[] { (byte) b }, 0, 1);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+}
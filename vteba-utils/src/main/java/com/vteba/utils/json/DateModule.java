@@ -0,0 +1,166 @@
+package com.vteba.utils.json;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.TimeZone;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.Version;
+import com.fasterxml.jackson.databind.AnnotationIntrospector;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.DeserializationConfig;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.ContextualDeserializer;
+import com.fasterxml.jackson.databind.deser.Deserializers;
+import com.fasterxml.jackson.databind.deser.std.DateDeserializers;
+import com.fasterxml.jackson.databind.deser.std.StdScalarDeserializer;
+import com.fasterxml.jackson.databind.introspect.Annotated;
+import com.fasterxml.jackson.databind.ser.ContextualSerializer;
+import com.fasterxml.jackson.databind.ser.Serializers;
+import com.fasterxml.jackson.databind.ser.std.DateSerializer;
+import com.fasterxml.jackson.databind.ser.std.StdScalarSerializer;
+import com.vteba.utils.date.DateCodec;
+
+/**
+ * Jackson模块，用{@link DateCodec}序列化和反序列化java.util.Date，代替每次克隆SimpleDateFormat再格式化、解析。
+ * 格式化时写到线程复用的字符数组中，直接交给JsonGenerator，不创建String；解析时直接读JsonParser的字符数组。
+ * 配置为时间戳时直接写毫秒数。
+ * <p>格式和时区应该和ObjectMapper配置的DateFormat相同（{@link JacksonUtils#useDateModule()}按配置创建）：
+ * DateCodec不能保证结果相同的日期（年份超出范围、不严格符合格式的字符串、夏令时切换附近等）交给Jackson原来的DateSerializer、
+ * DateDeserializer用配置的DateFormat处理。有@JsonFormat注解的属性也交给Jackson原来的方式。
+ * 只处理java.util.Date本身，java.sql.Date、Timestamp等子类不变。
+ * @author yinlei
+ * @since 2014-10-9
+ */
+public class DateModule extends Module {
+	private final DateCodec codec;
+
+	/**
+	 * @param pattern 日期格式，见{@link DateCodec}
+	 * @param zone 时区
+	 * @throws IllegalArgumentException DateCodec不支持的格式
+	 */
+	public DateModule(String pattern, TimeZone zone) {
+		this.codec = new DateCodec(pattern, zone);
+	}
+
+	@Override
+	public String getModuleName() {
+		return "DateModule";
+	}
+
+	@Override
+	public Version version() {
+		return Version.unknownVersion();
+	}
+
+	@Override
+	public void setupModule(SetupContext context) {
+		final FastDateSerializer serializer = new FastDateSerializer(codec);
+		final FastDateDeserializer deserializer = new FastDateDeserializer(codec);
+		context.addSerializers(new Serializers.Base() {
+			@Override
+			public JsonSerializer<?> findSerializer(SerializationConfig config, JavaType type, BeanDescription beanDesc) {
+				return type.getRawClass() == Date.class ? serializer : null;
+			}
+		});
+		context.addDeserializers(new Deserializers.Base() {
+			@Override
+			public JsonDeserializer<?> findBeanDeserializer(JavaType type, DeserializationConfig config,
+					BeanDescription beanDesc) throws JsonMappingException {
+				return type.getRawClass() == Date.class ? deserializer : null;
+			}
+		});
+	}
+
+	/**
+	 * 属性上有没有@JsonFormat之类的格式注解。Jackson 2.1的findFormat(AnnotatedMember)会无限递归，要用findFormat(Annotated)。
+	 */
+	private static boolean hasFormat(AnnotationIntrospector introspector, BeanProperty property) {
+		if (property == null || introspector == null) {
+			return false;
+		}
+		Annotated member = property.getMember();
+		return member != null && introspector.findFormat(member) != null;
+	}
+
+	static class FastDateSerializer extends StdScalarSerializer<Date> implements ContextualSerializer {
+		private static final ThreadLocal<char[]> buffers = new ThreadLocal<char[]>();
+		private final DateCodec codec;
+
+		FastDateSerializer(DateCodec codec) {
+			super(Date.class);
+			this.codec = codec;
+		}
+
+		@Override
+		public JsonSerializer<?> createContextual(SerializerProvider prov, BeanProperty property) throws JsonMappingException {
+			if (hasFormat(prov.getAnnotationIntrospector(), property)) {
+				return DateSerializer.instance.createContextual(prov, property);
+			}
+			return this;
+		}
+
+		@Override
+		public void serialize(Date value, JsonGenerator jgen, SerializerProvider provider) throws IOException {
+			if (provider.isEnabled(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)) {
+				jgen.writeNumber(value.getTime());
+				return;
+			}
+			char[] buf = buffers.get();
+			if (buf == null) {
+				buf = new char[32];
+				buffers.set(buf);
+			}
+			int n = codec.length() <= buf.length ? codec.format(value.getTime(), buf, 0) : -1;
+			if (n < 0) {
+				provider.defaultSerializeDateValue(value, jgen);
+				return;
+			}
+			jgen.writeString(buf, 0, n);
+		}
+	}
+
+	static class FastDateDeserializer extends StdScalarDeserializer<Date> implements ContextualDeserializer {
+		private static final long serialVersionUID = 1L;
+		/** Jackson原来的反序列化器，处理数字、空字符串和DateCodec不能处理的字符串 */
+		private final DateDeserializers.DateDeserializer standard = new DateDeserializers.DateDeserializer();
+		private final DateCodec codec;
+
+		FastDateDeserializer(DateCodec codec) {
+			super(Date.class);
+			this.codec = codec;
+		}
+
+		@Override
+		public JsonDeserializer<?> createContextual(DeserializationContext ctxt, BeanProperty property)
+				throws JsonMappingException {
+			if (hasFormat(ctxt.getAnnotationIntrospector(), property)) {
+				return standard.createContextual(ctxt, property);
+			}
+			return this;
+		}
+
+		@Override
+		public Date deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException {
+			if (jp.getCurrentToken() == JsonToken.VALUE_STRING) {
+				long millis = codec.parse(jp.getTextCharacters(), jp.getTextOffset(), jp.getTextLength());
+				if (millis != DateCodec.INVALID) {
+					return new Date(millis);
+				}
+			}
+			return standard.deserialize(jp, ctxt);
+		}
+	}
+}
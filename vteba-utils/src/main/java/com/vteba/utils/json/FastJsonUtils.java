@@ -1,7 +1,12 @@
 package com.vteba.utils.json;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 import java.util.List;
 
 import org.apache.commons.io.IOUtils;
@@ -10,21 +15,51 @@ import org.slf4j.LoggerFactory;
 
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.TypeReference;
+import com.alibaba.fastjson.serializer.JSONSerializer;
+import com.alibaba.fastjson.serializer.SerializeWriter;
 import com.alibaba.fastjson.serializer.SerializerFeature;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
 import com.vteba.utils.charstr.Char;
 
 /**
  * JSON工具类，使用fastjson实现。
+ * <p>调用{@link #useCodec()}或者设置系统属性{@value JacksonUtils#CODEC_PROPERTY}=true后，热点JavaBean用生成的专用编解码器处理，
+ * 结果和fastjson逐字节相同，见{@link JsonCodecs}。
  * @author yinlei
  * date 2013-8-17 下午12:28:25
  */
 public class FastJsonUtils{
 	private static Logger logger = LoggerFactory.getLogger(FastJsonUtils.class);
+	private static volatile JsonCodecs codecs;
+	
+	static {
+	    if (Boolean.getBoolean(JacksonUtils.CODEC_PROPERTY)) {
+	        useCodec();
+	    }
+	}
     
     private FastJsonUtils(){
     	
     }
     
+    /**
+     * 打开生成的JSON编解码器的快速路径，用于toJson(Object)、toJsonBytes(Object)和fromJson(byte[], Class)，
+     * 不影响指定了SerializerFeature的方法。按当时fastjson的全局配置分析每个类，应该在配置完成后调用。
+     * @author yinlei
+     * @date 2014年10月9日
+     */
+    public static synchronized void useCodec() {
+        if (codecs != null) {
+            return;
+        }
+        codecs = JsonCodecs.forFastJson();
+        if (codecs == null) {
+            logger.info("json codec is not used, the global config of fastjson has been changed.");
+        }
+    }
+    
     /**
      * 将对象序列化成json字符串。
      * @param obj 要被序列化的对象
@@ -33,7 +68,17 @@ public class FastJsonUtils{
      * @date 2013年10月13日 下午1:55:21
      */
     public static String toJson(Object obj) {
-    	String json = JSON.toJSONString(obj, SerializerFeature.WriteDateUseDateFormat);
+    	String json = null;
+    	JsonCodecs codecs = FastJsonUtils.codecs;
+    	if (codecs != null) {
+    	    byte[] bytes = codecs.encode(obj);
+    	    if (bytes != null) {
+    	        json = new String(bytes, Char.UTF8);
+    	    }
+    	}
+    	if (json == null) {
+    	    json = JSON.toJSONString(obj, SerializerFeature.WriteDateUseDateFormat);
+    	}
     	if (logger.isInfoEnabled()) {
     		logger.info(json);
     	}
@@ -64,6 +109,13 @@ public class FastJsonUtils{
      * @date 2013年10月13日 下午1:56:41
      */
     public static byte[] toJsonBytes(Object obj) {
+    	JsonCodecs codecs = FastJsonUtils.codecs;
+    	if (codecs != null) {
+    	    byte[] json = codecs.encode(obj);
+    	    if (json != null) {
+    	        return json;
+    	    }
+    	}
     	byte[] json = JSON.toJSONBytes(obj, SerializerFeature.WriteDateUseDateFormat);
         return json;
     }
@@ -81,6 +133,84 @@ public class FastJsonUtils{
         return json;
     }
     
+    /**
+     * 将对象序列化成UTF-8编码的json，直接写到OutputStream中，不会生成中间的String和整个字节数组。
+     * fastjson序列化到线程复用的字符缓冲区中，再按块编码成UTF-8写出。
+     * @param out 目标OutputStream，不会被关闭
+     * @param obj 要被序列化的对象
+     * @throws IOException 写出错误
+     * @author yinlei
+     * @date 2014年10月4日
+     */
+    public static void toJson(OutputStream out, Object obj) throws IOException {
+        toJson(out, obj, SerializerFeature.WriteDateUseDateFormat);
+    }
+    
+    /**
+     * 将对象序列化成UTF-8编码的json，直接写到OutputStream中，见{@link #toJson(OutputStream, Object)}。
+     * @param out 目标OutputStream，不会被关闭
+     * @param obj 要被序列化的对象
+     * @param serializerFeatures 序列化特性SerializerFeature
+     * @throws IOException 写出错误
+     * @author yinlei
+     * @date 2014年10月4日
+     */
+    public static void toJson(OutputStream out, Object obj, SerializerFeature... serializerFeatures) throws IOException {
+        SerializeWriter writer = new SerializeWriter();
+        try {
+            JSONSerializer serializer = new JSONSerializer(writer);
+            for (SerializerFeature feature : serializerFeatures) {
+                serializer.config(feature, true);
+            }
+            serializer.write(obj);
+            Utf8Writer utf8Writer = new Utf8Writer(out);
+            try {
+                // 直接把内部的字符数组交给Utf8Writer，不复制
+                writer.writeTo(utf8Writer);
+            } finally {
+                utf8Writer.close();
+            }
+        } finally {
+            writer.close();
+        }
+    }
+    
+    /**
+     * 将对象序列化成UTF-8编码的json，直接写到channel中，见{@link #toJson(OutputStream, Object)}。
+     * @param channel 阻塞模式的channel，不会被关闭
+     * @param obj 要被序列化的对象
+     * @throws IOException 写出错误
+     * @author yinlei
+     * @date 2014年10月4日
+     */
+    public static void toJson(WritableByteChannel channel, Object obj) throws IOException {
+        toJson(new ChannelOutputStream(channel), obj);
+    }
+    
+    /**
+     * 将对象序列化成UTF-8编码的json，写到buffer中，从buffer当前的position开始写，写完后position后移。
+     * 不会产生中间的String或者字节数组，buffer可以是池化的direct buffer。
+     * @param buffer 目标buffer，不会扩容
+     * @param obj 要被序列化的对象
+     * @return 写入的字节数
+     * @throws BufferOverflowException buffer剩余空间不够，此时buffer的position恢复到写之前
+     * @author yinlei
+     * @date 2014年10月4日
+     */
+    public static int toJson(ByteBuffer buffer, Object obj) {
+        int position = buffer.position();
+        try {
+            toJson(new ByteBufferOutputStream(buffer), obj);
+        } catch (BufferOverflowException e) {
+            buffer.position(position);
+            throw e;
+        } catch (IOException e) {
+            // ByteBufferOutputStream不会抛出IOException
+            throw new IllegalStateException(e);
+        }
+        return buffer.position() - position;
+    }
+    
     /**
      * 将json反序列化成java对象。Class&lt;T&gt;只能是JavaBean对象及其数组对象，不能是集合，Map。<br>
      * 当然，JavaBean内部是可以包含集合，Map的。
@@ -107,6 +237,13 @@ public class FastJsonUtils{
      * @date 2013年10月13日 下午2:18:22
      */
     public static <T> T fromJson(byte[] json, Class<T> clazz) {
+        JsonCodecs codecs = FastJsonUtils.codecs;
+        if (codecs != null) {
+            T value = codecs.decode(json, clazz);
+            if (value != null) {
+                return value;
+            }
+        }
         return JSON.parseObject(json, clazz);
     }
     
@@ -174,6 +311,30 @@ public class FastJsonUtils{
         return JSON.parseArray(json, clazz);
     }
     
+    /**
+     * 流式读取JSON数组，每次只把一个元素交给fastjson绑定，内存占用和数组长度无关，适合很大的数组和边下载边处理。
+     * fastjson本身没有流式解析，数组的切分使用Jackson的流式解析器，元素的绑定规则和{@link #fromJson(byte[], Class)}一样。
+     * 迭代完或者调用{@link JsonArrayIterator#close()}后释放解析器，输入流由调用者关闭。
+     * @param jsonInputStream json数组的InputStream
+     * @param clazz 元素的类型
+     * @return 元素的迭代器，读取出错时在迭代中抛出RuntimeException
+     * @throws IOException 数据不是json数组
+     */
+    public static <T> JsonArrayIterator<T> streamArray(InputStream jsonInputStream, final Class<T> clazz) throws IOException {
+        final JsonFactory factory = JacksonUtils.getObjectMapper().getFactory();
+        final ByteArrayOutputStream element = new ByteArrayOutputStream(1024);
+        return new JsonArrayIterator<T>(factory, jsonInputStream, new JsonArrayIterator.ElementReader<T>() {
+            @Override
+            public T read(JsonParser parser) throws IOException {
+                element.reset();
+                JsonGenerator generator = factory.createGenerator(element);
+                generator.copyCurrentStructure(parser);
+                generator.close();
+                return JSON.parseObject(element.toByteArray(), clazz);
+            }
+        });
+    }
+    
     /**
      * 将json反序列化成java对象。适用于任何Java对象。TypeReference用法如：<br>
      * new TypeReference&lt;Map&lt;String, List&lt;User&gt;&gt;&gt;(){}，new TypeReference&lt;List&lt;User&gt;&gt;(){}，<br>
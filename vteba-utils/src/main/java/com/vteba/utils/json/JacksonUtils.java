@@ -6,26 +6,52 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Reader;
 import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.ser.DefaultSerializerProvider;
 import com.fasterxml.jackson.databind.type.ArrayType;
 import com.fasterxml.jackson.databind.type.CollectionType;
 import com.fasterxml.jackson.databind.type.MapType;
+import com.fasterxml.jackson.dataformat.smile.SmileConstants;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.vteba.utils.charstr.Char;
+import com.vteba.utils.date.DateCodec;
 
 /**
  * 基于Jackson进行JSON和Java对象的相互转换。单例模式
+ * <p>每个类型的ObjectReader第一次使用时创建并缓存，之后的调用不再经过ObjectMapper解析类型，构造的集合、Map、数组类型也会缓存。
+ * 序列化使用不带根类型的ObjectWriter，按运行时的类查找序列化器，和ObjectMapper相同
+ * （Jackson 2.1中带根类型的ObjectWriter每次按JavaType查找序列化器，反而更慢）。
+ * <p>{@link #getBinary()}返回Smile二进制JSON格式的实例，配置和接口相同，用于服务之间的调用。
+ * <p>调用{@link #useCodec()}或者设置系统属性{@value #CODEC_PROPERTY}=true后，热点JavaBean用生成的专用编解码器处理，
+ * 结果和Jackson逐字节相同，见{@link JsonCodecs}。
+ * <p>调用{@link #useDateModule()}或者设置系统属性{@value #DATE_MODULE_PROPERTY}=true后，java.util.Date用{@link DateModule}
+ * 格式化和解析，不再每次克隆SimpleDateFormat。
  * 
  * @author yinlei
  * @date 2013-3-29 下午9:48:06
@@ -33,14 +59,49 @@ import com.fasterxml.jackson.databind.type.MapType;
 public class JacksonUtils {
 	private static final ObjectMapper objectMapper = new ObjectMapper();
 	private static final Logger logger = LoggerFactory.getLogger(JacksonUtils.class);
-	private static JacksonUtils instance = new JacksonUtils();
-
-	private JacksonUtils() {
-		objectMapper.setSerializationInclusion(Include.NON_NULL);
-		objectMapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
-		objectMapper.configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false);
+	/** 是否使用生成的JSON编解码器的系统属性 */
+	public static final String CODEC_PROPERTY = "vteba.json.codec";
+	/** 是否使用DateModule处理日期的系统属性 */
+	public static final String DATE_MODULE_PROPERTY = "vteba.json.dateModule";
+	/** Smile二进制JSON的HTTP Content-Type */
+	public static final String BINARY_CONTENT_TYPE = "application/x-jackson-smile";
+	private static JacksonUtils instance = new JacksonUtils(objectMapper, null);
+	private static JacksonUtils binaryInstance = new JacksonUtils(new ObjectMapper(smileFactory()), instance);
+
+	/** Class、java.lang.reflect.Type（TypeReference）或者JavaType -> ObjectReader */
+	private final ConcurrentMap<Object, ObjectReader> readerCache = new ConcurrentHashMap<Object, ObjectReader>();
+	private final ConcurrentMap<Class<?>, ObjectWriter> writerCache = new ConcurrentHashMap<Class<?>, ObjectWriter>();
+	/** 构造的集合、Map、数组类型 */
+	private final ConcurrentMap<List<Object>, JavaType> typeCache = new ConcurrentHashMap<List<Object>, JavaType>();
+	private final ObjectMapper mapper;
+	/** 二进制实例中处理String、Reader、Writer的文本实例，文本实例中是null */
+	private final JacksonUtils text;
+	private boolean dateModule;
+	private volatile JsonCodecs codecs;
+
+	private JacksonUtils(ObjectMapper mapper, JacksonUtils text) {
+		this.mapper = mapper;
+		this.text = text;
+		mapper.setSerializationInclusion(Include.NON_NULL);
+		mapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+		mapper.configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false);
 		SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-		objectMapper.setDateFormat(format);
+		mapper.setDateFormat(format);
+		if (Boolean.getBoolean(DATE_MODULE_PROPERTY)) {
+			useDateModule();
+		}
+		if (Boolean.getBoolean(CODEC_PROPERTY)) {
+			useCodec();
+		}
+	}
+
+	/**
+	 * Smile默认只共享属性名，这里也共享短的字符串值（SKU、品牌、日期等重复的值只写一次，之后写引用）。
+	 */
+	private static SmileFactory smileFactory() {
+		SmileFactory factory = new SmileFactory();
+		factory.configure(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES, true);
+		return factory;
 	}
 
 	/**
@@ -50,9 +111,128 @@ public class JacksonUtils {
 		return instance;
 	}
 
+	/**
+	 * 获得Smile二进制JSON格式的JacksonUtils，ObjectMapper的配置和{@link #get()}相同。
+	 * 用于我们自己的服务之间的调用：字节数组、字节流、文件、channel和ByteBuffer的方法读写Smile，
+	 * String、Reader、Writer不能承载二进制数据，这些方法读写的是文本JSON，和{@link #get()}相同。
+	 */
+	public static JacksonUtils getBinary() {
+		return binaryInstance;
+	}
+
+	/**
+	 * 数据是否以Smile的头开始，用于按内容选择{@link #getBinary()}或者{@link #get()}。
+	 * @param bytes 数据
+	 */
+	public static boolean isBinary(byte[] bytes) {
+		return bytes != null && bytes.length >= 3 && bytes[0] == SmileConstants.HEADER_BYTE_1
+				&& bytes[1] == SmileConstants.HEADER_BYTE_2 && bytes[2] == SmileConstants.HEADER_BYTE_3;
+	}
+
+	/**
+	 * 用{@link DateModule}处理java.util.Date，格式和时区取ObjectMapper当时配置的DateFormat，格式不支持时不使用。
+	 * 必须在启动时、第一次序列化和反序列化之前调用：ObjectMapper已经缓存的反序列化器不能清除。
+	 */
+	public synchronized void useDateModule() {
+		if (dateModule) {
+			return;
+		}
+		DateFormat format = mapper.getSerializationConfig().getDateFormat();
+		if (!(format instanceof SimpleDateFormat) || !DateCodec.isSupported(((SimpleDateFormat) format).toPattern())) {
+			logger.info("date module is not used, the date format is not supported.");
+			return;
+		}
+		mapper.registerModule(new DateModule(((SimpleDateFormat) format).toPattern(), format.getTimeZone()));
+		((DefaultSerializerProvider) mapper.getSerializerProvider()).flushCachedSerializers();
+		writerCache.clear();
+		readerCache.clear();
+		dateModule = true;
+	}
+
+	/**
+	 * 打开生成的JSON编解码器的快速路径，用于toJson(Object)、toJsonBytes(Object)和fromJson(byte[], Class)。
+	 * 按当时ObjectMapper的配置分析每个类，应该在配置完成后调用；配置会改变输出格式时不打开，二进制JSON实例也不打开。
+	 */
+	public synchronized void useCodec() {
+		if (codecs != null) {
+			return;
+		}
+		codecs = JsonCodecs.forJackson(mapper);
+		if (codecs == null) {
+			logger.info("json codec is not used, the ObjectMapper is not configured as JacksonUtils.");
+		}
+	}
+
+	/**
+	 * 获取类型的ObjectReader，第一次获取时创建并缓存。
+	 * @param clazz 要被转换成的类型
+	 * @return ObjectReader
+	 */
+	public ObjectReader getReader(Class<?> clazz) {
+		ObjectReader reader = readerCache.get(clazz);
+		if (reader == null) {
+			reader = mapper.reader(clazz);
+			readerCache.putIfAbsent(clazz, reader);
+		}
+		return reader;
+	}
+
+	/**
+	 * 获取类型的ObjectReader，第一次获取时创建并缓存。
+	 * @param valueType 要被转换成的类型
+	 * @return ObjectReader
+	 */
+	public ObjectReader getReader(JavaType valueType) {
+		ObjectReader reader = readerCache.get(valueType);
+		if (reader == null) {
+			reader = mapper.reader(valueType);
+			readerCache.putIfAbsent(valueType, reader);
+		}
+		return reader;
+	}
+
+	/**
+	 * 获取类型的ObjectReader，第一次获取时创建并缓存，TypeReference按其泛型类型缓存。
+	 * @param valueTypeRef 要被转换成的类型
+	 * @return ObjectReader
+	 */
+	public ObjectReader getReader(TypeReference<?> valueTypeRef) {
+		Type type = valueTypeRef.getType();
+		ObjectReader reader = readerCache.get(type);
+		if (reader == null) {
+			reader = mapper.reader(valueTypeRef);
+			readerCache.putIfAbsent(type, reader);
+		}
+		return reader;
+	}
+
+	/**
+	 * 获取类型的ObjectWriter，第一次获取时创建并缓存。
+	 * @param clazz 要序列化的对象的类型
+	 * @return ObjectWriter
+	 */
+	public ObjectWriter getWriter(Class<?> clazz) {
+		ObjectWriter writer = writerCache.get(clazz);
+		if (writer == null) {
+			writer = mapper.writerWithType(clazz);
+			writerCache.putIfAbsent(clazz, writer);
+		}
+		return writer;
+	}
+
 	public String toJson(Object object) {
+		if (text != null) {
+			return text.toJson(object);
+		}
+		JsonCodecs codecs = this.codecs;
+		if (codecs != null) {
+			byte[] json = codecs.encode(object);
+			if (json != null) {
+				return new String(json, Char.UTF8);
+			}
+		}
 		try {
-			return objectMapper.writeValueAsString(object);
+			return mapper.writer().writeValueAsString(object);
 		} catch (JsonProcessingException e) {
 			logger.warn("generate json string error, object is {}", object, e);
 		}
@@ -60,8 +240,15 @@ public class JacksonUtils {
 	}
 
 	public byte[] toJsonBytes(Object object) {
+		JsonCodecs codecs = this.codecs;
+		if (codecs != null) {
+			byte[] json = codecs.encode(object);
+			if (json != null) {
+				return json;
+			}
+		}
 		try {
-			return objectMapper.writeValueAsBytes(object);
+			return mapper.writer().writeValueAsBytes(object);
 		} catch (JsonProcessingException e) {
 			logger.warn("generate json byte[] error, object is {}", object, e);
 		}
@@ -70,7 +257,7 @@ public class JacksonUtils {
 
 	public void toJson(File resultFile, Object value) {
 		try {
-			objectMapper.writeValue(resultFile, value);
+			mapper.writer().writeValue(resultFile, value);
 		} catch (IOException e) {
 			logger.warn("write json to File error, object is {}", value, e);
 		}
@@ -78,7 +265,7 @@ public class JacksonUtils {
 
 	public void toJson(OutputStream out, Object value) {
 		try {
-			objectMapper.writeValue(out, value);
+			mapper.writer().writeValue(out, value);
 		} catch (IOException e) {
 			logger.warn("write json to OutputStream error, object is {}",
 					value, e);
@@ -86,13 +273,64 @@ public class JacksonUtils {
 	}
 
 	public void toJson(Writer writer, Object value) {
+		if (text != null) {
+			text.toJson(writer, value);
+			return;
+		}
 		try {
-			objectMapper.writeValue(writer, value);
+			mapper.writer().writeValue(writer, value);
 		} catch (IOException e) {
 			logger.warn("write json to Write error, object is {}", value, e);
 		}
 	}
 
+	/**
+	 * 将对象序列化成UTF-8编码的JSON，直接写到channel中。Jackson在复用的缓冲区中编码，满了就写出，不会生成String或者整个字节数组。
+	 * 
+	 * @param channel
+	 *            阻塞模式的channel，不会被关闭
+	 * @param value
+	 *            要序列化的对象
+	 */
+	public void toJson(WritableByteChannel channel, Object value) {
+		try {
+			mapper.writer().writeValue(new ChannelOutputStream(channel), value);
+		} catch (IOException e) {
+			logger.warn("write json to WritableByteChannel error, object is {}", value, e);
+		}
+	}
+
+	/**
+	 * 将对象序列化成UTF-8编码的JSON，写到buffer中，从buffer当前的position开始写，写完后position后移。
+	 * 不会产生中间的String或者字节数组，buffer可以是池化的direct buffer。
+	 * 
+	 * @param buffer
+	 *            目标buffer，不会扩容
+	 * @param value
+	 *            要序列化的对象
+	 * @return 写入的字节数
+	 * @throws BufferOverflowException
+	 *             buffer剩余空间不够，此时buffer的position恢复到写之前
+	 */
+	public int toJson(ByteBuffer buffer, Object value) {
+		int position = buffer.position();
+		ByteBufferOutputStream out = new ByteBufferOutputStream(buffer);
+		try {
+			mapper.writer().writeValue(out, value);
+		} catch (IOException e) {
+			if (!out.isOverflowed()) {
+				logger.warn("write json to ByteBuffer error, object is {}", value, e);
+			}
+		} catch (BufferOverflowException e) {
+			// 下面统一处理
+		}
+		if (out.isOverflowed()) {
+			buffer.position(position);
+			throw new BufferOverflowException();
+		}
+		return buffer.position() - position;
+	}
+
 	/**
 	 * 将json字符串序列化成简单对象（非Collection，Map等）。可序列化对象数组。
 	 * 
@@ -103,8 +341,11 @@ public class JacksonUtils {
 	 * @return 序列化后的java对象
 	 */
 	public <T> T fromJson(String json, Class<T> clazz) {
+		if (text != null) {
+			return text.fromJson(json, clazz);
+		}
 		try {
-			return objectMapper.readValue(json, clazz);
+			return getReader(clazz).readValue(json);
 		} catch (IOException e) {
 			logger.warn("parse json string error, json={}.", json, e);
 		}
@@ -122,8 +363,11 @@ public class JacksonUtils {
 	 * @return 序列化后的java对象
 	 */
 	public <T> T fromJson(String json, TypeReference<T> valueTypeRef) {
+		if (text != null) {
+			return text.fromJson(json, valueTypeRef);
+		}
 		try {
-			return objectMapper.readValue(json, valueTypeRef);
+			return getReader(valueTypeRef).readValue(json);
 		} catch (IOException e) {
 			logger.warn("parse json string error, json={}.", json, e);
 		}
@@ -140,8 +384,11 @@ public class JacksonUtils {
 	 * @return 序列化后的java对象
 	 */
 	public <T> T fromJson(String json, JavaType valueType) {
+		if (text != null) {
+			return text.fromJson(json, valueType);
+		}
 		try {
-			return objectMapper.readValue(json, valueType);
+			return getReader(valueType).readValue(json);
 		} catch (IOException e) {
 			logger.warn("parse json string error, json={}.", json, e);
 		}
@@ -149,8 +396,15 @@ public class JacksonUtils {
 	}
 
 	public <T> T fromJson(byte[] jsonBytes, Class<T> clazz) {
+		JsonCodecs codecs = this.codecs;
+		if (codecs != null) {
+			T value = codecs.decode(jsonBytes, clazz);
+			if (value != null) {
+				return value;
+			}
+		}
 		try {
-			return objectMapper.readValue(jsonBytes, clazz);
+			return getReader(clazz).readValue(jsonBytes);
 		} catch (IOException e) {
 			logger.warn("parse json byte[] error, json={}.", new String(
 					jsonBytes), e);
@@ -160,7 +414,7 @@ public class JacksonUtils {
 
 	public <T> T fromJson(byte[] jsonBytes, TypeReference<?> valueTypeRef) {
 		try {
-			return objectMapper.readValue(jsonBytes, valueTypeRef);
+			return getReader(valueTypeRef).readValue(jsonBytes);
 		} catch (IOException e) {
 			logger.warn("parse json byte[] error, json={}.", new String(
 					jsonBytes), e);
@@ -170,7 +424,7 @@ public class JacksonUtils {
 
 	public <T> T fromJson(byte[] jsonBytes, JavaType valueType) {
 		try {
-			return objectMapper.readValue(jsonBytes, valueType);
+			return getReader(valueType).readValue(jsonBytes);
 		} catch (IOException e) {
 			logger.warn("parse json byte[] error, json={}.", new String(
 					jsonBytes), e);
@@ -180,7 +434,7 @@ public class JacksonUtils {
 
 	public <T> T fromJson(File src, Class<T> valueType) {
 		try {
-			return objectMapper.readValue(src, valueType);
+			return getReader(valueType).readValue(src);
 		} catch (IOException e) {
 			logger.warn("parse json from File error.", e);
 		}
@@ -189,7 +443,7 @@ public class JacksonUtils {
 
 	public <T> T fromJson(File src, TypeReference<?> valueTypeRef) {
 		try {
-			return objectMapper.readValue(src, valueTypeRef);
+			return getReader(valueTypeRef).readValue(src);
 		} catch (IOException e) {
 			logger.warn("parse json from File error.", e);
 		}
@@ -198,7 +452,7 @@ public class JacksonUtils {
 
 	public <T> T fromJson(File src, JavaType valueType) {
 		try {
-			return objectMapper.readValue(src, valueType);
+			return getReader(valueType).readValue(src);
 		} catch (IOException e) {
 			logger.warn("parse json from File error.", e);
 		}
@@ -206,8 +460,11 @@ public class JacksonUtils {
 	}
 
 	public <T> T fromJson(Reader src, Class<T> valueType) {
+		if (text != null) {
+			return text.fromJson(src, valueType);
+		}
 		try {
-			return objectMapper.readValue(src, valueType);
+			return getReader(valueType).readValue(src);
 		} catch (IOException e) {
 			logger.warn("parse json from Reader error.", e);
 		}
@@ -215,8 +472,11 @@ public class JacksonUtils {
 	}
 
 	public <T> T fromJson(Reader src, TypeReference<?> valueTypeRef) {
+		if (text != null) {
+			return text.fromJson(src, valueTypeRef);
+		}
 		try {
-			return objectMapper.readValue(src, valueTypeRef);
+			return getReader(valueTypeRef).readValue(src);
 		} catch (IOException e) {
 			logger.warn("parse json from Reader error.", e);
 		}
@@ -224,8 +484,11 @@ public class JacksonUtils {
 	}
 
 	public <T> T fromJson(Reader src, JavaType valueType) {
+		if (text != null) {
+			return text.fromJson(src, valueType);
+		}
 		try {
-			return objectMapper.readValue(src, valueType);
+			return getReader(valueType).readValue(src);
 		} catch (IOException e) {
 			logger.warn("parse json from Reader error.", e);
 		}
@@ -234,7 +497,7 @@ public class JacksonUtils {
 
 	public <T> T fromJson(InputStream src, Class<T> valueType) {
 		try {
-			return objectMapper.readValue(src, valueType);
+			return getReader(valueType).readValue(src);
 		} catch (IOException e) {
 			logger.warn("parse json from InputStream error.", e);
 		}
@@ -243,7 +506,7 @@ public class JacksonUtils {
 
 	public <T> T fromJson(InputStream src, TypeReference<?> valueTypeRef) {
 		try {
-			return objectMapper.readValue(src, valueTypeRef);
+			return getReader(valueTypeRef).readValue(src);
 		} catch (IOException e) {
 			logger.warn("parse json from InputStream error.", e);
 		}
@@ -252,58 +515,142 @@ public class JacksonUtils {
 
 	public <T> T fromJson(InputStream src, JavaType valueType) {
 		try {
-			return objectMapper.readValue(src, valueType);
+			return getReader(valueType).readValue(src);
 		} catch (IOException e) {
 			logger.warn("parse json from InputStream error.", e);
 		}
 		return null;
 	}
 
+	/**
+	 * 流式读取JSON数组，返回的迭代器每次只解析一个元素，内存占用和数组长度无关，适合很大的数组和边下载边处理。
+	 * 迭代完或者调用{@link JsonArrayIterator#close()}后释放解析器，输入流由调用者关闭。
+	 * 
+	 * @param src
+	 *            JSON数组的输入流，空的输入返回空的迭代器
+	 * @param clazz
+	 *            元素的类型
+	 * @return 元素的迭代器，读取出错时在迭代中抛出RuntimeException
+	 * @throws IOException
+	 *             数据不是JSON数组
+	 */
+	public <T> JsonArrayIterator<T> streamArray(InputStream src, final Class<T> clazz) throws IOException {
+		return new JsonArrayIterator<T>(mapper.getFactory(), src, new JsonArrayIterator.ElementReader<T>() {
+			@Override
+			public T read(JsonParser parser) throws IOException {
+				return getReader(clazz).readValue(parser);
+			}
+		});
+	}
+
+	/**
+	 * 流式读取JSON数组，元素可以是泛型类型，见{@link #streamArray(InputStream, Class)}。
+	 * 
+	 * @param src
+	 *            JSON数组的输入流
+	 * @param elementType
+	 *            元素的类型
+	 * @return 元素的迭代器
+	 * @throws IOException
+	 *             数据不是JSON数组
+	 */
+	public <T> JsonArrayIterator<T> streamArray(InputStream src, final JavaType elementType) throws IOException {
+		return new JsonArrayIterator<T>(mapper.getFactory(), src, new JsonArrayIterator.ElementReader<T>() {
+			@Override
+			public T read(JsonParser parser) throws IOException {
+				return getReader(elementType).readValue(parser);
+			}
+		});
+	}
+
 	public ArrayType constructArrayType(Class<?> elementType) {
-		return objectMapper.getTypeFactory().constructArrayType(elementType);
+		List<Object> key = Arrays.<Object>asList(ArrayType.class, elementType);
+		ArrayType arrayType = (ArrayType) typeCache.get(key);
+		if (arrayType == null) {
+			arrayType = mapper.getTypeFactory().constructArrayType(elementType);
+			typeCache.putIfAbsent(key, arrayType);
+		}
+		return arrayType;
 	}
 
 	public ArrayType constructArrayType(JavaType elementType) {
-		return objectMapper.getTypeFactory().constructArrayType(elementType);
+		List<Object> key = Arrays.<Object>asList(ArrayType.class, elementType);
+		ArrayType arrayType = (ArrayType) typeCache.get(key);
+		if (arrayType == null) {
+			arrayType = mapper.getTypeFactory().constructArrayType(elementType);
+			typeCache.putIfAbsent(key, arrayType);
+		}
+		return arrayType;
 	}
 
 	public CollectionType constructCollectionType(
 			Class<?> collectionClass, Class<?> elementClass) {
-	    @SuppressWarnings("unchecked")
-        CollectionType collectionType = objectMapper.getTypeFactory().constructCollectionType(
-				(Class<? extends Collection<?>>) collectionClass, elementClass);
-	    return collectionType;
+		List<Object> key = Arrays.<Object>asList(CollectionType.class, collectionClass, elementClass);
+		CollectionType collectionType = (CollectionType) typeCache.get(key);
+		if (collectionType == null) {
+			@SuppressWarnings("unchecked")
+			CollectionType type = mapper.getTypeFactory().constructCollectionType(
+					(Class<? extends Collection<?>>) collectionClass, elementClass);
+			collectionType = type;
+			typeCache.putIfAbsent(key, collectionType);
+		}
+		return collectionType;
 	}
 
 	public CollectionType constructCollectionType(
 			Class<?> collectionClass, JavaType elementType) {
-		@SuppressWarnings("unchecked")
-        CollectionType collectionType = objectMapper.getTypeFactory().constructCollectionType(
-				(Class<? extends Collection<?>>) collectionClass, elementType);
+		List<Object> key = Arrays.<Object>asList(CollectionType.class, collectionClass, elementType);
+		CollectionType collectionType = (CollectionType) typeCache.get(key);
+		if (collectionType == null) {
+			@SuppressWarnings("unchecked")
+			CollectionType type = mapper.getTypeFactory().constructCollectionType(
+					(Class<? extends Collection<?>>) collectionClass, elementType);
+			collectionType = type;
+			typeCache.putIfAbsent(key, collectionType);
+		}
 		return collectionType;
 	}
 
 	public MapType constructMapType(Class<?> mapClass,
 			JavaType keyType, JavaType valueType) {
-		@SuppressWarnings("unchecked")
-        MapType mapType = objectMapper.getTypeFactory().constructMapType((Class<? extends Map<?, ?>>) mapClass,
-				keyType, valueType);
+		List<Object> key = Arrays.<Object>asList(MapType.class, mapClass, keyType, valueType);
+		MapType mapType = (MapType) typeCache.get(key);
+		if (mapType == null) {
+			@SuppressWarnings("unchecked")
+			MapType type = mapper.getTypeFactory().constructMapType((Class<? extends Map<?, ?>>) mapClass,
+					keyType, valueType);
+			mapType = type;
+			typeCache.putIfAbsent(key, mapType);
+		}
 		return mapType;
 	}
 
 	public MapType constructMapType(Class<?> mapClass,
 			Class<?> keyClass, Class<?> valueClass) {
-	    @SuppressWarnings("unchecked")
-        MapType mapType = objectMapper.getTypeFactory().constructMapType((Class<? extends Map<?, ?>>) mapClass,
-				keyClass, valueClass);
-	    return mapType;
+		List<Object> key = Arrays.<Object>asList(MapType.class, mapClass, keyClass, valueClass);
+		MapType mapType = (MapType) typeCache.get(key);
+		if (mapType == null) {
+			@SuppressWarnings("unchecked")
+			MapType type = mapper.getTypeFactory().constructMapType((Class<? extends Map<?, ?>>) mapClass,
+					keyClass, valueClass);
+			mapType = type;
+			typeCache.putIfAbsent(key, mapType);
+		}
+		return mapType;
 	}
 
 	public JavaType uncheckedSimpleType(Class<?> cls) {
-		return objectMapper.getTypeFactory().uncheckedSimpleType(cls);
+		return mapper.getTypeFactory().uncheckedSimpleType(cls);
 	}
 
 	public static ObjectMapper getObjectMapper() {
 		return objectMapper;
 	}
+
+	/**
+	 * 获得该实例使用的ObjectMapper，二进制JSON实例返回的是二进制格式的ObjectMapper。
+	 */
+	public ObjectMapper getMapper() {
+		return mapper;
+	}
 }
@@ -0,0 +1,107 @@
+package com.vteba.utils.json;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * 用Jackson的流式解析器逐个读取JSON数组的元素，内存占用只和单个元素的大小有关，和数组长度无关，
+ * 数据还没有下载完就可以开始处理。见{@link JacksonUtils#streamArray(InputStream, Class)}和
+ * {@link FastJsonUtils#streamArray(InputStream, Class)}。
+ * <p>不会关闭输入流，由调用者关闭。读取出错时抛出RuntimeException，cause是原来的IOException。不是线程安全的。
+ * @author yinlei
+ * @since 2014-10-2
+ * @param <T> 元素类型
+ */
+public class JsonArrayIterator<T> implements Iterator<T>, Closeable {
+	private final JsonParser parser;
+	private final ElementReader<T> reader;
+	private T next;
+	private boolean fetched;
+	private boolean finished;
+
+	/**
+	 * 读取一个元素，调用时parser在元素的第一个token上，读完后parser在元素的最后一个token上。
+	 */
+	interface ElementReader<T> {
+		T read(JsonParser parser) throws IOException;
+	}
+
+	/**
+	 * @throws IOException 创建解析器出错，或者数据不是以数组开始（空的输入除外）
+	 */
+	JsonArrayIterator(JsonFactory factory, InputStream in, ElementReader<T> reader) throws IOException {
+		this.parser = factory.createParser(in);
+		this.parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+		this.reader = reader;
+		JsonToken token = parser.nextToken();
+		if (token == null) {
+			finished = true;
+		} else if (token != JsonToken.START_ARRAY) {
+			parser.close();
+			throw new IOException("JSON数据不是数组，开始于：" + token);
+		}
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (!fetched && !finished) {
+			fetch();
+		}
+		return !finished;
+	}
+
+	@Override
+	public T next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		T t = next;
+		next = null;
+		fetched = false;
+		return t;
+	}
+
+	private void fetch() {
+		try {
+			JsonToken token = parser.nextToken();
+			if (token == JsonToken.END_ARRAY || token == null) {
+				close();
+				return;
+			}
+			next = reader.read(parser);
+			fetched = true;
+		} catch (IOException e) {
+			close();
+			throw new RuntimeException(e);
+		} catch (RuntimeException e) {
+			close();
+			throw e;
+		}
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException("remove");
+	}
+
+	/**
+	 * 结束迭代，释放解析器的缓冲区。不会关闭输入流。
+	 */
+	@Override
+	public void close() {
+		finished = true;
+		next = null;
+		try {
+			parser.close();
+		} catch (IOException e) {
+			// 输入流不由解析器关闭，不会出错
+		}
+	}
+}
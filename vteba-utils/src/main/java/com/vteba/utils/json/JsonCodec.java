@@ -0,0 +1,682 @@
+package com.vteba.utils.json;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * {@link JsonCodecs}为每个JavaBean类用ASM生成的JSON编码解码器的父类。子类的encode依次直接调用getter，
+ * 写出预先编码好的属性名字节和属性值；decodeField对属性名的hash做lookupswitch，比较属性名字节后直接调用setter。
+ * <p>遇到不能保证和Jackson、fastjson结果完全相同的情况（需要它们特殊处理的字符、不认识的属性名、类型不符的值、
+ * 不是标准格式的JSON等）抛出{@link #FALLBACK}，由JsonCodecs交给原来的序列化框架从头处理。
+ * <p>生成的子类在JavaBean所在的包中，所以这个类和Input、Output的部分方法是public的，但不应该直接使用。
+ * @author yinlei
+ * @since 2014-10-9
+ */
+public abstract class JsonCodec {
+	/** 放弃快速路径，交给原来的序列化框架处理。不填充堆栈 */
+	static final RuntimeException FALLBACK = new RuntimeException("fallback") {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public synchronized Throwable fillInStackTrace() {
+			return this;
+		}
+	};
+	/** 嵌套的最大层数，超过时（例如循环引用）交给原来的序列化框架 */
+	private static final int MAX_DEPTH = 100;
+
+	/** 每个属性的 ,"name": */
+	protected byte[][] names;
+	/** 每个属性名的UTF-8字节，解码时比较 */
+	protected byte[][] rawNames;
+	/** BEAN属性是声明的类型，LIST属性是元素的类型 */
+	Class<?>[] types;
+	boolean decodable;
+	JsonCodecs codecs;
+
+	protected JsonCodec() {
+	}
+
+	/**
+	 * 写出所有的属性，不包括大括号。生成的方法。
+	 */
+	public abstract void encode(Object bean, Output out);
+
+	/**
+	 * 用无参构造方法创建对象，不能解码时返回null。生成的方法。
+	 */
+	public abstract Object newInstance();
+
+	/**
+	 * 读取名字hash为hash的属性的值，调用setter。生成的方法。
+	 * @return 是否是已知的属性
+	 */
+	public abstract boolean decodeField(Object bean, int hash, Input in);
+
+	final void write(Object bean, Output out) {
+		if (++out.depth > MAX_DEPTH) {
+			throw FALLBACK;
+		}
+		out.reference(bean);
+		out.writeByte('{');
+		encode(bean, out);
+		out.writeByte('}');
+		out.depth--;
+	}
+
+	final Object read(Input in) {
+		if (!decodable || ++in.depth > MAX_DEPTH) {
+			throw FALLBACK;
+		}
+		in.expect('{');
+		Object bean = newInstance();
+		in.skipWhitespace();
+		if (in.peek() == '}') {
+			in.pos++;
+		} else {
+			while (true) {
+				if (!decodeField(bean, in.readNameHash(), in)) {
+					throw FALLBACK;
+				}
+				in.skipWhitespace();
+				int c = in.next();
+				if (c == '}') {
+					break;
+				}
+				if (c != ',') {
+					throw FALLBACK;
+				}
+				in.skipWhitespace();
+			}
+		}
+		in.depth--;
+		return bean;
+	}
+
+	public void writeDate(Output out, Date date) {
+		codecs.writeDate(out, date);
+	}
+
+	public Date readDate(Input in) {
+		return codecs.readDate(in);
+	}
+
+	/**
+	 * 按运行时的类型写出JavaBean属性。
+	 */
+	public void writeBean(Output out, Object value) {
+		codecs.codecFor(value.getClass()).write(value, out);
+	}
+
+	/**
+	 * 按声明的类型读取JavaBean属性。
+	 */
+	public Object readBean(Input in, int index) {
+		if (in.readNull()) {
+			return null;
+		}
+		return codecs.codecFor(types[index]).read(in);
+	}
+
+	/**
+	 * 写出List属性，元素可以是String、Integer、Long、Boolean和JavaBean。
+	 */
+	public void writeList(Output out, List<?> list) {
+		if (list.getClass() != ArrayList.class && list.getClass() != LinkedList.class) {
+			throw FALLBACK;
+		}
+		out.reference(list);
+		out.writeByte('[');
+		boolean first = true;
+		for (Object element : list) {
+			if (!first) {
+				out.writeByte(',');
+			}
+			first = false;
+			if (element == null) {
+				out.writeNull();
+			} else if (element instanceof String) {
+				out.writeString((String) element);
+			} else if (element instanceof Integer) {
+				out.writeInt((Integer) element);
+			} else if (element instanceof Long) {
+				out.writeLong((Long) element);
+			} else if (element instanceof Boolean) {
+				out.writeBoolean((Boolean) element);
+			} else {
+				writeBean(out, element);
+			}
+		}
+		out.writeByte(']');
+	}
+
+	/**
+	 * 读取List属性，返回ArrayList。
+	 */
+	public List<Object> readList(Input in, int index) {
+		if (in.readNull()) {
+			return null;
+		}
+		in.expect('[');
+		List<Object> list = new ArrayList<Object>();
+		in.skipWhitespace();
+		if (in.peek() == ']') {
+			in.pos++;
+			return list;
+		}
+		Class<?> type = types[index];
+		JsonCodec codec = null;
+		if (type != String.class && type != Integer.class && type != Long.class && type != Boolean.class) {
+			codec = codecs.codecFor(type);
+		}
+		while (true) {
+			if (type == String.class) {
+				list.add(in.readString());
+			} else if (type == Integer.class) {
+				list.add(in.readInteger());
+			} else if (type == Long.class) {
+				list.add(in.readLongObject());
+			} else if (type == Boolean.class) {
+				list.add(in.readBooleanObject());
+			} else {
+				list.add(in.readNull() ? null : codec.read(in));
+			}
+			in.skipWhitespace();
+			int c = in.next();
+			if (c == ']') {
+				return list;
+			}
+			if (c != ',') {
+				throw FALLBACK;
+			}
+			in.skipWhitespace();
+		}
+	}
+
+	/**
+	 * 写出JSON的字节缓冲区，只有Jackson和fastjson都原样输出的字符才在这里编码，其他的抛出FALLBACK。
+	 */
+	public static final class Output {
+		/** 0：原样输出，-1：FALLBACK，其他：反斜杠后的字符 */
+		private static final byte[] ESCAPES = new byte[128];
+		static {
+			for (int i = 0; i < 0x20; i++) {
+				ESCAPES[i] = -1;
+			}
+			ESCAPES['"'] = '"';
+			ESCAPES['\\'] = '\\';
+			ESCAPES['\b'] = 'b';
+			ESCAPES['\t'] = 't';
+			ESCAPES['\n'] = 'n';
+			ESCAPES['\f'] = 'f';
+			ESCAPES['\r'] = 'r';
+		}
+
+		byte[] buf;
+		int pos;
+		int depth;
+		boolean busy;
+		/** 已经写出的JavaBean和List，fastjson对重复出现的对象写$ref，遇到时交给fastjson。不检查时为null */
+		IdentityHashMap<Object, Boolean> references;
+
+		Output(int capacity) {
+			buf = new byte[capacity];
+		}
+
+		void reset(boolean trackReferences) {
+			pos = 0;
+			depth = 0;
+			if (trackReferences) {
+				if (references == null) {
+					references = new IdentityHashMap<Object, Boolean>();
+				} else {
+					references.clear();
+				}
+			} else {
+				references = null;
+			}
+		}
+
+		void reference(Object value) {
+			if (references != null && references.put(value, Boolean.TRUE) != null) {
+				throw FALLBACK;
+			}
+		}
+
+		private void ensure(int n) {
+			if (pos + n > buf.length) {
+				byte[] bytes = new byte[Math.max(buf.length << 1, pos + n)];
+				System.arraycopy(buf, 0, bytes, 0, pos);
+				buf = bytes;
+			}
+		}
+
+		void writeByte(int b) {
+			ensure(1);
+			buf[pos++] = (byte) b;
+		}
+
+		void writeNull() {
+			ensure(4);
+			buf[pos++] = 'n';
+			buf[pos++] = 'u';
+			buf[pos++] = 'l';
+			buf[pos++] = 'l';
+		}
+
+		/**
+		 * 写出 ,"name": ，是对象的第一个属性时不写逗号。
+		 */
+		public void writeName(byte[] name) {
+			int n = name.length;
+			ensure(n);
+			int from = buf[pos - 1] == '{' ? 1 : 0;
+			System.arraycopy(name, from, buf, pos, n - from);
+			pos += n - from;
+		}
+
+		public void writeInt(int value) {
+			if (value == Integer.MIN_VALUE) {
+				writeLong(value);
+				return;
+			}
+			ensure(11);
+			if (value < 0) {
+				buf[pos++] = '-';
+				value = -value;
+			}
+			int end = pos + digits(value);
+			int p = end;
+			do {
+				buf[--p] = (byte) ('0' + value % 10);
+				value /= 10;
+			} while (value != 0);
+			pos = end;
+		}
+
+		public void writeLong(long value) {
+			if (value >= Integer.MIN_VALUE + 1 && value <= Integer.MAX_VALUE) {
+				writeInt((int) value);
+				return;
+			}
+			if (value == Long.MIN_VALUE) {
+				writeAscii("-9223372036854775808");
+				return;
+			}
+			ensure(20);
+			if (value < 0) {
+				buf[pos++] = '-';
+				value = -value;
+			}
+			int n = 1;
+			for (long v = value / 10; v != 0; v /= 10) {
+				n++;
+			}
+			int end = pos + n;
+			int p = end;
+			do {
+				buf[--p] = (byte) ('0' + value % 10);
+				value /= 10;
+			} while (value != 0);
+			pos = end;
+		}
+
+		private static int digits(int value) {
+			int n = 1;
+			while (value >= 10) {
+				value /= 10;
+				n++;
+			}
+			return n;
+		}
+
+		public void writeBoolean(boolean value) {
+			writeAscii(value ? "true" : "false");
+		}
+
+		void writeAscii(String s) {
+			int n = s.length();
+			ensure(n);
+			for (int i = 0; i < n; i++) {
+				buf[pos++] = (byte) s.charAt(i);
+			}
+		}
+
+		/**
+		 * 写出带引号的字符串，UTF-8编码。代理字符和需要转义为\\uXXXX的控制字符抛出FALLBACK。
+		 */
+		public void writeString(String s) {
+			int n = s.length();
+			ensure(n * 3 + 2);
+			byte[] b = buf;
+			int p = pos;
+			b[p++] = '"';
+			for (int i = 0; i < n; i++) {
+				char c = s.charAt(i);
+				if (c < 0x80) {
+					byte escape = ESCAPES[c];
+					if (escape == 0) {
+						b[p++] = (byte) c;
+					} else if (escape > 0) {
+						// 转义多占一个字节，最坏情况每个字符两个字节，不超过预留的3个字节
+						b[p++] = '\\';
+						b[p++] = escape;
+					} else {
+						throw FALLBACK;
+					}
+				} else if (c < 0x800) {
+					b[p++] = (byte) (0xC0 | (c >> 6));
+					b[p++] = (byte) (0x80 | (c & 0x3F));
+				} else if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+					throw FALLBACK;
+				} else {
+					b[p++] = (byte) (0xE0 | (c >> 12));
+					b[p++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+					b[p++] = (byte) (0x80 | (c & 0x3F));
+				}
+			}
+			b[p++] = '"';
+			pos = p;
+		}
+
+		byte[] toByteArray() {
+			byte[] bytes = new byte[pos];
+			System.arraycopy(buf, 0, bytes, 0, pos);
+			return bytes;
+		}
+	}
+
+	/**
+	 * 读取标准JSON的字节，只接受Jackson和fastjson解析结果一定相同的输入，其他的抛出FALLBACK。
+	 */
+	public static final class Input {
+		final byte[] buf;
+		final int end;
+		int pos;
+		int depth;
+		/** null值是否按null设置，否则抛出FALLBACK */
+		final boolean nullable;
+		private int nameStart;
+		private int nameLength;
+
+		Input(byte[] buf, int offset, int length, boolean nullable) {
+			this.buf = buf;
+			this.pos = offset;
+			this.end = offset + length;
+			this.nullable = nullable;
+		}
+
+		void skipWhitespace() {
+			while (pos < end) {
+				byte b = buf[pos];
+				if (b != ' ' && b != '\n' && b != '\r' && b != '\t') {
+					return;
+				}
+				pos++;
+			}
+		}
+
+		int peek() {
+			return pos < end ? buf[pos] : -1;
+		}
+
+		int next() {
+			if (pos >= end) {
+				throw FALLBACK;
+			}
+			return buf[pos++];
+		}
+
+		void expect(int c) {
+			if (pos >= end || buf[pos] != c) {
+				throw FALLBACK;
+			}
+			pos++;
+		}
+
+		/**
+		 * 读取null，不是null时不移动位置。
+		 * @return 是否是null
+		 */
+		boolean readNull() {
+			if (pos + 4 <= end && buf[pos] == 'n' && buf[pos + 1] == 'u' && buf[pos + 2] == 'l' && buf[pos + 3] == 'l') {
+				if (!nullable) {
+					throw FALLBACK;
+				}
+				pos += 4;
+				return true;
+			}
+			return false;
+		}
+
+		/**
+		 * 读取属性名和冒号，返回属性名UTF-8字节的hash（h = 31 * h + b）。属性名中有转义字符时抛出FALLBACK。
+		 */
+		int readNameHash() {
+			expect('"');
+			int start = pos;
+			int h = 0;
+			while (true) {
+				if (pos >= end) {
+					throw FALLBACK;
+				}
+				byte b = buf[pos];
+				if (b == '"') {
+					break;
+				}
+				if (b == '\\' || (b >= 0 && b < 0x20)) {
+					throw FALLBACK;
+				}
+				h = 31 * h + b;
+				pos++;
+			}
+			nameStart = start;
+			nameLength = pos - start;
+			pos++;
+			skipWhitespace();
+			expect(':');
+			skipWhitespace();
+			return h;
+		}
+
+		public boolean nameEquals(byte[] name) {
+			if (name.length != nameLength) {
+				return false;
+			}
+			for (int i = 0, p = nameStart; i < nameLength; i++, p++) {
+				if (buf[p] != name[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		public int readInt() {
+			long value = readLong();
+			if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+				throw FALLBACK;
+			}
+			return (int) value;
+		}
+
+		/**
+		 * 只接受不超过18位的整数，没有小数和指数部分。
+		 */
+		public long readLong() {
+			int p = pos;
+			boolean negative = p < end && buf[p] == '-';
+			if (negative) {
+				p++;
+			}
+			int start = p;
+			long value = 0;
+			while (p < end) {
+				int b = buf[p];
+				if (b < '0' || b > '9') {
+					break;
+				}
+				value = value * 10 + (b - '0');
+				p++;
+			}
+			int n = p - start;
+			if (n == 0 || n > 18 || (n > 1 && buf[start] == '0')) {
+				throw FALLBACK;
+			}
+			if (p < end && (buf[p] == '.' || buf[p] == 'e' || buf[p] == 'E')) {
+				throw FALLBACK;
+			}
+			pos = p;
+			return negative ? -value : value;
+		}
+
+		public boolean readBoolean() {
+			if (pos + 4 <= end && buf[pos] == 't' && buf[pos + 1] == 'r' && buf[pos + 2] == 'u' && buf[pos + 3] == 'e') {
+				pos += 4;
+				return true;
+			}
+			if (pos + 5 <= end && buf[pos] == 'f' && buf[pos + 1] == 'a' && buf[pos + 2] == 'l' && buf[pos + 3] == 's'
+					&& buf[pos + 4] == 'e') {
+				pos += 5;
+				return false;
+			}
+			throw FALLBACK;
+		}
+
+		public Integer readInteger() {
+			return readNull() ? null : Integer.valueOf(readInt());
+		}
+
+		public Long readLongObject() {
+			return readNull() ? null : Long.valueOf(readLong());
+		}
+
+		public Boolean readBooleanObject() {
+			return readNull() ? null : Boolean.valueOf(readBoolean());
+		}
+
+		@SuppressWarnings("deprecation")
+		public String readString() {
+			if (readNull()) {
+				return null;
+			}
+			expect('"');
+			int start = pos;
+			int p = start;
+			// ASCII并且没有转义字符
+			while (p < end) {
+				byte b = buf[p];
+				if (b == '"') {
+					pos = p + 1;
+					return new String(buf, 0, start, p - start);
+				}
+				if (b < 0x20 || b == '\\') {
+					break;
+				}
+				p++;
+			}
+			return readString(start);
+		}
+
+		private String readString(int start) {
+			char[] chars = new char[Math.min(end - start, 64)];
+			int n = 0;
+			int p = start;
+			while (true) {
+				if (p >= end) {
+					throw FALLBACK;
+				}
+				int b = buf[p++];
+				if (n + 2 > chars.length) {
+					char[] copy = new char[chars.length << 1];
+					System.arraycopy(chars, 0, copy, 0, n);
+					chars = copy;
+				}
+				if (b == '"') {
+					break;
+				}
+				if (b == '\\') {
+					if (p >= end) {
+						throw FALLBACK;
+					}
+					b = buf[p++];
+					switch (b) {
+					case '"':
+					case '\\':
+					case '/':
+						chars[n++] = (char) b;
+						break;
+					case 'b':
+						chars[n++] = '\b';
+						break;
+					case 'f':
+						chars[n++] = '\f';
+						break;
+					case 'n':
+						chars[n++] = '\n';
+						break;
+					case 'r':
+						chars[n++] = '\r';
+						break;
+					case 't':
+						chars[n++] = '\t';
+						break;
+					case 'u':
+						if (p + 4 > end) {
+							throw FALLBACK;
+						}
+						int c = 0;
+						for (int i = 0; i < 4; i++) {
+							int d = Character.digit(buf[p++], 16);
+							if (d < 0) {
+								throw FALLBACK;
+							}
+							c = (c << 4) | d;
+						}
+						chars[n++] = (char) c;
+						break;
+					default:
+						throw FALLBACK;
+					}
+				} else if (b >= 0) {
+					if (b < 0x20) {
+						throw FALLBACK;
+					}
+					chars[n++] = (char) b;
+				} else if ((b & 0xE0) == 0xC0) {
+					int c = ((b & 0x1F) << 6) | continuation(p++);
+					if (c < 0x80) {
+						throw FALLBACK;
+					}
+					chars[n++] = (char) c;
+				} else if ((b & 0xF0) == 0xE0) {
+					int c = ((b & 0x0F) << 12) | (continuation(p++) << 6) | continuation(p++);
+					if (c < 0x800 || (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE)) {
+						throw FALLBACK;
+					}
+					chars[n++] = (char) c;
+				} else if ((b & 0xF8) == 0xF0) {
+					int c = ((b & 0x07) << 18) | (continuation(p++) << 12) | (continuation(p++) << 6) | continuation(p++);
+					if (c < 0x10000 || c > Character.MAX_CODE_POINT) {
+						throw FALLBACK;
+					}
+					chars[n++] = Character.highSurrogate(c);
+					chars[n++] = Character.lowSurrogate(c);
+				} else {
+					throw FALLBACK;
+				}
+			}
+			pos = p;
+			return new String(chars, 0, n);
+		}
+
+		private int continuation(int p) {
+			if (p >= end || (buf[p] & 0xC0) != 0x80) {
+				throw FALLBACK;
+			}
+			return buf[p] & 0x3F;
+		}
+	}
+}
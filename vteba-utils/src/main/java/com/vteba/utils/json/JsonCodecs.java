@@ -0,0 +1,1009 @@
+package com.vteba.utils.json;
+
+import static org.objectweb.asm.Opcodes.AALOAD;
+import static org.objectweb.asm.Opcodes.ACC_FINAL;
+import static org.objectweb.asm.Opcodes.ACC_PUBLIC;
+import static org.objectweb.asm.Opcodes.ACC_STATIC;
+import static org.objectweb.asm.Opcodes.ACC_SUPER;
+import static org.objectweb.asm.Opcodes.ACONST_NULL;
+import static org.objectweb.asm.Opcodes.ALOAD;
+import static org.objectweb.asm.Opcodes.ARETURN;
+import static org.objectweb.asm.Opcodes.ASTORE;
+import static org.objectweb.asm.Opcodes.BIPUSH;
+import static org.objectweb.asm.Opcodes.CHECKCAST;
+import static org.objectweb.asm.Opcodes.DUP;
+import static org.objectweb.asm.Opcodes.GETFIELD;
+import static org.objectweb.asm.Opcodes.GOTO;
+import static org.objectweb.asm.Opcodes.ICONST_0;
+import static org.objectweb.asm.Opcodes.ICONST_1;
+import static org.objectweb.asm.Opcodes.IFEQ;
+import static org.objectweb.asm.Opcodes.IFNULL;
+import static org.objectweb.asm.Opcodes.ILOAD;
+import static org.objectweb.asm.Opcodes.INVOKESPECIAL;
+import static org.objectweb.asm.Opcodes.INVOKEVIRTUAL;
+import static org.objectweb.asm.Opcodes.IRETURN;
+import static org.objectweb.asm.Opcodes.NEW;
+import static org.objectweb.asm.Opcodes.POP;
+import static org.objectweb.asm.Opcodes.POP2;
+import static org.objectweb.asm.Opcodes.RETURN;
+import static org.objectweb.asm.Opcodes.SIPUSH;
+import static org.objectweb.asm.Opcodes.V1_1;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.parser.ParserConfig;
+import com.alibaba.fastjson.parser.deserializer.JavaBeanDeserializer;
+import com.alibaba.fastjson.serializer.JavaBeanSerializer;
+import com.alibaba.fastjson.serializer.SerializeConfig;
+import com.alibaba.fastjson.serializer.SerializerFeature;
+import com.alibaba.fastjson.util.ASMClassLoader;
+import com.alibaba.fastjson.util.DeserializeBeanInfo;
+import com.alibaba.fastjson.util.FieldInfo;
+import com.alibaba.fastjson.util.TypeUtils;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.BeanDeserializer;
+import com.fasterxml.jackson.databind.deser.DefaultDeserializationContext;
+import com.fasterxml.jackson.databind.deser.SettableBeanProperty;
+import com.fasterxml.jackson.databind.deser.impl.MethodProperty;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMethod;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.BeanSerializer;
+import com.fasterxml.jackson.databind.ser.DefaultSerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.BeanSerializerBase;
+import com.vteba.lang.bytecode.AccessClassLoader;
+import com.vteba.utils.charstr.Char;
+
+/**
+ * 为热点JavaBean生成专用的JSON编码解码器（{@link JsonCodec}的子类），JacksonUtils和FastJsonUtils打开快速路径后使用，
+ * 见{@link JacksonUtils#useCodec()}、{@link FastJsonUtils#useCodec()}。
+ * <p>属性的名字、顺序和getter、setter取自Jackson或者fastjson自己对这个类的分析结果，生成的类直接调用getter、setter，
+ * 属性名的字节预先编码好。只处理能保证结果和原来完全相同的类：public的JavaBean，没有Jackson（或fastjson）的注解，
+ * 属性类型是String、int、long、boolean及其包装类型、Date、其他这样的JavaBean，以及元素是这些类型的List，
+ * 而且每个属性的序列化器、反序列化器都是框架默认的。其他的类和运行时遇到的特殊数据都交给原来的框架，结果逐字节相同。
+ * <p>生成的类用{@link AccessClassLoader}加载在JavaBean的ClassLoader中。
+ * @author yinlei
+ * @since 2014-10-9
+ */
+class JsonCodecs {
+	private static final Logger logger = LoggerFactory.getLogger(JsonCodecs.class);
+	private static final int BUFFER_SIZE = 1024;
+	/** 超过这个大小的缓冲区用完后不保留 */
+	private static final int MAX_BUFFER_SIZE = 64 * 1024;
+	private static final ThreadLocal<JsonCodec.Output> outputs = new ThreadLocal<JsonCodec.Output>();
+
+	static final int INT = 0;
+	static final int LONG = 1;
+	static final int BOOLEAN = 2;
+	static final int STRING = 3;
+	static final int INTEGER = 4;
+	static final int LONG_OBJECT = 5;
+	static final int BOOLEAN_OBJECT = 6;
+	static final int DATE = 7;
+	static final int BEAN = 8;
+	static final int LIST = 9;
+
+	private static final String CODEC = "com/vteba/utils/json/JsonCodec";
+	private static final String OUTPUT = "com/vteba/utils/json/JsonCodec$Output";
+	private static final String INPUT = "com/vteba/utils/json/JsonCodec$Input";
+	/** 不能使用快速路径的类 */
+	private static final JsonCodec INELIGIBLE = new JsonCodec() {
+		@Override
+		public void encode(Object bean, JsonCodec.Output out) {
+		}
+
+		@Override
+		public Object newInstance() {
+			return null;
+		}
+
+		@Override
+		public boolean decodeField(Object bean, int hash, JsonCodec.Input in) {
+			return false;
+		}
+	};
+
+	private final ConcurrentMap<Class<?>, JsonCodec> codecs = new ConcurrentHashMap<Class<?>, JsonCodec>();
+	private final Profile profile;
+	/** Date写成毫秒数，否则按datePattern格式化 */
+	private final boolean timestamps;
+	private final String datePattern;
+	private final ThreadLocal<DateFormat> dateFormats;
+
+	private JsonCodecs(Profile profile, boolean timestamps, final DateFormat dateFormat) {
+		this.profile = profile;
+		this.timestamps = timestamps;
+		if (dateFormat instanceof SimpleDateFormat) {
+			datePattern = ((SimpleDateFormat) dateFormat).toPattern();
+			dateFormats = new ThreadLocal<DateFormat>() {
+				@Override
+				protected DateFormat initialValue() {
+					return (DateFormat) dateFormat.clone();
+				}
+			};
+		} else {
+			datePattern = null;
+			dateFormats = null;
+		}
+	}
+
+	/**
+	 * 按ObjectMapper当前的配置创建，配置会改变输出格式（缩进、转义非ASCII字符、输出null等）时返回null。
+	 */
+	static JsonCodecs forJackson(ObjectMapper mapper) {
+		JsonFactory factory = mapper.getFactory();
+		SerializationConfig config = mapper.getSerializationConfig();
+		if (!JsonFactory.FORMAT_NAME_JSON.equals(factory.getFormatName())
+				|| factory.getCharacterEscapes() != null || !factory.isEnabled(JsonGenerator.Feature.QUOTE_FIELD_NAMES)
+				|| factory.isEnabled(JsonGenerator.Feature.ESCAPE_NON_ASCII)
+				|| factory.isEnabled(JsonGenerator.Feature.WRITE_NUMBERS_AS_STRINGS)
+				|| config.getSerializationInclusion() != Include.NON_NULL || config.isEnabled(SerializationFeature.INDENT_OUTPUT)
+				|| config.isEnabled(SerializationFeature.WRAP_ROOT_VALUE)) {
+			return null;
+		}
+		return new JsonCodecs(new JacksonProfile(mapper), config.isEnabled(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS),
+				config.getDateFormat());
+	}
+
+	/**
+	 * 按fastjson全局的配置创建，用于SerializerFeature.WriteDateUseDateFormat序列化和默认特性的反序列化。
+	 * 全局的默认特性或者基本类型的序列化器、反序列化器被修改过时返回null。
+	 */
+	static JsonCodecs forFastJson() {
+		int features = 0;
+		for (SerializerFeature feature : new SerializerFeature[] { SerializerFeature.QuoteFieldNames,
+				SerializerFeature.SkipTransientField, SerializerFeature.WriteEnumUsingToString, SerializerFeature.SortField,
+				SerializerFeature.WriteTabAsSpecial }) {
+			features |= feature.getMask();
+		}
+		if (JSON.DEFAULT_GENERATE_FEATURE != features) {
+			return null;
+		}
+		SerializeConfig serializeConfig = SerializeConfig.getGlobalInstance();
+		SerializeConfig serializeDefaults = new SerializeConfig();
+		ParserConfig parserConfig = ParserConfig.getGlobalInstance();
+		ParserConfig parserDefaults = new ParserConfig();
+		for (Class<?> type : new Class<?>[] { String.class, int.class, long.class, boolean.class, Integer.class, Long.class,
+				Boolean.class, Date.class, List.class, ArrayList.class, LinkedList.class }) {
+			if (classOf(serializeConfig.get(type)) != classOf(serializeDefaults.get(type))
+					|| classOf(parserConfig.getDeserializer(type)) != classOf(parserDefaults.getDeserializer(type))) {
+				return null;
+			}
+		}
+		return new JsonCodecs(new FastJsonProfile(), false, new SimpleDateFormat(JSON.DEFFAULT_DATE_FORMAT));
+	}
+
+	private static Class<?> classOf(Object object) {
+		return object == null ? null : object.getClass();
+	}
+
+	/**
+	 * 编码对象，不能使用快速路径时返回null，由调用者交给原来的框架。
+	 */
+	byte[] encode(Object value) {
+		if (value == null) {
+			return null;
+		}
+		JsonCodec codec = lookup(value.getClass());
+		if (codec == null) {
+			return null;
+		}
+		JsonCodec.Output out = outputs.get();
+		if (out == null) {
+			out = new JsonCodec.Output(BUFFER_SIZE);
+			outputs.set(out);
+		} else if (out.busy) {
+			// getter中又序列化了其他对象
+			out = new JsonCodec.Output(BUFFER_SIZE);
+		}
+		out.busy = true;
+		out.reset(profile.trackReferences());
+		try {
+			codec.write(value, out);
+			return out.toByteArray();
+		} catch (RuntimeException e) {
+			// FALLBACK，或者getter抛出的异常，原来的框架会再调用一次，按它的方式处理
+			return null;
+		} finally {
+			out.busy = false;
+			if (out.buf.length > MAX_BUFFER_SIZE) {
+				out.buf = new byte[BUFFER_SIZE];
+			}
+			if (out.references != null && out.references.size() > BUFFER_SIZE) {
+				out.references = null;
+			}
+		}
+	}
+
+	/**
+	 * 解码UTF-8的JSON对象，不能使用快速路径时返回null，由调用者交给原来的框架。
+	 */
+	<T> T decode(byte[] json, Class<T> type) {
+		if (json == null) {
+			return null;
+		}
+		JsonCodec codec = lookup(type);
+		if (codec == null || !codec.decodable) {
+			return null;
+		}
+		JsonCodec.Input in = new JsonCodec.Input(json, 0, json.length, profile.nullable());
+		try {
+			in.skipWhitespace();
+			Object bean = codec.read(in);
+			in.skipWhitespace();
+			if (in.pos != in.end) {
+				return null;
+			}
+			return type.cast(bean);
+		} catch (RuntimeException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * 类的编解码器，不能使用快速路径时返回null。
+	 */
+	JsonCodec lookup(Class<?> type) {
+		JsonCodec codec = codecs.get(type);
+		if (codec == null) {
+			codec = create(type);
+		}
+		return codec == INELIGIBLE ? null : codec;
+	}
+
+	/**
+	 * 生成的代码中嵌套的JavaBean的编解码器，不能使用快速路径时抛出FALLBACK。
+	 */
+	JsonCodec codecFor(Class<?> type) {
+		JsonCodec codec = lookup(type);
+		if (codec == null) {
+			throw JsonCodec.FALLBACK;
+		}
+		return codec;
+	}
+
+	private synchronized JsonCodec create(Class<?> type) {
+		JsonCodec codec = codecs.get(type);
+		if (codec != null) {
+			return codec;
+		}
+		try {
+			codec = isBean(type) ? generate(type) : null;
+		} catch (Exception e) {
+			logger.debug("can not generate json codec for {}", type, e);
+			codec = null;
+		} catch (LinkageError e) {
+			logger.debug("can not generate json codec for {}", type, e);
+			codec = null;
+		}
+		if (codec == null) {
+			codec = INELIGIBLE;
+		}
+		codecs.put(type, codec);
+		return codec;
+	}
+
+	void writeDate(JsonCodec.Output out, Date date) {
+		if (date.getClass() != Date.class) {
+			throw JsonCodec.FALLBACK;
+		}
+		if (timestamps) {
+			out.writeLong(date.getTime());
+		} else {
+			out.writeString(dateFormats.get().format(date));
+		}
+	}
+
+	/**
+	 * 读取毫秒数，或者格式化后和原字符串完全相同的日期字符串。
+	 */
+	Date readDate(JsonCodec.Input in) {
+		if (in.readNull()) {
+			return null;
+		}
+		int c = in.peek();
+		if (c == '-' || (c >= '0' && c <= '9')) {
+			return new Date(in.readLong());
+		}
+		String text = in.readString();
+		if (text.length() != datePattern.length()) {
+			throw JsonCodec.FALLBACK;
+		}
+		DateFormat format = dateFormats.get();
+		try {
+			Date date = format.parse(text);
+			if (!format.format(date).equals(text)) {
+				throw JsonCodec.FALLBACK;
+			}
+			return date;
+		} catch (ParseException e) {
+			throw JsonCodec.FALLBACK;
+		}
+	}
+
+	/**
+	 * 可以作为JavaBean处理的类，排除集合、数字、日期等框架特殊处理的类型。
+	 */
+	private static boolean isBean(Class<?> type) {
+		int modifiers = type.getModifiers();
+		if (!Modifier.isPublic(modifiers) || Modifier.isAbstract(modifiers) || type.isInterface() || type.isArray()
+				|| type.isEnum() || type.isPrimitive() || (type.getEnclosingClass() != null && !Modifier.isStatic(modifiers))) {
+			return false;
+		}
+		String name = type.getName();
+		if (name.startsWith("java") || name.startsWith("com.fasterxml.") || name.startsWith("com.alibaba.")) {
+			return false;
+		}
+		for (Class<?> special : new Class<?>[] { Iterable.class, Map.class, Number.class, CharSequence.class, Date.class,
+				Calendar.class, Throwable.class }) {
+			if (special.isAssignableFrom(type)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * 类和父类、接口的类、方法、构造方法、字段、参数上有没有指定包的注解。
+	 */
+	private static boolean annotated(Class<?> type, String prefix) {
+		for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+			if (annotated(c, prefix, c.getDeclaredFields()) || annotated(c, prefix, c.getDeclaredConstructors())
+					|| annotated(c, prefix, c.getDeclaredMethods()) || annotated(c, prefix, c.getInterfaces())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean annotated(Class<?> type, String prefix, AnnotatedElement[] elements) {
+		if (annotated(type.getDeclaredAnnotations(), prefix)) {
+			return true;
+		}
+		for (AnnotatedElement element : elements) {
+			if (element instanceof Class) {
+				if (annotated((Class<?>) element, prefix)) {
+					return true;
+				}
+				continue;
+			}
+			if (annotated(element.getDeclaredAnnotations(), prefix)) {
+				return true;
+			}
+			Annotation[][] parameters = element instanceof Method ? ((Method) element).getParameterAnnotations()
+					: element instanceof Constructor ? ((Constructor<?>) element).getParameterAnnotations() : null;
+			if (parameters != null) {
+				for (Annotation[] annotations : parameters) {
+					if (annotated(annotations, prefix)) {
+						return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	private static boolean annotated(Annotation[] annotations, String prefix) {
+		for (Annotation annotation : annotations) {
+			if (annotation.annotationType().getName().startsWith(prefix)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static Object getField(Class<?> type, String name, Object object) throws Exception {
+		Field field = type.getDeclaredField(name);
+		field.setAccessible(true);
+		return field.get(object);
+	}
+
+	/**
+	 * 按getter的返回类型创建属性，不支持的类型、属性名中有要转义的字符时返回null。
+	 */
+	private Property property(String name, Method getter) {
+		int modifiers = getter.getModifiers();
+		if (!Modifier.isPublic(modifiers) || Modifier.isStatic(modifiers) || getter.getParameterTypes().length != 0
+				|| !Modifier.isPublic(getter.getDeclaringClass().getModifiers()) || name.isEmpty()) {
+			return null;
+		}
+		for (int i = 0; i < name.length(); i++) {
+			char c = name.charAt(i);
+			if (!(c >= 'a' && c <= 'z') && !(c >= 'A' && c <= 'Z') && !(c >= '0' && c <= '9') && c != '_' && c != '$') {
+				return null;
+			}
+		}
+		Type type = getter.getGenericReturnType();
+		int kind;
+		Class<?> valueType = getter.getReturnType();
+		if (type == int.class) {
+			kind = INT;
+		} else if (type == long.class) {
+			kind = LONG;
+		} else if (type == boolean.class) {
+			kind = BOOLEAN;
+		} else if (type == String.class) {
+			kind = STRING;
+		} else if (type == Integer.class) {
+			kind = INTEGER;
+		} else if (type == Long.class) {
+			kind = LONG_OBJECT;
+		} else if (type == Boolean.class) {
+			kind = BOOLEAN_OBJECT;
+		} else if (type == Date.class && datePattern != null) {
+			kind = DATE;
+		} else if (type instanceof Class && isBean((Class<?>) type)) {
+			kind = BEAN;
+		} else if (type instanceof ParameterizedType && ((ParameterizedType) type).getRawType() == List.class) {
+			Type element = ((ParameterizedType) type).getActualTypeArguments()[0];
+			if (element != String.class && element != Integer.class && element != Long.class && element != Boolean.class
+					&& !(element instanceof Class && isBean((Class<?>) element))) {
+				return null;
+			}
+			kind = LIST;
+			valueType = (Class<?>) element;
+		} else {
+			return null;
+		}
+		Property property = new Property(name, getter, kind, valueType);
+		String base = getter.getName().substring(getter.getName().startsWith("is") ? 2 : 3);
+		try {
+			Method setter = getter.getDeclaringClass().getMethod("set" + base, getter.getReturnType());
+			if (!Modifier.isStatic(setter.getModifiers()) && Modifier.isPublic(setter.getDeclaringClass().getModifiers())) {
+				property.setter = setter;
+			}
+		} catch (NoSuchMethodException e) {
+			// 只能编码
+		}
+		return property;
+	}
+
+	private JsonCodec generate(Class<?> type) throws Exception {
+		List<Property> properties = profile.properties(this, type);
+		if (properties == null) {
+			return null;
+		}
+		boolean decodable = false;
+		try {
+			Constructor<?> constructor = type.getConstructor();
+			decodable = Modifier.isPublic(constructor.getModifiers()) && profile.decodable(type, properties);
+		} catch (NoSuchMethodException e) {
+			// 只能编码
+		}
+		StringBuilder signature = new StringBuilder(decodable ? "decodable" : "encodable");
+		for (Property property : properties) {
+			signature.append(';').append(property.kind).append(property.getter.getName());
+			if (decodable) {
+				signature.append(',').append(property.setter.getName()).append(
+						org.objectweb.asm.Type.getMethodDescriptor(property.setter));
+			}
+		}
+		String codecName = type.getName() + "JsonCodec" + Integer.toHexString(signature.toString().hashCode());
+		if (codecName.startsWith("java.")) {
+			codecName = "reflectasm." + codecName;
+		}
+		byte[] bytes = generate(codecName.replace('.', '/'), type, properties, decodable, signature.toString());
+		Class<?> codecClass = AccessClassLoader.loadOrDefine(type, codecName, bytes);
+		if (!signature.toString().equals(codecClass.getField("SIGNATURE").get(null))) {
+			// 类名的hash冲突
+			return null;
+		}
+		JsonCodec codec = (JsonCodec) codecClass.newInstance();
+		int n = properties.size();
+		codec.names = new byte[n][];
+		codec.rawNames = new byte[n][];
+		codec.types = new Class<?>[n];
+		for (int i = 0; i < n; i++) {
+			Property property = properties.get(i);
+			codec.names[i] = (",\"" + property.name + "\":").getBytes(Char.UTF8);
+			codec.rawNames[i] = property.name.getBytes(Char.UTF8);
+			codec.types[i] = property.type;
+		}
+		codec.decodable = decodable;
+		codec.codecs = this;
+		return codec;
+	}
+
+	private static byte[] generate(String codecName, Class<?> type, List<Property> properties, boolean decodable,
+			String signature) {
+		String beanName = org.objectweb.asm.Type.getInternalName(type);
+		ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+		cw.visit(V1_1, ACC_PUBLIC + ACC_SUPER, codecName, null, CODEC, null);
+		cw.visitField(ACC_PUBLIC + ACC_STATIC + ACC_FINAL, "SIGNATURE", "Ljava/lang/String;", null, signature).visitEnd();
+		MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+		mv.visitCode();
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitMethodInsn(INVOKESPECIAL, CODEC, "<init>", "()V");
+		mv.visitInsn(RETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+		generateEncode(cw, beanName, properties);
+		mv = cw.visitMethod(ACC_PUBLIC, "newInstance", "()Ljava/lang/Object;", null, null);
+		mv.visitCode();
+		if (decodable) {
+			mv.visitTypeInsn(NEW, beanName);
+			mv.visitInsn(DUP);
+			mv.visitMethodInsn(INVOKESPECIAL, beanName, "<init>", "()V");
+		} else {
+			mv.visitInsn(ACONST_NULL);
+		}
+		mv.visitInsn(ARETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+		generateDecode(cw, beanName, properties, decodable);
+		cw.visitEnd();
+		return cw.toByteArray();
+	}
+
+	/**
+	 * encode(Object bean, Output out)：依次调用getter，写出属性名和值，null的属性不写。
+	 */
+	private static void generateEncode(ClassWriter cw, String beanName, List<Property> properties) {
+		MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "encode", "(Ljava/lang/Object;L" + OUTPUT + ";)V", null, null);
+		mv.visitCode();
+		mv.visitVarInsn(ALOAD, 1);
+		mv.visitTypeInsn(CHECKCAST, beanName);
+		mv.visitVarInsn(ASTORE, 3);
+		for (int i = 0, n = properties.size(); i < n; i++) {
+			Property property = properties.get(i);
+			Method getter = property.getter;
+			String getterDesc = org.objectweb.asm.Type.getMethodDescriptor(getter);
+			if (property.kind <= BOOLEAN) {
+				writeName(mv, i);
+				mv.visitVarInsn(ALOAD, 2);
+				mv.visitVarInsn(ALOAD, 3);
+				mv.visitMethodInsn(INVOKEVIRTUAL, beanName, getter.getName(), getterDesc);
+				String desc = property.kind == INT ? "(I)V" : property.kind == LONG ? "(J)V" : "(Z)V";
+				String method = property.kind == INT ? "writeInt" : property.kind == LONG ? "writeLong" : "writeBoolean";
+				mv.visitMethodInsn(INVOKEVIRTUAL, OUTPUT, method, desc);
+				continue;
+			}
+			Label skip = new Label();
+			mv.visitVarInsn(ALOAD, 3);
+			mv.visitMethodInsn(INVOKEVIRTUAL, beanName, getter.getName(), getterDesc);
+			mv.visitVarInsn(ASTORE, 4);
+			mv.visitVarInsn(ALOAD, 4);
+			mv.visitJumpInsn(IFNULL, skip);
+			writeName(mv, i);
+			switch (property.kind) {
+			case STRING:
+				mv.visitVarInsn(ALOAD, 2);
+				mv.visitVarInsn(ALOAD, 4);
+				mv.visitTypeInsn(CHECKCAST, "java/lang/String");
+				mv.visitMethodInsn(INVOKEVIRTUAL, OUTPUT, "writeString", "(Ljava/lang/String;)V");
+				break;
+			case INTEGER:
+				mv.visitVarInsn(ALOAD, 2);
+				mv.visitVarInsn(ALOAD, 4);
+				mv.visitTypeInsn(CHECKCAST, "java/lang/Integer");
+				mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/Integer", "intValue", "()I");
+				mv.visitMethodInsn(INVOKEVIRTUAL, OUTPUT, "writeInt", "(I)V");
+				break;
+			case LONG_OBJECT:
+				mv.visitVarInsn(ALOAD, 2);
+				mv.visitVarInsn(ALOAD, 4);
+				mv.visitTypeInsn(CHECKCAST, "java/lang/Long");
+				mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/Long", "longValue", "()J");
+				mv.visitMethodInsn(INVOKEVIRTUAL, OUTPUT, "writeLong", "(J)V");
+				break;
+			case BOOLEAN_OBJECT:
+				mv.visitVarInsn(ALOAD, 2);
+				mv.visitVarInsn(ALOAD, 4);
+				mv.visitTypeInsn(CHECKCAST, "java/lang/Boolean");
+				mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/Boolean", "booleanValue", "()Z");
+				mv.visitMethodInsn(INVOKEVIRTUAL, OUTPUT, "writeBoolean", "(Z)V");
+				break;
+			case DATE:
+				mv.visitVarInsn(ALOAD, 0);
+				mv.visitVarInsn(ALOAD, 2);
+				mv.visitVarInsn(ALOAD, 4);
+				mv.visitTypeInsn(CHECKCAST, "java/util/Date");
+				mv.visitMethodInsn(INVOKEVIRTUAL, CODEC, "writeDate", "(L" + OUTPUT + ";Ljava/util/Date;)V");
+				break;
+			case BEAN:
+				mv.visitVarInsn(ALOAD, 0);
+				mv.visitVarInsn(ALOAD, 2);
+				mv.visitVarInsn(ALOAD, 4);
+				mv.visitMethodInsn(INVOKEVIRTUAL, CODEC, "writeBean", "(L" + OUTPUT + ";Ljava/lang/Object;)V");
+				break;
+			default:
+				mv.visitVarInsn(ALOAD, 0);
+				mv.visitVarInsn(ALOAD, 2);
+				mv.visitVarInsn(ALOAD, 4);
+				mv.visitTypeInsn(CHECKCAST, "java/util/List");
+				mv.visitMethodInsn(INVOKEVIRTUAL, CODEC, "writeList", "(L" + OUTPUT + ";Ljava/util/List;)V");
+			}
+			mv.visitLabel(skip);
+		}
+		mv.visitInsn(RETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+	}
+
+	private static void writeName(MethodVisitor mv, int index) {
+		mv.visitVarInsn(ALOAD, 2);
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitFieldInsn(GETFIELD, CODEC, "names", "[[B");
+		push(mv, index);
+		mv.visitInsn(AALOAD);
+		mv.visitMethodInsn(INVOKEVIRTUAL, OUTPUT, "writeName", "([B)V");
+	}
+
+	/**
+	 * decodeField(Object bean, int hash, Input in)：按属性名的hash做lookupswitch，比较属性名的字节后读取值，调用setter。
+	 */
+	private static void generateDecode(ClassWriter cw, String beanName, List<Property> properties, boolean decodable) {
+		MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "decodeField", "(Ljava/lang/Object;IL" + INPUT + ";)Z", null, null);
+		mv.visitCode();
+		Label unknown = new Label();
+		if (decodable && !properties.isEmpty()) {
+			mv.visitVarInsn(ALOAD, 1);
+			mv.visitTypeInsn(CHECKCAST, beanName);
+			mv.visitVarInsn(ASTORE, 4);
+			// hash -> 属性下标，hash相同的属性依次比较名字
+			TreeMap<Integer, List<Integer>> hashes = new TreeMap<Integer, List<Integer>>();
+			for (int i = 0, n = properties.size(); i < n; i++) {
+				int hash = 0;
+				for (byte b : properties.get(i).name.getBytes(Char.UTF8)) {
+					hash = 31 * hash + b;
+				}
+				List<Integer> indexes = hashes.get(hash);
+				if (indexes == null) {
+					indexes = new ArrayList<Integer>(1);
+					hashes.put(hash, indexes);
+				}
+				indexes.add(i);
+			}
+			int[] keys = new int[hashes.size()];
+			Label[] labels = new Label[keys.length];
+			int k = 0;
+			for (Integer hash : hashes.keySet()) {
+				keys[k] = hash;
+				labels[k++] = new Label();
+			}
+			mv.visitVarInsn(ILOAD, 2);
+			mv.visitLookupSwitchInsn(unknown, keys, labels);
+			k = 0;
+			for (List<Integer> indexes : hashes.values()) {
+				mv.visitLabel(labels[k++]);
+				for (int i : indexes) {
+					Label next = new Label();
+					mv.visitVarInsn(ALOAD, 3);
+					mv.visitVarInsn(ALOAD, 0);
+					mv.visitFieldInsn(GETFIELD, CODEC, "rawNames", "[[B");
+					push(mv, i);
+					mv.visitInsn(AALOAD);
+					mv.visitMethodInsn(INVOKEVIRTUAL, INPUT, "nameEquals", "([B)Z");
+					mv.visitJumpInsn(IFEQ, next);
+					readValue(mv, beanName, properties.get(i), i);
+					mv.visitInsn(ICONST_1);
+					mv.visitInsn(IRETURN);
+					mv.visitLabel(next);
+				}
+				mv.visitJumpInsn(GOTO, unknown);
+			}
+		}
+		mv.visitLabel(unknown);
+		mv.visitInsn(ICONST_0);
+		mv.visitInsn(IRETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+	}
+
+	private static void readValue(MethodVisitor mv, String beanName, Property property, int index) {
+		Method setter = property.setter;
+		mv.visitVarInsn(ALOAD, 4);
+		switch (property.kind) {
+		case INT:
+			mv.visitVarInsn(ALOAD, 3);
+			mv.visitMethodInsn(INVOKEVIRTUAL, INPUT, "readInt", "()I");
+			break;
+		case LONG:
+			mv.visitVarInsn(ALOAD, 3);
+			mv.visitMethodInsn(INVOKEVIRTUAL, INPUT, "readLong", "()J");
+			break;
+		case BOOLEAN:
+			mv.visitVarInsn(ALOAD, 3);
+			mv.visitMethodInsn(INVOKEVIRTUAL, INPUT, "readBoolean", "()Z");
+			break;
+		case STRING:
+			mv.visitVarInsn(ALOAD, 3);
+			mv.visitMethodInsn(INVOKEVIRTUAL, INPUT, "readString", "()Ljava/lang/String;");
+			break;
+		case INTEGER:
+			mv.visitVarInsn(ALOAD, 3);
+			mv.visitMethodInsn(INVOKEVIRTUAL, INPUT, "readInteger", "()Ljava/lang/Integer;");
+			break;
+		case LONG_OBJECT:
+			mv.visitVarInsn(ALOAD, 3);
+			mv.visitMethodInsn(INVOKEVIRTUAL, INPUT, "readLongObject", "()Ljava/lang/Long;");
+			break;
+		case BOOLEAN_OBJECT:
+			mv.visitVarInsn(ALOAD, 3);
+			mv.visitMethodInsn(INVOKEVIRTUAL, INPUT, "readBooleanObject", "()Ljava/lang/Boolean;");
+			break;
+		case DATE:
+			mv.visitVarInsn(ALOAD, 0);
+			mv.visitVarInsn(ALOAD, 3);
+			mv.visitMethodInsn(INVOKEVIRTUAL, CODEC, "readDate", "(L" + INPUT + ";)Ljava/util/Date;");
+			break;
+		case BEAN:
+			mv.visitVarInsn(ALOAD, 0);
+			mv.visitVarInsn(ALOAD, 3);
+			push(mv, index);
+			mv.visitMethodInsn(INVOKEVIRTUAL, CODEC, "readBean", "(L" + INPUT + ";I)Ljava/lang/Object;");
+			mv.visitTypeInsn(CHECKCAST, org.objectweb.asm.Type.getInternalName(property.type));
+			break;
+		default:
+			mv.visitVarInsn(ALOAD, 0);
+			mv.visitVarInsn(ALOAD, 3);
+			push(mv, index);
+			mv.visitMethodInsn(INVOKEVIRTUAL, CODEC, "readList", "(L" + INPUT + ";I)Ljava/util/List;");
+		}
+		mv.visitMethodInsn(INVOKEVIRTUAL, beanName, setter.getName(), org.objectweb.asm.Type.getMethodDescriptor(setter));
+		Class<?> returnType = setter.getReturnType();
+		if (returnType == long.class || returnType == double.class) {
+			mv.visitInsn(POP2);
+		} else if (returnType != void.class) {
+			mv.visitInsn(POP);
+		}
+	}
+
+	private static void push(MethodVisitor mv, int value) {
+		if (value <= 5) {
+			mv.visitInsn(ICONST_0 + value);
+		} else if (value <= Byte.MAX_VALUE) {
+			mv.visitIntInsn(BIPUSH, value);
+		} else if (value <= Short.MAX_VALUE) {
+			mv.visitIntInsn(SIPUSH, value);
+		} else {
+			mv.visitLdcInsn(value);
+		}
+	}
+
+	static final class Property {
+		final String name;
+		final Method getter;
+		final int kind;
+		/** BEAN是属性的类型，LIST是元素的类型 */
+		final Class<?> type;
+		Method setter;
+
+		Property(String name, Method getter, int kind, Class<?> type) {
+			this.name = name;
+			this.getter = getter;
+			this.kind = kind;
+			this.type = type;
+		}
+	}
+
+	/**
+	 * 一个序列化框架对JavaBean的分析：属性的名字、顺序，能否用setter解码。
+	 */
+	abstract static class Profile {
+
+		/**
+		 * 按框架序列化时的顺序返回属性，框架对这个类有特殊处理时返回null。
+		 */
+		abstract List<Property> properties(JsonCodecs codecs, Class<?> type) throws Exception;
+
+		/**
+		 * 框架是否用无参构造方法和这些属性的setter反序列化这个类。
+		 */
+		abstract boolean decodable(Class<?> type, List<Property> properties) throws Exception;
+
+		/** 重复出现的对象是否要交给框架处理 */
+		abstract boolean trackReferences();
+
+		/** 解码时null值是否直接设为null */
+		abstract boolean nullable();
+	}
+
+	/**
+	 * Jackson：属性取自BeanSerializer，序列化器、反序列化器和默认配置的ObjectMapper找到的是同一个类。
+	 */
+	static final class JacksonProfile extends Profile {
+		private final ObjectMapper mapper;
+		private final ObjectMapper defaults = new ObjectMapper();
+		private final SerializerProvider provider;
+		private final SerializerProvider defaultProvider;
+		private final DeserializationContext context;
+		private final DeserializationContext defaultContext;
+
+		JacksonProfile(ObjectMapper mapper) {
+			this.mapper = mapper;
+			provider = ((DefaultSerializerProvider) mapper.getSerializerProvider()).createInstance(
+					mapper.getSerializationConfig(), mapper.getSerializerFactory());
+			defaultProvider = ((DefaultSerializerProvider) defaults.getSerializerProvider()).createInstance(
+					defaults.getSerializationConfig(), defaults.getSerializerFactory());
+			context = ((DefaultDeserializationContext) mapper.getDeserializationContext()).createInstance(
+					mapper.getDeserializationConfig(), null, null);
+			defaultContext = ((DefaultDeserializationContext) defaults.getDeserializationContext()).createInstance(
+					defaults.getDeserializationConfig(), null, null);
+		}
+
+		@Override
+		List<Property> properties(JsonCodecs codecs, Class<?> type) throws Exception {
+			for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+				if (mapper.findMixInClassFor(c) != null) {
+					return null;
+				}
+			}
+			if (annotated(type, "com.fasterxml.jackson.")) {
+				return null;
+			}
+			JsonSerializer<Object> serializer = provider.findTypedValueSerializer(type, true, null);
+			if (serializer.getClass() != BeanSerializer.class) {
+				return null;
+			}
+			for (String special : new String[] { "_filteredProps", "_anyGetterWriter", "_propertyFilterId", "_typeId",
+					"_objectIdWriter" }) {
+				if (getField(BeanSerializerBase.class, special, serializer) != null) {
+					return null;
+				}
+			}
+			BeanPropertyWriter[] writers = (BeanPropertyWriter[]) getField(BeanSerializerBase.class, "_props", serializer);
+			List<Property> properties = new ArrayList<Property>(writers.length);
+			for (BeanPropertyWriter writer : writers) {
+				if (writer.getClass() != BeanPropertyWriter.class) {
+					return null;
+				}
+				AnnotatedMember member = writer.getMember();
+				if (!(member instanceof AnnotatedMethod) || !writer.willSuppressNulls() || writer.hasNullSerializer()
+						|| writer.getViews() != null || getField(BeanPropertyWriter.class, "_typeSerializer", writer) != null
+						|| getField(BeanPropertyWriter.class, "_suppressableValue", writer) != null) {
+					return null;
+				}
+				Property property = codecs.property(writer.getName(), ((AnnotatedMethod) member).getAnnotated());
+				if (property == null) {
+					return null;
+				}
+				if (property.kind != BEAN) {
+					JsonSerializer<?> actual = writer.hasSerializer() ? writer.getSerializer() : provider
+							.findValueSerializer(writer.getType(), null);
+					if (actual.getClass() != defaultProvider.findValueSerializer(writer.getType(), null).getClass()) {
+						return null;
+					}
+				}
+				properties.add(property);
+			}
+			return properties;
+		}
+
+		@Override
+		boolean decodable(Class<?> type, List<Property> properties) throws Exception {
+			JsonDeserializer<Object> deserializer = context.findRootValueDeserializer(mapper.constructType(type));
+			JsonDeserializer<Object> defaultDeserializer = defaultContext.findRootValueDeserializer(defaults
+					.constructType(type));
+			if (deserializer.getClass() != BeanDeserializer.class || defaultDeserializer.getClass() != BeanDeserializer.class) {
+				return false;
+			}
+			BeanDeserializer bean = (BeanDeserializer) deserializer;
+			if (!bean.getValueInstantiator().canCreateUsingDefault() || bean.getObjectIdReader() != null
+					|| bean.creatorProperties() != null && bean.creatorProperties().hasNext()) {
+				return false;
+			}
+			for (Property property : properties) {
+				SettableBeanProperty settable = bean.findProperty(property.name);
+				if (property.setter == null || settable == null || settable.getClass() != MethodProperty.class
+						|| !property.setter.equals(settable.getMember().getAnnotated()) || settable.hasValueTypeDeserializer()
+						|| settable.hasViews() || settable.getManagedReferenceName() != null) {
+					return false;
+				}
+				if (property.kind != BEAN) {
+					SettableBeanProperty defaultSettable = ((BeanDeserializer) defaultDeserializer).findProperty(property.name);
+					if (defaultSettable == null
+							|| classOf(settable.getValueDeserializer()) != classOf(defaultSettable.getValueDeserializer())) {
+						return false;
+					}
+				}
+			}
+			return true;
+		}
+
+		@Override
+		boolean trackReferences() {
+			return false;
+		}
+
+		@Override
+		boolean nullable() {
+			return true;
+		}
+	}
+
+	/**
+	 * fastjson：属性取自TypeUtils.computeGetters（按名字排序），类的序列化器是fastjson生成的或者JavaBeanSerializer。
+	 * fastjson对重复出现的对象写$ref，这时交给fastjson；解码时遇到null也交给fastjson。
+	 */
+	static final class FastJsonProfile extends Profile {
+
+		@Override
+		List<Property> properties(JsonCodecs codecs, Class<?> type) throws Exception {
+			if (annotated(type, "com.alibaba.fastjson.") || !isFastJson(SerializeConfig.getGlobalInstance().get(type))) {
+				return null;
+			}
+			List<FieldInfo> getters = TypeUtils.computeGetters(type, null);
+			List<Property> properties = new ArrayList<Property>(getters.size());
+			for (FieldInfo info : getters) {
+				if (info.getMethod() == null || info.getField() != null && Modifier.isTransient(info.getField().getModifiers())) {
+					return null;
+				}
+				Property property = codecs.property(info.getName(), info.getMethod());
+				if (property == null) {
+					return null;
+				}
+				properties.add(property);
+			}
+			return properties;
+		}
+
+		private static boolean isFastJson(Object serializer) {
+			return serializer == null || serializer instanceof JavaBeanSerializer || serializer instanceof JavaBeanDeserializer
+					|| serializer.getClass().getClassLoader() instanceof ASMClassLoader;
+		}
+
+		@Override
+		boolean decodable(Class<?> type, List<Property> properties) throws Exception {
+			if (!isFastJson(ParserConfig.getGlobalInstance().getDeserializer(type))) {
+				return false;
+			}
+			DeserializeBeanInfo info = DeserializeBeanInfo.computeSetters(type, type);
+			if (info.getCreatorConstructor() != null || info.getFactoryMethod() != null || info.getDefaultConstructor() == null) {
+				return false;
+			}
+			for (Property property : properties) {
+				FieldInfo field = info.getField(property.name);
+				if (property.setter == null || field == null || !property.setter.equals(field.getMethod())) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		boolean trackReferences() {
+			return true;
+		}
+
+		@Override
+		boolean nullable() {
+			return false;
+		}
+	}
+}
@@ -117,6 +117,17 @@ public class JsonRpc<P, R> {
 	}
 
 	public static class Error {
+		/** 无效的JSON */
+		public static final int PARSE_ERROR = -32700;
+		/** 不是有效的请求对象 */
+		public static final int INVALID_REQUEST = -32600;
+		/** 方法不存在 */
+		public static final int METHOD_NOT_FOUND = -32601;
+		/** 无效的方法参数 */
+		public static final int INVALID_PARAMS = -32602;
+		/** 服务端内部错误 */
+		public static final int INTERNAL_ERROR = -32603;
+		
 		private Integer code;
 		private String message;
 		
@@ -0,0 +1,249 @@
+package com.vteba.utils.json;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * JsonRpc 2.0的批量请求。一次请求发送多个调用，JSON是调用对象的数组，响应是对应的响应对象的数组。
+ * 没有id的调用是通知，不返回响应。也兼容单个调用对象的请求，这时{@link #isBatch()}是false，响应也是单个对象。
+ * <p>服务端用{@link #decode(JacksonUtils, byte[])}解码请求，无效的JSON、空数组、无效的调用对象不抛异常，
+ * 而是解码成带有error的调用，直接作为响应返回，所以每个调用的id都保存在{@link JsonRpc#getId()}中（只支持整数id）。
+ * 参数保持为JsonNode，由{@link JsonRpcHandler}转换成方法的参数类型。响应用{@link #writeResponse(JsonGenerator, JsonRpc)}写出。
+ * <p>客户端用{@link #encode(JacksonUtils, List)}编码请求，{@link #decodeResponses(JacksonUtils, byte[])}解码响应，
+ * result保持为JsonNode，用JacksonUtils#getReader(Class)的readValue(JsonNode)转换成需要的类型。
+ * @author yinlei
+ * @since 2014-10-7
+ */
+public class JsonRpcBatch {
+	private static final String VERSION = "2.0";
+
+	private final List<JsonRpc<JsonNode, Object>> calls;
+	private final boolean batch;
+
+	private JsonRpcBatch(List<JsonRpc<JsonNode, Object>> calls, boolean batch) {
+		this.calls = calls;
+		this.batch = batch;
+	}
+
+	/**
+	 * 解码请求。
+	 * @param jacksonUtils 使用的格式，文本或者二进制JSON
+	 * @param bytes 请求数据
+	 * @return 批量请求
+	 */
+	public static JsonRpcBatch decode(JacksonUtils jacksonUtils, byte[] bytes) {
+		JsonNode root;
+		try {
+			root = jacksonUtils.getMapper().readTree(bytes);
+		} catch (IOException e) {
+			return error(null, JsonRpc.Error.PARSE_ERROR, "Parse error");
+		}
+		return decode(root);
+	}
+
+	/**
+	 * 解码请求，不会关闭输入流。
+	 * @param jacksonUtils 使用的格式，文本或者二进制JSON
+	 * @param in 请求数据
+	 * @return 批量请求
+	 * @throws IOException 读取输入流出错，JSON格式错误不抛出异常
+	 */
+	public static JsonRpcBatch decode(JacksonUtils jacksonUtils, InputStream in) throws IOException {
+		JsonNode root;
+		try {
+			root = jacksonUtils.getMapper().readTree(in);
+		} catch (JsonProcessingException e) {
+			return error(null, JsonRpc.Error.PARSE_ERROR, "Parse error");
+		}
+		return decode(root);
+	}
+
+	private static JsonRpcBatch decode(JsonNode root) {
+		if (root == null) {
+			return error(null, JsonRpc.Error.PARSE_ERROR, "Parse error");
+		}
+		if (!root.isArray() && !root.isObject()) {
+			return error(null, JsonRpc.Error.INVALID_REQUEST, "Invalid Request");
+		}
+		if (root.isObject()) {
+			List<JsonRpc<JsonNode, Object>> calls = new ArrayList<JsonRpc<JsonNode, Object>>(1);
+			calls.add(toCall(root));
+			return new JsonRpcBatch(calls, false);
+		}
+		int size = root.size();
+		if (size == 0) {
+			return error(null, JsonRpc.Error.INVALID_REQUEST, "Invalid Request");
+		}
+		List<JsonRpc<JsonNode, Object>> calls = new ArrayList<JsonRpc<JsonNode, Object>>(size);
+		for (int i = 0; i < size; i++) {
+			calls.add(toCall(root.get(i)));
+		}
+		return new JsonRpcBatch(calls, true);
+	}
+
+	private static JsonRpc<JsonNode, Object> toCall(JsonNode node) {
+		if (!node.isObject()) {
+			return invalid(null);
+		}
+		Integer id = null;
+		JsonNode idNode = node.get("id");
+		if (idNode != null && !idNode.isNull()) {
+			if (!idNode.isIntegralNumber() || !idNode.canConvertToInt()) {
+				return invalid(null);
+			}
+			id = idNode.intValue();
+		}
+		JsonNode version = node.get("jsonrpc");
+		JsonNode method = node.get("method");
+		JsonNode params = node.get("params");
+		if (version == null || !VERSION.equals(version.asText()) || method == null || !method.isTextual()) {
+			return invalid(id);
+		}
+		if (params != null && params.isNull()) {
+			params = null;
+		}
+		if (params != null && !params.isContainerNode()) {
+			return invalid(id);
+		}
+		return new JsonRpc<JsonNode, Object>(id, method.textValue(), params);
+	}
+
+	private static JsonRpc<JsonNode, Object> invalid(Integer id) {
+		JsonRpc<JsonNode, Object> call = new JsonRpc<JsonNode, Object>(new JsonRpc.Error(JsonRpc.Error.INVALID_REQUEST, "Invalid Request"));
+		call.setId(id);
+		return call;
+	}
+
+	private static JsonRpcBatch error(Integer id, int code, String message) {
+		JsonRpc<JsonNode, Object> call = new JsonRpc<JsonNode, Object>(new JsonRpc.Error(code, message));
+		call.setId(id);
+		return new JsonRpcBatch(Collections.singletonList(call), false);
+	}
+
+	/**
+	 * 调用是否是通知：有效的调用并且没有id。通知不返回响应。
+	 * @param call 解码后的调用
+	 */
+	public static boolean isNotification(JsonRpc<?, ?> call) {
+		return call.getId() == null && call.getError() == null;
+	}
+
+	/**
+	 * 写出一个响应对象。result为null时也会写出"result":null，error和result只写出一个。
+	 * result最好事先转换成JsonNode（见{@link JsonRpcProcessor}），这样写出时只是复制，不会因为序列化出错而截断输出。
+	 * @param generator JsonGenerator，需要有ObjectCodec（从ObjectMapper的JsonFactory创建）才能写出result
+	 * @param response 响应
+	 */
+	public static void writeResponse(JsonGenerator generator, JsonRpc<?, ?> response) throws IOException {
+		generator.writeStartObject();
+		generator.writeStringField("jsonrpc", VERSION);
+		JsonRpc.Error error = response.getError();
+		if (error != null) {
+			generator.writeObjectFieldStart("error");
+			generator.writeNumberField("code", error.getCode() == null ? JsonRpc.Error.INTERNAL_ERROR : error.getCode());
+			generator.writeStringField("message", error.getMessage());
+			generator.writeEndObject();
+		} else {
+			generator.writeFieldName("result");
+			Object result = response.getResult();
+			if (result instanceof JsonNode) {
+				generator.writeTree((JsonNode) result);
+			} else {
+				generator.writeObject(result);
+			}
+		}
+		generator.writeFieldName("id");
+		if (response.getId() == null) {
+			generator.writeNull();
+		} else {
+			generator.writeNumber(response.getId());
+		}
+		generator.writeEndObject();
+	}
+
+	/**
+	 * 编码批量请求，客户端使用。
+	 * @param jacksonUtils 使用的格式，文本或者二进制JSON
+	 * @param calls 调用，没有id的是通知
+	 * @return 请求数据
+	 */
+	public static byte[] encode(JacksonUtils jacksonUtils, List<? extends JsonRpc<?, ?>> calls) {
+		return jacksonUtils.toJsonBytes(calls);
+	}
+
+	/**
+	 * 解码批量请求的响应，客户端使用。响应的顺序不一定和调用的顺序相同，用id对应。
+	 * @param jacksonUtils 响应的格式，文本或者二进制JSON
+	 * @param bytes 响应数据，null或者空（全部是通知）时返回空的List
+	 * @return 响应，result是JsonNode
+	 */
+	public static List<JsonRpc<Object, JsonNode>> decodeResponses(JacksonUtils jacksonUtils, byte[] bytes) {
+		List<JsonRpc<Object, JsonNode>> responses = new ArrayList<JsonRpc<Object, JsonNode>>();
+		if (bytes == null || bytes.length == 0) {
+			return responses;
+		}
+		JsonNode root;
+		try {
+			root = jacksonUtils.getMapper().readTree(bytes);
+		} catch (IOException e) {
+			throw new RuntimeException("JsonRpc响应不是有效的JSON。", e);
+		}
+		if (root == null) {
+			return responses;
+		}
+		if (root.isArray()) {
+			for (int i = 0, size = root.size(); i < size; i++) {
+				responses.add(toResponse(root.get(i)));
+			}
+		} else {
+			responses.add(toResponse(root));
+		}
+		return responses;
+	}
+
+	private static JsonRpc<Object, JsonNode> toResponse(JsonNode node) {
+		JsonRpc<Object, JsonNode> response = new JsonRpc<Object, JsonNode>();
+		JsonNode id = node.get("id");
+		if (id != null && id.canConvertToInt()) {
+			response.setId(id.intValue());
+		}
+		JsonNode error = node.get("error");
+		if (error != null && error.isObject()) {
+			JsonNode code = error.get("code");
+			JsonNode message = error.get("message");
+			response.setError(new JsonRpc.Error(code == null ? null : code.intValue(),
+					message == null ? null : message.asText()));
+		} else {
+			JsonNode result = node.get("result");
+			if (result != null && !result.isNull()) {
+				response.setResult(result);
+			}
+		}
+		return response;
+	}
+
+	/**
+	 * 调用，按请求中的顺序，包括通知和无效的调用（带有error）。
+	 */
+	public List<JsonRpc<JsonNode, Object>> getCalls() {
+		return calls;
+	}
+
+	/**
+	 * 请求是否是数组。单个调用对象的请求响应也是单个对象。
+	 */
+	public boolean isBatch() {
+		return batch;
+	}
+
+	public int size() {
+		return calls.size();
+	}
+}
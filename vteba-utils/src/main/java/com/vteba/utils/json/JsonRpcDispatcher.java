@@ -0,0 +1,225 @@
+package com.vteba.utils.json;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.vteba.lang.bytecode.MethodAccess;
+import com.vteba.utils.reflection.AsmUtils;
+
+/**
+ * 把JsonRpc调用分发到注册的服务对象上，用{@link MethodAccess}生成的字节码按下标调用方法，代替Method.invoke。
+ * <p>注册时为每个public方法找好MethodAccess的下标，以及每个参数类型（包括泛型）的ObjectReader，放到方法名的HashMap中。
+ * 调用时只有一次HashMap查找，params直接转换成方法的参数类型，String、int、long、boolean、double参数不经过ObjectReader。
+ * <p>方法名是"服务名.方法名"，服务名为null或者空时就是方法名。params是数组时按位置对应参数；
+ * 是对象时只能调用有一个参数的方法，整个对象转换成这个参数。同名的方法按参数个数区分，参数个数也相同的重载方法不能注册。
+ * 方法不存在返回{@link JsonRpc.Error#METHOD_NOT_FOUND}，参数个数或者类型不对返回{@link JsonRpc.Error#INVALID_PARAMS}，
+ * 方法抛出的异常直接抛出。
+ * <p>应该在启动时注册，注册之后是线程安全的，可以作为{@link JsonRpcProcessor}的JsonRpcHandler。
+ * @author yinlei
+ * @since 2014-10-7
+ */
+public class JsonRpcDispatcher implements JsonRpcHandler {
+	private static final Logger logger = LoggerFactory.getLogger(JsonRpcDispatcher.class);
+	private static final int OTHER = 0;
+	private static final int STRING = 1;
+	private static final int INT = 2;
+	private static final int LONG = 3;
+	private static final int BOOLEAN = 4;
+	private static final int DOUBLE = 5;
+
+	private final JacksonUtils jacksonUtils;
+	/** 方法名 -> 调用目标，注册时复制一份再替换，调用时不需要加锁 */
+	private volatile Map<String, Target> targets = new HashMap<String, Target>();
+
+	/**
+	 * 使用文本JSON格式的配置转换参数。
+	 */
+	public JsonRpcDispatcher() {
+		this(JacksonUtils.get());
+	}
+
+	/**
+	 * @param jacksonUtils 转换参数使用的JacksonUtils
+	 */
+	public JsonRpcDispatcher(JacksonUtils jacksonUtils) {
+		this.jacksonUtils = jacksonUtils;
+	}
+
+	/**
+	 * 注册服务对象，对象的类（包括父类）中所有的public方法都可以调用，Object的方法除外。
+	 * @param name 服务名
+	 * @param bean 服务对象，类必须是public的
+	 */
+	public void register(String name, Object bean) {
+		registerType(name, bean.getClass(), bean);
+	}
+
+	/**
+	 * 注册服务对象，只能调用type中的public方法，例如只暴露服务接口中的方法，或者对象是代理时使用。
+	 * @param name 服务名
+	 * @param type 服务接口或者类，必须是public的
+	 * @param bean 服务对象
+	 */
+	public <T> void register(String name, Class<? super T> type, T bean) {
+		registerType(name, type, bean);
+	}
+
+	private synchronized void registerType(String name, Class<?> type, Object bean) {
+		if (!Modifier.isPublic(type.getModifiers())) {
+			throw new IllegalArgumentException("JsonRpc服务的类型必须是public的：" + type.getName());
+		}
+		String prefix = name == null || name.isEmpty() ? "" : name + ".";
+		MethodAccess access = AsmUtils.get().createMethodAccess(type);
+		Map<String, Target> map = new HashMap<String, Target>(targets);
+		for (Method method : type.getMethods()) {
+			if (method.getDeclaringClass() == Object.class || Modifier.isStatic(method.getModifiers())
+					|| method.isBridge() || method.isSynthetic()) {
+				continue;
+			}
+			String methodName = prefix + method.getName();
+			Target target = new Target(bean, access, access.getIndex(method.getName(), method.getParameterTypes()),
+					method.getGenericParameterTypes());
+			Target head = map.get(methodName);
+			for (Target t = head; t != null; t = t.next) {
+				if (t.kinds.length == target.kinds.length) {
+					throw new IllegalArgumentException("JsonRpc方法[" + methodName + "]有多个" + target.kinds.length
+							+ "个参数的重载方法。");
+				}
+			}
+			target.next = head;
+			map.put(methodName, target);
+		}
+		targets = map;
+	}
+
+	@Override
+	public Object handle(String method, JsonNode params) throws Exception {
+		Target target = targets.get(method);
+		if (target == null) {
+			throw new JsonRpcException(JsonRpc.Error.METHOD_NOT_FOUND, "Method not found");
+		}
+		int count = params == null ? 0 : params.isArray() ? params.size() : 1;
+		while (target.kinds.length != count) {
+			target = target.next;
+			if (target == null) {
+				throw new JsonRpcException(JsonRpc.Error.INVALID_PARAMS, "Invalid params");
+			}
+		}
+		Object[] args = new Object[count];
+		if (count == 1 && !params.isArray()) {
+			args[0] = target.convert(0, params);
+		} else {
+			for (int i = 0; i < count; i++) {
+				args[i] = target.convert(i, params.get(i));
+			}
+		}
+		return target.access.invoke(target.bean, target.index, args);
+	}
+
+	/**
+	 * 是否注册了这个方法名。
+	 * @param method 方法名，"服务名.方法名"
+	 */
+	public boolean contains(String method) {
+		return targets.containsKey(method);
+	}
+
+	/**
+	 * 一个方法。方法名相同、参数个数不同的方法用next连起来。
+	 */
+	private class Target {
+		final Object bean;
+		final MethodAccess access;
+		final int index;
+		final int[] kinds;
+		final boolean[] primitives;
+		final ObjectReader[] readers;
+		Target next;
+
+		Target(Object bean, MethodAccess access, int index, Type[] parameterTypes) {
+			this.bean = bean;
+			this.access = access;
+			this.index = index;
+			int n = parameterTypes.length;
+			this.kinds = new int[n];
+			this.primitives = new boolean[n];
+			this.readers = new ObjectReader[n];
+			for (int i = 0; i < n; i++) {
+				Type type = parameterTypes[i];
+				primitives[i] = type instanceof Class && ((Class<?>) type).isPrimitive();
+				if (type == String.class) {
+					kinds[i] = STRING;
+				} else if (type == int.class || type == Integer.class) {
+					kinds[i] = INT;
+				} else if (type == long.class || type == Long.class) {
+					kinds[i] = LONG;
+				} else if (type == boolean.class || type == Boolean.class) {
+					kinds[i] = BOOLEAN;
+				} else if (type == double.class || type == Double.class) {
+					kinds[i] = DOUBLE;
+				} else {
+					kinds[i] = OTHER;
+				}
+				readers[i] = jacksonUtils.getReader(jacksonUtils.getMapper().getTypeFactory().constructType(type));
+			}
+		}
+
+		/**
+		 * 把第i个参数转换成参数类型，不能转换时抛出INVALID_PARAMS。
+		 */
+		Object convert(int i, JsonNode node) {
+			if (node == null || node.isNull()) {
+				if (primitives[i]) {
+					throw new JsonRpcException(JsonRpc.Error.INVALID_PARAMS, "Invalid params");
+				}
+				return null;
+			}
+			switch (kinds[i]) {
+			case STRING:
+				if (node.isTextual()) {
+					return node.textValue();
+				}
+				break;
+			case INT:
+				if (node.isInt()) {
+					return node.intValue();
+				}
+				break;
+			case LONG:
+				if (node.isIntegralNumber() && node.canConvertToLong()) {
+					return node.longValue();
+				}
+				break;
+			case BOOLEAN:
+				if (node.isBoolean()) {
+					return node.booleanValue();
+				}
+				break;
+			case DOUBLE:
+				if (node.isNumber()) {
+					return node.doubleValue();
+				}
+				break;
+			default:
+				break;
+			}
+			try {
+				return readers[i].readValue(node);
+			} catch (IOException | RuntimeException e) {
+				// 除了IOException，转换还可能抛出IllegalArgumentException、ClassCastException等，都是参数不对；
+				// 异常信息包含Jackson内部的类名和位置，只记录日志，不返回给客户端
+				logger.warn("JsonRpc参数[{}]转换出错。", i, e);
+				throw new JsonRpcException(JsonRpc.Error.INVALID_PARAMS, "Invalid params: parameter " + i, e);
+			}
+		}
+	}
+}
@@ -0,0 +1,34 @@
+package com.vteba.utils.json;
+
+/**
+ * JsonRpc调用失败，code和message会作为响应中的error返回给调用方，错误码见{@link JsonRpc.Error}中的常量，
+ * 业务错误使用-32000以外的错误码。
+ * @author yinlei
+ * @since 2014-10-7
+ */
+public class JsonRpcException extends RuntimeException {
+	private static final long serialVersionUID = 1L;
+
+	private final int code;
+
+	public JsonRpcException(int code, String message) {
+		super(message);
+		this.code = code;
+	}
+
+	public JsonRpcException(int code, String message, Throwable cause) {
+		super(message, cause);
+		this.code = code;
+	}
+
+	public int getCode() {
+		return code;
+	}
+
+	/**
+	 * 转换成响应中的error。
+	 */
+	public JsonRpc.Error toError() {
+		return new JsonRpc.Error(code, getMessage());
+	}
+}
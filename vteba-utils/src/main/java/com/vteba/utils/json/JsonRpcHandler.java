@@ -0,0 +1,21 @@
+package com.vteba.utils.json;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * 执行一个JsonRpc调用，见{@link JsonRpcProcessor}。批量请求中的调用会在多个线程中同时执行，实现必须是线程安全的。
+ * @author yinlei
+ * @since 2014-10-7
+ */
+public interface JsonRpcHandler {
+
+	/**
+	 * 执行调用，返回结果。
+	 * @param method 方法名
+	 * @param params 参数，数组或者对象，没有参数时是null
+	 * @return 调用结果，会作为响应的result
+	 * @throws JsonRpcException 返回给调用方的错误，例如方法不存在、参数错误
+	 * @throws Exception 其他异常作为服务端内部错误返回
+	 */
+	Object handle(String method, JsonNode params) throws Exception;
+}
@@ -0,0 +1,220 @@
+package com.vteba.utils.json;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * 处理JsonRpc 2.0的批量请求：解码请求（见{@link JsonRpcBatch}），批量中的调用相互独立，提交到executor中同时执行，
+ * 按请求中的顺序写出响应，每个响应完成后马上写出并flush，不用等全部调用完成。
+ * 通知（没有id的调用）也提交到executor中执行，不等待完成，也不返回响应，执行出错只记录日志。
+ * <p>等待下一个响应时，如果这个调用还没有开始执行（executor的线程都在忙），就在当前线程中执行，
+ * 所以executor可以是有界的，和处理请求的线程池共用也不会死锁。executor拒绝执行时也在当前线程中执行。
+ * 单个调用（不是数组）的请求直接在当前线程中执行，单个通知也提交到executor中执行。
+ * <p>{@link JsonRpcHandler}抛出的{@link JsonRpcException}作为error返回，其他异常返回{@link JsonRpc.Error#INTERNAL_ERROR}。
+ * 调用的结果在执行调用的任务中转换成JsonNode，转换失败（例如getter抛出异常）也返回{@link JsonRpc.Error#INTERNAL_ERROR}，
+ * 写出响应时只复制已经转换好的JsonNode。
+ * @author yinlei
+ * @since 2014-10-7
+ */
+public class JsonRpcProcessor {
+	private static final Logger logger = LoggerFactory.getLogger(JsonRpcProcessor.class);
+
+	private final JsonRpcHandler handler;
+	private final Executor executor;
+	private final JacksonUtils jacksonUtils;
+
+	/**
+	 * 使用文本JSON格式。
+	 * @param handler 执行调用
+	 * @param executor 执行批量中的调用和通知
+	 */
+	public JsonRpcProcessor(JsonRpcHandler handler, Executor executor) {
+		this(handler, executor, JacksonUtils.get());
+	}
+
+	/**
+	 * @param handler 执行调用
+	 * @param executor 执行批量中的调用和通知
+	 * @param jacksonUtils 请求和响应的格式，文本或者二进制JSON（{@link JacksonUtils#getBinary()}）
+	 */
+	public JsonRpcProcessor(JsonRpcHandler handler, Executor executor, JacksonUtils jacksonUtils) {
+		this.handler = handler;
+		this.executor = executor;
+		this.jacksonUtils = jacksonUtils;
+	}
+
+	/**
+	 * 处理请求，返回响应数据。
+	 * @param request 请求数据
+	 * @return 响应数据，全部是通知时返回长度为0的数组
+	 */
+	public byte[] process(byte[] request) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(1024);
+		try {
+			process(JsonRpcBatch.decode(jacksonUtils, request), out);
+		} catch (IOException e) {
+			throw new RuntimeException("写出JsonRpc响应错误。", e);
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * 处理请求，响应写到输出流中，不会关闭输入流和输出流。
+	 * @param in 请求数据
+	 * @param out 响应
+	 * @return 写出的响应个数，为0时（全部是通知）没有写出任何数据
+	 * @throws IOException 读取请求或者写出响应出错
+	 */
+	public int process(InputStream in, OutputStream out) throws IOException {
+		return process(JsonRpcBatch.decode(jacksonUtils, in), out);
+	}
+
+	/**
+	 * 处理解码后的请求，响应写到输出流中，不会关闭输出流。
+	 * @param batch 请求
+	 * @param out 响应
+	 * @return 写出的响应个数，为0时（全部是通知）没有写出任何数据
+	 * @throws IOException 写出响应出错
+	 */
+	public int process(JsonRpcBatch batch, OutputStream out) throws IOException {
+		List<JsonRpc<JsonNode, Object>> calls = batch.getCalls();
+		if (!batch.isBatch()) {
+			JsonRpc<JsonNode, Object> call = calls.get(0);
+			if (JsonRpcBatch.isNotification(call)) {
+				// 和批量中的通知一样，不占用处理请求的线程
+				submit(newTask(call));
+				return 0;
+			}
+			JsonGenerator generator = createGenerator(out);
+			JsonRpcBatch.writeResponse(generator, call.getError() != null ? call : execute(call));
+			generator.close();
+			return 1;
+		}
+
+		int size = calls.size();
+		@SuppressWarnings("unchecked")
+		FutureTask<JsonRpc<Object, Object>>[] tasks = new FutureTask[size];
+		int responses = 0;
+		for (int i = 0; i < size; i++) {
+			JsonRpc<JsonNode, Object> call = calls.get(i);
+			if (call.getError() != null) {
+				responses++;
+			} else if (JsonRpcBatch.isNotification(call)) {
+				submit(newTask(call));
+			} else {
+				tasks[i] = newTask(call);
+				submit(tasks[i]);
+				responses++;
+			}
+		}
+		if (responses == 0) {
+			return 0;
+		}
+
+		JsonGenerator generator = createGenerator(out);
+		generator.writeStartArray();
+		for (int i = 0; i < size; i++) {
+			JsonRpc<JsonNode, Object> call = calls.get(i);
+			if (call.getError() != null) {
+				JsonRpcBatch.writeResponse(generator, call);
+			} else if (tasks[i] != null) {
+				FutureTask<JsonRpc<Object, Object>> task = tasks[i];
+				// 还没有开始执行时在当前线程中执行，已经开始或者完成时run()直接返回
+				task.run();
+				JsonRpcBatch.writeResponse(generator, await(task, call));
+			} else {
+				continue;
+			}
+			generator.flush();
+		}
+		generator.writeEndArray();
+		generator.close();
+		return responses;
+	}
+
+	private JsonGenerator createGenerator(OutputStream out) throws IOException {
+		JsonGenerator generator = jacksonUtils.getMapper().getFactory().createGenerator(out, JsonEncoding.UTF8);
+		generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+		return generator;
+	}
+
+	private FutureTask<JsonRpc<Object, Object>> newTask(final JsonRpc<JsonNode, Object> call) {
+		return new FutureTask<JsonRpc<Object, Object>>(new Callable<JsonRpc<Object, Object>>() {
+			@Override
+			public JsonRpc<Object, Object> call() {
+				return execute(call);
+			}
+		});
+	}
+
+	private void submit(FutureTask<?> task) {
+		try {
+			executor.execute(task);
+		} catch (RejectedExecutionException e) {
+			task.run();
+		}
+	}
+
+	private JsonRpc<Object, Object> await(FutureTask<JsonRpc<Object, Object>> task, JsonRpc<JsonNode, Object> call) {
+		try {
+			return task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return error(call, new JsonRpc.Error(JsonRpc.Error.INTERNAL_ERROR, "Interrupted"));
+		} catch (ExecutionException e) {
+			// execute()已经处理了所有异常，这里只有Error
+			logger.error("JsonRpc调用[{}]出错。", call.getMethod(), e.getCause());
+			return error(call, new JsonRpc.Error(JsonRpc.Error.INTERNAL_ERROR, String.valueOf(e.getCause())));
+		}
+	}
+
+	/**
+	 * 执行调用，异常转换成error。
+	 */
+	private JsonRpc<Object, Object> execute(JsonRpc<JsonNode, Object> call) {
+		try {
+			Object result = handler.handle(call.getMethod(), call.getParams());
+			if (call.getId() == null) {
+				return new JsonRpc<Object, Object>(null, result);
+			}
+			// 结果在调用的任务中转换成JsonNode，转换也并行执行；转换失败只影响这一个响应，写出时不会截断整个批量
+			JsonNode node;
+			try {
+				node = jacksonUtils.getMapper().valueToTree(result);
+			} catch (RuntimeException e) {
+				logger.error("JsonRpc调用[{}]的结果序列化出错。", call.getMethod(), e);
+				return error(call, new JsonRpc.Error(JsonRpc.Error.INTERNAL_ERROR, "Internal error"));
+			}
+			return new JsonRpc<Object, Object>(call.getId(), node);
+		} catch (JsonRpcException e) {
+			if (call.getId() == null) {
+				logger.warn("JsonRpc通知[{}]执行失败，{}", call.getMethod(), e.getMessage());
+			}
+			return error(call, e.toError());
+		} catch (Exception e) {
+			logger.error("JsonRpc调用[{}]出错。", call.getMethod(), e);
+			return error(call, new JsonRpc.Error(JsonRpc.Error.INTERNAL_ERROR, e.getMessage()));
+		}
+	}
+
+	private static JsonRpc<Object, Object> error(JsonRpc<JsonNode, Object> call, JsonRpc.Error error) {
+		JsonRpc<Object, Object> response = new JsonRpc<Object, Object>(error);
+		response.setId(call.getId());
+		return response;
+	}
+}
@@ -0,0 +1,469 @@
+package com.vteba.utils.json;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.vteba.utils.charstr.Char;
+
+/**
+ * 按需解析的JSON视图。只按路径扫描到要读取的节点，路过的其他节点只跳过，不解析，也不创建对象，
+ * 最后只把目标节点交给Jackson绑定。适合很大的响应只读取其中少数几个节点，见{@link com.vteba.utils.web.HttpUtils#invokeLazy(Map, String)}。
+ * <p>路径用'.'分隔属性名，用[n]取数组元素，如：data.items[0].price，[2].name，空字符串表示根节点。属性名中不能有'.'和'['。
+ * 解析过的路径前缀会记住其在数据中的位置，之后读取同一节点下的其他路径从该位置开始。
+ * <p>路径不存在时返回null。数据格式错误时抛出IllegalArgumentException，但只检查扫描经过的部分。
+ * 数据必须是UTF-8编码，不会被复制，调用者不能再修改。不是线程安全的。
+ * @author yinlei
+ * @since 2014-10-5
+ */
+public class LazyJson {
+	private static final Object[] ROOT = new Object[0];
+
+	private final byte[] bytes;
+	private final int offset;
+	private final int end;
+	/** 路径 -> 该节点值的开始位置 */
+	private final Map<String, Integer> index = new HashMap<String, Integer>();
+
+	/**
+	 * @param bytes UTF-8编码的JSON数据
+	 */
+	public LazyJson(byte[] bytes) {
+		this(bytes, 0, bytes.length);
+	}
+
+	/**
+	 * @param bytes UTF-8编码的JSON数据
+	 * @param offset JSON开始的位置
+	 * @param length JSON的长度
+	 */
+	public LazyJson(byte[] bytes, int offset, int length) {
+		if (offset < 0 || length < 0 || offset + length > bytes.length) {
+			throw new IndexOutOfBoundsException("offset=" + offset + ", length=" + length + ", size=" + bytes.length);
+		}
+		this.bytes = bytes;
+		this.offset = offset;
+		this.end = offset + length;
+	}
+
+	/**
+	 * 路径是否存在，值为null也算存在。
+	 * @param path 节点路径
+	 */
+	public boolean has(String path) {
+		return find(path) >= 0;
+	}
+
+	/**
+	 * 读取字符串节点，没有转义字符时直接从字节解码，不经过Jackson。其他类型的节点按Jackson的规则转换。
+	 * @param path 节点路径
+	 * @return 字符串，路径不存在或者值为null时返回null
+	 */
+	public String getString(String path) {
+		int start = find(path);
+		if (start < 0) {
+			return null;
+		}
+		if (bytes[start] == '"') {
+			int close = skipString(start);
+			boolean escaped = false;
+			for (int i = start + 1; i < close - 1; i++) {
+				if (bytes[i] == '\\') {
+					escaped = true;
+					break;
+				}
+			}
+			if (!escaped) {
+				return new String(bytes, start + 1, close - start - 2, Char.UTF8);
+			}
+		}
+		return bind(start, String.class);
+	}
+
+	public Integer getInteger(String path) {
+		return get(path, Integer.class);
+	}
+
+	public Long getLong(String path) {
+		return get(path, Long.class);
+	}
+
+	public Double getDouble(String path) {
+		return get(path, Double.class);
+	}
+
+	public Boolean getBoolean(String path) {
+		return get(path, Boolean.class);
+	}
+
+	/**
+	 * 读取节点，用Jackson只解析该节点的数据，绑定成指定的类型。
+	 * @param path 节点路径
+	 * @param clazz 目标类型，可以是JavaBean、Map、List等
+	 * @return 节点的值，路径不存在时返回null
+	 */
+	public <T> T get(String path, Class<T> clazz) {
+		int start = find(path);
+		if (start < 0) {
+			return null;
+		}
+		return bind(start, clazz);
+	}
+
+	/**
+	 * 读取节点，绑定成泛型类型，见{@link #get(String, Class)}。
+	 * @param path 节点路径
+	 * @param valueType 目标类型，可以用JacksonUtils构造
+	 * @return 节点的值，路径不存在时返回null
+	 */
+	public <T> T get(String path, JavaType valueType) {
+		int start = find(path);
+		if (start < 0) {
+			return null;
+		}
+		try {
+			return JacksonUtils.get().getReader(valueType).readValue(bytes, start, skipValue(start) - start);
+		} catch (IOException e) {
+			throw new IllegalArgumentException("JSON节点[" + path + "]不能转换成" + valueType, e);
+		}
+	}
+
+	/**
+	 * 节点的原始JSON文本。
+	 * @param path 节点路径
+	 * @return JSON文本，路径不存在时返回null
+	 */
+	public String getRaw(String path) {
+		int start = find(path);
+		if (start < 0) {
+			return null;
+		}
+		return new String(bytes, start, skipValue(start) - start, Char.UTF8);
+	}
+
+	/**
+	 * 节点的视图，和当前视图共用数据，不复制。
+	 * @param path 节点路径
+	 * @return 节点的视图，路径不存在时返回null
+	 */
+	public LazyJson getView(String path) {
+		int start = find(path);
+		if (start < 0) {
+			return null;
+		}
+		return new LazyJson(bytes, start, skipValue(start) - start);
+	}
+
+	/**
+	 * 数组的元素个数或者对象的属性个数，元素本身只跳过不解析。
+	 * @param path 节点路径
+	 * @return 元素个数，路径不存在或者不是数组、对象时返回-1
+	 */
+	public int size(String path) {
+		int start = find(path);
+		if (start < 0 || (bytes[start] != '[' && bytes[start] != '{')) {
+			return -1;
+		}
+		boolean object = bytes[start] == '{';
+		int pos = skipWhitespace(start + 1);
+		if (bytes[pos] == (object ? '}' : ']')) {
+			return 0;
+		}
+		int size = 0;
+		while (true) {
+			if (object) {
+				pos = skipWhitespace(skipString(expect(pos, '"')));
+				pos = skipWhitespace(expect(pos, ':') + 1);
+			}
+			pos = skipWhitespace(skipValue(pos));
+			size++;
+			if (bytes[pos] == ',') {
+				pos = skipWhitespace(pos + 1);
+			} else {
+				expect(pos, object ? '}' : ']');
+				return size;
+			}
+		}
+	}
+
+	private <T> T bind(int start, Class<T> clazz) {
+		try {
+			return JacksonUtils.get().getReader(clazz).readValue(bytes, start, skipValue(start) - start);
+		} catch (IOException e) {
+			throw new IllegalArgumentException("JSON节点不能转换成" + clazz.getName() + "，位置：" + (start - offset), e);
+		}
+	}
+
+	/**
+	 * 找到路径对应的值的开始位置，从已经记住的最长的路径前缀开始扫描。
+	 * @return 值的第一个字节的位置，路径不存在时返回-1
+	 */
+	private int find(String path) {
+		Integer cached = index.get(path);
+		if (cached != null) {
+			return cached;
+		}
+		Object[] segments = parsePath(path);
+		int pos = -1;
+		int from = 0;
+		for (int i = segments.length; i > 0; i--) {
+			Integer prefix = index.get(join(segments, i));
+			if (prefix != null) {
+				pos = prefix;
+				from = i;
+				break;
+			}
+		}
+		if (pos < 0) {
+			pos = skipWhitespace(offset);
+		}
+		for (int i = from; i < segments.length; i++) {
+			Object segment = segments[i];
+			if (segment instanceof String) {
+				pos = findField(pos, (String) segment);
+			} else {
+				pos = findElement(pos, (Integer) segment);
+			}
+			if (pos < 0) {
+				return -1;
+			}
+			index.put(join(segments, i + 1), pos);
+		}
+		if (segments.length == 0) {
+			index.put("", pos);
+		}
+		return pos;
+	}
+
+	/**
+	 * 把路径拆分成属性名（String）和数组下标（Integer）。
+	 */
+	private static Object[] parsePath(String path) {
+		if (path == null || path.isEmpty()) {
+			return ROOT;
+		}
+		List<Object> segments = new ArrayList<Object>();
+		int i = 0;
+		int length = path.length();
+		while (i < length) {
+			char c = path.charAt(i);
+			if (c == '.') {
+				i++;
+			} else if (c == '[') {
+				int close = path.indexOf(']', i);
+				if (close < 0) {
+					throw new IllegalArgumentException("路径格式错误：" + path);
+				}
+				try {
+					segments.add(Integer.valueOf(path.substring(i + 1, close).trim()));
+				} catch (NumberFormatException e) {
+					throw new IllegalArgumentException("路径格式错误：" + path);
+				}
+				i = close + 1;
+			} else {
+				int next = i;
+				while (next < length && path.charAt(next) != '.' && path.charAt(next) != '[') {
+					next++;
+				}
+				segments.add(path.substring(i, next));
+				i = next;
+			}
+		}
+		return segments.toArray();
+	}
+
+	/**
+	 * 用规范的形式拼接前count个路径段，作为位置索引的key。
+	 */
+	private static String join(Object[] segments, int count) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < count; i++) {
+			Object segment = segments[i];
+			if (segment instanceof String) {
+				if (i > 0) {
+					sb.append('.');
+				}
+				sb.append(segment);
+			} else {
+				sb.append('[').append(segment).append(']');
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * 在对象中查找属性，其他属性的值只跳过。
+	 * @param pos 对象的开始位置
+	 * @return 属性值的开始位置，不是对象或者没有该属性时返回-1
+	 */
+	private int findField(int pos, String name) {
+		if (bytes[pos] != '{') {
+			return -1;
+		}
+		byte[] key = name.getBytes(Char.UTF8);
+		pos = skipWhitespace(pos + 1);
+		if (bytes[pos] == '}') {
+			return -1;
+		}
+		while (true) {
+			int keyStart = expect(pos, '"');
+			int keyEnd = skipString(keyStart);
+			boolean match = keyEquals(keyStart + 1, keyEnd - 1, key);
+			pos = skipWhitespace(keyEnd);
+			pos = skipWhitespace(expect(pos, ':') + 1);
+			if (match) {
+				return pos;
+			}
+			pos = skipWhitespace(skipValue(pos));
+			if (bytes[pos] == ',') {
+				pos = skipWhitespace(pos + 1);
+			} else {
+				expect(pos, '}');
+				return -1;
+			}
+		}
+	}
+
+	/**
+	 * 在数组中查找元素，之前的元素只跳过。
+	 * @param pos 数组的开始位置
+	 * @return 元素的开始位置，不是数组或者越界时返回-1
+	 */
+	private int findElement(int pos, int n) {
+		if (bytes[pos] != '[' || n < 0) {
+			return -1;
+		}
+		pos = skipWhitespace(pos + 1);
+		if (bytes[pos] == ']') {
+			return -1;
+		}
+		for (int i = 0; i < n; i++) {
+			pos = skipWhitespace(skipValue(pos));
+			if (bytes[pos] == ',') {
+				pos = skipWhitespace(pos + 1);
+			} else {
+				expect(pos, ']');
+				return -1;
+			}
+		}
+		return pos;
+	}
+
+	/**
+	 * 属性名是否相同。属性名中有转义字符时，解码后再比较。
+	 */
+	private boolean keyEquals(int start, int stop, byte[] key) {
+		int length = stop - start;
+		boolean escaped = false;
+		for (int i = start; i < stop; i++) {
+			if (bytes[i] == '\\') {
+				escaped = true;
+				break;
+			}
+		}
+		if (escaped) {
+			String name = JacksonUtils.get().fromJson(new String(bytes, start - 1, length + 2, Char.UTF8), String.class);
+			return name != null && name.equals(new String(key, Char.UTF8));
+		}
+		if (length != key.length) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (bytes[start + i] != key[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * 跳过一个值，字符串、对象和数组只找到结束的位置，不解析内容。
+	 * @param pos 值的开始位置
+	 * @return 值之后的位置
+	 */
+	private int skipValue(int pos) {
+		byte b = bytes[pos];
+		if (b == '"') {
+			return skipString(pos);
+		}
+		if (b == '{' || b == '[') {
+			int depth = 0;
+			while (pos < end) {
+				b = bytes[pos];
+				if (b == '"') {
+					pos = skipString(pos);
+					continue;
+				}
+				if (b == '{' || b == '[') {
+					depth++;
+				} else if (b == '}' || b == ']') {
+					if (--depth == 0) {
+						return pos + 1;
+					}
+				}
+				pos++;
+			}
+			throw error(pos, "没有结束的对象或数组");
+		}
+		// 数字、true、false、null
+		int start = pos;
+		while (pos < end) {
+			b = bytes[pos];
+			if (b == ',' || b == '}' || b == ']' || b == ' ' || b == '\n' || b == '\r' || b == '\t') {
+				break;
+			}
+			pos++;
+		}
+		if (pos == start) {
+			throw error(pos, "缺少值");
+		}
+		return pos;
+	}
+
+	/**
+	 * @param pos 开始的引号的位置
+	 * @return 结束的引号之后的位置
+	 */
+	private int skipString(int pos) {
+		for (int i = pos + 1; i < end; i++) {
+			byte b = bytes[i];
+			if (b == '"') {
+				return i + 1;
+			}
+			if (b == '\\') {
+				i++;
+			}
+		}
+		throw error(pos, "没有结束的字符串");
+	}
+
+	private int skipWhitespace(int pos) {
+		while (pos < end) {
+			byte b = bytes[pos];
+			if (b != ' ' && b != '\n' && b != '\r' && b != '\t') {
+				return pos;
+			}
+			pos++;
+		}
+		throw error(pos, "数据不完整");
+	}
+
+	private int expect(int pos, char c) {
+		if (bytes[pos] != c) {
+			throw error(pos, "应该是'" + c + "'");
+		}
+		return pos;
+	}
+
+	private IllegalArgumentException error(int pos, String message) {
+		return new IllegalArgumentException("JSON格式错误，" + message + "，位置：" + (pos - offset));
+	}
+
+	@Override
+	public String toString() {
+		return new String(bytes, offset, end - offset, Char.UTF8);
+	}
+}
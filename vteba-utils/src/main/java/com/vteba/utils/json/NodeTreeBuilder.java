@@ -0,0 +1,138 @@
+package com.vteba.utils.json;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.vteba.lang.collection.LongMap;
+
+/**
+ * 把平铺的{@link Node}列表按parentId连成树，时间是O(n)：先把所有节点按id放到{@link LongMap}中，
+ * 再遍历一次，把每个节点加到父节点的children中，最后从根节点按层遍历一次设置level（根节点是0）。
+ * <p>节点的id是nodeId，nodeId为null时使用数字形式的id。parentId为null或者父节点不在列表中的是根节点。
+ * 会覆盖节点原来的children和level，有子节点的节点parent设为true，子节点的顺序和列表中的顺序相同。
+ * id重复或者节点的父子关系有环时抛出IllegalArgumentException。
+ * <p>异步加载（zTree的async）时，第一次只输出上面几层（见{@link NodeTreeWriter#write(java.io.Writer, List, int)}），
+ * 展开节点时用{@link #getChildren(long)}取子节点。构建之后是只读的，可以缓存起来多线程使用。
+ * @author yinlei
+ * @since 2014-10-8
+ */
+public class NodeTreeBuilder {
+	private final LongMap<Node> table;
+	private final List<Node> roots;
+
+	/**
+	 * 构建树。
+	 * @param nodes 平铺的节点列表
+	 */
+	public NodeTreeBuilder(List<Node> nodes) {
+		int size = nodes.size();
+		table = new LongMap<Node>();
+		table.ensureCapacity(size);
+		for (int i = 0; i < size; i++) {
+			Node node = nodes.get(i);
+			if (table.put(key(node), node) != null) {
+				throw new IllegalArgumentException("树形节点的id重复：" + key(node));
+			}
+			node.setChildren(null);
+		}
+		roots = new ArrayList<Node>();
+		for (int i = 0; i < size; i++) {
+			Node node = nodes.get(i);
+			Long parentId = node.getParentId();
+			Node parent = parentId == null ? null : table.get(parentId);
+			if (parent == null) {
+				roots.add(node);
+				continue;
+			}
+			List<Node> children = parent.getChildren();
+			if (children == null) {
+				children = new ArrayList<Node>(4);
+				parent.setChildren(children);
+				parent.setParent(Boolean.TRUE);
+			}
+			children.add(node);
+		}
+		// 按层设置level，没有遍历到的节点在环中
+		List<Node> queue = new ArrayList<Node>(size);
+		for (Node root : roots) {
+			root.setLevel(0);
+			queue.add(root);
+		}
+		for (int i = 0; i < queue.size(); i++) {
+			Node node = queue.get(i);
+			List<Node> children = node.getChildren();
+			if (children == null) {
+				continue;
+			}
+			Integer level = node.getLevel() + 1;
+			for (int j = 0, n = children.size(); j < n; j++) {
+				Node child = children.get(j);
+				child.setLevel(level);
+				queue.add(child);
+			}
+		}
+		if (queue.size() != size) {
+			throw new IllegalArgumentException("树形节点的父子关系有环，" + (size - queue.size()) + "个节点不能连到根节点。");
+		}
+	}
+
+	/**
+	 * 构建树，返回根节点。
+	 * @param nodes 平铺的节点列表
+	 * @return 根节点
+	 */
+	public static List<Node> build(List<Node> nodes) {
+		return new NodeTreeBuilder(nodes).getRoots();
+	}
+
+	private static long key(Node node) {
+		if (node.getNodeId() != null) {
+			return node.getNodeId();
+		}
+		if (node.getId() == null) {
+			throw new IllegalArgumentException("树形节点没有id：" + node.getName());
+		}
+		try {
+			return Long.parseLong(node.getId());
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("树形节点的id不是数字，不能和parentId对应：" + node.getId());
+		}
+	}
+
+	/**
+	 * 根节点，按列表中的顺序。
+	 */
+	public List<Node> getRoots() {
+		return roots;
+	}
+
+	/**
+	 * 按id取节点。
+	 * @param id 节点id
+	 * @return 节点，不存在时返回null
+	 */
+	public Node getNode(long id) {
+		return table.get(id);
+	}
+
+	/**
+	 * 取节点的子节点，用于异步加载。
+	 * @param id 节点id
+	 * @return 子节点，节点不存在或者没有子节点时返回空的List
+	 */
+	public List<Node> getChildren(long id) {
+		Node node = table.get(id);
+		if (node == null || node.getChildren() == null) {
+			return Collections.emptyList();
+		}
+		return node.getChildren();
+	}
+
+	/**
+	 * 节点个数。
+	 */
+	public int size() {
+		return table.size;
+	}
+}
@@ -0,0 +1,127 @@
+package com.vteba.utils.json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * 把{@link Node}树按深度优先的顺序流式写成JSON数组，不使用递归，用数组模拟的栈保存每一层的位置，
+ * 树再深也不会栈溢出，也不需要先生成整个JSON字符串。属性名和用JacksonUtils、FastJsonUtils序列化Node时相同，
+ * null的属性不输出，children放在最后。
+ * <p>指定了输出的层数时，只输出上面几层，最后一层有子节点的节点不输出children，parent输出true，
+ * zTree异步加载时据此显示为可以展开的父节点，展开时再用{@link NodeTreeBuilder#getChildren(long)}取子节点输出。
+ * <p>不会关闭Writer和OutputStream。
+ * @author yinlei
+ * @since 2014-10-8
+ */
+public class NodeTreeWriter {
+
+	private NodeTreeWriter() {
+	}
+
+	/**
+	 * 输出整个树。
+	 * @param writer 输出
+	 * @param roots 根节点
+	 */
+	public static void write(Writer writer, List<Node> roots) throws IOException {
+		write(writer, roots, 0);
+	}
+
+	/**
+	 * 输出树的上面几层。
+	 * @param writer 输出
+	 * @param roots 根节点
+	 * @param depth 输出的层数，1是只输出根节点，小于等于0时输出整个树
+	 */
+	public static void write(Writer writer, List<Node> roots, int depth) throws IOException {
+		JsonGenerator generator = JacksonUtils.getObjectMapper().getFactory().createGenerator(writer);
+		write(generator, roots, depth);
+	}
+
+	/**
+	 * 以UTF-8输出树的上面几层。
+	 * @param out 输出
+	 * @param roots 根节点
+	 * @param depth 输出的层数，1是只输出根节点，小于等于0时输出整个树
+	 */
+	public static void write(OutputStream out, List<Node> roots, int depth) throws IOException {
+		JsonGenerator generator = JacksonUtils.getObjectMapper().getFactory().createGenerator(out, JsonEncoding.UTF8);
+		write(generator, roots, depth);
+	}
+
+	private static void write(JsonGenerator generator, List<Node> roots, int depth) throws IOException {
+		generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+		int maxDepth = depth <= 0 ? Integer.MAX_VALUE : depth;
+		// 栈：每一层正在输出的节点列表和下一个节点的位置
+		@SuppressWarnings("unchecked")
+		List<Node>[] lists = new List[16];
+		int[] positions = new int[16];
+		int top = 0;
+		lists[0] = roots;
+		generator.writeStartArray();
+		while (top >= 0) {
+			List<Node> list = lists[top];
+			if (positions[top] == list.size()) {
+				generator.writeEndArray();
+				if (top > 0) {
+					generator.writeEndObject();
+				}
+				lists[top--] = null;
+				continue;
+			}
+			Node node = list.get(positions[top]++);
+			List<Node> children = node.getChildren();
+			boolean expand = children != null && top + 1 < maxDepth;
+			boolean collapsed = !expand && children != null && !children.isEmpty();
+			generator.writeStartObject();
+			writeFields(generator, node, collapsed);
+			if (!expand) {
+				generator.writeEndObject();
+				continue;
+			}
+			generator.writeArrayFieldStart("children");
+			if (++top == lists.length) {
+				lists = Arrays.copyOf(lists, top << 1);
+				positions = Arrays.copyOf(positions, top << 1);
+			}
+			lists[top] = children;
+			positions[top] = 0;
+		}
+		generator.flush();
+	}
+
+	private static void writeFields(JsonGenerator generator, Node node, boolean collapsed) throws IOException {
+		if (node.getId() != null) {
+			generator.writeStringField("id", node.getId());
+		}
+		if (node.getNodeId() != null) {
+			generator.writeNumberField("nodeId", node.getNodeId());
+		}
+		if (node.getName() != null) {
+			generator.writeStringField("name", node.getName());
+		}
+		writeBoolean(generator, "open", node.getOpen());
+		writeBoolean(generator, "checked", node.getChecked());
+		writeBoolean(generator, "nocheck", node.getNocheck());
+		writeBoolean(generator, "chkDisabled", node.getChkDisabled());
+		if (node.getLevel() != null) {
+			generator.writeNumberField("level", node.getLevel());
+		}
+		if (node.getParentId() != null) {
+			generator.writeNumberField("parentId", node.getParentId());
+		}
+		writeBoolean(generator, "parent", collapsed ? Boolean.TRUE : node.getParent());
+	}
+
+	private static void writeBoolean(JsonGenerator generator, String name, Boolean value) throws IOException {
+		if (value != null) {
+			generator.writeBooleanField(name, value);
+		}
+	}
+}
@@ -0,0 +1,140 @@
+package com.vteba.utils.json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.lang.ref.SoftReference;
+
+/**
+ * 将字符直接按UTF-8编码写到OutputStream的Writer。编码到一个线程复用的字节块中，块满了写出，
+ * 不会像String.getBytes那样先复制出整个String再生成整个字节数组。
+ * <p>用于把fastjson SerializeWriter中的字符写出去，见{@link FastJsonUtils#toJson(OutputStream, Object)}。
+ * 不合法的代理字符编码成'?'，和String.getBytes一致。不是线程安全的，用完必须close，close不会关闭OutputStream。
+ * @author yinlei
+ * @since 2014-10-4
+ */
+class Utf8Writer extends Writer {
+	private static final int CHUNK_SIZE = 8 * 1024;
+	/** 每个字符最多写4个字节（代理对，或者不配对的高代理字符'?'加上一个3字节的字符） */
+	private static final int MAX_CHAR_BYTES = 4;
+	private static final ThreadLocal<SoftReference<byte[]>> chunkLocal = new ThreadLocal<SoftReference<byte[]>>();
+
+	private final OutputStream out;
+	private byte[] chunk;
+	private int count;
+	/** 上一次写入末尾还没配对的高代理字符，没有时为0 */
+	private char highSurrogate;
+
+	Utf8Writer(OutputStream out) {
+		this.out = out;
+		SoftReference<byte[]> ref = chunkLocal.get();
+		if (ref != null) {
+			chunk = ref.get();
+			// 嵌套使用时不会拿到同一个块
+			chunkLocal.set(null);
+		}
+		if (chunk == null) {
+			chunk = new byte[CHUNK_SIZE];
+		}
+	}
+
+	@Override
+	public void write(char[] cbuf, int off, int len) throws IOException {
+		byte[] bytes = chunk;
+		int pos = count;
+		int end = off + len;
+		for (int i = off; i < end; i++) {
+			if (pos > CHUNK_SIZE - MAX_CHAR_BYTES) {
+				out.write(bytes, 0, pos);
+				pos = 0;
+			}
+			char c = cbuf[i];
+			if (c < 0x80 && highSurrogate == 0) {
+				bytes[pos++] = (byte) c;
+				// ASCII连续写，JSON大部分是ASCII
+				int max = Math.min(end, i + 1 + CHUNK_SIZE - pos);
+				while (i + 1 < max && (c = cbuf[i + 1]) < 0x80) {
+					bytes[pos++] = (byte) c;
+					i++;
+				}
+				continue;
+			}
+			pos = encode(c, bytes, pos);
+		}
+		count = pos;
+	}
+
+	private int encode(char c, byte[] bytes, int pos) {
+		if (highSurrogate != 0) {
+			char high = highSurrogate;
+			highSurrogate = 0;
+			if (Character.isLowSurrogate(c)) {
+				int cp = Character.toCodePoint(high, c);
+				bytes[pos++] = (byte) (0xF0 | (cp >> 18));
+				bytes[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+				bytes[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+				bytes[pos++] = (byte) (0x80 | (cp & 0x3F));
+				return pos;
+			}
+			// 没有配对的高代理字符和当前字符一共不超过4个字节
+			bytes[pos++] = '?';
+		}
+		if (c < 0x80) {
+			bytes[pos++] = (byte) c;
+		} else if (c < 0x800) {
+			bytes[pos++] = (byte) (0xC0 | (c >> 6));
+			bytes[pos++] = (byte) (0x80 | (c & 0x3F));
+		} else if (Character.isHighSurrogate(c)) {
+			highSurrogate = c;
+		} else if (Character.isLowSurrogate(c)) {
+			bytes[pos++] = '?';
+		} else {
+			bytes[pos++] = (byte) (0xE0 | (c >> 12));
+			bytes[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+			bytes[pos++] = (byte) (0x80 | (c & 0x3F));
+		}
+		return pos;
+	}
+
+	@Override
+	public void write(int c) throws IOException {
+		write(new char[] { (char) c }, 0, 1);
+	}
+
+	@Override
+	public void write(String str, int off, int len) throws IOException {
+		write(str.toCharArray(), off, len);
+	}
+
+	/**
+	 * 写出已编码的字节，末尾没有配对的高代理字符保留到下一次写入。
+	 */
+	@Override
+	public void flush() throws IOException {
+		if (count > 0) {
+			out.write(chunk, 0, count);
+			count = 0;
+		}
+		out.flush();
+	}
+
+	/**
+	 * 写出剩余的字节并归还字节块，不关闭OutputStream。
+	 */
+	@Override
+	public void close() throws IOException {
+		if (chunk == null) {
+			return;
+		}
+		try {
+			if (highSurrogate != 0) {
+				highSurrogate = 0;
+				chunk[count++] = '?';
+			}
+			flush();
+		} finally {
+			chunkLocal.set(new SoftReference<byte[]>(chunk));
+			chunk = null;
+		}
+	}
+}
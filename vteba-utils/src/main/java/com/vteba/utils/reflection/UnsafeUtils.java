@@ -1,6 +1,7 @@
 package com.vteba.utils.reflection;
 
 import java.lang.reflect.Field;
+import java.nio.Buffer;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -32,6 +33,16 @@ public class UnsafeUtils {
         unsafe = value;
     }
 
+    /** java.nio.Buffer中direct buffer内存地址字段的偏移量 */
+    private static final long BUFFER_ADDRESS_OFFSET;
+    static {
+        try {
+            BUFFER_ADDRESS_OFFSET = unsafe.objectFieldOffset(Buffer.class.getDeclaredField("address"));
+        } catch (NoSuchFieldException e) {
+            throw new RuntimeException("Error to get Buffer.address", e);
+        }
+    }
+
     protected static final Unsafe getUnsafe() {
         return unsafe;
     }
@@ -424,6 +435,15 @@ public class UnsafeUtils {
      * @param offset 属性偏移量，见{@link #getOffset(Field)}
      * @param value 属性值
      */
+    public static void setDouble(Object object, long offset, double value) {
+        unsafe.putDouble(object, offset, value);
+    }
+    
+    /**
+     * 设置对象double属性值。
+     * @deprecated 方法名写错了，使用{@link #setDouble(Object, long, double)}
+     */
+    @Deprecated
     public static void setLong(Object object, long offset, double value) {
         unsafe.putDouble(object, offset, value);
     }
@@ -463,24 +483,24 @@ public class UnsafeUtils {
     }
     
     /**
-     * 重载的便捷方法。设置对象boolean属性值，用于单次调用，循环中调用请使用{@link #setBoolean(Object, long, Object)}。
+     * 重载的便捷方法。设置对象boolean属性值，用于单次调用，循环中调用请使用{@link #putBoolean(Object, long, boolean)}。
      * @param object 对象
      * @param fieldName 属性名
      * @param value 属性值
      */
-    public void setBoolean(Object object, String fieldName, boolean value) {
+    public static void putBoolean(Object object, String fieldName, boolean value) {
         Field field = getCachedField(object, fieldName);
         long offset = getOffset(field);
         unsafe.putBoolean(object, offset, value);
     }
     
     /**
-     * 重载的便捷方法。设置对象boolean属性值，用于单次调用，循环中调用请使用{@link #setBoolean(Object, long, Object)}。
+     * 重载的便捷方法。设置对象boolean属性值，用于单次调用，循环中调用请使用{@link #putBoolean(Object, long, boolean)}。
      * @param object 对象
      * @param field 属性
      * @param value 属性值
      */
-    public void setBoolean(Object object, Field field, boolean value) {
+    public static void putBoolean(Object object, Field field, boolean value) {
         long offset = getOffset(field);
         unsafe.putBoolean(object, offset, value);
     }
@@ -491,10 +511,173 @@ public class UnsafeUtils {
      * @param offset 属性偏移量，见{@link #getOffset(Field)}
      * @param value 属性值
      */
-    public void setBoolean(Object object, long offset, boolean value) {
+    public static void putBoolean(Object object, long offset, boolean value) {
         unsafe.putBoolean(object, offset, value);
     }
     
+    /**
+     * 设置对象boolean属性值。
+     * @deprecated 其他方法都是静态的，使用{@link #putBoolean(Object, String, boolean)}
+     */
+    @Deprecated
+    public void setBoolean(Object object, String fieldName, boolean value) {
+        putBoolean(object, fieldName, value);
+    }
+    
+    /**
+     * 设置对象boolean属性值。
+     * @deprecated 其他方法都是静态的，使用{@link #putBoolean(Object, Field, boolean)}
+     */
+    @Deprecated
+    public void setBoolean(Object object, Field field, boolean value) {
+        putBoolean(object, field, value);
+    }
+    
+    /**
+     * 设置对象boolean属性值。
+     * @deprecated 其他方法都是静态的，使用{@link #putBoolean(Object, long, boolean)}
+     */
+    @Deprecated
+    public void setBoolean(Object object, long offset, boolean value) {
+        putBoolean(object, offset, value);
+    }
+    
+    /**
+     * 获取对象byte属性值，或者object为null时，读取内存地址offset处的值。
+     * @param object 对象
+     * @param offset 属性偏移量，见{@link #getOffset(Field)}
+     * @return byte
+     */
+    public static byte getByte(Object object, long offset) {
+        return unsafe.getByte(object, offset);
+    }
+    
+    /**
+     * 设置对象byte属性值，或者object为null时，写入内存地址offset处。
+     * @param object 对象
+     * @param offset 属性偏移量，见{@link #getOffset(Field)}
+     * @param value 属性值
+     */
+    public static void setByte(Object object, long offset, byte value) {
+        unsafe.putByte(object, offset, value);
+    }
+    
+    /**
+     * 获取对象short属性值，或者object为null时，读取内存地址offset处的值。
+     * @param object 对象
+     * @param offset 属性偏移量，见{@link #getOffset(Field)}
+     * @return short
+     */
+    public static short getShort(Object object, long offset) {
+        return unsafe.getShort(object, offset);
+    }
+    
+    /**
+     * 设置对象short属性值，或者object为null时，写入内存地址offset处。
+     * @param object 对象
+     * @param offset 属性偏移量，见{@link #getOffset(Field)}
+     * @param value 属性值
+     */
+    public static void setShort(Object object, long offset, short value) {
+        unsafe.putShort(object, offset, value);
+    }
+    
+    /**
+     * 获取对象char属性值，或者object为null时，读取内存地址offset处的值。
+     * @param object 对象
+     * @param offset 属性偏移量，见{@link #getOffset(Field)}
+     * @return char
+     */
+    public static char getChar(Object object, long offset) {
+        return unsafe.getChar(object, offset);
+    }
+    
+    /**
+     * 设置对象char属性值，或者object为null时，写入内存地址offset处。
+     * @param object 对象
+     * @param offset 属性偏移量，见{@link #getOffset(Field)}
+     * @param value 属性值
+     */
+    public static void setChar(Object object, long offset, char value) {
+        unsafe.putChar(object, offset, value);
+    }
+    
+    /**
+     * 获取对象float属性值，或者object为null时，读取内存地址offset处的值。
+     * @param object 对象
+     * @param offset 属性偏移量，见{@link #getOffset(Field)}
+     * @return float
+     */
+    public static float getFloat(Object object, long offset) {
+        return unsafe.getFloat(object, offset);
+    }
+    
+    /**
+     * 设置对象float属性值，或者object为null时，写入内存地址offset处。
+     * @param object 对象
+     * @param offset 属性偏移量，见{@link #getOffset(Field)}
+     * @param value 属性值
+     */
+    public static void setFloat(Object object, long offset, float value) {
+        unsafe.putFloat(object, offset, value);
+    }
+    
+    /**
+     * 内存块拷贝。对象为null时，偏移量是绝对的内存地址，否则是对象内的偏移量（数组见{@link #arrayBaseOffset(Class)}）。
+     * 地址和长度都由调用者保证正确，越界会直接破坏内存。
+     * @param src 源对象
+     * @param srcOffset 源偏移量
+     * @param dest 目标对象
+     * @param destOffset 目标偏移量
+     * @param bytes 字节数
+     */
+    public static void copyMemory(Object src, long srcOffset, Object dest, long destOffset, long bytes) {
+        unsafe.copyMemory(src, srcOffset, dest, destOffset, bytes);
+    }
+    
+    /**
+     * @param arrayClass 数组类型
+     * @return 数组第一个元素的偏移量
+     */
+    public static int arrayBaseOffset(Class<?> arrayClass) {
+        return unsafe.arrayBaseOffset(arrayClass);
+    }
+    
+    /**
+     * @param arrayClass 数组类型
+     * @return 数组每个元素占的字节数
+     */
+    public static int arrayIndexScale(Class<?> arrayClass) {
+        return unsafe.arrayIndexScale(arrayClass);
+    }
+    
+    /**
+     * 不调用构造函数创建对象，字段都是默认值。
+     * @param clazz 类型
+     * @return 对象
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T allocateInstance(Class<T> clazz) {
+        try {
+            return (T) unsafe.allocateInstance(clazz);
+        } catch (InstantiationException e) {
+            throw new RuntimeException("Error to allocate instance of " + clazz.getName(), e);
+        }
+    }
+    
+    /**
+     * 获取direct buffer的内存地址，配合null对象的get/set和{@link #copyMemory(Object, long, Object, long, long)}使用。
+     * @param buffer direct buffer
+     * @return 内存地址（buffer的第0个字节）
+     * @throws IllegalArgumentException 不是direct buffer
+     */
+    public static long getAddress(Buffer buffer) {
+        if (!buffer.isDirect()) {
+            throw new IllegalArgumentException("Not a direct buffer.");
+        }
+        return unsafe.getLong(buffer, BUFFER_ADDRESS_OFFSET);
+    }
+    
 //    public static void main(String[] args) {
 //        TestBean testBean = new TestBean();
 //        Field nameField = getField(testBean, "name");
@@ -0,0 +1,39 @@
+package com.vteba.utils.serialize;
+
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.io.ByteBufferOutput;
+
+/**
+ * ByteBufferOutput写ASCII字符串时，会先调用String.getBytes()生成一个临时数组。重载他，
+ * 直接将字符写进buffer，格式和Output完全一致（最后一个字节的最高位置1）。
+ * @author yinlei
+ * @since 2014-9-15
+ */
+class AsciiByteBufferOutput extends ByteBufferOutput {
+
+    @Override
+    public void writeString(String value) throws KryoException {
+        if (value == null) {
+            super.writeString(value);
+            return;
+        }
+        int charCount = value.length();
+        // 和Output一样，只有2到63个字符的ASCII字符串才使用ASCII格式
+        if (charCount <= 1 || charCount >= 64) {
+            super.writeString(value);
+            return;
+        }
+        for (int i = 0; i < charCount; i++) {
+            if (value.charAt(i) > 127) {
+                super.writeString(value);
+                return;
+            }
+        }
+        require(charCount);
+        for (int i = 0; i < charCount; i++) {
+            niobuffer.put((byte) value.charAt(i));
+        }
+        position += charCount;
+        niobuffer.put(position - 1, (byte) (niobuffer.get(position - 1) | 0x80));
+    }
+}
@@ -0,0 +1,68 @@
+package com.vteba.utils.serialize;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * 堆外（direct）ByteBuffer池。所有buffer大小相同，池是有界的，最多保留maxSize个空闲buffer。
+ * <p>direct buffer的分配和回收成本很高，序列化后直接写socket的场景，复用buffer可以做到稳定状态下没有分配。
+ * 使用ArrayBlockingQueue，借出和归还本身也不会产生分配。
+ * @author yinlei
+ * @since 2014-9-15
+ */
+public class ByteBufferPool {
+	private final BlockingQueue<ByteBuffer> queue;
+	private final int bufferSize;
+
+	/**
+	 * 构造direct buffer池。
+	 * @param maxSize 最多保留的空闲buffer数
+	 * @param bufferSize 每个buffer的大小（字节）
+	 */
+	public ByteBufferPool(int maxSize, int bufferSize) {
+		if (maxSize <= 0) {
+			throw new IllegalArgumentException("maxSize must be > 0: " + maxSize);
+		}
+		if (bufferSize <= 0) {
+			throw new IllegalArgumentException("bufferSize must be > 0: " + bufferSize);
+		}
+		this.queue = new ArrayBlockingQueue<ByteBuffer>(maxSize);
+		this.bufferSize = bufferSize;
+	}
+
+	/**
+	 * 借出一个已清空的buffer，池空时新分配一个。
+	 * @return direct buffer，position为0，limit为capacity
+	 */
+	public ByteBuffer acquire() {
+		ByteBuffer buffer = queue.poll();
+		if (buffer == null) {
+			return ByteBuffer.allocateDirect(bufferSize);
+		}
+		return buffer;
+	}
+
+	/**
+	 * 归还buffer。不是本池大小的buffer，或者池已满，直接丢弃。
+	 * @param buffer 要归还的buffer，归还后调用者不能再使用它
+	 */
+	public void release(ByteBuffer buffer) {
+		if (buffer == null || !buffer.isDirect() || buffer.capacity() != bufferSize) {
+			return;
+		}
+		buffer.clear();
+		queue.offer(buffer);
+	}
+
+	/**
+	 * @return 池中当前空闲的buffer数
+	 */
+	public int size() {
+		return queue.size();
+	}
+
+	public int getBufferSize() {
+		return bufferSize;
+	}
+}
@@ -0,0 +1,240 @@
+package com.vteba.utils.serialize;
+
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.vteba.lang.bytecode.ConstructorAccess;
+import com.vteba.lang.bytecode.CopyAccess;
+
+/**
+ * 基于字节码的对象拷贝，每个类生成一个逐字段拷贝的{@link CopyAccess}，比Kryo的copy快得多。
+ * <p>同一次拷贝中，同一个对象只拷贝一次，循环引用和共享引用的结构和原对象一致。
+ * String、包装类型、BigDecimal、BigInteger、枚举等不可变对象直接共享，不拷贝；数组、Date和常用的集合类单独处理。
+ * 只读写字段本身，不调用getter/setter，private和final字段通过Unsafe访问。
+ * <p>无法生成拷贝代码的类（有private或者final字段但无法使用Unsafe、没有可用的无参构造函数、JDK中其他的类），
+ * 退回到Kryo的copy，这部分对象内部和外部之间的共享引用不再保持。
+ * <p>每次拷贝新建一个DeepCopier，不是线程安全的，用静态方法{@link #copy(Object)}和{@link #copyShallow(Object)}即可。
+ * @author yinlei
+ * @since 2014-9-29
+ */
+public final class DeepCopier implements CopyAccess.Copier {
+	/** 无法生成拷贝代码的类 */
+	private static final Object UNSUPPORTED = new Object();
+	/** 类 -> Accessor或者UNSUPPORTED */
+	private static final ConcurrentMap<Class<?>, Object> accessorMap = new ConcurrentHashMap<Class<?>, Object>();
+	private static final Set<Class<?>> immutables = new HashSet<Class<?>>();
+	static {
+		Class<?>[] classes = { String.class, Integer.class, Long.class, Boolean.class, Double.class, Float.class,
+				Short.class, Byte.class, Character.class, BigDecimal.class, BigInteger.class, Class.class, UUID.class,
+				Locale.class };
+		for (Class<?> clazz : classes) {
+			immutables.add(clazz);
+		}
+	}
+
+	private final boolean shallow;
+	/** 原对象 -> 拷贝，第一次遇到可变对象时才创建 */
+	private IdentityHashMap<Object, Object> copies;
+
+	private DeepCopier(boolean shallow) {
+		this.shallow = shallow;
+	}
+
+	/**
+	 * 深拷贝对象，完全新的一个对象。
+	 * @param object 被拷贝对象
+	 * @return 拷贝
+	 */
+	public static <T> T copy(T object) {
+		return new DeepCopier(false).copyObject(object);
+	}
+
+	/**
+	 * 浅拷贝对象，新对象（或者新的数组、集合）中的字段值和元素还是原来的引用。
+	 * @param object 被拷贝对象
+	 * @return 拷贝
+	 */
+	public static <T> T copyShallow(T object) {
+		return new DeepCopier(true).copyObject(object);
+	}
+
+	/**
+	 * 拷贝字段值，由生成的CopyAccess调用。
+	 */
+	@Override
+	public Object copyValue(Object value) {
+		return shallow ? value : copyObject(value);
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> T copyObject(T object) {
+		if (object == null) {
+			return null;
+		}
+		Class<?> clazz = object.getClass();
+		if (isImmutable(clazz)) {
+			return object;
+		}
+		if (copies == null) {
+			copies = new IdentityHashMap<Object, Object>();
+		} else {
+			Object copy = copies.get(object);
+			if (copy != null) {
+				return (T) copy;
+			}
+		}
+
+		if (clazz.isArray()) {
+			return (T) copyArray(object, clazz);
+		}
+		if (object instanceof Date) {
+			return (T) register(object, ((Date) object).clone());
+		}
+		if (clazz.getName().startsWith("java.")) {
+			Object copy = copyCollection(object, clazz);
+			return (T) (copy != null ? copy : fallback(object));
+		}
+
+		Object accessor = accessorMap.get(clazz);
+		if (accessor == null) {
+			accessor = createAccessor(clazz);
+			accessorMap.put(clazz, accessor);
+		}
+		if (accessor == UNSUPPORTED) {
+			return (T) fallback(object);
+		}
+		Accessor access = (Accessor) accessor;
+		Object copy;
+		try {
+			copy = register(object, access.constructor.newInstance());
+			access.copyAccess.copyFields(object, copy, this);
+		} catch (IllegalAccessError e) {
+			// 生成的类和被拷贝的类不在同一个运行时包中，无法访问非public的成员
+			accessorMap.put(clazz, UNSUPPORTED);
+			copies.remove(object);
+			return (T) fallback(object);
+		}
+		return (T) copy;
+	}
+
+	private Object copyArray(Object array, Class<?> clazz) {
+		Class<?> componentType = clazz.getComponentType();
+		int length = Array.getLength(array);
+		if (componentType.isPrimitive()) {
+			Object copy = Array.newInstance(componentType, length);
+			System.arraycopy(array, 0, copy, 0, length);
+			return register(array, copy);
+		}
+		Object[] source = (Object[]) array;
+		Object[] copy = (Object[]) register(array, Array.newInstance(componentType, length));
+		for (int i = 0; i < length; i++) {
+			copy[i] = copyValue(source[i]);
+		}
+		return copy;
+	}
+
+	/**
+	 * 拷贝常用的集合类，其他的返回null。
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private Object copyCollection(Object object, Class<?> clazz) {
+		if (object instanceof Collection) {
+			Collection source = (Collection) object;
+			Collection copy;
+			if (clazz == ArrayList.class) {
+				copy = new ArrayList(source.size());
+			} else if (clazz == HashSet.class) {
+				copy = new HashSet(Math.max((int) (source.size() / .75f) + 1, 16));
+			} else if (clazz == LinkedHashSet.class) {
+				copy = new LinkedHashSet(Math.max((int) (source.size() / .75f) + 1, 16));
+			} else if (clazz == LinkedList.class) {
+				copy = new LinkedList();
+			} else if (clazz == TreeSet.class) {
+				copy = new TreeSet(((TreeSet) source).comparator());
+			} else {
+				return null;
+			}
+			register(object, copy);
+			for (Object element : source) {
+				copy.add(copyValue(element));
+			}
+			return copy;
+		}
+		if (object instanceof Map) {
+			Map<Object, Object> source = (Map) object;
+			Map copy;
+			if (clazz == HashMap.class) {
+				copy = new HashMap(Math.max((int) (source.size() / .75f) + 1, 16));
+			} else if (clazz == LinkedHashMap.class) {
+				copy = new LinkedHashMap(Math.max((int) (source.size() / .75f) + 1, 16));
+			} else if (clazz == TreeMap.class) {
+				copy = new TreeMap(((TreeMap) source).comparator());
+			} else if (clazz == ConcurrentHashMap.class) {
+				copy = new ConcurrentHashMap(Math.max((int) (source.size() / .75f) + 1, 16));
+			} else {
+				return null;
+			}
+			register(object, copy);
+			for (Map.Entry<Object, Object> entry : source.entrySet()) {
+				copy.put(copyValue(entry.getKey()), copyValue(entry.getValue()));
+			}
+			return copy;
+		}
+		return null;
+	}
+
+	private Object fallback(Object object) {
+		return register(object, Kryos.kryoCopy(object, shallow));
+	}
+
+	private Object register(Object object, Object copy) {
+		copies.put(object, copy);
+		return copy;
+	}
+
+	private static boolean isImmutable(Class<?> clazz) {
+		if (immutables.contains(clazz) || clazz.isEnum()) {
+			return true;
+		}
+		// 有方法体的枚举常量是枚举的匿名子类
+		Class<?> superclass = clazz.getSuperclass();
+		return superclass != null && superclass.isEnum();
+	}
+
+	private static Object createAccessor(Class<?> clazz) {
+		try {
+			Accessor accessor = new Accessor();
+			accessor.copyAccess = CopyAccess.get(clazz);
+			accessor.constructor = ConstructorAccess.get(clazz);
+			if (accessor.constructor.isNonStaticMemberClass()) {
+				return UNSUPPORTED;
+			}
+			return accessor;
+		} catch (RuntimeException e) {
+			return UNSUPPORTED;
+		}
+	}
+
+	private static final class Accessor {
+		CopyAccess copyAccess;
+		ConstructorAccess<?> constructor;
+	}
+}
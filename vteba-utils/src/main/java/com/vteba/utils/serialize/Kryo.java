@@ -9,6 +9,8 @@ import org.objenesis.instantiator.ObjectInstantiator;
 import org.objenesis.strategy.InstantiatorStrategy;
 
 import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.io.ByteBufferInput;
+import com.esotericsoftware.kryo.io.ByteBufferOutput;
 import com.esotericsoftware.kryo.util.Util;
 import com.esotericsoftware.reflectasm.ConstructorAccess;
 
@@ -18,6 +20,29 @@ import com.esotericsoftware.reflectasm.ConstructorAccess;
  * @since 2014-7-22
  */
 class Kryo extends com.esotericsoftware.kryo.Kryo {
+    /** 池化的实例复用ByteBuffer输入输出，避免每次序列化都新建 */
+    private AsciiByteBufferOutput byteBufferOutput;
+    private ByteBufferInput byteBufferInput;
+
+    /**
+     * @return 和本实例绑定的ByteBufferOutput，和Kryo实例一样不是线程安全的
+     */
+    ByteBufferOutput getByteBufferOutput() {
+        if (byteBufferOutput == null) {
+            byteBufferOutput = new AsciiByteBufferOutput();
+        }
+        return byteBufferOutput;
+    }
+
+    /**
+     * @return 和本实例绑定的ByteBufferInput，和Kryo实例一样不是线程安全的
+     */
+    ByteBufferInput getByteBufferInput() {
+        if (byteBufferInput == null) {
+            byteBufferInput = new ByteBufferInput();
+        }
+        return byteBufferInput;
+    }
 
     /** Returns a new instantiator for creating new instances of the specified type. By default, an instantiator is returned that
      * uses reflection if the class has a zero argument constructor, an exception is thrown. If a
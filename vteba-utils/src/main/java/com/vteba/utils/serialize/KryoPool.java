@@ -0,0 +1,142 @@
+package com.vteba.utils.serialize;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.objenesis.strategy.StdInstantiatorStrategy;
+
+import com.esotericsoftware.kryo.Kryo;
+
+/**
+ * Kryo实例池。Kryo实例不是线程安全的，且创建成本较高，使用池来复用。
+ * <p>池中的每个实例都使用同一份不可变的注册表{@link KryoRegistry}，类ID是确定的，所以任何一个实例序列化的数据，
+ * 都可以被池中的其他实例（以及使用相同注册表的其他节点）反序列化，和线程无关。
+ * <p>池是有界的，最多保留maxSize个空闲实例。池空时借出新建的实例，池满时归还的实例直接丢弃。
+ * <pre>
+ * Kryo kryo = pool.borrow();
+ * try {
+ *     kryo.writeObject(output, object);
+ * } finally {
+ *     pool.release(kryo);
+ * }
+ * </pre>
+ * @author yinlei
+ * @since 2014-9-12
+ */
+public class KryoPool {
+	/** 默认最多保留的空闲实例数 */
+	public static final int DEFAULT_MAX_SIZE = 64;
+
+	private final BlockingQueue<Kryo> queue;
+	private final KryoRegistry registry;
+	private final List<Class<?>> registrations;
+	private final boolean registrationRequired;
+	private final int maxSize;
+
+	/**
+	 * 构造Kryo池，未注册的类将写入类名。
+	 * @param maxSize 最多保留的空闲实例数
+	 * @param registrations 每个实例都要注册的类，按顺序注册
+	 */
+	public KryoPool(int maxSize, Collection<Class<?>> registrations) {
+		this(maxSize, registrations, false);
+	}
+
+	/**
+	 * 构造Kryo池。
+	 * @param maxSize 最多保留的空闲实例数
+	 * @param registrations 每个实例都要注册的类，按顺序注册
+	 * @param registrationRequired 是否要求类必须注册
+	 */
+	public KryoPool(int maxSize, Collection<Class<?>> registrations, boolean registrationRequired) {
+		this(maxSize, KryoRegistry.of(KryoRegistry.FIRST_ID, registrations), registrationRequired);
+	}
+
+	/**
+	 * 构造Kryo池。
+	 * @param maxSize 最多保留的空闲实例数
+	 * @param registry 每个实例都要应用的注册表
+	 * @param registrationRequired 是否要求类必须注册
+	 */
+	public KryoPool(int maxSize, KryoRegistry registry, boolean registrationRequired) {
+		if (maxSize <= 0) {
+			throw new IllegalArgumentException("maxSize must be > 0: " + maxSize);
+		}
+		this.maxSize = maxSize;
+		this.queue = new ArrayBlockingQueue<Kryo>(maxSize);
+		this.registry = registry;
+		this.registrations = Collections.unmodifiableList(new ArrayList<Class<?>>(registry.getClasses().values()));
+		this.registrationRequired = registrationRequired;
+	}
+
+	/**
+	 * 从池中借出一个Kryo实例，池空时新建一个。用完后要调用{@link #release(Kryo)}归还。
+	 * @return Kryo实例
+	 */
+	public Kryo borrow() {
+		Kryo kryo = queue.poll();
+		if (kryo == null) {
+			kryo = create();
+		}
+		return kryo;
+	}
+
+	/**
+	 * 将Kryo实例归还到池中，池满时丢弃。
+	 * @param kryo 从{@link #borrow()}借出的实例
+	 */
+	public void release(Kryo kryo) {
+		if (kryo != null) {
+			queue.offer(kryo);
+		}
+	}
+
+	/**
+	 * 新建一个Kryo实例，并应用注册表。
+	 * @return Kryo实例
+	 */
+	protected Kryo create() {
+		Kryo kryo = new com.vteba.utils.serialize.Kryo();
+		kryo.setRegistrationRequired(registrationRequired);
+		kryo.setReferences(true);
+		kryo.setInstantiatorStrategy(new StdInstantiatorStrategy());
+		registry.apply(kryo);
+		return kryo;
+	}
+
+	/**
+	 * @return 池中当前空闲的实例数
+	 */
+	public int size() {
+		return queue.size();
+	}
+
+	/**
+	 * @return 最多保留的空闲实例数
+	 */
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * @return 注册表
+	 */
+	public KryoRegistry getRegistry() {
+		return registry;
+	}
+
+	/**
+	 * @return 注册表中的类，按ID排序
+	 */
+	public List<Class<?>> getRegistrations() {
+		return registrations;
+	}
+
+	public boolean isRegistrationRequired() {
+		return registrationRequired;
+	}
+}
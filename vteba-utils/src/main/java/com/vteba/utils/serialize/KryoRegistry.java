@@ -0,0 +1,296 @@
+package com.vteba.utils.serialize;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Modifier;
+import java.net.JarURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.zip.CRC32;
+
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.vteba.utils.charstr.Char;
+import com.vteba.utils.common.ClassUtils;
+import com.vteba.utils.common.ResourceUtils;
+
+/**
+ * Kryo类注册表，类和ID的映射是确定的，和注册的调用顺序无关。所有节点使用同一份注册表时，
+ * 序列化后的数据只写varint的类ID，不写类名，数据更小，并且可以在节点之间互相反序列化。
+ * <p>注册表可以从classpath下的清单文件{@value #MANIFEST_LOCATION}加载（properties格式，类名=ID，
+ * 多个jar中的清单会合并），也可以扫描包生成（按类名排序后依次分配ID，所有节点部署相同的jar时才一致）。
+ * <p>ID 0-9被Kryo自己的基本类型占用，{@value #FIRST_ID}到{@value #FIRST_USER_ID}之间留给{@link Kryos}的基本对象，
+ * 清单中的ID必须大于等于{@value #FIRST_USER_ID}。
+ * <p>注册表是不可变的，线程安全。
+ * @author yinlei
+ * @since 2014-9-20
+ */
+public final class KryoRegistry {
+	private static final Logger LOGGER = LoggerFactory.getLogger(KryoRegistry.class);
+	/** 清单文件在classpath下的位置 */
+	public static final String MANIFEST_LOCATION = "META-INF/kryo-registry.properties";
+	/** Kryo自己注册了基本类型和String，占用了0-9，之后的第一个ID */
+	public static final int FIRST_ID = 10;
+	/** 用户类（清单）的第一个ID */
+	public static final int FIRST_USER_ID = 100;
+
+	private final SortedMap<Integer, Class<?>> classes;
+	private final long fingerprint;
+
+	private KryoRegistry(SortedMap<Integer, Class<?>> classes) {
+		this.classes = Collections.unmodifiableSortedMap(classes);
+		CRC32 crc = new CRC32();
+		for (Entry<Integer, Class<?>> entry : classes.entrySet()) {
+			crc.update((entry.getKey() + "=" + entry.getValue().getName() + "\n").getBytes(Char.UTF8));
+		}
+		this.fingerprint = crc.getValue();
+	}
+
+	/**
+	 * 按给定的顺序，从firstId开始依次分配ID。
+	 * @param firstId 第一个ID
+	 * @param classes 要注册的类
+	 * @return 注册表
+	 */
+	public static KryoRegistry of(int firstId, Collection<Class<?>> classes) {
+		SortedMap<Integer, Class<?>> map = new TreeMap<Integer, Class<?>>();
+		int id = firstId;
+		for (Class<?> clazz : classes) {
+			map.put(id++, clazz);
+		}
+		return new KryoRegistry(map);
+	}
+
+	/**
+	 * 加载classpath下所有的清单文件{@value #MANIFEST_LOCATION}，没有清单时返回空的注册表。
+	 * @return 注册表
+	 */
+	public static KryoRegistry load() {
+		return load(MANIFEST_LOCATION, ClassUtils.getDefaultClassLoader());
+	}
+
+	/**
+	 * 加载classpath下所有的清单文件，合并成一个注册表。
+	 * <p>{@link Kryos}在静态初始化时调用，一个清单出错不能让Kryos整个不可用：清单读取出错、格式错误、ID小于{@value #FIRST_USER_ID}、
+	 * 类不存在，或者和前面的清单冲突时，记录错误日志并跳过这个清单，其他清单照常加载。
+	 * 跳过的清单中的类没有注册，ID都是显式指定的，不会影响其他类的ID。
+	 * @param location 清单文件在classpath下的位置
+	 * @param classLoader 类加载器
+	 * @return 注册表
+	 */
+	public static KryoRegistry load(String location, ClassLoader classLoader) {
+		KryoRegistry registry = new KryoRegistry(new TreeMap<Integer, Class<?>>());
+		Enumeration<URL> urls;
+		try {
+			urls = classLoader.getResources(location);
+		} catch (IOException e) {
+			LOGGER.error("查找Kryo注册清单出错：" + location, e);
+			return registry;
+		}
+		while (urls.hasMoreElements()) {
+			URL url = urls.nextElement();
+			try {
+				registry = registry.merge(loadManifest(url, classLoader));
+			} catch (IOException | RuntimeException | LinkageError e) {
+				LOGGER.error("Kryo注册清单出错，跳过：" + url, e);
+			}
+		}
+		return registry;
+	}
+
+	private static KryoRegistry loadManifest(URL url, ClassLoader classLoader) throws IOException {
+		Properties props = new Properties();
+		InputStream in = url.openStream();
+		try {
+			props.load(in);
+		} finally {
+			IOUtils.closeQuietly(in);
+		}
+		SortedMap<Integer, Class<?>> map = new TreeMap<Integer, Class<?>>();
+		Map<Class<?>, Integer> ids = new HashMap<Class<?>, Integer>();
+		for (String className : props.stringPropertyNames()) {
+			int id;
+			try {
+				id = Integer.parseInt(props.getProperty(className).trim());
+			} catch (NumberFormatException e) {
+				throw new IllegalStateException("Kryo注册清单中的ID不是数字：" + className + "，" + url);
+			}
+			if (id < FIRST_USER_ID) {
+				throw new IllegalStateException("Kryo注册清单中的ID必须大于等于" + FIRST_USER_ID + "：" + className + "，" + url);
+			}
+			try {
+				put(map, ids, id, ClassUtils.forName(className, classLoader));
+			} catch (ClassNotFoundException e) {
+				throw new IllegalStateException("Kryo注册清单中的类不存在：" + className + "，" + url, e);
+			}
+		}
+		return new KryoRegistry(map);
+	}
+
+	/**
+	 * 扫描包（包括子包）下所有可实例化的类（非接口、非抽象、非匿名类），按类名排序后从firstId开始依次分配ID。
+	 * <p>包中增减类会改变后面类的ID，只有所有节点部署相同的jar时才一致。需要长期稳定的ID，请使用清单。
+	 * @param firstId 第一个ID
+	 * @param packageNames 要扫描的包
+	 * @return 注册表
+	 */
+	public static KryoRegistry scan(int firstId, String... packageNames) {
+		ClassLoader classLoader = ClassUtils.getDefaultClassLoader();
+		TreeSet<String> classNames = new TreeSet<String>();
+		try {
+			for (String packageName : packageNames) {
+				String path = packageName.replace('.', '/');
+				Enumeration<URL> urls = classLoader.getResources(path);
+				while (urls.hasMoreElements()) {
+					URL url = urls.nextElement();
+					if (ResourceUtils.isJarURL(url)) {
+						scanJar(url, path, classNames);
+					} else if (ResourceUtils.isFileURL(url)) {
+						scanDirectory(ResourceUtils.getFile(url), packageName, classNames);
+					}
+				}
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException("扫描包出错：" + Arrays.toString(packageNames), e);
+		}
+
+		List<Class<?>> list = new ArrayList<Class<?>>();
+		for (String className : classNames) {
+			Class<?> clazz;
+			try {
+				clazz = Class.forName(className, false, classLoader);
+			} catch (Throwable e) {
+				// 依赖缺失的类，不可能被序列化，跳过
+				continue;
+			}
+			if (clazz.isInterface() || clazz.isAnonymousClass() || clazz.isAnnotation()
+					|| (Modifier.isAbstract(clazz.getModifiers()) && !clazz.isEnum())) {
+				continue;
+			}
+			list.add(clazz);
+		}
+		return of(firstId, list);
+	}
+
+	private static void scanDirectory(File dir, String packageName, Collection<String> classNames) {
+		File[] files = dir.listFiles();
+		if (files == null) {
+			return;
+		}
+		for (File file : files) {
+			String name = file.getName();
+			if (file.isDirectory()) {
+				scanDirectory(file, packageName + "." + name, classNames);
+			} else if (name.endsWith(ClassUtils.CLASS_FILE_SUFFIX)) {
+				classNames.add(packageName + "." + name.substring(0, name.length() - ClassUtils.CLASS_FILE_SUFFIX.length()));
+			}
+		}
+	}
+
+	private static void scanJar(URL url, String path, Collection<String> classNames) throws IOException {
+		URLConnection con = url.openConnection();
+		if (!(con instanceof JarURLConnection)) {
+			return;
+		}
+		ResourceUtils.useCachesIfNecessary(con);
+		JarURLConnection jarCon = (JarURLConnection) con;
+		JarFile jarFile = jarCon.getJarFile();
+		try {
+			String prefix = path + "/";
+			for (Enumeration<JarEntry> entries = jarFile.entries(); entries.hasMoreElements();) {
+				String name = entries.nextElement().getName();
+				if (name.startsWith(prefix) && name.endsWith(ClassUtils.CLASS_FILE_SUFFIX)) {
+					classNames.add(name.substring(0, name.length() - ClassUtils.CLASS_FILE_SUFFIX.length()).replace('/', '.'));
+				}
+			}
+		} finally {
+			if (!jarCon.getUseCaches()) {
+				jarFile.close();
+			}
+		}
+	}
+
+	/**
+	 * 合并两个注册表，返回一个新的注册表。
+	 * @param other 另一个注册表
+	 * @return 合并后的注册表
+	 * @throws IllegalStateException 同一个ID对应不同的类，或者同一个类对应不同的ID
+	 */
+	public KryoRegistry merge(KryoRegistry other) {
+		SortedMap<Integer, Class<?>> map = new TreeMap<Integer, Class<?>>(classes);
+		Map<Class<?>, Integer> ids = new HashMap<Class<?>, Integer>();
+		for (Entry<Integer, Class<?>> entry : classes.entrySet()) {
+			ids.put(entry.getValue(), entry.getKey());
+		}
+		for (Entry<Integer, Class<?>> entry : other.classes.entrySet()) {
+			put(map, ids, entry.getKey(), entry.getValue());
+		}
+		return new KryoRegistry(map);
+	}
+
+	private static void put(SortedMap<Integer, Class<?>> map, Map<Class<?>, Integer> ids, Integer id, Class<?> clazz) {
+		Class<?> old = map.get(id);
+		if (old != null && old != clazz) {
+			throw new IllegalStateException("Kryo注册ID冲突：" + id + "，" + old.getName() + "，" + clazz.getName());
+		}
+		Integer oldId = ids.get(clazz);
+		if (oldId != null && !oldId.equals(id)) {
+			throw new IllegalStateException("Kryo注册类冲突：" + clazz.getName() + "，" + oldId + "，" + id);
+		}
+		map.put(id, clazz);
+		ids.put(clazz, id);
+	}
+
+	/**
+	 * 按ID将注册表中的类注册到Kryo实例。
+	 * @param kryo Kryo实例
+	 */
+	public void apply(Kryo kryo) {
+		for (Entry<Integer, Class<?>> entry : classes.entrySet()) {
+			kryo.register(entry.getValue(), entry.getKey());
+		}
+	}
+
+	/**
+	 * @return 不可变的ID和类的映射，按ID排序
+	 */
+	public SortedMap<Integer, Class<?>> getClasses() {
+		return classes;
+	}
+
+	public int size() {
+		return classes.size();
+	}
+
+	/**
+	 * 注册表的指纹（所有ID和类名的CRC32），节点之间比较指纹即可确认注册表是否一致。
+	 * @return 指纹
+	 */
+	public long fingerprint() {
+		return fingerprint;
+	}
+
+	@Override
+	public String toString() {
+		return "KryoRegistry[size=" + classes.size() + ", fingerprint=" + Long.toHexString(fingerprint) + "]";
+	}
+}
@@ -0,0 +1,86 @@
+package com.vteba.utils.serialize;
+
+import java.io.Closeable;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.InputChunked;
+
+/**
+ * 从输入流中逐个读取{@link Kryos#writeStream(java.io.OutputStream, Iterator)}写出的元素，内存占用和元素个数无关。
+ * <p>迭代期间占用池中的一个Kryo实例，读完最后一个元素或者调用{@link #close()}后归还。不会关闭输入流，由调用者关闭。
+ * 不是线程安全的。
+ * @author yinlei
+ * @since 2014-9-18
+ * @param <T> 元素类型
+ */
+public class KryoStreamIterator<T> implements Iterator<T>, Closeable {
+	private final KryoPool pool;
+	private final InputChunked input;
+	private Kryo kryo;
+	private T next;
+	private boolean fetched;
+	private boolean finished;
+
+	KryoStreamIterator(KryoPool pool, InputStream in, int bufferSize) {
+		this.pool = pool;
+		this.input = new InputChunked(in, bufferSize);
+		this.kryo = pool.borrow();
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (!fetched && !finished) {
+			fetch();
+		}
+		return !finished;
+	}
+
+	@Override
+	public T next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		T t = next;
+		next = null;
+		fetched = false;
+		return t;
+	}
+
+	@SuppressWarnings("unchecked")
+	private void fetch() {
+		try {
+			if (!input.readBoolean()) {
+				close();
+				return;
+			}
+			next = (T) kryo.readClassAndObject(input);
+			// 跳到下一个元素的块
+			input.nextChunks();
+			fetched = true;
+		} catch (RuntimeException e) {
+			close();
+			throw e;
+		}
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException("remove");
+	}
+
+	/**
+	 * 结束迭代，归还Kryo实例。不会关闭输入流。
+	 */
+	@Override
+	public void close() {
+		finished = true;
+		next = null;
+		if (kryo != null) {
+			pool.release(kryo);
+			kryo = null;
+		}
+	}
+}
@@ -1,14 +1,19 @@
 package com.vteba.utils.serialize;
 
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Currency;
 import java.util.Date;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
@@ -23,81 +28,56 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CopyOnWriteArraySet;
 
-import org.objenesis.strategy.StdInstantiatorStrategy;
-
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.io.ByteBufferInput;
+import com.esotericsoftware.kryo.io.ByteBufferOutput;
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.io.OutputChunked;
 import com.google.common.collect.Lists;
 import com.vteba.utils.json.Node;
 
 /**
  * 基于kryo的序列化转换器。
+ * <p>对象的序列化和反序列化按类型统计调用次数、耗时和字节数，见{@link SerializeMetrics}，默认关闭。
+ * <p>默认不要求类必须注册（registrationRequired=false），未注册的类写入类名。原来线程绑定的实现是true，但每个线程第一次使用时
+ * 才注册当时的类，不同线程的类ID不一致；池中的实例共用同一份注册表{@link KryoRegistry}，不能再按调用动态注册。
+ * 所有类都已经在清单中注册时，可以设置系统属性{@value #REGISTRATION_REQUIRED_PROPERTY}=true恢复严格模式，
+ * 未注册的类序列化时抛出异常。
  * @author yinlei
  * date 2013-4-6 下午2:50:09
  */
 public class Kryos {
-	private static ThreadLocal<Kryo> threadLocal = new ThreadLocal<Kryo>();
-
-//	private static Kryos instance = new Kryos();
-//
-//	public static Kryos get() {
-//		return instance;
-//	}
+	/** 是否要求类必须注册的系统属性 */
+	public static final String REGISTRATION_REQUIRED_PROPERTY = "vteba.kryo.registrationRequired";
+	/** 注册了基本对象和classpath下清单中的类的Kryo池，默认未注册的类写入类名 */
+	private static final KryoPool POOL = new KryoPool(KryoPool.DEFAULT_MAX_SIZE,
+			KryoRegistry.of(KryoRegistry.FIRST_ID, defaultRegistrations()).merge(KryoRegistry.load()),
+			Boolean.getBoolean(REGISTRATION_REQUIRED_PROPERTY));
+	/** 没有任何注册的Kryo池，全部写入类名 */
+	private static final KryoPool UNREGISTERED_POOL = new KryoPool(KryoPool.DEFAULT_MAX_SIZE, Collections.<Class<?>>emptyList());
+	/** 流式序列化的块大小 */
+	private static final int STREAM_BUFFER_SIZE = 4096;
+	/** 序列化用的direct buffer池，每个64K */
+	private static final ByteBufferPool BUFFER_POOL = new ByteBufferPool(KryoPool.DEFAULT_MAX_SIZE, 64 * 1024);
+	/** 归还Kryo前替换掉调用方的buffer */
+	private static final ByteBuffer EMPTY_BUFFER = ByteBuffer.allocate(0);
+	/** 按类型的序列化统计，默认关闭 */
+	private static final SerializeMetrics METRICS = SerializeMetrics.get("Kryos");
 
 	private Kryos() {
 	}
 
 	/**
-	 * 获得当前线程的Kryo
-	 * @return Kryo实例
-	 * @author yinlei
-	 * date 2013-4-6 下午2:50:52
+	 * @return 注册了基本对象和清单{@value KryoRegistry#MANIFEST_LOCATION}中的类的Kryo池
 	 */
-	public Kryo getKryo() {
-		Kryo kryo = threadLocal.get();
-		if (kryo == null) {
-		    // throw new IllegalStateException("没有获得当前线程绑定的Kryo实例，请先注册，再调用。");
-			kryo = new Kryo();
-			kryo.setRegistrationRequired(true);
-			kryo.setReferences(true);
-			kryo.setInstantiatorStrategy(new StdInstantiatorStrategy());
-
-			registDefault(kryo);
-			
-			//*********注册自定义对象**********//
-			//kryo.register(Customer.class);
-
-			threadLocal.set(kryo);
-		}
-		return kryo;
+	public static KryoPool getPool() {
+		return POOL;
 	}
-
-	/**
-     * 获得当前线程的Kryo。
-     * <p>序列化和反序列化一般是分开的，这里是不是没用？同一个线程内操作是可以的，序列化和反序列化分开的话就获取不到了。
-     * <p>当前对象要序列化多个对象怎么办？获取当前线程的Kryo后，每次都会注册。
-     * @return Kryo实例
-     * @author yinlei
-     * date 2013-4-6 下午2:50:52
-     */
-    private static Kryo getKryo(Class<?> clazz) {
-        Kryo kryo = threadLocal.get();
-        if (kryo == null) {
-            kryo = new Kryo();
-            kryo.setRegistrationRequired(true);
-            kryo.setReferences(true);
-            kryo.setInstantiatorStrategy(new StdInstantiatorStrategy());
-            registDefault(kryo);
-            
-            //*********注册自定义对象**********//
-            kryo.register(clazz);
-            threadLocal.set(kryo);
-        }
-        return kryo;
-    }
 	
 	/**
-	 * 将对象序列化为byte[]，对象要注册
+	 * 将对象序列化为byte[]，基本对象已在池中注册，其他类写入类名
 	 * @param object 要转换的对象
 	 * @return 字节数组
 	 * @author yinlei
@@ -107,15 +87,21 @@ public class Kryos {
 	    if (object == null) {
             return null;
         }
-		Kryo converter = getKryo(object.getClass());
-		Output output = new Output(2048, 2 * 1024 * 1024);
-		converter.writeObject(output, object);
-
-		return output.toBytes();
+		long start = METRICS.start();
+		Kryo converter = POOL.borrow();
+		try {
+			Output output = new Output(2048, 2 * 1024 * 1024);
+			converter.writeObject(output, object);
+			byte[] bytes = output.toBytes();
+			METRICS.encoded(object.getClass(), start, bytes.length);
+			return bytes;
+		} finally {
+			POOL.release(converter);
+		}
 	}
 
 	/**
-	 * 将字节数组反序列化为对象，对象要注册
+	 * 将字节数组反序列化为对象，基本对象已在池中注册，其他类写入类名
 	 * @param bytes 被转换的字节数组
 	 * @param clazz 要转换的对象类型
 	 * @return 要转换的对象实例
@@ -126,13 +112,116 @@ public class Kryos {
 	    if (bytes == null) {
 	        return null;
 	    }
-		Kryo converter = getKryo(clazz);
-		Input input = new Input(bytes);
-		return converter.readObject(input, clazz);
+		long start = METRICS.start();
+		Kryo converter = POOL.borrow();
+		try {
+			Input input = new Input(bytes);
+			T t = converter.readObject(input, clazz);
+			METRICS.decoded(clazz, start, bytes.length);
+			return t;
+		} finally {
+			POOL.release(converter);
+		}
 	}
 
 	/**
-	 * 将字节数组反序列化为对象List（ArrayList），对象要注册
+	 * 将对象序列化到buffer中，从buffer当前的position开始写，写完后position后移。不会产生中间的字节数组，
+	 * 最多写到buffer的limit，剩余空间不够时抛出KryoException，不会扩容。
+	 * limit等于capacity时（池中的buffer、clear之后的buffer）直接写入buffer，不分配对象；
+	 * 否则Kryo只认buffer的capacity，需要slice一个视图来限制写入范围，每次调用会分配一个ByteBuffer对象。
+	 * @param buffer 目标buffer，可以是direct buffer
+	 * @param object 要序列化的对象
+	 * @return 写入的字节数
+	 */
+	public static int writeTo(ByteBuffer buffer, Object object) {
+		long start = METRICS.start();
+		Kryo kryo = POOL.borrow();
+		ByteBufferOutput output = ((com.vteba.utils.serialize.Kryo) kryo).getByteBufferOutput();
+		int position = buffer.position();
+		try {
+			// Kryo从buffer的position开始写，最多写到capacity，不看limit；limit小于capacity时slice之后容量就是剩余空间
+			ByteBuffer target = buffer;
+			int offset = position;
+			if (buffer.limit() != buffer.capacity()) {
+				target = buffer.slice().order(buffer.order());
+				offset = 0;
+			}
+			output.setBuffer(target, target.capacity());
+			kryo.writeObject(output, object);
+			output.flush();
+			int size = output.position() - offset;
+			buffer.position(position + size);
+			METRICS.encoded(object.getClass(), start, size);
+			return size;
+		} catch (RuntimeException e) {
+			// 写到一半失败时恢复调用方的position
+			buffer.position(position);
+			throw e;
+		} finally {
+			// 池中的实例不能继续引用调用方的buffer
+			output.setBuffer(EMPTY_BUFFER, 0);
+			POOL.release(kryo);
+		}
+	}
+
+	/**
+	 * 从buffer当前的position开始反序列化对象，读完后position后移到对象末尾，可以接着读下一个对象。
+	 * @param buffer 数据来源buffer，可以是direct buffer
+	 * @param clazz 要转换的对象类型
+	 * @return 反序列化后的对象
+	 */
+	public static <T> T readFrom(ByteBuffer buffer, Class<T> clazz) {
+		long start = METRICS.start();
+		Kryo kryo = POOL.borrow();
+		ByteBufferInput input = ((com.vteba.utils.serialize.Kryo) kryo).getByteBufferInput();
+		try {
+			int position = buffer.position();
+			input.setBuffer(buffer);
+			T t = kryo.readObject(input, clazz);
+			buffer.position(input.position());
+			METRICS.decoded(clazz, start, input.position() - position);
+			return t;
+		} finally {
+			input.setBuffer(EMPTY_BUFFER);
+			POOL.release(kryo);
+		}
+	}
+
+	/**
+	 * 将对象序列化到一个池化的direct buffer中，返回的buffer已经flip，可以直接写channel。
+	 * 用完后必须调用{@link #releaseBuffer(ByteBuffer)}归还。对象超过池中buffer大小时，退化为单独分配。
+	 * @param object 要序列化的对象
+	 * @return 已flip的direct buffer
+	 */
+	public static ByteBuffer toDirectBuffer(Object object) {
+		if (object == null) {
+			return null;
+		}
+		ByteBuffer buffer = BUFFER_POOL.acquire();
+		try {
+			writeTo(buffer, object);
+		} catch (KryoException e) {
+			// 超出池中buffer的大小，单独分配
+			BUFFER_POOL.release(buffer);
+			byte[] bytes = toBytes(object);
+			buffer = ByteBuffer.allocateDirect(bytes.length);
+			buffer.put(bytes);
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	/**
+	 * 归还{@link #toDirectBuffer(Object)}返回的buffer，归还后不能再使用。
+	 * @param buffer 要归还的buffer
+	 */
+	public static void releaseBuffer(ByteBuffer buffer) {
+		BUFFER_POOL.release(buffer);
+	}
+
+	/**
+	 * 将字节数组反序列化为对象List（ArrayList），基本对象已在池中注册，其他类写入类名
+	 * <p>需要整个字节数组，并且一次构造完整个集合。元素很多时，使用{@link #writeStream(OutputStream, Iterator)}和{@link #readStream(InputStream)}
 	 * 
 	 * @param bytes
 	 *            被转换的字节数组
@@ -140,15 +229,20 @@ public class Kryos {
 	 * @author yinlei date 2013-4-6 下午2:51:11
 	 */
 	public static <T> List<T> byteToList(byte[] bytes) {
-		Kryo kryo = getKryo(ArrayList.class);
-		Input input = new Input(bytes);
-		@SuppressWarnings("unchecked")
-		List<T> list = kryo.readObject(input, ArrayList.class);
-		return list;
+		Kryo kryo = POOL.borrow();
+		try {
+			Input input = new Input(bytes);
+			@SuppressWarnings("unchecked")
+			List<T> list = kryo.readObject(input, ArrayList.class);
+			return list;
+		} finally {
+			POOL.release(kryo);
+		}
 	}
 
 	/**
-     * 将字节数组反序列化为对象Map（HashMap），对象要注册
+     * 将字节数组反序列化为对象Map（HashMap），基本对象已在池中注册，其他类写入类名
+     * <p>需要整个字节数组，并且一次构造完整个集合。元素很多时，使用{@link #writeStream(OutputStream, Iterator)}和{@link #readStream(InputStream)}
      * 
      * @param bytes
      *            被转换的字节数组
@@ -156,15 +250,20 @@ public class Kryos {
      * @author yinlei date 2013-4-6 下午3:51:11
      */
 	public static <K, V> Map<K, V> byteToMap(byte[] bytes) {
-		Kryo kryo = getKryo(HashMap.class);
-		Input input = new Input(bytes);
-		@SuppressWarnings("unchecked")
-		Map<K, V> map = kryo.readObject(input, HashMap.class);
-		return map;
+		Kryo kryo = POOL.borrow();
+		try {
+			Input input = new Input(bytes);
+			@SuppressWarnings("unchecked")
+			Map<K, V> map = kryo.readObject(input, HashMap.class);
+			return map;
+		} finally {
+			POOL.release(kryo);
+		}
 	}
 
 	/**
-     * 将字节数组反序列化为对象Set（HashSet），对象要注册
+     * 将字节数组反序列化为对象Set（HashSet），基本对象已在池中注册，其他类写入类名
+     * <p>需要整个字节数组，并且一次构造完整个集合。元素很多时，使用{@link #writeStream(OutputStream, Iterator)}和{@link #readStream(InputStream)}
      * 
      * @param bytes
      *            被转换的字节数组
@@ -172,11 +271,63 @@ public class Kryos {
      * @author yinlei date 2013-4-6 下午4:51:11
      */
 	public static <T> Set<T> byteToSet(byte[] bytes) {
-		Kryo kryo = getKryo(HashSet.class);
-		Input input = new Input(bytes);
-		@SuppressWarnings("unchecked")
-		Set<T> set = kryo.readObject(input, HashSet.class);
-		return set;
+		Kryo kryo = POOL.borrow();
+		try {
+			Input input = new Input(bytes);
+			@SuppressWarnings("unchecked")
+			Set<T> set = kryo.readObject(input, HashSet.class);
+			return set;
+		} finally {
+			POOL.release(kryo);
+		}
+	}
+
+	/**
+	 * 将元素逐个序列化到输出流中，每个元素是一组带长度前缀的块，最后写一个结束标记。
+	 * 内存占用和元素个数无关，适合很大的集合。使用{@link #readStream(InputStream)}读取。
+	 * <p>不会关闭输出流。元素之间不共享引用。
+	 * @param out 输出流
+	 * @param iterator 要序列化的元素
+	 * @return 写出的元素个数
+	 */
+	public static int writeStream(OutputStream out, Iterator<?> iterator) {
+		Kryo kryo = POOL.borrow();
+		try {
+			OutputChunked output = new OutputChunked(out, STREAM_BUFFER_SIZE);
+			int count = 0;
+			while (iterator.hasNext()) {
+				output.writeBoolean(true);
+				kryo.writeClassAndObject(output, iterator.next());
+				output.endChunks();
+				count++;
+			}
+			output.writeBoolean(false);
+			output.endChunks();
+			output.flush();
+			return count;
+		} finally {
+			POOL.release(kryo);
+		}
+	}
+
+	/**
+	 * 将元素逐个序列化到输出流中，见{@link #writeStream(OutputStream, Iterator)}。
+	 * @param out 输出流
+	 * @param elements 要序列化的元素
+	 * @return 写出的元素个数
+	 */
+	public static int writeStream(OutputStream out, Iterable<?> elements) {
+		return writeStream(out, elements.iterator());
+	}
+
+	/**
+	 * 从输入流中懒加载读取{@link #writeStream(OutputStream, Iterator)}写出的元素，每次只反序列化一个元素。
+	 * 迭代结束前会占用一个Kryo实例，提前结束时要调用{@link KryoStreamIterator#close()}。
+	 * @param in 输入流，不会被关闭
+	 * @return 元素迭代器
+	 */
+	public static <T> KryoStreamIterator<T> readStream(InputStream in) {
+		return new KryoStreamIterator<T>(POOL, in, STREAM_BUFFER_SIZE);
 	}
 
 	/**
@@ -189,13 +340,15 @@ public class Kryos {
 	    if (object == null) {
 	        return null;
 	    }
+	    long start = METRICS.start();
 	    Output out = null;
+	    Kryo kryo = UNREGISTERED_POOL.borrow();
 	    try {
-	        Kryo kryo = new Kryo();
-	        kryo.setInstantiatorStrategy(new StdInstantiatorStrategy());
 	        out = new Output(2 * 1024, 2 * 1024 * 1024);
 	        kryo.writeClassAndObject(out, object);
-	        return out.toBytes();
+	        byte[] bytes = out.toBytes();
+	        METRICS.encoded(object.getClass(), start, bytes.length);
+	        return bytes;
         } catch (Exception e) {
             throw new RuntimeException(e);
         } finally {
@@ -203,6 +356,7 @@ public class Kryos {
                 out.close();
                 out = null;
             }
+            UNREGISTERED_POOL.release(kryo);
         }
 	}
 
@@ -216,13 +370,14 @@ public class Kryos {
 	    if (bytes == null) {
 	        return null;
 	    }
+	    long start = METRICS.start();
 	    Input input = null;
+	    Kryo kryo = UNREGISTERED_POOL.borrow();
 	    try {
-	        Kryo kryo = new Kryo();
-	        kryo.setInstantiatorStrategy(new StdInstantiatorStrategy());
 	        input = new Input(bytes);
 	        @SuppressWarnings("unchecked")
 	        T obj = (T) kryo.readClassAndObject(input);
+	        METRICS.decoded(obj == null ? null : obj.getClass(), start, bytes.length);
 	        return obj;
         } catch (Exception e) {
             throw new RuntimeException(e);
@@ -231,37 +386,49 @@ public class Kryos {
                 input.close();
                 input = null;
             }
+            UNREGISTERED_POOL.release(kryo);
         }
 	}
 	
 	/**
-	 * 深拷贝对象。完全新的一个对象。
+	 * 深拷贝对象。完全新的一个对象。使用生成的逐字段拷贝代码，见{@link DeepCopier}
 	 * @param object 被拷贝对象
 	 * @param <T> 被拷贝对象类型
 	 * @return A new Object
 	 */
 	public static <T> T copy(Object object) {
-		Kryo kryo = new Kryo();
-		kryo.setInstantiatorStrategy(new StdInstantiatorStrategy());
 		@SuppressWarnings("unchecked")
-		T t = (T) kryo.copy(object);
+		T t = (T) DeepCopier.copy(object);
 		return t;
 	}
 	
 	/**
-     * 浅拷贝对象。新对象的内容将和原对象共享。还是原来的引用。
+     * 浅拷贝对象。新对象的内容将和原对象共享。还是原来的引用。使用生成的逐字段拷贝代码，见{@link DeepCopier}
      * @param object 被拷贝对象
      * @param <T> 被拷贝对象类型
      * @return A new Object
      */
 	public static <T> T copyShallow(Object object) {
-		Kryo kryo = new Kryo();
-		kryo.setInstantiatorStrategy(new StdInstantiatorStrategy());
 		@SuppressWarnings("unchecked")
-		T t = (T) kryo.copyShallow(object);
+		T t = (T) DeepCopier.copyShallow(object);
 		return t;
 	}
 	
+	/**
+	 * 使用Kryo拷贝对象，DeepCopier无法处理的类使用。
+	 * @param object 被拷贝对象
+	 * @param shallow 是否浅拷贝
+	 * @return 拷贝
+	 */
+	static Object kryoCopy(Object object, boolean shallow) {
+		Kryo kryo = UNREGISTERED_POOL.borrow();
+		try {
+			return shallow ? kryo.copyShallow(object) : kryo.copy(object);
+		} finally {
+			UNREGISTERED_POOL.release(kryo);
+		}
+	}
+	
 	public static void main(String[] aa) {
 	    Node node = new Node();
 	    node.setName("hasdf");
@@ -292,49 +459,52 @@ public class Kryos {
 	}
 	
 	/**
-     * 注册基本对象
-     * @param kryo
+     * 基本对象的注册表，从{@link KryoRegistry#FIRST_ID}开始按这个顺序分配ID，只能在末尾追加，
+     * 并且不能超过{@link KryoRegistry#FIRST_USER_ID}
+     * @return 注册表
      */
-    private static void registDefault(Kryo kryo) {
-        kryo.register(Class.class);
-        kryo.register(byte[].class);
-        kryo.register(char[].class);
-        kryo.register(short[].class);
-        kryo.register(int[].class);
-        kryo.register(long[].class);
-        kryo.register(float[].class);
-        kryo.register(double[].class);
-        kryo.register(boolean[].class);
-        kryo.register(String[].class);
-        kryo.register(Object[].class);
+    private static List<Class<?>> defaultRegistrations() {
+        List<Class<?>> classes = new ArrayList<Class<?>>();
+        classes.add(Class.class);
+        classes.add(byte[].class);
+        classes.add(char[].class);
+        classes.add(short[].class);
+        classes.add(int[].class);
+        classes.add(long[].class);
+        classes.add(float[].class);
+        classes.add(double[].class);
+        classes.add(boolean[].class);
+        classes.add(String[].class);
+        classes.add(Object[].class);
         
-        kryo.register(StringBuffer.class);
-        kryo.register(StringBuilder.class);
+        classes.add(StringBuffer.class);
+        classes.add(StringBuilder.class);
         
-        kryo.register(ArrayList.class);
-        kryo.register(LinkedList.class);
-        kryo.register(CopyOnWriteArrayList.class);
-        kryo.register(Vector.class);
+        classes.add(ArrayList.class);
+        classes.add(LinkedList.class);
+        classes.add(CopyOnWriteArrayList.class);
+        classes.add(Vector.class);
         
-        kryo.register(HashMap.class);
-        kryo.register(TreeMap.class);
-        kryo.register(LinkedHashMap.class);
-        kryo.register(ConcurrentHashMap.class);
+        classes.add(HashMap.class);
+        classes.add(TreeMap.class);
+        classes.add(LinkedHashMap.class);
+        classes.add(ConcurrentHashMap.class);
 
-        kryo.register(HashSet.class);
-        kryo.register(TreeSet.class);
-        kryo.register(LinkedHashSet.class);
-        kryo.register(CopyOnWriteArraySet.class);
+        classes.add(HashSet.class);
+        classes.add(TreeSet.class);
+        classes.add(LinkedHashSet.class);
+        classes.add(CopyOnWriteArraySet.class);
 
-        kryo.register(BigInteger.class);
-        kryo.register(BigDecimal.class);
-        kryo.register(Currency.class);
+        classes.add(BigInteger.class);
+        classes.add(BigDecimal.class);
+        classes.add(Currency.class);
         
-        kryo.register(EnumSet.class);
+        classes.add(EnumSet.class);
 
-        kryo.register(Date.class);
-        kryo.register(java.sql.Date.class);
-        kryo.register(Calendar.class);
-        kryo.register(TimeZone.class);
+        classes.add(Date.class);
+        classes.add(java.sql.Date.class);
+        classes.add(Calendar.class);
+        classes.add(TimeZone.class);
+        return classes;
     }
 }
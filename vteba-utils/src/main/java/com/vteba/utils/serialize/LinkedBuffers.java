@@ -0,0 +1,112 @@
+package com.vteba.utils.serialize;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.dyuproject.protostuff.LinkedBuffer;
+
+/**
+ * LinkedBuffer池，避免每次序列化都新建。
+ * <p>每个类记录一个序列化后大小的滑动平均值，作为第一个buffer段的大小，典型的消息只需要一个段，不用再链接新的段。
+ * 借出的buffer比这个大小小时丢弃，新建一个，池中的buffer只会变大，最大{@value #MAX_SIZE_HINT}字节。
+ * <p>和{@link KryoPool}一样，池是有界的，最多保留{@value #MAX_POOLED}个空闲buffer，池空时新建，池满时归还的buffer直接丢弃，
+ * 不和线程绑定，线程很多（或者线程池不断替换线程）时占用的内存也有上限。嵌套调用各自借出不同的buffer。
+ * <p>用法：
+ * <pre>
+ * LinkedBuffers.Entry entry = LinkedBuffers.acquire(clazz);
+ * int size = 0;
+ * try {
+ *     size = ...(entry.buffer);
+ * } finally {
+ *     LinkedBuffers.release(entry, clazz, size);
+ * }
+ * </pre>
+ * @author yinlei
+ * @since 2014-9-22
+ */
+final class LinkedBuffers {
+	/** 第一次序列化某个类时的buffer大小 */
+	static final int DEFAULT_SIZE_HINT = 1024;
+	/** 池中buffer最大的大小 */
+	static final int MAX_SIZE_HINT = 64 * 1024;
+	/** 池中最多保留的空闲buffer数 */
+	static final int MAX_POOLED = KryoPool.DEFAULT_MAX_SIZE;
+
+	private static final ConcurrentMap<Class<?>, AtomicInteger> sizeHints = new ConcurrentHashMap<Class<?>, AtomicInteger>();
+	private static final BlockingQueue<Entry> queue = new ArrayBlockingQueue<Entry>(MAX_POOLED);
+
+	private LinkedBuffers() {
+	}
+
+	/**
+	 * 从池中借出一个buffer，池空或者池中的buffer太小时新建一个。
+	 * @param clazz 要序列化的类，用于确定buffer的大小
+	 * @return 已清空的buffer，用完后必须调用{@link #release(Entry, Class, int)}
+	 */
+	static Entry acquire(Class<?> clazz) {
+		int sizeHint = sizeHint(clazz);
+		Entry entry = queue.poll();
+		if (entry == null || entry.capacity < sizeHint) {
+			int capacity = Math.min(Integer.highestOneBit(sizeHint - 1) << 1, MAX_SIZE_HINT);
+			entry = new Entry(LinkedBuffer.allocate(capacity), capacity);
+		}
+		return entry;
+	}
+
+	/**
+	 * 清空并归还buffer，记录这次序列化的大小。
+	 * @param entry {@link #acquire(Class)}借出的buffer，归还后调用者不能再使用它
+	 * @param clazz 序列化的类
+	 * @param size 序列化后的大小，出错时传0
+	 */
+	static void release(Entry entry, Class<?> clazz, int size) {
+		entry.buffer.clear();
+		queue.offer(entry);
+		if (size > 0) {
+			AtomicInteger hint = sizeHints.get(clazz);
+			if (hint != null) {
+				// 只是个提示，并发更新丢失一些也没关系
+				int old = hint.get();
+				hint.lazySet(Math.min(old + ((size - old) >> 3), MAX_SIZE_HINT));
+			}
+		}
+	}
+
+	/**
+	 * @param clazz 类
+	 * @return 该类序列化后大小的滑动平均值，至少为{@link LinkedBuffer#MIN_BUFFER_SIZE}
+	 */
+	static int sizeHint(Class<?> clazz) {
+		AtomicInteger hint = sizeHints.get(clazz);
+		if (hint == null) {
+			AtomicInteger old = sizeHints.putIfAbsent(clazz, hint = new AtomicInteger(DEFAULT_SIZE_HINT));
+			if (old != null) {
+				hint = old;
+			}
+		}
+		return Math.max(hint.get(), LinkedBuffer.MIN_BUFFER_SIZE);
+	}
+
+	/**
+	 * @return 池中当前空闲的buffer数
+	 */
+	static int size() {
+		return queue.size();
+	}
+
+	/**
+	 * 池中的buffer，LinkedBuffer不能取得大小，和第一个段的大小放在一起。
+	 */
+	static final class Entry {
+		final LinkedBuffer buffer;
+		final int capacity;
+
+		Entry(LinkedBuffer buffer, int capacity) {
+			this.buffer = buffer;
+			this.capacity = capacity;
+		}
+	}
+}
@@ -3,9 +3,6 @@ package com.vteba.utils.serialize;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 
-import org.jboss.marshalling.ByteBufferInput;
-import org.jboss.marshalling.ByteBufferOutput;
-import org.jboss.marshalling.ByteInput;
 import org.jboss.marshalling.ByteOutput;
 import org.jboss.marshalling.Marshaller;
 import org.jboss.marshalling.MarshallerFactory;
@@ -15,27 +12,30 @@ import org.jboss.marshalling.Unmarshaller;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.vteba.utils.serialize.MarshallerPool.Entry;
+
 /**
  * 基于JBoss Marshalling的序列化和反序列化工具。
+ * <p>Marshaller/Unmarshaller不是线程安全的，从池中借用，每次调用独占一个实例，可以并发使用。
+ * 池中的实例带有可重用的输入输出适配器，direct buffer也可以直接读写，不经过中间的字节数组。
+ * <p>按类型统计调用次数、耗时和字节数，见{@link SerializeMetrics}，默认关闭。
  * @author yinlei 
  * @since 2013-12-12 17:02
  */
 public class MarshaUtils {
     private static final Logger LOGGER = LoggerFactory.getLogger(MarshaUtils.class);
     
-    public static final int SIZE = 2048;
-    protected static Marshaller marshaller = null;
-    protected static Unmarshaller unmarshaller = null;
+    public static final int SIZE = MarshallerPool.INITIAL_SIZE;
+    /** 池中最多保留的空闲实例数 */
+    public static final int POOL_SIZE = 64;
+    private static final MarshallerPool POOL;
+    /** 按类型的序列化统计，默认关闭 */
+    private static final SerializeMetrics METRICS = SerializeMetrics.get("MarshaUtils");
     static {
         MarshallerFactory factory = Marshalling.getProvidedMarshallerFactory("serial");
         MarshallingConfiguration configuration = new MarshallingConfiguration();
         configuration.setVersion(5);
-        try {
-            marshaller = factory.createMarshaller(configuration);
-            unmarshaller = factory.createUnmarshaller(configuration);
-        } catch (IOException e) {
-            LOGGER.error("初始化JBoss编解码器出错。", e.getMessage());
-        }
+        POOL = new MarshallerPool(POOL_SIZE, factory, configuration);
     }
     
     /**
@@ -48,21 +48,22 @@ public class MarshaUtils {
             return null;
         }
         
-        ByteBuffer byteBuffer = ByteBuffer.allocate(SIZE);
-        ByteOutput byteOutput = new ByteBufferOutput(byteBuffer);
+        long start = METRICS.start();
         try {
-            marshaller.start(byteOutput);
-            marshaller.writeObject(object);
-            marshaller.finish();
-            marshaller.flush();
+            Entry entry = POOL.borrow();
+            marshal(entry.marshaller, entry.arrayOutput, object);
+            byte[] bytes = entry.arrayOutput.toByteArray();
+            POOL.release(entry);
+            METRICS.encoded(object.getClass(), start, bytes.length);
+            return bytes;
         } catch (IOException e) {
             LOGGER.error("JBoss编解码器，序列化对象IO错误。", e.getMessage());
         }
-        return byteBuffer.array();
+        return null;
     }
     
     /**
-     * 将对象序列化成字节buffer
+     * 将对象序列化成字节buffer，返回的buffer没有flip，position在数据的末尾，可以直接传给{@link #fromBytes(ByteBuffer)}。
      * @param object 要被序列化的对象
      * @return 序列化后的字节buffer
      */
@@ -71,17 +72,44 @@ public class MarshaUtils {
             return null;
         }
         
-        ByteBuffer byteBuffer = ByteBuffer.allocate(SIZE);
-        ByteOutput byteOutput = new ByteBufferOutput(byteBuffer);
+        long start = METRICS.start();
         try {
-            marshaller.start(byteOutput);
-            marshaller.writeObject(object);
-            marshaller.finish();
-            marshaller.flush();
+            Entry entry = POOL.borrow();
+            marshal(entry.marshaller, entry.arrayOutput, object);
+            int size = entry.arrayOutput.size();
+            ByteBuffer byteBuffer = ByteBuffer.allocate(Math.max(size, SIZE));
+            entry.arrayOutput.writeTo(byteBuffer);
+            POOL.release(entry);
+            METRICS.encoded(object.getClass(), start, size);
+            return byteBuffer;
         } catch (IOException e) {
             LOGGER.error("JBoss编解码器，序列化对象IO错误。", e.getMessage());
         }
-        return byteBuffer;
+        return null;
+    }
+    
+    /**
+     * 将对象直接序列化到buffer的当前位置，buffer可以是direct buffer，不经过中间的字节数组。
+     * buffer的position前移写入的字节数，空间不够时抛出{@link java.nio.BufferOverflowException}。
+     * @param buffer 目标buffer
+     * @param object 要被序列化的对象
+     * @return 写入的字节数，出错时返回-1
+     */
+    public static int writeTo(ByteBuffer buffer, Object object) {
+        long start = METRICS.start();
+        int position = buffer.position();
+        try {
+            Entry entry = POOL.borrow();
+            entry.bufferOutput.buffer = buffer;
+            marshal(entry.marshaller, entry.bufferOutput, object);
+            POOL.release(entry);
+            int size = buffer.position() - position;
+            METRICS.encoded(object == null ? null : object.getClass(), start, size);
+            return size;
+        } catch (IOException e) {
+            LOGGER.error("JBoss编解码器，序列化对象IO错误。", e.getMessage());
+        }
+        return -1;
     }
     
     /**
@@ -93,27 +121,11 @@ public class MarshaUtils {
         if (bytes == null) {
             return null;
         }
-        
-        try {
-            ByteBuffer byteBuffer = ByteBuffer.allocate(SIZE);
-            byteBuffer.put(bytes);
-            byteBuffer.flip();
-            ByteInput newInput = new ByteBufferInput(byteBuffer);
-            unmarshaller.start(newInput);
-            @SuppressWarnings("unchecked")
-            T t = (T) unmarshaller.readObject();
-            unmarshaller.finish();
-            return t;
-        } catch (IOException e) {
-            LOGGER.error("JBoss编解码器，反序列化，对象IO错误。", e.getMessage());
-        } catch (ClassNotFoundException e) {
-            LOGGER.error("JBoss编解码器，反序列化，没有找到对象类。", e.getMessage());
-        }
-        return null;
+        return readFrom(ByteBuffer.wrap(bytes));
     }
     
     /**
-     * 将字节buffer反序列化成对象
+     * 将字节buffer反序列化成对象，buffer会先flip，和{@link #toByteBuffer(Object)}对应
      * @param bytes 字节buffer
      * @return 反序列化后的对象
      */
@@ -121,14 +133,30 @@ public class MarshaUtils {
         if (byteBuffer == null) {
             return null;
         }
-        
+        byteBuffer.flip();
+        return readFrom(byteBuffer);
+    }
+    
+    /**
+     * 从buffer的当前位置直接反序列化对象，buffer可以是direct buffer，不会flip。
+     * <p>Unmarshaller会预读，无法停在对象的末尾，所以position到limit之间只能是一个对象，读完后position移到limit。
+     * @param buffer 数据所在的buffer，position到limit之间是要读取的数据
+     * @return 反序列化后的对象
+     */
+    public static <T> T readFrom(ByteBuffer buffer) {
+        long start = METRICS.start();
+        int size = buffer.remaining();
         try {
-            byteBuffer.flip();
-            ByteInput newInput = new ByteBufferInput(byteBuffer);
-            unmarshaller.start(newInput);
+            Entry entry = POOL.borrow();
+            entry.bufferInput.buffer = buffer;
+            Unmarshaller unmarshaller = entry.unmarshaller;
+            unmarshaller.start(entry.bufferInput);
             @SuppressWarnings("unchecked")
             T t = (T) unmarshaller.readObject();
             unmarshaller.finish();
+            POOL.release(entry);
+            buffer.position(buffer.limit());
+            METRICS.decoded(t == null ? null : t.getClass(), start, size);
             return t;
         } catch (IOException e) {
             LOGGER.error("JBoss编解码器，反序列化，对象IO错误。", e.getMessage());
@@ -137,4 +165,13 @@ public class MarshaUtils {
         }
         return null;
     }
+    
+    /**
+     * 序列化对象，出错时实例不归还池中。
+     */
+    private static void marshal(Marshaller marshaller, ByteOutput output, Object object) throws IOException {
+        marshaller.start(output);
+        marshaller.writeObject(object);
+        marshaller.finish();
+    }
 }
@@ -0,0 +1,222 @@
+package com.vteba.utils.serialize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.jboss.marshalling.ByteInput;
+import org.jboss.marshalling.ByteOutput;
+import org.jboss.marshalling.Marshaller;
+import org.jboss.marshalling.MarshallerFactory;
+import org.jboss.marshalling.MarshallingConfiguration;
+import org.jboss.marshalling.Unmarshaller;
+
+/**
+ * JBoss Marshaller/Unmarshaller池。Marshaller和Unmarshaller都不是线程安全的，每个池中的{@link Entry}同时只被一个线程使用。
+ * <p>每个Entry还带有可重用的ByteOutput/ByteInput适配器，序列化到字节数组、从字节数组或者ByteBuffer（包括direct buffer）
+ * 读写时，不需要每次新建适配器，也不需要经过中间的字节数组复制。
+ * <p>池是有界的，最多保留maxSize个空闲实例。池空时新建，池满时归还的实例直接丢弃。使用出错的实例不要归还。
+ * @author yinlei
+ * @since 2014-9-27
+ */
+class MarshallerPool {
+	/** 字节数组输出初始的大小 */
+	static final int INITIAL_SIZE = 2048;
+	/** 归还时字节数组输出超过这个大小就缩回初始大小，避免池中长期占用大数组 */
+	static final int MAX_RETAINED_SIZE = 64 * 1024;
+
+	private final BlockingQueue<Entry> queue;
+	private final MarshallerFactory factory;
+	private final MarshallingConfiguration configuration;
+
+	MarshallerPool(int maxSize, MarshallerFactory factory, MarshallingConfiguration configuration) {
+		if (maxSize <= 0) {
+			throw new IllegalArgumentException("maxSize must be > 0: " + maxSize);
+		}
+		this.queue = new ArrayBlockingQueue<Entry>(maxSize);
+		this.factory = factory;
+		this.configuration = configuration;
+	}
+
+	/**
+	 * 借出一个实例，池空时新建。用完后调用{@link #release(Entry)}归还，出错时不要归还。
+	 * @return 实例
+	 * @throws IOException 创建Marshaller出错
+	 */
+	Entry borrow() throws IOException {
+		Entry entry = queue.poll();
+		if (entry == null) {
+			entry = new Entry(factory.createMarshaller(configuration), factory.createUnmarshaller(configuration));
+		}
+		return entry;
+	}
+
+	/**
+	 * 归还实例，清除对调用者buffer的引用。
+	 * @param entry 借出的实例
+	 */
+	void release(Entry entry) {
+		entry.arrayOutput.reset();
+		entry.bufferOutput.buffer = null;
+		entry.bufferInput.buffer = null;
+		queue.offer(entry);
+	}
+
+	/**
+	 * @return 池中当前空闲的实例数
+	 */
+	int size() {
+		return queue.size();
+	}
+
+	static final class Entry {
+		final Marshaller marshaller;
+		final Unmarshaller unmarshaller;
+		final ArrayByteOutput arrayOutput = new ArrayByteOutput();
+		final BufferByteOutput bufferOutput = new BufferByteOutput();
+		final BufferByteInput bufferInput = new BufferByteInput();
+
+		Entry(Marshaller marshaller, Unmarshaller unmarshaller) {
+			this.marshaller = marshaller;
+			this.unmarshaller = unmarshaller;
+		}
+	}
+
+	/**
+	 * 可增长、可重用的字节数组输出。
+	 */
+	static final class ArrayByteOutput implements ByteOutput {
+		private byte[] buf = new byte[INITIAL_SIZE];
+		private int count;
+
+		@Override
+		public void write(int b) {
+			ensureCapacity(count + 1);
+			buf[count++] = (byte) b;
+		}
+
+		@Override
+		public void write(byte[] b) {
+			write(b, 0, b.length);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			ensureCapacity(count + len);
+			System.arraycopy(b, off, buf, count, len);
+			count += len;
+		}
+
+		private void ensureCapacity(int capacity) {
+			if (capacity > buf.length) {
+				buf = Arrays.copyOf(buf, Math.max(buf.length << 1, capacity));
+			}
+		}
+
+		int size() {
+			return count;
+		}
+
+		byte[] toByteArray() {
+			return Arrays.copyOf(buf, count);
+		}
+
+		/**
+		 * 写入到buffer的当前位置。
+		 */
+		void writeTo(ByteBuffer buffer) {
+			buffer.put(buf, 0, count);
+		}
+
+		void reset() {
+			count = 0;
+			if (buf.length > MAX_RETAINED_SIZE) {
+				buf = new byte[INITIAL_SIZE];
+			}
+		}
+
+		@Override
+		public void flush() {
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+
+	/**
+	 * 写入到ByteBuffer的输出，buffer可以替换。空间不够时抛出BufferOverflowException。
+	 */
+	static final class BufferByteOutput implements ByteOutput {
+		ByteBuffer buffer;
+
+		@Override
+		public void write(int b) {
+			buffer.put((byte) b);
+		}
+
+		@Override
+		public void write(byte[] b) {
+			buffer.put(b);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			buffer.put(b, off, len);
+		}
+
+		@Override
+		public void flush() {
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+
+	/**
+	 * 从ByteBuffer读取的输入，buffer可以替换。
+	 */
+	static final class BufferByteInput implements ByteInput {
+		ByteBuffer buffer;
+
+		@Override
+		public int read() {
+			return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] b) {
+			return read(b, 0, b.length);
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			int remaining = buffer.remaining();
+			if (remaining == 0) {
+				return len == 0 ? 0 : -1;
+			}
+			len = Math.min(len, remaining);
+			buffer.get(b, off, len);
+			return len;
+		}
+
+		@Override
+		public int available() {
+			return buffer.remaining();
+		}
+
+		@Override
+		public long skip(long n) {
+			int skip = (int) Math.max(0, Math.min(n, buffer.remaining()));
+			buffer.position(buffer.position() + skip);
+			return skip;
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+}
@@ -0,0 +1,76 @@
+package com.vteba.utils.serialize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.dyuproject.protostuff.CodedInput;
+import com.dyuproject.protostuff.Schema;
+
+/**
+ * 从输入流中逐个读取带长度前缀的消息（{@link Protos#writeDelimitedBatch(java.io.OutputStream, Iterable)}写出的格式），
+ * 读到流的末尾结束。整个批次共用一个{@link CodedInput}和它的读缓冲区，每条消息只新建消息对象本身。
+ * <p>不会关闭输入流，由调用者关闭。读取出错时抛出RuntimeException，cause是原来的IOException。不是线程安全的。
+ * @author yinlei
+ * @since 2014-9-26
+ * @param <T> 消息类型
+ */
+public class ProtoDelimitedIterator<T> implements Iterator<T> {
+	private final CodedInput input;
+	private final Schema<T> schema;
+	private T next;
+	private boolean fetched;
+	private boolean finished;
+
+	ProtoDelimitedIterator(InputStream in, Schema<T> schema) {
+		this.input = new CodedInput(in, true);
+		this.schema = schema;
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (!fetched && !finished) {
+			fetch();
+		}
+		return !finished;
+	}
+
+	@Override
+	public T next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		T t = next;
+		next = null;
+		fetched = false;
+		return t;
+	}
+
+	private void fetch() {
+		try {
+			if (input.isAtEnd()) {
+				finished = true;
+				return;
+			}
+			int size = input.readRawVarint32();
+			int limit = input.pushLimit(size);
+			T message = schema.newMessage();
+			schema.mergeFrom(input, message);
+			input.checkLastTagWas(0);
+			input.popLimit(limit);
+			// 大小限制是针对整个流累计的，每条消息重新计数
+			input.resetSizeCounter();
+			next = message;
+			fetched = true;
+		} catch (IOException e) {
+			finished = true;
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException("remove");
+	}
+}
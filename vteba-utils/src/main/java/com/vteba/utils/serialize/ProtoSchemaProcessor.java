@@ -0,0 +1,464 @@
+package com.vteba.utils.serialize;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * 编译期为{@link com.vteba.utils.annotation.ProtoSchema}标记的类生成Protostuff Schema（类名$$ProtoSchema）。
+ * <p>字段编号和编码方式和RuntimeSchema完全一致：父类字段在前，按声明顺序从1开始编号，跳过static和transient字段；
+ * {@code @Deprecated}的字段不序列化，但仍然占用一个编号；使用{@code @Tag}时所有字段都必须有{@code @Tag}，
+ * 编号和名字取自注解。基本类型总是写出，对象类型为null时不写。
+ * <p>RuntimeSchema创建时排除的字段（exclusions）只在运行时指定，生成的Schema按不排除处理，需要排除字段的类不要使用
+ * {@code @ProtoSchema}。{@code @Tag}用法不合法（部分字段没有、编号小于1或者重复）时给出警告，不生成Schema。
+ * <p>支持的字段类型：基本类型及其包装类、String、byte[]、BigDecimal、BigInteger、Date，以及具体的POJO（嵌套消息）。
+ * 集合、Map、数组、枚举等其他类型，或者无法访问的字段、没有无参构造函数的类，不生成Schema并给出警告，
+ * 运行时退回到RuntimeSchema。
+ * <p>通过META-INF/services注册，vteba-utils在编译classpath中即可生效。
+ * @author yinlei
+ * @since 2014-9-25
+ */
+@SupportedAnnotationTypes("com.vteba.utils.annotation.ProtoSchema")
+public class ProtoSchemaProcessor extends AbstractProcessor {
+	/** 生成的Schema类名后缀 */
+	public static final String SUFFIX = "$$ProtoSchema";
+	/** Protostuff指定字段编号的注解 */
+	private static final String TAG = "com.dyuproject.protostuff.Tag";
+
+	private enum Kind {
+		BOOL("writeBool", "input.readBool()"),
+		BYTE("writeUInt32", "(byte) input.readUInt32()"),
+		CHAR("writeUInt32", "(char) input.readUInt32()"),
+		SHORT("writeUInt32", "(short) input.readUInt32()"),
+		INT("writeInt32", "input.readInt32()"),
+		LONG("writeInt64", "input.readInt64()"),
+		FLOAT("writeFloat", "input.readFloat()"),
+		DOUBLE("writeDouble", "input.readDouble()"),
+		STRING("writeString", "input.readString()"),
+		BYTES("writeByteArray", "input.readByteArray()"),
+		BIG_DECIMAL("writeString", "new java.math.BigDecimal(input.readString())"),
+		BIG_INTEGER("writeByteArray", "new java.math.BigInteger(input.readByteArray())"),
+		DATE("writeFixed64", "new java.util.Date(input.readFixed64())"),
+		MESSAGE("writeObject", null);
+
+		final String write;
+		final String read;
+
+		Kind(String write, String read) {
+			this.write = write;
+			this.read = read;
+		}
+	}
+
+	private static final Map<String, Kind> DECLARED_KINDS = new LinkedHashMap<String, Kind>();
+	static {
+		DECLARED_KINDS.put("java.lang.Boolean", Kind.BOOL);
+		DECLARED_KINDS.put("java.lang.Byte", Kind.BYTE);
+		DECLARED_KINDS.put("java.lang.Character", Kind.CHAR);
+		DECLARED_KINDS.put("java.lang.Short", Kind.SHORT);
+		DECLARED_KINDS.put("java.lang.Integer", Kind.INT);
+		DECLARED_KINDS.put("java.lang.Long", Kind.LONG);
+		DECLARED_KINDS.put("java.lang.Float", Kind.FLOAT);
+		DECLARED_KINDS.put("java.lang.Double", Kind.DOUBLE);
+		DECLARED_KINDS.put("java.lang.String", Kind.STRING);
+		DECLARED_KINDS.put("java.math.BigDecimal", Kind.BIG_DECIMAL);
+		DECLARED_KINDS.put("java.math.BigInteger", Kind.BIG_INTEGER);
+		DECLARED_KINDS.put("java.util.Date", Kind.DATE);
+	}
+
+	private static final class FieldInfo {
+		String name;
+		int number;
+		Kind kind;
+		boolean primitive;
+		/** 字段的类型，源码形式 */
+		String type;
+		String getter;
+		/** 包含一个%s占位符 */
+		String setter;
+	}
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		for (TypeElement annotation : annotations) {
+			for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+				if (element.getKind() != ElementKind.CLASS) {
+					warn(element, "@ProtoSchema只能用于类");
+					continue;
+				}
+				TypeElement type = (TypeElement) element;
+				try {
+					List<FieldInfo> fields = collectFields(type);
+					if (fields != null) {
+						generate(type, fields);
+					}
+				} catch (IOException e) {
+					processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+							"生成Protostuff Schema出错：" + e.getMessage(), element);
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * 收集字段，不能生成时返回null。
+	 */
+	private List<FieldInfo> collectFields(TypeElement type) {
+		Set<Modifier> modifiers = type.getModifiers();
+		if (modifiers.contains(Modifier.ABSTRACT) || modifiers.contains(Modifier.PRIVATE)
+				|| !type.getTypeParameters().isEmpty()
+				|| (type.getNestingKind() != NestingKind.TOP_LEVEL && !modifiers.contains(Modifier.STATIC))) {
+			warn(type, "只支持非抽象、非泛型、非私有的顶层类或静态内部类，使用RuntimeSchema");
+			return null;
+		}
+		if (!hasNoArgConstructor(type)) {
+			warn(type, "没有可访问的无参构造函数，使用RuntimeSchema");
+			return null;
+		}
+
+		// 和RuntimeSchema一样，父类字段在前，同名字段保留原来的位置
+		List<TypeElement> hierarchy = new ArrayList<TypeElement>();
+		for (TypeElement t = type; t != null; t = superclass(t)) {
+			hierarchy.add(t);
+		}
+		Collections.reverse(hierarchy);
+		Map<String, VariableElement> fieldMap = new LinkedHashMap<String, VariableElement>();
+		for (TypeElement t : hierarchy) {
+			for (VariableElement field : ElementFilter.fieldsIn(t.getEnclosedElements())) {
+				Set<Modifier> mods = field.getModifiers();
+				if (!mods.contains(Modifier.STATIC) && !mods.contains(Modifier.TRANSIENT)) {
+					fieldMap.put(field.getSimpleName().toString(), field);
+				}
+			}
+		}
+
+		// 编号规则和RuntimeSchema.createFrom一致
+		List<FieldInfo> fields = new ArrayList<FieldInfo>();
+		Set<Integer> numbers = new HashSet<Integer>();
+		int number = 0;
+		boolean annotated = false;
+		for (VariableElement field : fieldMap.values()) {
+			if (field.getAnnotation(Deprecated.class) != null) {
+				// 不序列化，保留编号，前后版本兼容
+				number++;
+				continue;
+			}
+			FieldInfo info = new FieldInfo();
+			info.name = field.getSimpleName().toString();
+			AnnotationMirror tag = findAnnotation(field, TAG);
+			if (tag == null) {
+				if (annotated) {
+					warn(type, "使用@Tag时所有字段都必须有@Tag，字段" + info.name + "没有，不生成Schema");
+					return null;
+				}
+				info.number = ++number;
+			} else {
+				if (!annotated && !fields.isEmpty()) {
+					warn(type, "使用@Tag时所有字段都必须有@Tag，字段" + fields.get(0).name + "没有，不生成Schema");
+					return null;
+				}
+				annotated = true;
+				info.number = ((Number) annotationValue(tag, "value")).intValue();
+				if (info.number < 1) {
+					warn(type, "字段" + info.name + "的@Tag编号" + info.number + "不合法，不生成Schema");
+					return null;
+				}
+				String alias = (String) annotationValue(tag, "alias");
+				if (alias != null && alias.length() > 0) {
+					info.name = alias;
+				}
+			}
+			if (!numbers.add(info.number)) {
+				warn(type, "字段" + info.name + "的编号" + info.number + "重复，不生成Schema");
+				return null;
+			}
+			if (!resolveKind(info, field.asType())) {
+				warn(type, "字段" + field.getSimpleName() + "的类型" + field.asType() + "不支持，使用RuntimeSchema");
+				return null;
+			}
+			if (!resolveAccess(info, type, field)) {
+				warn(type, "字段" + field.getSimpleName() + "不能直接访问，也没有getter/setter，使用RuntimeSchema");
+				return null;
+			}
+			fields.add(info);
+		}
+		if (fields.isEmpty()) {
+			warn(type, "没有可以序列化的字段，不生成Schema");
+			return null;
+		}
+		// RuntimeSchema按编号从小到大写字段
+		Collections.sort(fields, new Comparator<FieldInfo>() {
+			@Override
+			public int compare(FieldInfo o1, FieldInfo o2) {
+				return o1.number < o2.number ? -1 : (o1.number == o2.number ? 0 : 1);
+			}
+		});
+		return fields;
+	}
+
+	private boolean resolveKind(FieldInfo info, TypeMirror type) {
+		info.type = type.toString();
+		switch (type.getKind()) {
+		case BOOLEAN: info.kind = Kind.BOOL; info.primitive = true; return true;
+		case BYTE: info.kind = Kind.BYTE; info.primitive = true; return true;
+		case CHAR: info.kind = Kind.CHAR; info.primitive = true; return true;
+		case SHORT: info.kind = Kind.SHORT; info.primitive = true; return true;
+		case INT: info.kind = Kind.INT; info.primitive = true; return true;
+		case LONG: info.kind = Kind.LONG; info.primitive = true; return true;
+		case FLOAT: info.kind = Kind.FLOAT; info.primitive = true; return true;
+		case DOUBLE: info.kind = Kind.DOUBLE; info.primitive = true; return true;
+		case ARRAY:
+			if (type.toString().equals("byte[]")) {
+				info.kind = Kind.BYTES;
+				return true;
+			}
+			return false;
+		case DECLARED:
+			TypeElement element = (TypeElement) ((DeclaredType) type).asElement();
+			String name = element.getQualifiedName().toString();
+			Kind kind = DECLARED_KINDS.get(name);
+			if (kind != null) {
+				info.kind = kind;
+				return true;
+			}
+			// 具体的POJO，作为嵌套消息
+			Set<Modifier> mods = element.getModifiers();
+			if (element.getKind() == ElementKind.CLASS && !mods.contains(Modifier.ABSTRACT)
+					&& element.getTypeParameters().isEmpty()
+					&& !name.startsWith("java.") && !name.startsWith("javax.")) {
+				info.kind = Kind.MESSAGE;
+				return true;
+			}
+			return false;
+		default:
+			return false;
+		}
+	}
+
+	private boolean resolveAccess(FieldInfo info, TypeElement type, VariableElement field) {
+		TypeElement owner = (TypeElement) field.getEnclosingElement();
+		String name = field.getSimpleName().toString();
+		if (accessible(field.getModifiers(), owner, type) && !field.getModifiers().contains(Modifier.FINAL)) {
+			info.getter = "message." + name;
+			info.setter = "message." + name + " = %s;";
+			return true;
+		}
+		String property = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+		ExecutableElement getter = findMethod(type, "get" + property, 0);
+		if (getter == null && info.kind == Kind.BOOL) {
+			getter = findMethod(type, "is" + property, 0);
+		}
+		ExecutableElement setter = findMethod(type, "set" + property, 1);
+		if (getter == null || setter == null) {
+			return false;
+		}
+		info.getter = "message." + getter.getSimpleName() + "()";
+		info.setter = "message." + setter.getSimpleName() + "(%s);";
+		return true;
+	}
+
+	private ExecutableElement findMethod(TypeElement type, String name, int paramCount) {
+		for (TypeElement t = type; t != null; t = superclass(t)) {
+			for (ExecutableElement method : ElementFilter.methodsIn(t.getEnclosedElements())) {
+				if (method.getSimpleName().contentEquals(name) && method.getParameters().size() == paramCount
+						&& !method.getModifiers().contains(Modifier.STATIC)
+						&& accessible(method.getModifiers(), t, type)) {
+					return method;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * 生成的类和type在同一个包中，判断owner中的成员是否可以访问。
+	 */
+	private boolean accessible(Set<Modifier> modifiers, TypeElement owner, TypeElement type) {
+		if (modifiers.contains(Modifier.PUBLIC)) {
+			return true;
+		}
+		if (modifiers.contains(Modifier.PRIVATE)) {
+			return false;
+		}
+		return packageOf(owner).equals(packageOf(type));
+	}
+
+	private AnnotationMirror findAnnotation(Element element, String annotationType) {
+		for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+			TypeElement annotation = (TypeElement) mirror.getAnnotationType().asElement();
+			if (annotation.getQualifiedName().contentEquals(annotationType)) {
+				return mirror;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * 注解的属性值，包括默认值。
+	 */
+	private Object annotationValue(AnnotationMirror mirror, String name) {
+		Map<? extends ExecutableElement, ? extends AnnotationValue> values =
+				processingEnv.getElementUtils().getElementValuesWithDefaults(mirror);
+		for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : values.entrySet()) {
+			if (entry.getKey().getSimpleName().contentEquals(name)) {
+				return entry.getValue().getValue();
+			}
+		}
+		return null;
+	}
+
+	private boolean hasNoArgConstructor(TypeElement type) {
+		for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+			if (constructor.getParameters().isEmpty() && !constructor.getModifiers().contains(Modifier.PRIVATE)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private TypeElement superclass(TypeElement type) {
+		TypeMirror superclass = type.getSuperclass();
+		if (superclass.getKind() != TypeKind.DECLARED) {
+			return null;
+		}
+		TypeElement element = (TypeElement) ((DeclaredType) superclass).asElement();
+		if (element.getQualifiedName().contentEquals("java.lang.Object")) {
+			return null;
+		}
+		return element;
+	}
+
+	private String packageOf(TypeElement type) {
+		PackageElement pkg = processingEnv.getElementUtils().getPackageOf(type);
+		return pkg.getQualifiedName().toString();
+	}
+
+	private void warn(Element element, String message) {
+		processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, message, element);
+	}
+
+	private void generate(TypeElement type, List<FieldInfo> fields) throws IOException {
+		String packageName = packageOf(type);
+		String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+		String simpleName = (packageName.length() == 0 ? binaryName : binaryName.substring(packageName.length() + 1)) + SUFFIX;
+		String typeName = type.getQualifiedName().toString();
+
+		StringBuilder sb = new StringBuilder(4096);
+		if (packageName.length() > 0) {
+			sb.append("package ").append(packageName).append(";\n\n");
+		}
+		sb.append("/**\n * ").append(typeName).append("的Protostuff Schema，由ProtoSchemaProcessor生成，不要修改。\n */\n");
+		sb.append("public final class ").append(simpleName)
+				.append(" implements com.dyuproject.protostuff.Schema<").append(typeName).append("> {\n\n");
+
+		sb.append("\tpublic String getFieldName(int number) {\n\t\tswitch (number) {\n");
+		for (FieldInfo field : fields) {
+			sb.append("\t\tcase ").append(field.number).append(": return \"").append(field.name).append("\";\n");
+		}
+		sb.append("\t\tdefault: return null;\n\t\t}\n\t}\n\n");
+
+		sb.append("\tpublic int getFieldNumber(String name) {\n\t\tswitch (name) {\n");
+		for (FieldInfo field : fields) {
+			sb.append("\t\tcase \"").append(field.name).append("\": return ").append(field.number).append(";\n");
+		}
+		sb.append("\t\tdefault: return 0;\n\t\t}\n\t}\n\n");
+
+		sb.append("\tpublic boolean isInitialized(").append(typeName).append(" message) {\n\t\treturn true;\n\t}\n\n");
+		sb.append("\tpublic ").append(typeName).append(" newMessage() {\n\t\treturn new ").append(typeName).append("();\n\t}\n\n");
+		sb.append("\tpublic String messageName() {\n\t\treturn \"").append(type.getSimpleName()).append("\";\n\t}\n\n");
+		sb.append("\tpublic String messageFullName() {\n\t\treturn \"").append(binaryName).append("\";\n\t}\n\n");
+		sb.append("\tpublic Class<? super ").append(typeName).append("> typeClass() {\n\t\treturn ")
+				.append(typeName).append(".class;\n\t}\n\n");
+
+		sb.append("\tpublic void mergeFrom(com.dyuproject.protostuff.Input input, ").append(typeName)
+				.append(" message) throws java.io.IOException {\n");
+		sb.append("\t\tfor (int number = input.readFieldNumber(this); number != 0; number = input.readFieldNumber(this)) {\n");
+		sb.append("\t\t\tswitch (number) {\n");
+		for (FieldInfo field : fields) {
+			String read = field.kind == Kind.MESSAGE
+					? "input.mergeObject(" + field.getter + ", " + schemaOf(field) + ")"
+					: field.kind.read;
+			sb.append("\t\t\tcase ").append(field.number).append(":\n\t\t\t\t")
+					.append(String.format(field.setter, read)).append("\n\t\t\t\tbreak;\n");
+		}
+		sb.append("\t\t\tdefault:\n\t\t\t\tinput.handleUnknownField(number, this);\n");
+		sb.append("\t\t\t}\n\t\t}\n\t}\n\n");
+
+		sb.append("\tpublic void writeTo(com.dyuproject.protostuff.Output output, ").append(typeName)
+				.append(" message) throws java.io.IOException {\n");
+		for (FieldInfo field : fields) {
+			if (field.primitive) {
+				sb.append("\t\toutput.").append(field.kind.write).append("(").append(field.number).append(", ")
+						.append(field.getter).append(", false);\n");
+				continue;
+			}
+			String var = "v" + field.number;
+			sb.append("\t\t").append(field.type).append(" ").append(var).append(" = ").append(field.getter).append(";\n");
+			sb.append("\t\tif (").append(var).append(" != null) {\n\t\t\toutput.").append(field.kind.write)
+					.append("(").append(field.number).append(", ").append(writeValue(field, var)).append(", false);\n\t\t}\n");
+		}
+		sb.append("\t}\n}\n");
+
+		JavaFileObject file = processingEnv.getFiler().createSourceFile(
+				packageName.length() == 0 ? simpleName : packageName + "." + simpleName, type);
+		Writer writer = file.openWriter();
+		try {
+			writer.write(sb.toString());
+		} finally {
+			writer.close();
+		}
+	}
+
+	private String writeValue(FieldInfo field, String var) {
+		switch (field.kind) {
+		case BIG_DECIMAL:
+			return var + ".toString()";
+		case BIG_INTEGER:
+			return var + ".toByteArray()";
+		case DATE:
+			return var + ".getTime()";
+		case MESSAGE:
+			return var + ", " + schemaOf(field);
+		default:
+			return var;
+		}
+	}
+
+	private String schemaOf(FieldInfo field) {
+		return "com.vteba.utils.serialize.Protos.getSchema(" + field.type + ".class)";
+	}
+}
@@ -1,5 +1,8 @@
 package com.vteba.utils.serialize;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 import com.vteba.utils.charstr.ByteUtils;
 import com.vteba.utils.charstr.Char;
 import com.vteba.utils.common.ClassUtils;
@@ -12,6 +15,8 @@ import com.vteba.utils.reflection.AsmUtils;
  * @since 2013-12-12 17:32
  */
 public class ProtoUtils {
+    /** 每个类的头部：4个字节的类名长度，加上类名 */
+    private static final ConcurrentMap<Class<?>, byte[]> headerMap = new ConcurrentHashMap<Class<?>, byte[]>();
 	
     /**
      * 将对象序列化成字节数组
@@ -24,15 +29,12 @@ public class ProtoUtils {
         }
         byte[] bytes = Protos.toByteArray(object);
         int byteLength = bytes.length;
-        String className = object.getClass().getName();
-        byte[] nameBytes = className.getBytes(Char.UTF8);
-        int length = nameBytes.length;
-        byte[] lengthBytes = ByteUtils.toBytes(length);
-        byte[] destBytes = new byte[byteLength + length + 4];
+        byte[] header = getHeader(object.getClass());
+        int headerLength = header.length;
+        byte[] destBytes = new byte[byteLength + headerLength];
         
-        System.arraycopy(lengthBytes, 0, destBytes, 0, 4);
-        System.arraycopy(nameBytes, 0, destBytes, 4, length);
-        System.arraycopy(bytes, 0, destBytes, length + 4, byteLength);
+        System.arraycopy(header, 0, destBytes, 0, headerLength);
+        System.arraycopy(bytes, 0, destBytes, headerLength, byteLength);
         
         return destBytes;
     }
@@ -66,4 +68,21 @@ public class ProtoUtils {
         return entity;
     }
 
+    /**
+     * 获取类的头部，首先从缓存中获取。
+     * @param clazz 类
+     * @return 4个字节的类名长度，加上UTF-8编码的类名
+     */
+    private static byte[] getHeader(Class<?> clazz) {
+        byte[] header = headerMap.get(clazz);
+        if (header == null) {
+            byte[] nameBytes = clazz.getName().getBytes(Char.UTF8);
+            int length = nameBytes.length;
+            header = new byte[length + 4];
+            System.arraycopy(ByteUtils.toBytes(length), 0, header, 0, 4);
+            System.arraycopy(nameBytes, 0, header, 4, length);
+            headerMap.put(clazz, header);
+        }
+        return header;
+    }
 }
@@ -5,6 +5,7 @@ import java.io.DataOutput;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -16,18 +17,22 @@ import com.dyuproject.protostuff.LinkedBuffer;
 import com.dyuproject.protostuff.Pipe;
 import com.dyuproject.protostuff.ProtobufException;
 import com.dyuproject.protostuff.ProtostuffIOUtil;
+import com.dyuproject.protostuff.ProtostuffOutput;
 import com.dyuproject.protostuff.Schema;
 import com.dyuproject.protostuff.runtime.RuntimeSchema;
 import com.vteba.utils.common.ClassUtils;
 
 /**
  * 基于Protostuff（基于Google Protobuf）的序列化工具
+ * <p>字节数组和输出流的读写按类型统计调用次数、耗时和字节数，见{@link SerializeMetrics}，默认关闭。
  * 
  * @author yinlei
  * @date 2014-8-24
  */
 public final class Protos {
 	private static final ConcurrentMap<Class<?>, Schema<?>> schemaMap = new ConcurrentHashMap<Class<?>, Schema<?>>();
+	/** 按类型的序列化统计，默认关闭 */
+	private static final SerializeMetrics METRICS = SerializeMetrics.get("Protos");
 
 	private Protos() {
 	}
@@ -92,7 +97,9 @@ public final class Protos {
 	 * @param schema 对象message的schema
 	 */
 	public static <T> void mergeFrom(byte[] data, T message, Schema<T> schema) {
+		long start = METRICS.start();
 		ProtostuffIOUtil.mergeFrom(data, message, schema);
+		METRICS.decoded(message.getClass(), start, data.length);
 	}
 
 	/**
@@ -102,7 +109,7 @@ public final class Protos {
 	 */
 	public static <T> void mergeFrom(byte[] data, T message) {
 		Schema<T> schema = getSchema(message);
-		ProtostuffIOUtil.mergeFrom(data, message, schema);
+		mergeFrom(data, message, schema);
 	}
 	
 	/**
@@ -115,7 +122,9 @@ public final class Protos {
 	 */
 	public static <T> void mergeFrom(byte[] data, int offset, int length,
 			T message, Schema<T> schema) {
+		long start = METRICS.start();
 		ProtostuffIOUtil.mergeFrom(data, offset, length, message, schema);
+		METRICS.decoded(message.getClass(), start, length);
 	}
 
 	/**
@@ -127,7 +136,7 @@ public final class Protos {
 	 */
 	public static <T> void mergeFrom(byte[] data, int offset, int length, T message) {
 		Schema<T> schema = getSchema(message);
-		ProtostuffIOUtil.mergeFrom(data, offset, length, message, schema);
+		mergeFrom(data, offset, length, message, schema);
 	}
 	
 	/**
@@ -244,7 +253,10 @@ public final class Protos {
 	 */
 	public static <T> byte[] toByteArray(T message, Schema<T> schema,
 			LinkedBuffer buffer) {
-		return ProtostuffIOUtil.toByteArray(message, schema, buffer);
+		long start = METRICS.start();
+		byte[] bytes = ProtostuffIOUtil.toByteArray(message, schema, buffer);
+		METRICS.encoded(message.getClass(), start, bytes.length);
+		return bytes;
 	}
 
 	/**
@@ -262,16 +274,25 @@ public final class Protos {
 	}
 
 	/**
-	 * 将对象序列化成字节数组。LinkedBuffer是LinkedBuffer.allocate(2048);
+	 * 将对象序列化成字节数组。使用池中复用的LinkedBuffer，大小是该类消息的典型大小。
 	 * 
 	 * @param message
 	 *            要被序列化的对象
 	 * @return 对象序列化后的字节数组
 	 */
 	public static <T> byte[] toByteArray(T message) {
-		LinkedBuffer buffer = LinkedBuffer.allocate(1024);
+		Class<?> clazz = message.getClass();
 		Schema<T> schema = getSchema(message);
-		return toByteArray(message, schema, buffer);
+		LinkedBuffers.Entry entry = LinkedBuffers.acquire(clazz);
+		LinkedBuffer buffer = entry.buffer;
+		int size = 0;
+		try {
+			byte[] bytes = toByteArray(message, schema, buffer);
+			size = bytes.length;
+			return bytes;
+		} finally {
+			LinkedBuffers.release(entry, clazz, size);
+		}
 	}
 
 	/**
@@ -281,7 +302,10 @@ public final class Protos {
 	 */
 	public static <T> int writeTo(LinkedBuffer buffer, T message,
 			Schema<T> schema) {
-		return ProtostuffIOUtil.writeTo(buffer, message, schema);
+		long start = METRICS.start();
+		int size = ProtostuffIOUtil.writeTo(buffer, message, schema);
+		METRICS.encoded(message.getClass(), start, size);
+		return size;
 	}
 
 	/**
@@ -291,7 +315,7 @@ public final class Protos {
 	 */
 	public static <T> int writeTo(LinkedBuffer buffer, T message) {
 		Schema<T> schema = getSchema(message);
-		return ProtostuffIOUtil.writeTo(buffer, message, schema);
+		return writeTo(buffer, message, schema);
 	}
 	
 	/**
@@ -302,8 +326,10 @@ public final class Protos {
 	public static <T> int writeTo(final OutputStream out, final T message,
 			final Schema<T> schema, final LinkedBuffer buffer)
 			throws IOException {
-
-		return ProtostuffIOUtil.writeTo(out, message, schema, buffer);
+		long start = METRICS.start();
+		int size = ProtostuffIOUtil.writeTo(out, message, schema, buffer);
+		METRICS.encoded(message.getClass(), start, size);
+		return size;
 	}
 
 	/**
@@ -314,7 +340,7 @@ public final class Protos {
 	public static <T> int writeTo(final OutputStream out, final T message, final LinkedBuffer buffer)
 			throws IOException {
 		Schema<T> schema = getSchema(message);
-		return ProtostuffIOUtil.writeTo(out, message, schema, buffer);
+		return writeTo(out, message, schema, buffer);
 	}
 	
 	/**
@@ -324,9 +350,17 @@ public final class Protos {
 	 */
 	public static <T> int writeTo(final OutputStream out, final T message)
 			throws IOException {
+		Class<?> clazz = message.getClass();
 		Schema<T> schema = getSchema(message);
-		LinkedBuffer buffer = LinkedBuffer.allocate(1024);
-		return ProtostuffIOUtil.writeTo(out, message, schema, buffer);
+		LinkedBuffers.Entry entry = LinkedBuffers.acquire(clazz);
+		LinkedBuffer buffer = entry.buffer;
+		int size = 0;
+		try {
+			size = writeTo(out, message, schema, buffer);
+			return size;
+		} finally {
+			LinkedBuffers.release(entry, clazz, size);
+		}
 	}
 	
 	/**
@@ -385,8 +419,80 @@ public final class Protos {
 	 */
 	public static <T> int writeListTo(final OutputStream out, final List<T> messages) throws IOException {
 		Schema<T> schema = getSchema(messages.get(0));
-		LinkedBuffer buffer = LinkedBuffer.allocate(1024);
-		return ProtostuffIOUtil.writeListTo(out, messages, schema, buffer);
+		Class<?> clazz = messages.get(0).getClass();
+		LinkedBuffers.Entry entry = LinkedBuffers.acquire(clazz);
+		LinkedBuffer buffer = entry.buffer;
+		try {
+			return ProtostuffIOUtil.writeListTo(out, messages, schema, buffer);
+		} finally {
+			// 写出的是整个列表的大小，不记录
+			LinkedBuffers.release(entry, clazz, 0);
+		}
+	}
+	
+	/**
+	 * 将消息逐个序列化为带长度前缀的格式（和{@link #writeDelimitedTo(OutputStream, Object, Schema, LinkedBuffer)}相同），
+	 * 写入输出流。整个批次共用从池中借出的一个LinkedBuffer和一个Output，每条消息写完后清空重用。
+	 * 使用{@link #readDelimited(InputStream, Class)}读取，单条也可以用mergeDelimitedFrom读取。
+	 * <p>所有消息必须是同一个类，不会关闭输出流。
+	 * @param out 输出流
+	 * @param messages 要序列化的消息
+	 * @return 写出的字节数
+	 */
+	public static <T> int writeDelimitedBatch(final OutputStream out, final Iterable<T> messages) throws IOException {
+		Iterator<T> iterator = messages.iterator();
+		if (!iterator.hasNext()) {
+			return 0;
+		}
+		T message = iterator.next();
+		Class<?> clazz = message.getClass();
+		Schema<T> schema = getSchema(message);
+		LinkedBuffers.Entry entry = LinkedBuffers.acquire(clazz);
+		LinkedBuffer buffer = entry.buffer;
+		ProtostuffOutput output = new ProtostuffOutput(buffer);
+		byte[] header = new byte[5];
+		int total = 0;
+		int size = 0;
+		try {
+			while (true) {
+				schema.writeTo(output, message);
+				size = output.getSize();
+				int len = writeVarint32(header, size);
+				out.write(header, 0, len);
+				LinkedBuffer.writeTo(out, buffer);
+				total += len + size;
+				output.clear();
+				if (!iterator.hasNext()) {
+					break;
+				}
+				message = iterator.next();
+			}
+			return total;
+		} finally {
+			// 记录最后一条消息的大小
+			LinkedBuffers.release(entry, clazz, size);
+		}
+	}
+	
+	/**
+	 * 逐条读取{@link #writeDelimitedBatch(OutputStream, Iterable)}写出的消息，直到流的末尾。
+	 * 整个批次共用一个CodedInput，内存占用和消息条数无关。不会关闭输入流。
+	 * @param in 输入流
+	 * @param clazz 消息类型
+	 * @return 消息迭代器
+	 */
+	public static <T> Iterator<T> readDelimited(final InputStream in, final Class<T> clazz) {
+		return new ProtoDelimitedIterator<T>(in, getSchema(clazz));
+	}
+	
+	private static int writeVarint32(byte[] bytes, int value) {
+		int i = 0;
+		while ((value & ~0x7F) != 0) {
+			bytes[i++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		bytes[i++] = (byte) value;
+		return i;
 	}
 	
 	/**
@@ -447,22 +553,52 @@ public final class Protos {
 	 */
 	@SuppressWarnings("unchecked")
 	private static <T> Schema<T> getSchema(T object) {
-		Class<?> clazz = object.getClass();
+		return getSchema((Class<T>) object.getClass());
+	}
+	
+	/**
+	 * 获取类的schema，首先从缓存中获取。没有时优先使用编译期生成的schema（见{@link com.vteba.utils.annotation.ProtoSchema}），
+	 * 否则使用RuntimeSchema。
+	 * @param clazz 类
+	 * @return 类的schema
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> Schema<T> getSchema(Class<T> clazz) {
 		Schema<?> schema = schemaMap.get(clazz);
 		if (schema == null) {
-			schema = RuntimeSchema.getSchema(clazz);
+			schema = createSchema(clazz);
 			schemaMap.put(clazz, schema);
 		}
 		return (Schema<T>) schema;
 	}
 	
+	/**
+	 * 创建schema，有编译期生成的类名$$ProtoSchema时使用它，否则使用RuntimeSchema。
+	 * @param clazz 类
+	 * @return 类的schema
+	 */
+	private static Schema<?> createSchema(Class<?> clazz) {
+		ClassLoader loader = clazz.getClassLoader();
+		if (loader != null) {
+			try {
+				Class<?> schemaClass = Class.forName(clazz.getName() + ProtoSchemaProcessor.SUFFIX, true, loader);
+				return (Schema<?>) schemaClass.newInstance();
+			} catch (ClassNotFoundException e) {
+				// 没有生成的schema
+			} catch (Exception e) {
+				throw new IllegalStateException("实例化" + clazz.getName() + ProtoSchemaProcessor.SUFFIX + "出错", e);
+			}
+		}
+		return RuntimeSchema.getSchema(clazz);
+	}
+	
 	/**
 	 * Schema第一次获取时，会有一些时间消耗，为提高性能，可以实现将需要的
 	 * schema全部加载好，放入缓存中。
 	 * @param clazz 设置该类的schema
 	 */
 	public static void setSchema(Class<?> clazz) {
-		Schema<?> schema = RuntimeSchema.getSchema(clazz);
+		Schema<?> schema = createSchema(clazz);
 		schemaMap.put(clazz, schema);
 	}
 	
@@ -473,7 +609,7 @@ public final class Protos {
 	 */
 	public static void setSchema(String className) {
 		Class<?> clazz = ClassUtils.forName(className);
-		Schema<?> schema = RuntimeSchema.getSchema(clazz);
+		Schema<?> schema = createSchema(clazz);
 		schemaMap.put(clazz, schema);
 	}
 }
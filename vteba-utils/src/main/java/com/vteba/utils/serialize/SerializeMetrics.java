@@ -0,0 +1,475 @@
+package com.vteba.utils.serialize;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 序列化工具类（{@link Kryos}、{@link Protos}、{@link MarshaUtils}）按类型的统计：调用次数、编解码耗时和字节数的分布，
+ * 用来找出序列化开销最大的类型，以及按实际的字节数调整buffer大小。
+ * <p>默认关闭，关闭时每次调用只多一次volatile读。用系统属性{@value #ENABLED_PROPERTY}=true打开，
+ * 或者调用{@link #setEnabled(boolean)}、JMX。打开后调用次数每次都记，用按线程分段的计数器，没有竞争；
+ * 耗时和字节数按采样率（系统属性{@value #SAMPLE_RATE_PROPERTY}，默认{@value #DEFAULT_SAMPLE_RATE}）随机采样，
+ * 记录在按2的幂分桶的直方图中，分位数是所在桶的上界。
+ * <p>统计通过{@link #getTypeStats()}轮询，或者JMX的{@link SerializeMetricsMXBean}读取。
+ * <pre>
+ * for (TypeStats stats : SerializeMetrics.get("Kryos").getTypeStats()) {
+ *     System.out.println(stats);
+ * }
+ * </pre>
+ * @author yinlei
+ * @since 2014-10-1
+ */
+public final class SerializeMetrics implements SerializeMetricsMXBean {
+	private static final Logger LOGGER = LoggerFactory.getLogger(SerializeMetrics.class);
+	/** 是否打开统计的系统属性 */
+	public static final String ENABLED_PROPERTY = "vteba.serialize.metrics";
+	/** 采样率的系统属性 */
+	public static final String SAMPLE_RATE_PROPERTY = "vteba.serialize.metrics.sampleRate";
+	public static final int DEFAULT_SAMPLE_RATE = 16;
+	/** 最多统计的类型数，超过后新的类型都记在Object下，避免动态生成的类撑大内存 */
+	public static final int MAX_TYPES = 4096;
+
+	/** 统计关闭时{@link #start()}的返回值 */
+	private static final long DISABLED = Long.MIN_VALUE;
+	/** 本次调用没有被采样时{@link #start()}的返回值 */
+	private static final long NOT_SAMPLED = Long.MIN_VALUE + 1;
+
+	private static final ConcurrentMap<String, SerializeMetrics> instances = new ConcurrentHashMap<String, SerializeMetrics>();
+
+	private final String name;
+	private final ConcurrentMap<Class<?>, TypeMetrics> typeMetrics = new ConcurrentHashMap<Class<?>, TypeMetrics>();
+	private volatile boolean enabled = Boolean.getBoolean(ENABLED_PROPERTY);
+	private volatile int sampleRate = Math.max(1, Integer.getInteger(SAMPLE_RATE_PROPERTY, DEFAULT_SAMPLE_RATE));
+
+	private SerializeMetrics(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * 获取某个序列化工具类的统计，第一次获取时创建并注册到JMX。
+	 * @param name 序列化工具类的名字，如Kryos、Protos、MarshaUtils
+	 * @return 统计
+	 */
+	public static SerializeMetrics get(String name) {
+		SerializeMetrics metrics = instances.get(name);
+		if (metrics == null) {
+			metrics = new SerializeMetrics(name);
+			SerializeMetrics old = instances.putIfAbsent(name, metrics);
+			if (old != null) {
+				return old;
+			}
+			metrics.registerMBean();
+		}
+		return metrics;
+	}
+
+	/**
+	 * @return 所有序列化工具类的统计
+	 */
+	public static Collection<SerializeMetrics> getAll() {
+		return Collections.unmodifiableCollection(instances.values());
+	}
+
+	private void registerMBean() {
+		try {
+			ObjectName objectName = new ObjectName("com.vteba.utils.serialize:type=SerializeMetrics,name=" + name);
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+		} catch (Exception e) {
+			// 已经注册过（如多个类加载器）或者没有权限，只能轮询
+			LOGGER.debug("序列化统计[{}]注册JMX失败：{}", name, e.toString());
+		}
+	}
+
+	/**
+	 * 编码或者解码开始时调用。
+	 * @return 传给{@link #encoded(Class, long, int)}或者{@link #decoded(Class, long, int)}的开始时间
+	 */
+	long start() {
+		if (!enabled) {
+			return DISABLED;
+		}
+		int rate = sampleRate;
+		if (rate > 1 && ThreadLocalRandom.current().nextInt(rate) != 0) {
+			return NOT_SAMPLED;
+		}
+		return System.nanoTime();
+	}
+
+	/**
+	 * 编码完成时调用，出错时不调用。
+	 * @param clazz 对象的类型，null记在Object下
+	 * @param start {@link #start()}的返回值
+	 * @param size 编码后的字节数
+	 */
+	void encoded(Class<?> clazz, long start, int size) {
+		if (start == DISABLED) {
+			return;
+		}
+		TypeMetrics metrics = getTypeMetrics(clazz == null ? Object.class : clazz);
+		metrics.encodeCount.increment();
+		if (start != NOT_SAMPLED) {
+			metrics.encodeNanos.record(System.nanoTime() - start);
+			metrics.encodeSize.record(size);
+		}
+	}
+
+	/**
+	 * 解码完成时调用，出错时不调用。
+	 * @param clazz 对象的类型，null记在Object下
+	 * @param start {@link #start()}的返回值
+	 * @param size 解码的字节数
+	 */
+	void decoded(Class<?> clazz, long start, int size) {
+		if (start == DISABLED) {
+			return;
+		}
+		TypeMetrics metrics = getTypeMetrics(clazz == null ? Object.class : clazz);
+		metrics.decodeCount.increment();
+		if (start != NOT_SAMPLED) {
+			metrics.decodeNanos.record(System.nanoTime() - start);
+			metrics.decodeSize.record(size);
+		}
+	}
+
+	private TypeMetrics getTypeMetrics(Class<?> clazz) {
+		TypeMetrics metrics = typeMetrics.get(clazz);
+		if (metrics == null) {
+			if (typeMetrics.size() >= MAX_TYPES) {
+				clazz = Object.class;
+				metrics = typeMetrics.get(clazz);
+				if (metrics != null) {
+					return metrics;
+				}
+			}
+			metrics = new TypeMetrics();
+			TypeMetrics old = typeMetrics.putIfAbsent(clazz, metrics);
+			if (old != null) {
+				metrics = old;
+			}
+		}
+		return metrics;
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	@Override
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	@Override
+	public int getSampleRate() {
+		return sampleRate;
+	}
+
+	/**
+	 * @param sampleRate 每多少次调用记录一次耗时和字节数，1是每次都记录
+	 */
+	@Override
+	public void setSampleRate(int sampleRate) {
+		if (sampleRate < 1) {
+			throw new IllegalArgumentException("sampleRate must be >= 1: " + sampleRate);
+		}
+		this.sampleRate = sampleRate;
+	}
+
+	/**
+	 * @param clazz 类型
+	 * @return 该类型当前的统计，没有时返回null
+	 */
+	public TypeStats getTypeStats(Class<?> clazz) {
+		TypeMetrics metrics = typeMetrics.get(clazz);
+		return metrics == null ? null : new TypeStats(clazz.getName(), metrics);
+	}
+
+	@Override
+	public List<TypeStats> getTypeStats() {
+		List<TypeStats> list = new ArrayList<TypeStats>(typeMetrics.size());
+		for (Map.Entry<Class<?>, TypeMetrics> entry : typeMetrics.entrySet()) {
+			list.add(new TypeStats(entry.getKey().getName(), entry.getValue()));
+		}
+		Collections.sort(list, new Comparator<TypeStats>() {
+			@Override
+			public int compare(TypeStats s1, TypeStats s2) {
+				long n1 = s1.getEstimatedNanos();
+				long n2 = s2.getEstimatedNanos();
+				return n1 < n2 ? 1 : (n1 == n2 ? 0 : -1);
+			}
+		});
+		return list;
+	}
+
+	@Override
+	public void reset() {
+		typeMetrics.clear();
+	}
+
+	/**
+	 * 一个类型的统计数据。
+	 */
+	private static final class TypeMetrics {
+		final StripedCounter encodeCount = new StripedCounter();
+		final StripedCounter decodeCount = new StripedCounter();
+		final LogHistogram encodeNanos = new LogHistogram();
+		final LogHistogram decodeNanos = new LogHistogram();
+		final LogHistogram encodeSize = new LogHistogram();
+		final LogHistogram decodeSize = new LogHistogram();
+	}
+
+	/**
+	 * 一个类型统计的快照。耗时单位是纳秒，大小单位是字节，分位数是按2的幂分桶的上界。
+	 */
+	public static final class TypeStats {
+		private final String type;
+		private final long encodeCount;
+		private final long decodeCount;
+		private final long[] encodeNanos;
+		private final long[] decodeNanos;
+		private final long[] encodeSize;
+		private final long[] decodeSize;
+		private final long encodeNanosMean;
+		private final long decodeNanosMean;
+		private final long encodeSizeMean;
+		private final long decodeSizeMean;
+		private final long encodeNanosP99;
+		private final long decodeNanosP99;
+		private final long encodeSizeP50;
+		private final long encodeSizeP99;
+		private final long encodeSizeMax;
+
+		TypeStats(String type, TypeMetrics metrics) {
+			this.type = type;
+			this.encodeCount = metrics.encodeCount.sum();
+			this.decodeCount = metrics.decodeCount.sum();
+			this.encodeNanos = metrics.encodeNanos.buckets();
+			this.decodeNanos = metrics.decodeNanos.buckets();
+			this.encodeSize = metrics.encodeSize.buckets();
+			this.decodeSize = metrics.decodeSize.buckets();
+			this.encodeNanosMean = metrics.encodeNanos.mean();
+			this.decodeNanosMean = metrics.decodeNanos.mean();
+			this.encodeSizeMean = metrics.encodeSize.mean();
+			this.decodeSizeMean = metrics.decodeSize.mean();
+			this.encodeNanosP99 = metrics.encodeNanos.percentile(encodeNanos, 0.99);
+			this.decodeNanosP99 = metrics.decodeNanos.percentile(decodeNanos, 0.99);
+			this.encodeSizeP50 = metrics.encodeSize.percentile(encodeSize, 0.5);
+			this.encodeSizeP99 = metrics.encodeSize.percentile(encodeSize, 0.99);
+			this.encodeSizeMax = metrics.encodeSize.max();
+		}
+
+		/**
+		 * @return 类名
+		 */
+		public String getType() {
+			return type;
+		}
+
+		public long getEncodeCount() {
+			return encodeCount;
+		}
+
+		public long getDecodeCount() {
+			return decodeCount;
+		}
+
+		/**
+		 * @return 估算的编码加解码总耗时，调用次数乘以采样的平均耗时，用来排序
+		 */
+		public long getEstimatedNanos() {
+			return encodeCount * encodeNanosMean + decodeCount * decodeNanosMean;
+		}
+
+		public long getEncodeNanosMean() {
+			return encodeNanosMean;
+		}
+
+		public long getEncodeNanosP99() {
+			return encodeNanosP99;
+		}
+
+		public long getDecodeNanosMean() {
+			return decodeNanosMean;
+		}
+
+		public long getDecodeNanosP99() {
+			return decodeNanosP99;
+		}
+
+		public long getEncodeSizeMean() {
+			return encodeSizeMean;
+		}
+
+		public long getEncodeSizeP50() {
+			return encodeSizeP50;
+		}
+
+		public long getEncodeSizeP99() {
+			return encodeSizeP99;
+		}
+
+		public long getEncodeSizeMax() {
+			return encodeSizeMax;
+		}
+
+		public long getDecodeSizeMean() {
+			return decodeSizeMean;
+		}
+
+		/**
+		 * @return 编码耗时的直方图，第i个桶是[2^(i-1), 2^i)的采样次数，第0个桶是0
+		 */
+		public long[] getEncodeNanosHistogram() {
+			return encodeNanos.clone();
+		}
+
+		/**
+		 * @return 解码耗时的直方图，分桶同{@link #getEncodeNanosHistogram()}
+		 */
+		public long[] getDecodeNanosHistogram() {
+			return decodeNanos.clone();
+		}
+
+		/**
+		 * @return 编码字节数的直方图，分桶同{@link #getEncodeNanosHistogram()}
+		 */
+		public long[] getEncodeSizeHistogram() {
+			return encodeSize.clone();
+		}
+
+		/**
+		 * @return 解码字节数的直方图，分桶同{@link #getEncodeNanosHistogram()}
+		 */
+		public long[] getDecodeSizeHistogram() {
+			return decodeSize.clone();
+		}
+
+		@Override
+		public String toString() {
+			return type + "[encode=" + encodeCount + ", decode=" + decodeCount + ", encodeNanosMean=" + encodeNanosMean
+					+ ", encodeNanosP99=" + encodeNanosP99 + ", decodeNanosMean=" + decodeNanosMean + ", decodeNanosP99="
+					+ decodeNanosP99 + ", sizeMean=" + encodeSizeMean + ", sizeP50=" + encodeSizeP50 + ", sizeP99="
+					+ encodeSizeP99 + ", sizeMax=" + encodeSizeMax + "]";
+		}
+	}
+
+	/**
+	 * 按线程分段的计数器，每段占一个缓存行，多线程同时计数时没有竞争。读取时把所有段加起来。
+	 */
+	static final class StripedCounter {
+		/** 每段之间隔开的long数，8个long是64字节 */
+		private static final int PADDING = 8;
+		private static final int STRIPES;
+		static {
+			int stripes = 1;
+			while (stripes < Runtime.getRuntime().availableProcessors() * 2) {
+				stripes <<= 1;
+			}
+			STRIPES = stripes;
+		}
+
+		private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+
+		void increment() {
+			int index = (int) Thread.currentThread().getId() & (STRIPES - 1);
+			cells.getAndIncrement(index * PADDING);
+		}
+
+		long sum() {
+			long sum = 0;
+			for (int i = 0; i < STRIPES; i++) {
+				sum += cells.get(i * PADDING);
+			}
+			return sum;
+		}
+	}
+
+	/**
+	 * 按2的幂分桶的直方图，第i个桶是[2^(i-1), 2^i)，第0个桶是0，负数记为0。只记录采样的值，竞争不大。
+	 */
+	static final class LogHistogram {
+		private static final int BUCKETS = 64;
+
+		private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+		private final AtomicLong sum = new AtomicLong();
+		private final AtomicLong max = new AtomicLong();
+
+		void record(long value) {
+			if (value < 0) {
+				value = 0;
+			}
+			buckets.getAndIncrement(64 - Long.numberOfLeadingZeros(value));
+			sum.addAndGet(value);
+			long current;
+			while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+				// 重试
+			}
+		}
+
+		long[] buckets() {
+			long[] counts = new long[BUCKETS];
+			for (int i = 0; i < BUCKETS; i++) {
+				counts[i] = buckets.get(i);
+			}
+			return counts;
+		}
+
+		long mean() {
+			long count = 0;
+			for (int i = 0; i < BUCKETS; i++) {
+				count += buckets.get(i);
+			}
+			return count == 0 ? 0 : sum.get() / count;
+		}
+
+		long max() {
+			return max.get();
+		}
+
+		/**
+		 * @param counts {@link #buckets()}的快照
+		 * @param percentile 0到1之间
+		 * @return 分位数所在桶的上界，不超过最大值
+		 */
+		long percentile(long[] counts, double percentile) {
+			long total = 0;
+			for (long count : counts) {
+				total += count;
+			}
+			if (total == 0) {
+				return 0;
+			}
+			long rank = (long) Math.ceil(total * percentile);
+			long seen = 0;
+			for (int i = 0; i < counts.length; i++) {
+				seen += counts[i];
+				if (seen >= rank) {
+					long upper = i == 0 ? 0 : (i == 63 ? Long.MAX_VALUE : (1L << i) - 1);
+					return Math.min(upper, max.get());
+				}
+			}
+			return max.get();
+		}
+	}
+}
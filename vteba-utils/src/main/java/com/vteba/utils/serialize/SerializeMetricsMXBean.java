@@ -0,0 +1,37 @@
+package com.vteba.utils.serialize;
+
+import java.util.List;
+
+/**
+ * {@link SerializeMetrics}的JMX管理接口，注册在“com.vteba.utils.serialize:type=SerializeMetrics,name=序列化工具类名”下。
+ * @author yinlei
+ * @since 2014-10-1
+ */
+public interface SerializeMetricsMXBean {
+
+	/**
+	 * @return 序列化工具类的名字，如Kryos
+	 */
+	String getName();
+
+	boolean isEnabled();
+
+	void setEnabled(boolean enabled);
+
+	/**
+	 * @return 采样率，每多少次调用记录一次耗时和字节数
+	 */
+	int getSampleRate();
+
+	void setSampleRate(int sampleRate);
+
+	/**
+	 * @return 每个类型的统计，按估算的总耗时从大到小排列
+	 */
+	List<SerializeMetrics.TypeStats> getTypeStats();
+
+	/**
+	 * 清空所有统计
+	 */
+	void reset();
+}
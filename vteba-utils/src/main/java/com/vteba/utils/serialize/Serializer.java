@@ -0,0 +1,30 @@
+package com.vteba.utils.serialize;
+
+/**
+ * 序列化器。{@link Serializers}中是基于本包各个工具类的实现，通过{@link SerializerRegistry}按类型选择使用哪一个。
+ * <p>实现必须是线程安全的。对象为null时序列化结果为null，字节数组为null时反序列化结果为null。
+ * @author yinlei
+ * @since 2014-9-28
+ */
+public interface Serializer {
+
+	/**
+	 * @return 序列化器的名字，用于配置文件中指定序列化器
+	 */
+	String getName();
+
+	/**
+	 * 将对象序列化成字节数组
+	 * @param object 要被序列化的对象
+	 * @return 序列化后的字节数组
+	 */
+	byte[] toBytes(Object object);
+
+	/**
+	 * 将字节数组反序列化成对象
+	 * @param bytes 字节数组
+	 * @param clazz 对象的类型，数据中自带类型的实现可以忽略
+	 * @return 反序列化后的对象
+	 */
+	<T> T fromBytes(byte[] bytes, Class<T> clazz);
+}
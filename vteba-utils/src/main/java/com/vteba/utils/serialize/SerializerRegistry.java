@@ -0,0 +1,326 @@
+package com.vteba.utils.serialize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.vteba.utils.common.ClassUtils;
+
+/**
+ * 按类型选择{@link Serializer}的注册表，提供统一的序列化入口，切换某个类型的序列化器不需要修改调用代码。
+ * <p>每个类型的序列化器可以通过代码注册、classpath下的配置文件{@value #CONFIG_LOCATION}（类名=序列化器名字）指定，
+ * 或者用{@link #choose(Class, Object, Criterion)}对样本对象实际跑一遍，选出序列化后最小或者最快的。
+ * 没有指定的类型使用默认的序列化器。
+ * <p>数据中不记录用的是哪个序列化器，序列化和反序列化的两端必须使用相同的配置。
+ * <pre>
+ * SerializerRegistry registry = SerializerRegistry.get();
+ * byte[] bytes = registry.toBytes(user);
+ * User user = registry.fromBytes(bytes, User.class);
+ * </pre>
+ * @author yinlei
+ * @since 2014-9-28
+ */
+public class SerializerRegistry {
+	private static final Logger LOGGER = LoggerFactory.getLogger(SerializerRegistry.class);
+	/** 配置文件在classpath下的位置 */
+	public static final String CONFIG_LOCATION = "META-INF/serializer.properties";
+	/** 选择序列化器时，每个序列化器预热的次数 */
+	private static final int WARMUP = 2000;
+	/** 选择序列化器时，每个序列化器计时的次数 */
+	private static final int ITERATIONS = 5000;
+
+	private static SerializerRegistry instance;
+
+	/** 选择序列化器的标准 */
+	public enum Criterion {
+		/** 序列化后最小，一样大时选最快的 */
+		SIZE,
+		/** 序列化加反序列化最快 */
+		SPEED
+	}
+
+	private final ConcurrentMap<String, Serializer> serializers = new ConcurrentHashMap<String, Serializer>();
+	private final ConcurrentMap<Class<?>, Serializer> typeSerializers = new ConcurrentHashMap<Class<?>, Serializer>();
+	private volatile Serializer defaultSerializer;
+
+	/**
+	 * 构造注册表，{@link Serializers}中的序列化器都可用。
+	 * @param defaultSerializer 默认的序列化器
+	 */
+	public SerializerRegistry(Serializer defaultSerializer) {
+		for (Serializers serializer : Serializers.values()) {
+			addSerializer(serializer);
+		}
+		addSerializer(defaultSerializer);
+		this.defaultSerializer = defaultSerializer;
+	}
+
+	/**
+	 * @return 全局的注册表，默认使用Kryo，并加载了classpath下的配置文件
+	 */
+	public static synchronized SerializerRegistry get() {
+		if (instance == null) {
+			SerializerRegistry registry = new SerializerRegistry(Serializers.KRYO);
+			registry.load(CONFIG_LOCATION, ClassUtils.getDefaultClassLoader());
+			instance = registry;
+		}
+		return instance;
+	}
+
+	/**
+	 * 添加一个可用的序列化器，可以在配置文件和{@link #choose(Class, Object, Criterion)}中使用。
+	 * @param serializer 序列化器
+	 */
+	public void addSerializer(Serializer serializer) {
+		serializers.put(serializer.getName(), serializer);
+	}
+
+	/**
+	 * @param name 序列化器的名字
+	 * @return 序列化器，没有时返回null
+	 */
+	public Serializer getSerializer(String name) {
+		return serializers.get(name);
+	}
+
+	/**
+	 * @return 所有可用的序列化器
+	 */
+	public Collection<Serializer> getSerializers() {
+		return Collections.unmodifiableCollection(serializers.values());
+	}
+
+	/**
+	 * 指定某个类型使用的序列化器。
+	 * @param clazz 类型
+	 * @param serializer 序列化器
+	 */
+	public void register(Class<?> clazz, Serializer serializer) {
+		addSerializer(serializer);
+		typeSerializers.put(clazz, serializer);
+	}
+
+	/**
+	 * @param clazz 类型
+	 * @return 该类型使用的序列化器，没有指定时返回默认的序列化器
+	 */
+	public Serializer getSerializer(Class<?> clazz) {
+		Serializer serializer = typeSerializers.get(clazz);
+		return serializer == null ? defaultSerializer : serializer;
+	}
+
+	public Serializer getDefaultSerializer() {
+		return defaultSerializer;
+	}
+
+	public void setDefaultSerializer(Serializer defaultSerializer) {
+		addSerializer(defaultSerializer);
+		this.defaultSerializer = defaultSerializer;
+	}
+
+	/**
+	 * 使用对象类型对应的序列化器，将对象序列化成字节数组
+	 * @param object 要被序列化的对象
+	 * @return 序列化后的字节数组
+	 */
+	public byte[] toBytes(Object object) {
+		if (object == null) {
+			return null;
+		}
+		return getSerializer(object.getClass()).toBytes(object);
+	}
+
+	/**
+	 * 使用类型对应的序列化器，将字节数组反序列化成对象
+	 * @param bytes 字节数组
+	 * @param clazz 对象的类型，必须和序列化时对象的类型相同
+	 * @return 反序列化后的对象
+	 */
+	public <T> T fromBytes(byte[] bytes, Class<T> clazz) {
+		if (bytes == null) {
+			return null;
+		}
+		return getSerializer(clazz).fromBytes(bytes, clazz);
+	}
+
+	/**
+	 * 加载classpath下所有的配置文件，每行是“类名=序列化器名字”。
+	 * @param location 配置文件在classpath下的位置
+	 * @param classLoader 类加载器
+	 * @throws IllegalStateException 配置的类或者序列化器不存在
+	 */
+	public void load(String location, ClassLoader classLoader) {
+		try {
+			Enumeration<URL> urls = classLoader.getResources(location);
+			while (urls.hasMoreElements()) {
+				loadConfig(urls.nextElement(), classLoader);
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException("读取序列化器配置出错：" + location, e);
+		}
+	}
+
+	private void loadConfig(URL url, ClassLoader classLoader) throws IOException {
+		Properties props = new Properties();
+		InputStream in = url.openStream();
+		try {
+			props.load(in);
+		} finally {
+			IOUtils.closeQuietly(in);
+		}
+		for (String className : props.stringPropertyNames()) {
+			String name = props.getProperty(className).trim();
+			Serializer serializer = serializers.get(name);
+			if (serializer == null) {
+				throw new IllegalStateException("序列化器配置中的序列化器不存在：" + name + "，" + url);
+			}
+			try {
+				typeSerializers.put(ClassUtils.forName(className, classLoader), serializer);
+			} catch (ClassNotFoundException e) {
+				throw new IllegalStateException("序列化器配置中的类不存在：" + className + "，" + url, e);
+			}
+		}
+	}
+
+	/**
+	 * 用样本对象测试可用的序列化器，选出最合适的并注册给该类型。不支持该类型的序列化器（出错或者反序列化结果不对）会被跳过。
+	 * <p>{@link Serializers#UNSAFE}不参与选择，见{@link #choose(Class, Object, Criterion, boolean)}。
+	 * <p>每个序列化器要跑几千次，应该在启动或者离线时调用，把结果写到配置文件中。
+	 * @param clazz 类型
+	 * @param sample 有代表性的样本对象
+	 * @param criterion 选择的标准
+	 * @return 选中的序列化器
+	 * @throws IllegalArgumentException 没有序列化器支持该类型
+	 */
+	public <T> Serializer choose(Class<T> clazz, T sample, Criterion criterion) {
+		return choose(clazz, sample, criterion, false);
+	}
+
+	/**
+	 * 用样本对象测试可用的序列化器，选出最合适的并注册给该类型。
+	 * <p>{@link Serializers#UNSAFE}按内存布局和本机字节序写数据，字段变化或者两端平台不同时读出的数据是错的，
+	 * 而且不会报错，所以只有调用方明确允许时才参与选择。
+	 * @param clazz 类型
+	 * @param sample 有代表性的样本对象
+	 * @param criterion 选择的标准
+	 * @param allowUnsafe 是否可以选择{@link Serializers#UNSAFE}
+	 * @return 选中的序列化器
+	 * @throws IllegalArgumentException 没有序列化器支持该类型
+	 */
+	public <T> Serializer choose(Class<T> clazz, T sample, Criterion criterion, boolean allowUnsafe) {
+		Profile best = null;
+		for (Profile profile : profile(clazz, sample)) {
+			if (!allowUnsafe && profile.getSerializer() == Serializers.UNSAFE) {
+				continue;
+			}
+			if (best == null || profile.isBetterThan(best, criterion)) {
+				best = profile;
+			}
+		}
+		if (best == null) {
+			throw new IllegalArgumentException("没有序列化器支持类型：" + clazz.getName());
+		}
+		LOGGER.info("类型[{}]选择序列化器[{}]，{}", clazz.getName(), best.getSerializer().getName(), best);
+		register(clazz, best.getSerializer());
+		return best.getSerializer();
+	}
+
+	/**
+	 * 用样本对象测试所有可用的序列化器，不支持该类型的序列化器会被跳过。
+	 * @param clazz 类型
+	 * @param sample 有代表性的样本对象
+	 * @return 每个支持该类型的序列化器的测试结果
+	 */
+	public <T> List<Profile> profile(Class<T> clazz, T sample) {
+		List<Profile> profiles = new ArrayList<Profile>();
+		for (Serializer serializer : serializers.values()) {
+			try {
+				Profile profile = profile(serializer, clazz, sample);
+				if (profile != null) {
+					profiles.add(profile);
+				}
+			} catch (Exception | LinkageError e) {
+				// LinkageError：序列化器依赖的库在当前环境不可用
+				LOGGER.debug("序列化器[{}]不支持类型[{}]：{}", serializer.getName(), clazz.getName(), e.toString());
+			}
+		}
+		return profiles;
+	}
+
+	private <T> Profile profile(Serializer serializer, Class<T> clazz, T sample) {
+		byte[] bytes = serializer.toBytes(sample);
+		T result = bytes == null ? null : serializer.fromBytes(bytes, clazz);
+		if (result == null || result.getClass() != sample.getClass()
+				|| !Arrays.equals(bytes, serializer.toBytes(result))) {
+			// 再序列化一次结果不同，说明有数据丢失
+			return null;
+		}
+		for (int i = 0; i < WARMUP; i++) {
+			serializer.fromBytes(serializer.toBytes(sample), clazz);
+		}
+		long start = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++) {
+			serializer.fromBytes(serializer.toBytes(sample), clazz);
+		}
+		long nanos = (System.nanoTime() - start) / ITERATIONS;
+		return new Profile(serializer, bytes.length, nanos);
+	}
+
+	/**
+	 * 一个序列化器对某个类型的测试结果。
+	 */
+	public static final class Profile {
+		private final Serializer serializer;
+		private final int size;
+		private final long nanos;
+
+		Profile(Serializer serializer, int size, long nanos) {
+			this.serializer = serializer;
+			this.size = size;
+			this.nanos = nanos;
+		}
+
+		boolean isBetterThan(Profile other, Criterion criterion) {
+			if (criterion == Criterion.SIZE && size != other.size) {
+				return size < other.size;
+			}
+			return nanos < other.nanos;
+		}
+
+		public Serializer getSerializer() {
+			return serializer;
+		}
+
+		/**
+		 * @return 序列化后的字节数
+		 */
+		public int getSize() {
+			return size;
+		}
+
+		/**
+		 * @return 一次序列化加反序列化平均的纳秒数
+		 */
+		public long getNanos() {
+			return nanos;
+		}
+
+		@Override
+		public String toString() {
+			return serializer.getName() + "[size=" + size + ", nanos=" + nanos + "]";
+		}
+	}
+}
@@ -0,0 +1,104 @@
+package com.vteba.utils.serialize;
+
+/**
+ * 基于本包各个序列化工具类的{@link Serializer}实现。各个工具类都是静态方法，在这里适配成统一的接口，数据格式和直接调用工具类完全一样。
+ * @author yinlei
+ * @since 2014-9-28
+ */
+public enum Serializers implements Serializer {
+	/** {@link Kryos#toBytes(Object)}，不写类名，基本对象和清单中的类使用注册的ID */
+	KRYO {
+		@Override
+		public byte[] toBytes(Object object) {
+			return Kryos.toBytes(object);
+		}
+
+		@Override
+		public <T> T fromBytes(byte[] bytes, Class<T> clazz) {
+			return Kryos.fromBytes(bytes, clazz);
+		}
+	},
+	/** {@link Protos#toByteArray(Object)}，不写类名，需要类有可用的Schema */
+	PROTOSTUFF {
+		@Override
+		public byte[] toBytes(Object object) {
+			if (object == null) {
+				return null;
+			}
+			return Protos.toByteArray(object);
+		}
+
+		@Override
+		public <T> T fromBytes(byte[] bytes, Class<T> clazz) {
+			if (bytes == null) {
+				return null;
+			}
+			T message = Protos.getSchema(clazz).newMessage();
+			Protos.mergeFrom(bytes, message);
+			return message;
+		}
+	},
+	/** {@link ProtoUtils#toBytes(Object)}，Protostuff格式加上类名 */
+	PROTOSTUFF_NAMED {
+		@Override
+		public byte[] toBytes(Object object) {
+			return ProtoUtils.toBytes(object);
+		}
+
+		@Override
+		public <T> T fromBytes(byte[] bytes, Class<T> clazz) {
+			return clazz.cast(ProtoUtils.fromBytes(bytes));
+		}
+	},
+	/** {@link MarshaUtils#toBytes(Object)}，JBoss Marshalling，和JDK序列化兼容 */
+	JBOSS {
+		@Override
+		public byte[] toBytes(Object object) {
+			return MarshaUtils.toBytes(object);
+		}
+
+		@Override
+		public <T> T fromBytes(byte[] bytes, Class<T> clazz) {
+			return clazz.cast(MarshaUtils.fromBytes(bytes));
+		}
+	},
+	/** {@link SerializerUtils#serialize(Object)}，JDK序列化 */
+	JDK {
+		@Override
+		public byte[] toBytes(Object object) {
+			if (object == null) {
+				return null;
+			}
+			return SerializerUtils.serialize(object);
+		}
+
+		@Override
+		public <T> T fromBytes(byte[] bytes, Class<T> clazz) {
+			if (bytes == null) {
+				return null;
+			}
+			return clazz.cast(SerializerUtils.deserialize(bytes));
+		}
+	},
+	/** {@link UnsafeSerializer}，按内存布局拷贝，只支持字段全是基本类型和基本类型数组的类，使用本机字节序 */
+	UNSAFE {
+		@Override
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		public byte[] toBytes(Object object) {
+			if (object == null) {
+				return null;
+			}
+			return ((UnsafeSerializer) UnsafeSerializer.get(object.getClass())).toBytes(object);
+		}
+
+		@Override
+		public <T> T fromBytes(byte[] bytes, Class<T> clazz) {
+			return UnsafeSerializer.get(clazz).fromBytes(bytes);
+		}
+	};
+
+	@Override
+	public String getName() {
+		return name();
+	}
+}
@@ -0,0 +1,433 @@
+package com.vteba.utils.serialize;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.vteba.utils.reflection.UnsafeUtils;
+
+/**
+ * 基于{@link UnsafeUtils}字段偏移量的序列化器，只支持字段全是基本类型和基本类型数组的类，如数值型的时间序列DTO。
+ * <p>基本类型字段按预先算好的偏移量直接读写，按大小降序、同样大小按字段名排列；数组按字段名排列在后面，
+ * 每个是4个字节的长度（null为-1）加上数组的内存，用Unsafe.copyMemory整块拷贝，direct buffer和堆上的字节数组都一样，
+ * 速度接近内存拷贝。
+ * <p>数据使用本机的字节序（{@link java.nio.ByteOrder#nativeOrder()}，和ByteBuffer设置的字节序无关），不带类名和版本，
+ * 只能在同一种CPU架构、类定义相同的JVM之间使用，适合进程内缓存、本机的共享内存和同构集群间的传输，不适合持久化。
+ * 反序列化不调用构造函数。
+ * <p>实例是线程安全的，用{@link #get(Class)}获取。
+ * @author yinlei
+ * @since 2014-9-30
+ */
+public final class UnsafeSerializer<T> {
+	private static final ConcurrentMap<Class<?>, UnsafeSerializer<?>> cache = new ConcurrentHashMap<Class<?>, UnsafeSerializer<?>>();
+	private static final long BYTE_ARRAY_OFFSET = UnsafeUtils.arrayBaseOffset(byte[].class);
+
+	private static final byte BOOLEAN = 0;
+	private static final byte BYTE = 1;
+	private static final byte SHORT = 2;
+	private static final byte CHAR = 3;
+	private static final byte INT = 4;
+	private static final byte FLOAT = 5;
+	private static final byte LONG = 6;
+	private static final byte DOUBLE = 7;
+
+	private static final Class<?>[] PRIMITIVES = { boolean.class, byte.class, short.class, char.class, int.class,
+			float.class, long.class, double.class };
+	private static final int[] SIZES = { 1, 1, 2, 2, 4, 4, 8, 8 };
+	private static final Class<?>[] ARRAYS = { boolean[].class, byte[].class, short[].class, char[].class, int[].class,
+			float[].class, long[].class, double[].class };
+	/** 每种数组元素字节数的log2 */
+	private static final int[] SHIFTS = { 0, 0, 1, 1, 2, 2, 3, 3 };
+	private static final long[] ARRAY_OFFSETS = new long[ARRAYS.length];
+	static {
+		for (int i = 0; i < ARRAYS.length; i++) {
+			ARRAY_OFFSETS[i] = UnsafeUtils.arrayBaseOffset(ARRAYS[i]);
+		}
+	}
+
+	private final Class<T> clazz;
+	/** 基本类型字段在对象中的偏移量 */
+	private final long[] fieldOffsets;
+	private final byte[] fieldKinds;
+	/** 基本类型字段部分的字节数 */
+	private final int fixedSize;
+	/** 数组字段在对象中的偏移量 */
+	private final long[] arrayFieldOffsets;
+	private final byte[] arrayKinds;
+
+	private UnsafeSerializer(Class<T> clazz) {
+		this.clazz = clazz;
+		List<Field> fields = new ArrayList<Field>();
+		List<Field> arrays = new ArrayList<Field>();
+		for (Class<?> c = clazz; c != Object.class; c = c.getSuperclass()) {
+			for (Field field : c.getDeclaredFields()) {
+				int modifiers = field.getModifiers();
+				if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers)) {
+					continue;
+				}
+				Class<?> type = field.getType();
+				if (type.isPrimitive()) {
+					fields.add(field);
+				} else if (type.isArray() && type.getComponentType().isPrimitive()) {
+					arrays.add(field);
+				} else {
+					throw new IllegalArgumentException("UnsafeSerializer只支持基本类型和基本类型数组的字段："
+							+ c.getName() + "." + field.getName());
+				}
+			}
+		}
+		// 大的字段在前，data从对齐的地址开始时，每个字段都是对齐的
+		Collections.sort(fields, new Comparator<Field>() {
+			@Override
+			public int compare(Field f1, Field f2) {
+				int size1 = SIZES[kindOf(f1.getType(), PRIMITIVES)];
+				int size2 = SIZES[kindOf(f2.getType(), PRIMITIVES)];
+				return size1 != size2 ? size2 - size1 : compareField(f1, f2);
+			}
+		});
+		Collections.sort(arrays, new Comparator<Field>() {
+			@Override
+			public int compare(Field f1, Field f2) {
+				return compareField(f1, f2);
+			}
+		});
+
+		int size = 0;
+		fieldOffsets = new long[fields.size()];
+		fieldKinds = new byte[fields.size()];
+		for (int i = 0; i < fieldOffsets.length; i++) {
+			Field field = fields.get(i);
+			fieldOffsets[i] = UnsafeUtils.getOffset(field);
+			fieldKinds[i] = kindOf(field.getType(), PRIMITIVES);
+			size += SIZES[fieldKinds[i]];
+		}
+		fixedSize = size;
+		arrayFieldOffsets = new long[arrays.size()];
+		arrayKinds = new byte[arrays.size()];
+		for (int i = 0; i < arrayFieldOffsets.length; i++) {
+			Field field = arrays.get(i);
+			arrayFieldOffsets[i] = UnsafeUtils.getOffset(field);
+			arrayKinds[i] = kindOf(field.getType(), ARRAYS);
+		}
+	}
+
+	/**
+	 * 获取类型的序列化器，字段布局只计算一次。
+	 * @param clazz 类型
+	 * @return 序列化器
+	 * @throws IllegalArgumentException 类型有基本类型和基本类型数组以外的字段，或者不是具体的类，或者是JDK的类
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> UnsafeSerializer<T> get(Class<T> clazz) {
+		UnsafeSerializer<T> serializer = (UnsafeSerializer<T>) cache.get(clazz);
+		if (serializer == null) {
+			if (clazz.isInterface() || clazz.isArray() || clazz.isPrimitive() || Modifier.isAbstract(clazz.getModifiers())) {
+				throw new IllegalArgumentException("UnsafeSerializer只支持具体的类：" + clazz.getName());
+			}
+			if (clazz.getName().startsWith("java.")) {
+				// JDK类的内部字段随版本变化
+				throw new IllegalArgumentException("UnsafeSerializer不支持JDK的类：" + clazz.getName());
+			}
+			serializer = new UnsafeSerializer<T>(clazz);
+			cache.putIfAbsent(clazz, serializer);
+		}
+		return serializer;
+	}
+
+	/**
+	 * 计算对象序列化后的字节数。
+	 * @param object 对象
+	 * @return 字节数
+	 */
+	public int sizeOf(T object) {
+		long size = fixedSize + 4L * arrayFieldOffsets.length;
+		for (int i = 0; i < arrayFieldOffsets.length; i++) {
+			Object array = UnsafeUtils.getObject(object, arrayFieldOffsets[i]);
+			if (array != null) {
+				size += (long) arrayLength(array, arrayKinds[i]) << SHIFTS[arrayKinds[i]];
+			}
+		}
+		if (size > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("对象太大，序列化后超过2G：" + size);
+		}
+		return (int) size;
+	}
+
+	/**
+	 * 将对象序列化到buffer的当前位置，完成后position移到数据的末尾。direct buffer直接写入内存，不经过中间的字节数组。
+	 * @param buffer 目标buffer
+	 * @param object 对象，不能为null
+	 * @return 写入的字节数
+	 * @throws BufferOverflowException buffer的剩余空间不够，此时buffer没有任何改变
+	 * @throws ReadOnlyBufferException buffer是只读的
+	 */
+	public int writeTo(ByteBuffer buffer, T object) {
+		if (buffer.isReadOnly()) {
+			throw new ReadOnlyBufferException();
+		}
+		int size = sizeOf(object);
+		int position = buffer.position();
+		if (buffer.limit() - position < size) {
+			throw new BufferOverflowException();
+		}
+		if (buffer.isDirect()) {
+			write(object, null, UnsafeUtils.getAddress(buffer) + position);
+		} else {
+			write(object, buffer.array(), BYTE_ARRAY_OFFSET + buffer.arrayOffset() + position);
+		}
+		buffer.position(position + size);
+		return size;
+	}
+
+	/**
+	 * 从buffer的当前位置反序列化一个对象，完成后position移到数据的末尾。
+	 * @param buffer 数据
+	 * @return 对象
+	 * @throws BufferUnderflowException 数据不完整，此时buffer没有任何改变
+	 * @throws IllegalArgumentException buffer是只读的堆buffer，无法直接访问
+	 */
+	public T readFrom(ByteBuffer buffer) {
+		int position = buffer.position();
+		int size;
+		T object;
+		if (buffer.isDirect()) {
+			long address = UnsafeUtils.getAddress(buffer) + position;
+			object = UnsafeUtils.allocateInstance(clazz);
+			size = read(object, null, address, buffer.limit() - position);
+		} else if (buffer.hasArray()) {
+			object = UnsafeUtils.allocateInstance(clazz);
+			size = read(object, buffer.array(), BYTE_ARRAY_OFFSET + buffer.arrayOffset() + position, buffer.limit() - position);
+		} else {
+			throw new IllegalArgumentException("不支持只读的堆buffer");
+		}
+		buffer.position(position + size);
+		return object;
+	}
+
+	/**
+	 * 将对象序列化成字节数组
+	 * @param object 对象
+	 * @return 字节数组，对象为null时返回null
+	 */
+	public byte[] toBytes(T object) {
+		if (object == null) {
+			return null;
+		}
+		byte[] bytes = new byte[sizeOf(object)];
+		write(object, bytes, BYTE_ARRAY_OFFSET);
+		return bytes;
+	}
+
+	/**
+	 * 将字节数组反序列化成对象
+	 * @param bytes 字节数组
+	 * @return 对象，字节数组为null时返回null
+	 * @throws BufferUnderflowException 数据不完整
+	 */
+	public T fromBytes(byte[] bytes) {
+		if (bytes == null) {
+			return null;
+		}
+		T object = UnsafeUtils.allocateInstance(clazz);
+		read(object, bytes, BYTE_ARRAY_OFFSET, bytes.length);
+		return object;
+	}
+
+	/**
+	 * 写入base（null时address是绝对地址）的address处，空间已经检查过。
+	 */
+	private void write(T object, Object base, long address) {
+		long[] offsets = fieldOffsets;
+		for (int i = 0; i < offsets.length; i++) {
+			long offset = offsets[i];
+			switch (fieldKinds[i]) {
+			case BOOLEAN:
+				UnsafeUtils.setByte(base, address, (byte) (UnsafeUtils.getBoolean(object, offset) ? 1 : 0));
+				address += 1;
+				break;
+			case BYTE:
+				UnsafeUtils.setByte(base, address, UnsafeUtils.getByte(object, offset));
+				address += 1;
+				break;
+			case SHORT:
+				UnsafeUtils.setShort(base, address, UnsafeUtils.getShort(object, offset));
+				address += 2;
+				break;
+			case CHAR:
+				UnsafeUtils.setChar(base, address, UnsafeUtils.getChar(object, offset));
+				address += 2;
+				break;
+			case INT:
+				UnsafeUtils.setInt(base, address, UnsafeUtils.getInt(object, offset));
+				address += 4;
+				break;
+			case FLOAT:
+				UnsafeUtils.setFloat(base, address, UnsafeUtils.getFloat(object, offset));
+				address += 4;
+				break;
+			case LONG:
+				UnsafeUtils.setLong(base, address, UnsafeUtils.getLong(object, offset));
+				address += 8;
+				break;
+			default:
+				UnsafeUtils.setDouble(base, address, UnsafeUtils.getDouble(object, offset));
+				address += 8;
+				break;
+			}
+		}
+		for (int i = 0; i < arrayFieldOffsets.length; i++) {
+			Object array = UnsafeUtils.getObject(object, arrayFieldOffsets[i]);
+			if (array == null) {
+				UnsafeUtils.setInt(base, address, -1);
+				address += 4;
+				continue;
+			}
+			byte kind = arrayKinds[i];
+			int length = arrayLength(array, kind);
+			UnsafeUtils.setInt(base, address, length);
+			address += 4;
+			long bytes = (long) length << SHIFTS[kind];
+			UnsafeUtils.copyMemory(array, ARRAY_OFFSETS[kind], base, address, bytes);
+			address += bytes;
+		}
+	}
+
+	/**
+	 * 从base（null时address是绝对地址）的address处读取，最多读取available个字节。
+	 * @return 读取的字节数
+	 */
+	private int read(T object, Object base, long address, int available) {
+		if (available < fixedSize + 4L * arrayFieldOffsets.length) {
+			throw new BufferUnderflowException();
+		}
+		long start = address;
+		long[] offsets = fieldOffsets;
+		for (int i = 0; i < offsets.length; i++) {
+			long offset = offsets[i];
+			switch (fieldKinds[i]) {
+			case BOOLEAN:
+				UnsafeUtils.putBoolean(object, offset, UnsafeUtils.getByte(base, address) != 0);
+				address += 1;
+				break;
+			case BYTE:
+				UnsafeUtils.setByte(object, offset, UnsafeUtils.getByte(base, address));
+				address += 1;
+				break;
+			case SHORT:
+				UnsafeUtils.setShort(object, offset, UnsafeUtils.getShort(base, address));
+				address += 2;
+				break;
+			case CHAR:
+				UnsafeUtils.setChar(object, offset, UnsafeUtils.getChar(base, address));
+				address += 2;
+				break;
+			case INT:
+				UnsafeUtils.setInt(object, offset, UnsafeUtils.getInt(base, address));
+				address += 4;
+				break;
+			case FLOAT:
+				UnsafeUtils.setFloat(object, offset, UnsafeUtils.getFloat(base, address));
+				address += 4;
+				break;
+			case LONG:
+				UnsafeUtils.setLong(object, offset, UnsafeUtils.getLong(base, address));
+				address += 8;
+				break;
+			default:
+				UnsafeUtils.setDouble(object, offset, UnsafeUtils.getDouble(base, address));
+				address += 8;
+				break;
+			}
+		}
+		long end = start + available;
+		for (int i = 0; i < arrayFieldOffsets.length; i++) {
+			if (end - address < 4) {
+				throw new BufferUnderflowException();
+			}
+			int length = UnsafeUtils.getInt(base, address);
+			address += 4;
+			if (length == -1) {
+				continue;
+			}
+			if (length < -1) {
+				throw new IllegalArgumentException("数组长度不正确：" + length);
+			}
+			byte kind = arrayKinds[i];
+			long bytes = (long) length << SHIFTS[kind];
+			if (end - address < bytes) {
+				throw new BufferUnderflowException();
+			}
+			Object array = newArray(kind, length);
+			UnsafeUtils.copyMemory(base, address, array, ARRAY_OFFSETS[kind], bytes);
+			UnsafeUtils.setObject(object, arrayFieldOffsets[i], array);
+			address += bytes;
+		}
+		return (int) (address - start);
+	}
+
+	private static int arrayLength(Object array, byte kind) {
+		switch (kind) {
+		case BOOLEAN:
+			return ((boolean[]) array).length;
+		case BYTE:
+			return ((byte[]) array).length;
+		case SHORT:
+			return ((short[]) array).length;
+		case CHAR:
+			return ((char[]) array).length;
+		case INT:
+			return ((int[]) array).length;
+		case FLOAT:
+			return ((float[]) array).length;
+		case LONG:
+			return ((long[]) array).length;
+		default:
+			return ((double[]) array).length;
+		}
+	}
+
+	private static Object newArray(byte kind, int length) {
+		switch (kind) {
+		case BOOLEAN:
+			return new boolean[length];
+		case BYTE:
+			return new byte[length];
+		case SHORT:
+			return new short[length];
+		case CHAR:
+			return new char[length];
+		case INT:
+			return new int[length];
+		case FLOAT:
+			return new float[length];
+		case LONG:
+			return new long[length];
+		default:
+			return new double[length];
+		}
+	}
+
+	private static byte kindOf(Class<?> type, Class<?>[] types) {
+		for (byte i = 0; i < types.length; i++) {
+			if (types[i] == type) {
+				return i;
+			}
+		}
+		throw new IllegalArgumentException(type.getName());
+	}
+
+	private static int compareField(Field f1, Field f2) {
+		int result = f1.getName().compareTo(f2.getName());
+		// 父类和子类有同名的字段时，按声明的类排
+		return result != 0 ? result : f1.getDeclaringClass().getName().compareTo(f2.getDeclaringClass().getName());
+	}
+}
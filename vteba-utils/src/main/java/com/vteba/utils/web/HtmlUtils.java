@@ -1,6 +1,7 @@
 package com.vteba.utils.web;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintWriter;
 
 import javax.servlet.http.HttpServletResponse;
@@ -30,15 +31,23 @@ public class HtmlUtils {
 	}
 	
 	/**
-	 * 输出JSON格式的数据。
+	 * 输出JSON格式的数据。使用fastjson序列化，UTF-8编码后直接写到响应的OutputStream，不生成中间的json字符串。
 	 * @param response HttpServletResponse
-	 * @param object 响应的数据，底层使用fastjson将其序列化成json字符串
+	 * @param object 响应的数据
 	 * @author yinlei
 	 * date 2013-8-23 下午7:18:12
 	 */
 	public static void writerJson(HttpServletResponse response, Object object){
 		response.setContentType("application/json");
-		writer(response, FastJsonUtils.toJson(object));
+		setHeader(response);
+		try {
+			OutputStream out = response.getOutputStream();
+			FastJsonUtils.toJson(out, object);
+			out.flush();
+			out.close();
+		} catch (IOException e) {
+			logger.error("响应json数据错误[{}]", object);
+		}
 	}
 	
 	/**
@@ -61,10 +70,7 @@ public class HtmlUtils {
 	 */
 	private static void writer(HttpServletResponse response, String str){
 		try {
-			//设置页面不缓存
-			response.setHeader("Pragma", "No-cache");
-			response.setHeader("Cache-Control", "no-cache");
-			response.setCharacterEncoding("UTF-8");
+			setHeader(response);
 			PrintWriter out= null;
 			out = response.getWriter();
 			out.print(str);
@@ -73,5 +79,15 @@ public class HtmlUtils {
 		} catch (IOException e) {
 			logger.error("响应html代码错误[{}]", str);
 		}
-	} 
+	}
+	
+	/**
+	 * 设置页面不缓存，UTF-8编码。
+	 * @param response HttpServletResponse
+	 */
+	private static void setHeader(HttpServletResponse response) {
+		response.setHeader("Pragma", "No-cache");
+		response.setHeader("Cache-Control", "no-cache");
+		response.setCharacterEncoding("UTF-8");
+	}
 }
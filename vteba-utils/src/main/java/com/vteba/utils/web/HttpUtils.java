@@ -4,6 +4,7 @@ import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -17,6 +18,8 @@ import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.utils.URIBuilder;
 import org.apache.http.client.utils.URLEncodedUtils;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.util.EntityUtils;
@@ -25,11 +28,15 @@ import org.slf4j.LoggerFactory;
 
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONObject;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.type.CollectionType;
 import com.vteba.utils.charstr.Char;
 import com.vteba.utils.common.PropUtils;
 import com.vteba.utils.json.FastJsonUtils;
 import com.vteba.utils.json.JacksonUtils;
+import com.vteba.utils.json.JsonRpc;
+import com.vteba.utils.json.JsonRpcBatch;
+import com.vteba.utils.json.LazyJson;
 
 /**
  * HttpClient工具类。提供提交JavaBean返回JavaBean数据，中间是Json格式 <br>
@@ -41,12 +48,15 @@ public class HttpUtils {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(HttpUtils.class);
     private static HttpHost httpHost = null;
+    /** 使用Jackson的调用是否请求二进制JSON格式的响应，配置项json.binary */
+    private static boolean binaryJson = false;
     static {
         String hostName = PropUtils.get("host");
         int port = PropUtils.getInt("port");
         String schema = PropUtils.get("scheme");
         // 创建目标主机
         httpHost = new HttpHost(hostName, port, schema);
+        binaryJson = PropUtils.getBoolean("json.binary", false);
     }
     
     
@@ -78,6 +88,24 @@ public class HttpUtils {
         return jsonObject;
     }
     
+    /**
+     * 调用搜牛接口，返回按需解析的JSON视图。只读取响应中少数几个节点时使用，不会解析整个响应，
+     * 如：invokeLazy(params, urlPath).getLong("data.items[0].price")。
+     * @param params 参数值
+     * @param urlPath 接口url
+     * @return LazyJson，请求失败时返回null
+     */
+    public static LazyJson invokeLazy(final Map<String, String> params, final String urlPath) {
+        // 创建http post请求
+        HttpPost httpPost = buildHttpPost(params, urlPath);
+        // 发起调用，只保留字节数组
+        byte[] bytes = resolve(httpPost, 1);
+        if (bytes == null) {
+            return null;
+        }
+        return new LazyJson(bytes);
+    }
+    
     /**
      * 调用搜牛接口，返回List，参数是键值对的形式。
      * @param params 参数Map
@@ -123,6 +151,35 @@ public class HttpUtils {
         return result;
     }
 
+    /**
+     * JsonRpc 2.0批量调用，多个调用一次http请求发送，服务端见JsonRpcProcessor。没有id的调用是通知，没有响应。
+     * 配置了json.binary时请求二进制JSON格式的响应。
+     * @param calls 调用
+     * @param urlPath 接口url
+     * @return 响应，result是JsonNode，顺序不一定和调用的顺序相同，用id对应。请求失败时返回null
+     * @throws IllegalArgumentException 调用的参数不能序列化成JSON
+     */
+    public static List<JsonRpc<Object, JsonNode>> invokeBatch(final List<? extends JsonRpc<?, ?>> calls, final String urlPath) {
+        byte[] request = JsonRpcBatch.encode(JacksonUtils.get(), calls);
+        if (request == null) {
+            List<String> methods = new ArrayList<String>(calls.size());
+            for (JsonRpc<?, ?> call : calls) {
+                methods.add(call.getMethod());
+            }
+            throw new IllegalArgumentException("JsonRpc批量请求编码失败，参数不能序列化成JSON，url：" + urlPath + "，方法：" + methods);
+        }
+        HttpPost httpPost = new HttpPost(urlPath);
+        httpPost.setEntity(new ByteArrayEntity(request, ContentType.APPLICATION_JSON));
+        RequestConfig config = RequestConfig.custom().setSocketTimeout(6000).setConnectTimeout(6000).build();
+        httpPost.setConfig(config);
+        acceptBinary(httpPost);
+        byte[] bytes = resolve(httpPost, 1);
+        if (bytes == null) {
+            return null;
+        }
+        return JsonRpcBatch.decodeResponses(jacksonUtils(bytes), bytes);
+    }
+    
     /**
      * 发起http请求，返回处理结果。
      * @param httpPost HttpPost
@@ -130,8 +187,11 @@ public class HttpUtils {
      * @return 结果List
      */
     private static <T> List<T> resolveForList(final HttpPost httpPost, final Class<T> resultClass) {
-        CollectionType collectionType = JacksonUtils.get().constructCollectionType(List.class, resultClass);
-        List<T> list = JacksonUtils.get().fromJson(resolve(httpPost, 1), collectionType);
+        acceptBinary(httpPost);
+        byte[] bytes = resolve(httpPost, 1);
+        JacksonUtils jacksonUtils = jacksonUtils(bytes);
+        CollectionType collectionType = jacksonUtils.constructCollectionType(List.class, resultClass);
+        List<T> list = jacksonUtils.fromJson(bytes, collectionType);
         return list;
     }
     
@@ -142,10 +202,31 @@ public class HttpUtils {
      * @return 结果List
      */
     private static <T> T resolveForBean(final HttpPost httpPost, final Class<T> resultClass) {
-        T entity = JacksonUtils.get().fromJson(resolve(httpPost, 1), resultClass);
+        acceptBinary(httpPost);
+        byte[] bytes = resolve(httpPost, 1);
+        T entity = jacksonUtils(bytes).fromJson(bytes, resultClass);
         return entity;
     }
     
+    /**
+     * 配置了json.binary时，请求二进制JSON格式的响应，服务端不支持时仍然返回文本JSON。
+     * @param httpPost HttpPost
+     */
+    private static void acceptBinary(final HttpPost httpPost) {
+        if (binaryJson) {
+            httpPost.setHeader("Accept", JacksonUtils.BINARY_CONTENT_TYPE + ", application/json;q=0.9");
+        }
+    }
+    
+    /**
+     * 按响应数据的格式头选择二进制或者文本JSON。
+     * @param bytes 响应数据
+     * @return JacksonUtils
+     */
+    private static JacksonUtils jacksonUtils(final byte[] bytes) {
+        return JacksonUtils.isBinary(bytes) ? JacksonUtils.getBinary() : JacksonUtils.get();
+    }
+    
     /**
      * 发起http请求，返回字节数组
      * @param httpPost HttpPost
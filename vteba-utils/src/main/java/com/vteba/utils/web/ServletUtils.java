@@ -21,6 +21,7 @@ import org.slf4j.LoggerFactory;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.vteba.utils.consts.Consts;
 import com.vteba.utils.cryption.CryptUtils;
+import com.vteba.utils.json.JacksonUtils;
 import com.vteba.utils.reflection.ReflectUtils;
 
 /**
@@ -352,16 +353,34 @@ public class ServletUtils {
 
 	/**
 	 * 直接输出JSON,使用Jackson转换Java对象.
+	 * UTF-8编码时直接写到OutputStream,不经过Writer再编码一次.
+	 * 请求的Accept中有二进制JSON时({@link JacksonUtils#BINARY_CONTENT_TYPE}),用{@link JacksonUtils#getBinary()}的配置输出Smile.
 	 * 
 	 * @param data
 	 *            可以是List<POJO>, POJO[], POJO, 也可以Map名值对.
 	 * @see #render(String, String, String...)
 	 */
 	public static void renderJson(final Object data, final String... headers) {
+		HttpServletRequest request = RequestContextHolder.getRequest();
+		String accept = request == null ? null : request.getHeader("Accept");
+		if (accept != null && accept.contains(JacksonUtils.BINARY_CONTENT_TYPE)) {
+			HttpServletResponse response = initResponseHeader(
+					JacksonUtils.BINARY_CONTENT_TYPE, headers);
+			try {
+				JacksonUtils.getBinary().getMapper().writeValue(response.getOutputStream(), data);
+			} catch (IOException e) {
+				throw new IllegalArgumentException(e);
+			}
+			return;
+		}
 		HttpServletResponse response = initResponseHeader(
 				ServletUtils.JSON_TYPE, headers);
 		try {
-			mapper.writeValue(response.getWriter(), data);
+			if (DEFAULT_ENCODING.equalsIgnoreCase(response.getCharacterEncoding())) {
+				mapper.writeValue(response.getOutputStream(), data);
+			} else {
+				mapper.writeValue(response.getWriter(), data);
+			}
 		} catch (IOException e) {
 			throw new IllegalArgumentException(e);
 		}
@@ -0,0 +1,86 @@
+package com.vteba.test;
+
+import java.io.ByteArrayInputStream;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.vteba.test.TestJacksonAccess.Item;
+import com.vteba.test.TestJacksonAccess.Response;
+import com.vteba.utils.json.JacksonUtils;
+
+/**
+ * Smile二进制JSON和文本JSON比较：1000个元素的响应的大小（以及不共享字符串值时的大小），序列化和反序列化的耗时，以及往返后结果是否一致。
+ */
+public class TestBinaryJson {
+	private static final int LOOP = 2000;
+
+	public static void main(String[] args) throws Exception {
+		List<Item> items = new ArrayList<Item>();
+		for (int i = 0; i < 1000; i++) {
+			Item item = new Item();
+			item.setId(100000L + i);
+			item.setName("商品" + i);
+			item.setSku("SKU-" + (i % 50));
+			item.setPrice(1999 + i);
+			item.setStock(i % 30);
+			item.setOnSale(i % 2 == 0);
+			item.setCategoryId(30L + i % 10);
+			item.setBrand("brand" + i % 5);
+			item.setUpdateTime(new Date(1412500000000L + i * 60000L));
+			items.add(item);
+		}
+		Response response = new Response();
+		response.setCode(0);
+		response.setMessage("ok");
+		response.setTotal(items.size());
+		response.setItems(items);
+
+		JacksonUtils text = JacksonUtils.get();
+		JacksonUtils binary = JacksonUtils.getBinary();
+		byte[] textBytes = text.toJsonBytes(response);
+		byte[] binaryBytes = binary.toJsonBytes(response);
+		Response back = binary.fromJson(binaryBytes, Response.class);
+		System.out.println("结果一致：" + text.toJson(response).equals(text.toJson(back)));
+		Response streamed = binary.fromJson(new ByteArrayInputStream(binaryBytes), Response.class);
+		System.out.println("流式读取一致：" + text.toJson(response).equals(text.toJson(streamed)) + "，Smile头："
+				+ JacksonUtils.isBinary(binaryBytes) + "/" + JacksonUtils.isBinary(textBytes) + "，文本方法：" + binary.toJson(response).equals(text.toJson(response)));
+		// 对比Smile的默认配置：不共享字符串值
+		ObjectMapper plain = new ObjectMapper(new SmileFactory());
+		plain.setSerializationInclusion(Include.NON_NULL);
+		plain.setDateFormat(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss"));
+		byte[] plainBytes = plain.writeValueAsBytes(response);
+		System.out.println("文本：" + textBytes.length + " 字节，二进制：" + binaryBytes.length + " 字节，"
+				+ binaryBytes.length * 100 / textBytes.length + "%，不共享字符串值：" + plainBytes.length + " 字节，"
+				+ plainBytes.length * 100 / textBytes.length + "%");
+
+		for (int r = 0; r < 3; r++) {
+			long d = System.nanoTime();
+			for (int i = 0; i < LOOP; i++) {
+				text.toJsonBytes(response);
+			}
+			long textWrite = (System.nanoTime() - d) / LOOP;
+			d = System.nanoTime();
+			for (int i = 0; i < LOOP; i++) {
+				binary.toJsonBytes(response);
+			}
+			long binaryWrite = (System.nanoTime() - d) / LOOP;
+			d = System.nanoTime();
+			for (int i = 0; i < LOOP; i++) {
+				text.fromJson(textBytes, Response.class);
+			}
+			long textRead = (System.nanoTime() - d) / LOOP;
+			d = System.nanoTime();
+			for (int i = 0; i < LOOP; i++) {
+				binary.fromJson(binaryBytes, Response.class);
+			}
+			long binaryRead = (System.nanoTime() - d) / LOOP;
+			System.out.println("序列化 文本：" + textWrite / 1000 + " us，二进制：" + binaryWrite / 1000 + " us；反序列化 文本："
+					+ textRead / 1000 + " us，二进制：" + binaryRead / 1000 + " us");
+		}
+	}
+}
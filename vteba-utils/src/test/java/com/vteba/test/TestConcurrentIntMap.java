@@ -0,0 +1,154 @@
+package com.vteba.test;
+
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.vteba.lang.collection.ConcurrentIntMap;
+
+/**
+ * ConcurrentIntMap：多线程同时写入（不断扩容）、删除和读取时的正确性，以及1到64个线程90%读、10%写时和
+ * ConcurrentHashMap&lt;Integer, V&gt;的吞吐量比较。
+ */
+public class TestConcurrentIntMap {
+	private static final int KEYS = 100000;
+	private static final int OPS = 1000000;
+
+	public static void main(String[] args) throws Exception {
+		correctness(8);
+		int[] keys = new int[KEYS];
+		Integer[] values = new Integer[KEYS];
+		Random random = new Random(11);
+		for (int i = 0; i < KEYS; i++) {
+			keys[i] = random.nextInt();
+			values[i] = keys[i];
+		}
+		for (int r = 0; r < 2; r++) {
+			for (int threads = 1; threads <= 64; threads <<= 1) {
+				long intMap = benchmark(new IntMapTarget(), keys, values, threads);
+				long hashMap = benchmark(new HashMapTarget(), keys, values, threads);
+				System.out.println(threads + "个线程 ConcurrentIntMap：" + intMap + " 万次/秒，ConcurrentHashMap：" + hashMap + " 万次/秒");
+			}
+		}
+	}
+
+	/**
+	 * 每个线程写入、删除自己范围的键，同时读其他线程的键，值总是等于键。
+	 */
+	private static void correctness(final int threads) throws Exception {
+		final ConcurrentIntMap<Integer> map = new ConcurrentIntMap<Integer>(16, 4);
+		final AtomicInteger wrong = new AtomicInteger();
+		final CountDownLatch done = new CountDownLatch(threads);
+		for (int t = 0; t < threads; t++) {
+			final int base = t * KEYS;
+			new Thread() {
+				@Override
+				public void run() {
+					Random random = new Random(base);
+					for (int i = 0; i < KEYS; i++) {
+						map.put(base + i, base + i);
+						if (i % 3 == 0) {
+							map.remove(base + i);
+						}
+						int key = random.nextInt(threads * KEYS);
+						Integer value = map.get(key);
+						if (value != null && value != key && value != -1) {
+							wrong.incrementAndGet();
+						}
+						if (map.putIfAbsent(base + i, -1) != null && i % 3 == 0) {
+							wrong.incrementAndGet();
+						}
+					}
+					done.countDown();
+				}
+			}.start();
+		}
+		done.await();
+		int missing = 0;
+		for (int t = 0; t < threads; t++) {
+			for (int i = 0; i < KEYS; i++) {
+				int key = t * KEYS + i;
+				Integer expected = i % 3 == 0 ? -1 : key;
+				if (!expected.equals(map.get(key))) {
+					missing++;
+				}
+			}
+		}
+		map.put(0, 0);
+		boolean zero = map.containsKey(0) && map.remove(0, 0) && !map.containsKey(0);
+		System.out.println("读到错误的值：" + wrong + "，结果不一致：" + missing + "，大小：" + map.size() + "/" + threads * KEYS
+				+ "，键为0：" + zero + "，keys：" + map.keys().size);
+	}
+
+	private static long benchmark(final Target target, final int[] keys, final Integer[] values, int threads)
+			throws Exception {
+		for (int i = 0; i < KEYS; i += 2) {
+			target.put(keys[i], values[i]);
+		}
+		final AtomicLong sink = new AtomicLong();
+		final CountDownLatch start = new CountDownLatch(1);
+		final CountDownLatch done = new CountDownLatch(threads);
+		for (int t = 0; t < threads; t++) {
+			final int seed = t;
+			new Thread() {
+				@Override
+				public void run() {
+					Random random = new Random(seed);
+					long found = 0;
+					try {
+						start.await();
+					} catch (InterruptedException e) {
+						return;
+					}
+					for (int i = 0; i < OPS; i++) {
+						int index = random.nextInt(KEYS);
+						if (i % 10 == 0) {
+							target.put(keys[index], values[index]);
+						} else if (target.get(keys[index]) != null) {
+							found++;
+						}
+					}
+					sink.addAndGet(found);
+					done.countDown();
+				}
+			}.start();
+		}
+		long d = System.nanoTime();
+		start.countDown();
+		done.await();
+		long nanos = System.nanoTime() - d;
+		return (long) OPS * threads * 100000L / nanos;
+	}
+
+	private interface Target {
+		Object get(int key);
+
+		void put(int key, Integer value);
+	}
+
+	private static class IntMapTarget implements Target {
+		private final ConcurrentIntMap<Integer> map = new ConcurrentIntMap<Integer>();
+
+		public Object get(int key) {
+			return map.get(key);
+		}
+
+		public void put(int key, Integer value) {
+			map.put(key, value);
+		}
+	}
+
+	private static class HashMapTarget implements Target {
+		private final ConcurrentHashMap<Integer, Integer> map = new ConcurrentHashMap<Integer, Integer>();
+
+		public Object get(int key) {
+			return map.get(key);
+		}
+
+		public void put(int key, Integer value) {
+			map.put(key, value);
+		}
+	}
+}
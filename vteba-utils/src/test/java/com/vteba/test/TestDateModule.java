@@ -0,0 +1,184 @@
+package com.vteba.test;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.vteba.utils.date.DateCodec;
+import com.vteba.utils.date.DateUtils;
+import com.vteba.utils.json.DateModule;
+
+/**
+ * DateCodec和SimpleDateFormat比较：DateUtils中的格式、多个时区、随机时间的格式化和解析结果，
+ * 以及DateModule和Jackson默认的日期处理的输出、解析结果和耗时。
+ */
+public class TestDateModule {
+	private static final int LOOP = 200000;
+	private static final String[] PATTERNS = { DateUtils.YMDHMS, DateUtils.YMDHM, DateUtils.YMDH, DateUtils.YMD, DateUtils.YM,
+			DateUtils.HMS, DateUtils.HM, DateUtils.SYMDHMS, DateUtils.SYMDHM, DateUtils.SYMDH, DateUtils.SYMD, DateUtils.SYM,
+			"yyyy-MM-dd HH:mm:ss.SSS", "yyyy/MM/dd" };
+	private static final String[] ZONES = { "Asia/Shanghai", "America/New_York", "Europe/London", "Australia/Lord_Howe", "UTC" };
+
+	public static void main(String[] args) throws Exception {
+		Random random = new Random(7);
+		for (String zoneId : ZONES) {
+			TimeZone zone = TimeZone.getTimeZone(zoneId);
+			for (String pattern : PATTERNS) {
+				DateCodec codec = new DateCodec(pattern, zone);
+				SimpleDateFormat format = new SimpleDateFormat(pattern);
+				format.setTimeZone(zone);
+				int formatted = 0;
+				int parsed = 0;
+				int fallback = 0;
+				for (int i = 0; i < 20000; i++) {
+					// 大部分在1900到2100年之间，少数覆盖整个long的范围
+					Date date = new Date(i % 10 == 0 ? random.nextLong() >> random.nextInt(24) : -2208988800000L
+							+ (long) (random.nextDouble() * 6311433600000L));
+					String text = codec.format(date);
+					String expected = format.format(date);
+					if (text == null) {
+						fallback++;
+					} else if (text.equals(expected)) {
+						formatted++;
+					} else {
+						System.out.println("格式化不一致：" + zoneId + " " + pattern + " " + date.getTime() + " " + text + " " + expected);
+					}
+					Date actual = codec.parse(expected);
+					if (actual == null) {
+						fallback++;
+					} else if (actual.equals(format.parse(expected))) {
+						parsed++;
+					} else {
+						System.out.println("解析不一致：" + zoneId + " " + pattern + " " + expected + " " + actual.getTime() + " "
+								+ format.parse(expected).getTime());
+					}
+				}
+				System.out.println(zoneId + " " + pattern + " 格式化一致：" + formatted + "，解析一致：" + parsed + "，交给SimpleDateFormat："
+						+ fallback);
+			}
+		}
+		DateCodec codec = new DateCodec(DateUtils.YMDHMS, TimeZone.getTimeZone("Asia/Shanghai"));
+		for (String text : new String[] { "2014-02-29 00:00:00", "2014-13-01 00:00:00", "2014-10-09 24:00:00",
+				"2014-10-9 12:00:00", "2014-10-09T12:00:00", "1582-10-10 00:00:00", "2014-10-09 12:00:00 " }) {
+			System.out.println("不严格的字符串 " + text + "：" + codec.parse(text));
+		}
+		System.out.println("不支持的格式：" + DateCodec.isSupported("yyyy-MM-dd'T'HH:mm:ss") + " " + DateCodec.isSupported("yy-M-d"));
+
+		ObjectMapper standard = mapper(false);
+		ObjectMapper module = mapper(true);
+		List<Row> rows = new ArrayList<Row>();
+		for (int i = 0; i < 100; i++) {
+			Row row = new Row();
+			row.setId(i);
+			row.setCreateTime(new Date(1412784000000L + random.nextInt() * 1000L));
+			row.setUpdateTime(i % 10 == 0 ? new Date(-62135596800000L) : new Date(1412784000000L + random.nextInt() * 1000L));
+			row.setDay(new Date(1412784000000L + random.nextInt() * 1000L));
+			rows.add(row);
+		}
+		Report report = new Report();
+		report.setRows(rows);
+		String expected = standard.writeValueAsString(report);
+		String actual = module.writeValueAsString(report);
+		System.out.println("Jackson输出一致：" + expected.equals(actual));
+		System.out.println("Jackson解析一致：" + standard.writeValueAsString(module.readValue(expected, Report.class)).equals(expected));
+		System.out.println(module.writeValueAsString(rows.get(0)));
+		Row numeric = module.readValue("{\"createTime\":1412784000000,\"updateTime\":\"2014-10-09 0:0:0\"}", Row.class);
+		System.out.println("数字和不严格的字符串：" + standard.writeValueAsString(numeric));
+		ObjectMapper timestamps = mapper(true);
+		timestamps.enable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+		System.out.println("时间戳：" + timestamps.writeValueAsString(rows.get(0)));
+
+		for (int r = 0; r < 5; r++) {
+			long d = System.nanoTime();
+			for (int i = 0; i < LOOP / 100; i++) {
+				standard.writeValueAsBytes(report);
+			}
+			long standardWrite = (System.nanoTime() - d) / LOOP;
+			d = System.nanoTime();
+			for (int i = 0; i < LOOP / 100; i++) {
+				module.writeValueAsBytes(report);
+			}
+			long moduleWrite = (System.nanoTime() - d) / LOOP;
+			d = System.nanoTime();
+			for (int i = 0; i < LOOP / 100; i++) {
+				standard.readValue(expected, Report.class);
+			}
+			long standardRead = (System.nanoTime() - d) / LOOP;
+			d = System.nanoTime();
+			for (int i = 0; i < LOOP / 100; i++) {
+				module.readValue(expected, Report.class);
+			}
+			long moduleRead = (System.nanoTime() - d) / LOOP;
+			System.out.println("每行 序列化 Jackson：" + standardWrite + " ns，DateModule：" + moduleWrite + " ns；反序列化 Jackson："
+					+ standardRead + " ns，DateModule：" + moduleRead + " ns");
+		}
+	}
+
+	private static ObjectMapper mapper(boolean module) {
+		ObjectMapper mapper = new ObjectMapper();
+		SimpleDateFormat format = new SimpleDateFormat(DateUtils.YMDHMS);
+		mapper.setDateFormat(format);
+		if (module) {
+			mapper.registerModule(new DateModule(DateUtils.YMDHMS, format.getTimeZone()));
+		}
+		return mapper;
+	}
+
+	public static class Report {
+		private List<Row> rows;
+
+		public List<Row> getRows() {
+			return rows;
+		}
+
+		public void setRows(List<Row> rows) {
+			this.rows = rows;
+		}
+	}
+
+	public static class Row {
+		private int id;
+		private Date createTime;
+		private Date updateTime;
+		@JsonFormat(shape = JsonFormat.Shape.STRING, pattern = DateUtils.YMD, timezone = "GMT+8")
+		private Date day;
+
+		public int getId() {
+			return id;
+		}
+
+		public void setId(int id) {
+			this.id = id;
+		}
+
+		public Date getCreateTime() {
+			return createTime;
+		}
+
+		public void setCreateTime(Date createTime) {
+			this.createTime = createTime;
+		}
+
+		public Date getUpdateTime() {
+			return updateTime;
+		}
+
+		public void setUpdateTime(Date updateTime) {
+			this.updateTime = updateTime;
+		}
+
+		public Date getDay() {
+			return day;
+		}
+
+		public void setDay(Date day) {
+			this.day = day;
+		}
+	}
+}
@@ -0,0 +1,100 @@
+package com.vteba.test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.vteba.utils.json.Node;
+import com.vteba.utils.serialize.DeepCopier;
+import com.vteba.utils.serialize.KryoPool;
+import com.vteba.utils.serialize.Kryos;
+
+/**
+ * 生成的逐字段拷贝和Kryo copy的耗时比较，拷贝一棵3层、每层10个子节点的Node树；另外检查隐藏字段、final字段的拷贝，并且不调用setter。
+ */
+public class TestDeepCopier {
+	private static final int LOOP = 20000;
+
+	public static void main(String[] args) {
+		Node root = build(0, 3);
+		Node copy = DeepCopier.copy(root);
+		System.out.println("拷贝正确：" + (copy != root && copy.getChildren() != root.getChildren()
+				&& copy.getChildren().get(0).getName().equals(root.getChildren().get(0).getName())));
+
+		Sub sub = new Sub("父类", "子类", 3);
+		Sub subCopy = DeepCopier.copy(sub);
+		System.out.println("隐藏字段和final字段正确：" + (subCopy.getName().equals("父类") && subCopy.name.equals("子类")
+				&& subCopy.size == 3) + "，调用setter次数：" + Base.setterCalls);
+
+		KryoPool pool = Kryos.getPool();
+		for (int r = 0; r < 5; r++) {
+			long d = System.nanoTime();
+			for (int i = 0; i < LOOP; i++) {
+				DeepCopier.copy(root);
+			}
+			long generated = System.nanoTime() - d;
+
+			Kryo kryo = pool.borrow();
+			d = System.nanoTime();
+			for (int i = 0; i < LOOP; i++) {
+				kryo.copy(root);
+			}
+			long kryoCopy = System.nanoTime() - d;
+			pool.release(kryo);
+			System.out.println("DeepCopier：" + generated / LOOP + " ns，Kryo copy：" + kryoCopy / LOOP + " ns");
+		}
+	}
+
+	public static class Base {
+		static int setterCalls;
+		private String name;
+		final int size;
+
+		public Base() {
+			this(null, 0);
+		}
+
+		Base(String name, int size) {
+			this.name = name;
+			this.size = size;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public void setName(String name) {
+			setterCalls++;
+			this.name = name;
+		}
+	}
+
+	/** name隐藏了父类的同名字段 */
+	public static class Sub extends Base {
+		private String name;
+
+		public Sub() {
+		}
+
+		Sub(String baseName, String name, int size) {
+			super(baseName, size);
+			this.name = name;
+		}
+	}
+
+	private static Node build(int level, int depth) {
+		Node node = new Node();
+		node.setId("node-" + level);
+		node.setName("节点" + level);
+		node.setLevel(level);
+		node.setOpen(Boolean.TRUE);
+		if (level < depth) {
+			List<Node> children = new ArrayList<Node>();
+			for (int i = 0; i < 10; i++) {
+				children.add(build(level + 1, depth));
+			}
+			node.setChildren(children);
+		}
+		return node;
+	}
+}
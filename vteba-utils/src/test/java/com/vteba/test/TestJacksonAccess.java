@@ -0,0 +1,231 @@
+package com.vteba.test;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.vteba.utils.json.JacksonUtils;
+
+/**
+ * 响应DTO的耗时比较：配置相同的ObjectMapper和JacksonUtils，序列化、反序列化为类和反序列化为TypeReference，
+ * 最后按各自最快的一轮打印比ObjectMapper快的百分比。JacksonUtils反序列化使用缓存的ObjectReader。
+ */
+public class TestJacksonAccess {
+	private static final int LOOP = 200000;
+	private static final TypeReference<List<Item>> ITEMS = new TypeReference<List<Item>>() {
+	};
+
+	public static void main(String[] args) throws Exception {
+		List<Item> items = new ArrayList<Item>();
+		for (int i = 0; i < 10; i++) {
+			Item item = new Item();
+			item.setId(1000L + i);
+			item.setName("商品" + i);
+			item.setSku("SKU-" + i);
+			item.setPrice(1999 + i);
+			item.setStock(i * 7);
+			item.setOnSale(i % 2 == 0);
+			item.setCategoryId(30L + i);
+			item.setBrand("brand");
+			// 日期格式化（每次克隆SimpleDateFormat）的耗时远大于其他属性，会掩盖其他的差别，这里不设置
+			item.setUpdateTime(null);
+			items.add(item);
+		}
+		Response response = new Response();
+		response.setCode(0);
+		response.setMessage("ok");
+		response.setTotal(items.size());
+		response.setItems(items);
+
+		ObjectMapper mapper = new ObjectMapper();
+		mapper.setSerializationInclusion(Include.NON_NULL);
+		mapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+		mapper.configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false);
+		mapper.setDateFormat(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss"));
+		JacksonUtils utils = JacksonUtils.get();
+		String json = utils.toJson(response);
+		String itemsJson = utils.toJson(items);
+		System.out.println("结果一致：" + json.equals(mapper.writeValueAsString(response))
+				+ " " + json.equals(utils.toJson(utils.fromJson(json, Response.class)))
+				+ " " + itemsJson.equals(utils.toJson(utils.fromJson(itemsJson, ITEMS))));
+
+		long[] best = new long[6];
+		Arrays.fill(best, Long.MAX_VALUE);
+		for (int r = 0; r < 5; r++) {
+			long[] nanos = new long[6];
+			long d = System.nanoTime();
+			for (int i = 0; i < LOOP; i++) {
+				mapper.writeValueAsString(response);
+			}
+			nanos[0] = System.nanoTime() - d;
+			d = System.nanoTime();
+			for (int i = 0; i < LOOP; i++) {
+				utils.toJson(response);
+			}
+			nanos[1] = System.nanoTime() - d;
+			d = System.nanoTime();
+			for (int i = 0; i < LOOP; i++) {
+				mapper.readValue(json, Response.class);
+			}
+			nanos[2] = System.nanoTime() - d;
+			d = System.nanoTime();
+			for (int i = 0; i < LOOP; i++) {
+				utils.fromJson(json, Response.class);
+			}
+			nanos[3] = System.nanoTime() - d;
+			d = System.nanoTime();
+			for (int i = 0; i < LOOP; i++) {
+				mapper.readValue(itemsJson, ITEMS);
+			}
+			nanos[4] = System.nanoTime() - d;
+			d = System.nanoTime();
+			for (int i = 0; i < LOOP; i++) {
+				utils.fromJson(itemsJson, ITEMS);
+			}
+			nanos[5] = System.nanoTime() - d;
+			for (int k = 0; k < 6; k++) {
+				nanos[k] /= LOOP;
+				best[k] = Math.min(best[k], nanos[k]);
+			}
+			System.out.println("序列化：" + nanos[0] + "/" + nanos[1] + " ns，反序列化Class：" + nanos[2] + "/" + nanos[3]
+					+ " ns，反序列化TypeReference：" + nanos[4] + "/" + nanos[5] + " ns（ObjectMapper/JacksonUtils）");
+		}
+		// 各自取最快的一轮，减少GC和JIT的干扰
+		System.out.println("比ObjectMapper快：序列化 " + gain(best[0], best[1]) + "%，反序列化Class " + gain(best[2], best[3])
+				+ "%，反序列化TypeReference " + gain(best[4], best[5]) + "%");
+	}
+
+	private static long gain(long base, long nanos) {
+		return (base - nanos) * 100 / base;
+	}
+
+	public static class Response {
+		private int code;
+		private String message;
+		private int total;
+		private List<Item> items;
+
+		public int getCode() {
+			return code;
+		}
+
+		public void setCode(int code) {
+			this.code = code;
+		}
+
+		public String getMessage() {
+			return message;
+		}
+
+		public void setMessage(String message) {
+			this.message = message;
+		}
+
+		public int getTotal() {
+			return total;
+		}
+
+		public void setTotal(int total) {
+			this.total = total;
+		}
+
+		public List<Item> getItems() {
+			return items;
+		}
+
+		public void setItems(List<Item> items) {
+			this.items = items;
+		}
+	}
+
+	public static class Item {
+		private Long id;
+		private String name;
+		private String sku;
+		private int price;
+		private int stock;
+		private boolean onSale;
+		private long categoryId;
+		private String brand;
+		private Date updateTime;
+
+		public Long getId() {
+			return id;
+		}
+
+		public void setId(Long id) {
+			this.id = id;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public void setName(String name) {
+			this.name = name;
+		}
+
+		public String getSku() {
+			return sku;
+		}
+
+		public void setSku(String sku) {
+			this.sku = sku;
+		}
+
+		public int getPrice() {
+			return price;
+		}
+
+		public void setPrice(int price) {
+			this.price = price;
+		}
+
+		public int getStock() {
+			return stock;
+		}
+
+		public void setStock(int stock) {
+			this.stock = stock;
+		}
+
+		public boolean isOnSale() {
+			return onSale;
+		}
+
+		public void setOnSale(boolean onSale) {
+			this.onSale = onSale;
+		}
+
+		public long getCategoryId() {
+			return categoryId;
+		}
+
+		public void setCategoryId(long categoryId) {
+			this.categoryId = categoryId;
+		}
+
+		public String getBrand() {
+			return brand;
+		}
+
+		public void setBrand(String brand) {
+			this.brand = brand;
+		}
+
+		public Date getUpdateTime() {
+			return updateTime;
+		}
+
+		public void setUpdateTime(Date updateTime) {
+			this.updateTime = updateTime;
+		}
+	}
+}
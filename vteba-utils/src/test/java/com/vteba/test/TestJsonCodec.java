@@ -0,0 +1,285 @@
+package com.vteba.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.serializer.SerializerFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vteba.test.TestJacksonAccess.Item;
+import com.vteba.test.TestJacksonAccess.Response;
+import com.vteba.utils.json.FastJsonUtils;
+import com.vteba.utils.json.JacksonUtils;
+
+/**
+ * 生成的JSON编解码器：随机数据（特殊字符、null、日期、嵌套对象、List）和Jackson、fastjson直接序列化的结果逐字节比较，
+ * 解码结果和框架解码的结果比较，再比较编码、解码的耗时。
+ */
+public class TestJsonCodec {
+	private static final int LOOP = 200000;
+	private static final String CHARS = "abcXYZ019 \"\\/\b\t\n\f\r\u0001\u000b\u001f\u007f<>&'中文é 😀";
+
+	public static void main(String[] args) throws Exception {
+		ObjectMapper mapper = JacksonUtils.get().getMapper();
+		JacksonUtils.get().useCodec();
+		FastJsonUtils.useCodec();
+		Random random = new Random(9);
+		int jackson = 0;
+		int fastjson = 0;
+		int decoded = 0;
+		for (int i = 0; i < 2000; i++) {
+			Detail detail = detail(random);
+			byte[] expected = mapper.writeValueAsBytes(detail);
+			byte[] actual = JacksonUtils.get().toJsonBytes(detail);
+			if (Arrays.equals(expected, actual)) {
+				jackson++;
+			} else {
+				System.out.println("Jackson不一致：\n" + new String(expected, "UTF-8") + "\n" + new String(actual, "UTF-8"));
+			}
+			expected = JSON.toJSONBytes(detail, SerializerFeature.WriteDateUseDateFormat);
+			actual = FastJsonUtils.toJsonBytes(detail);
+			if (Arrays.equals(expected, actual)) {
+				fastjson++;
+			} else {
+				System.out.println("fastjson不一致：\n" + new String(expected, "UTF-8") + "\n" + new String(actual, "UTF-8"));
+			}
+			byte[] json = mapper.writeValueAsBytes(detail);
+			String byMapper = JSON.toJSONString(mapper.readValue(json, Detail.class));
+			String byCodec = JSON.toJSONString(JacksonUtils.get().fromJson(json, Detail.class));
+			json = JSON.toJSONBytes(detail, SerializerFeature.WriteDateUseDateFormat);
+			String byFastJson = fastjson(json, false);
+			String byFastCodec = fastjson(json, true);
+			if (byMapper.equals(byCodec) && byFastJson.equals(byFastCodec)) {
+				decoded++;
+			} else {
+				System.out.println("解码不一致：\n" + byMapper + "\n" + byCodec + "\n" + byFastJson + "\n" + byFastCodec);
+			}
+		}
+		System.out.println("Jackson一致：" + jackson + "，fastjson一致：" + fastjson + "，解码一致：" + decoded);
+
+		Detail detail = detail(new Random(1));
+		Item item = new Item();
+		item.setName("shared");
+		detail.setItem(item);
+		detail.setItems(new ArrayList<Item>(Arrays.asList(item, item)));
+		System.out.println("重复的对象：" + FastJsonUtils.toJson(detail));
+		Detail ids = JacksonUtils.get().fromJson("{\"ids\":[1,2,3]}".getBytes("UTF-8"), Detail.class);
+		System.out.println("List<Long>的元素：" + ids.getIds().get(0).getClass().getSimpleName());
+
+		Response response = response();
+		byte[] json = JacksonUtils.get().toJsonBytes(response);
+		for (int r = 0; r < 5; r++) {
+			long d = System.nanoTime();
+			for (int i = 0; i < LOOP; i++) {
+				mapper.writeValueAsBytes(response);
+			}
+			long jacksonEncode = (System.nanoTime() - d) / LOOP;
+			d = System.nanoTime();
+			for (int i = 0; i < LOOP; i++) {
+				JacksonUtils.get().toJsonBytes(response);
+			}
+			long codecEncode = (System.nanoTime() - d) / LOOP;
+			d = System.nanoTime();
+			for (int i = 0; i < LOOP; i++) {
+				JSON.toJSONBytes(response, SerializerFeature.WriteDateUseDateFormat);
+			}
+			long fastEncode = (System.nanoTime() - d) / LOOP;
+			d = System.nanoTime();
+			for (int i = 0; i < LOOP; i++) {
+				mapper.readValue(json, Response.class);
+			}
+			long jacksonDecode = (System.nanoTime() - d) / LOOP;
+			d = System.nanoTime();
+			for (int i = 0; i < LOOP; i++) {
+				JacksonUtils.get().fromJson(json, Response.class);
+			}
+			long codecDecode = (System.nanoTime() - d) / LOOP;
+			d = System.nanoTime();
+			for (int i = 0; i < LOOP; i++) {
+				JSON.parseObject(json, Response.class);
+			}
+			long fastDecode = (System.nanoTime() - d) / LOOP;
+			System.out.println("编码 Jackson：" + jacksonEncode + " ns，fastjson：" + fastEncode + " ns，生成的编解码器：" + codecEncode
+					+ " ns；解码 Jackson：" + jacksonDecode + " ns，fastjson：" + fastDecode + " ns，生成的编解码器：" + codecDecode + " ns");
+		}
+	}
+
+	/**
+	 * fastjson不能解析它自己输出的\v，这时比较异常。
+	 */
+	private static String fastjson(byte[] json, boolean codec) {
+		try {
+			return JSON.toJSONString(codec ? FastJsonUtils.fromJson(json, Detail.class) : JSON.parseObject(json, Detail.class));
+		} catch (RuntimeException e) {
+			return e.getClass().getName();
+		}
+	}
+
+	private static Response response() {
+		List<Item> items = new ArrayList<Item>();
+		for (int i = 0; i < 10; i++) {
+			Item item = new Item();
+			item.setId(1000L + i);
+			item.setName("商品" + i);
+			item.setSku("SKU-" + i);
+			item.setPrice(1999 + i);
+			item.setStock(i * 7);
+			item.setOnSale(i % 2 == 0);
+			item.setCategoryId(30L + i);
+			item.setBrand("brand");
+			items.add(item);
+		}
+		Response response = new Response();
+		response.setCode(0);
+		response.setMessage("ok");
+		response.setTotal(items.size());
+		response.setItems(items);
+		return response;
+	}
+
+	private static Detail detail(Random random) {
+		Detail detail = new Detail();
+		detail.setTitle(string(random));
+		detail.setCount(random.nextInt(4) == 0 ? null : random.nextInt() >> random.nextInt(32));
+		detail.setEnabled(random.nextBoolean() ? null : random.nextBoolean());
+		detail.setSize(random.nextLong() >> random.nextInt(64));
+		detail.setCreateTime(random.nextInt(4) == 0 ? null : new Date(random.nextLong() >>> 23));
+		if (random.nextBoolean()) {
+			List<String> tags = new ArrayList<String>();
+			for (int i = random.nextInt(4); i > 0; i--) {
+				tags.add(string(random));
+			}
+			detail.setTags(tags);
+		}
+		if (random.nextBoolean()) {
+			List<Long> ids = new ArrayList<Long>();
+			for (int i = random.nextInt(4); i > 0; i--) {
+				ids.add(random.nextInt(5) == 0 ? null : random.nextLong() >> random.nextInt(64));
+			}
+			detail.setIds(ids);
+		}
+		if (random.nextBoolean()) {
+			detail.setItem(item(random));
+		}
+		if (random.nextBoolean()) {
+			List<Item> items = new ArrayList<Item>();
+			for (int i = random.nextInt(3); i > 0; i--) {
+				items.add(item(random));
+			}
+			detail.setItems(items);
+		}
+		return detail;
+	}
+
+	private static Item item(Random random) {
+		Item item = new Item();
+		item.setId(random.nextBoolean() ? null : random.nextLong());
+		item.setName(string(random));
+		item.setPrice(random.nextInt());
+		item.setOnSale(random.nextBoolean());
+		return item;
+	}
+
+	private static String string(Random random) {
+		if (random.nextInt(5) == 0) {
+			return null;
+		}
+		StringBuilder builder = new StringBuilder();
+		// 多数字符串只有普通字符，走快速路径
+		int bound = random.nextInt(4) == 0 ? CHARS.length() : 12;
+		for (int i = random.nextInt(12); i > 0; i--) {
+			builder.append(CHARS.charAt(random.nextInt(bound)));
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * 属性顺序和字母顺序不同，Jackson按声明顺序，fastjson按字母顺序。
+	 */
+	public static class Detail {
+		private String title;
+		private Integer count;
+		private Boolean enabled;
+		private long size;
+		private Date createTime;
+		private List<String> tags;
+		private List<Long> ids;
+		private Item item;
+		private List<Item> items;
+
+		public String getTitle() {
+			return title;
+		}
+
+		public void setTitle(String title) {
+			this.title = title;
+		}
+
+		public Integer getCount() {
+			return count;
+		}
+
+		public void setCount(Integer count) {
+			this.count = count;
+		}
+
+		public Boolean getEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(Boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public long getSize() {
+			return size;
+		}
+
+		public void setSize(long size) {
+			this.size = size;
+		}
+
+		public Date getCreateTime() {
+			return createTime;
+		}
+
+		public void setCreateTime(Date createTime) {
+			this.createTime = createTime;
+		}
+
+		public List<String> getTags() {
+			return tags;
+		}
+
+		public void setTags(List<String> tags) {
+			this.tags = tags;
+		}
+
+		public List<Long> getIds() {
+			return ids;
+		}
+
+		public void setIds(List<Long> ids) {
+			this.ids = ids;
+		}
+
+		public Item getItem() {
+			return item;
+		}
+
+		public void setItem(Item item) {
+			this.item = item;
+		}
+
+		public List<Item> getItems() {
+			return items;
+		}
+
+		public void setItems(List<Item> items) {
+			this.items = items;
+		}
+	}
+}
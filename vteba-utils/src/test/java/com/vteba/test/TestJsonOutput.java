@@ -0,0 +1,127 @@
+package com.vteba.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import com.vteba.test.TestJacksonAccess.Item;
+import com.vteba.test.TestJacksonAccess.Response;
+import com.vteba.utils.json.FastJsonUtils;
+import com.vteba.utils.json.JacksonUtils;
+import com.vteba.utils.serialize.ByteBufferPool;
+
+/**
+ * 大的响应直接写到OutputStream/ByteBuffer，和先生成String再编码比较每次的内存分配和耗时，并检查输出是否一致。
+ */
+public class TestJsonOutput {
+	private static final int ITEMS = 20000;
+	private static final int LOOP = 50;
+
+	public static void main(String[] args) throws Exception {
+		List<Item> items = new ArrayList<Item>();
+		for (int i = 0; i < ITEMS; i++) {
+			Item item = new Item();
+			item.setId(1000L + i);
+			item.setName("商品" + i + "😀");
+			item.setSku("SKU-" + i);
+			item.setPrice(1999 + i);
+			item.setStock(i * 7);
+			item.setOnSale(i % 2 == 0);
+			item.setCategoryId(30L + i);
+			item.setBrand("brand");
+			item.setUpdateTime(new Date());
+			items.add(item);
+		}
+		final Response response = new Response();
+		response.setCode(0);
+		response.setMessage("ok");
+		response.setTotal(items.size());
+		response.setItems(items);
+		final JacksonUtils jackson = JacksonUtils.get();
+
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		expected.write(FastJsonUtils.toJson(response).getBytes("UTF-8"));
+		ByteArrayOutputStream actual = new ByteArrayOutputStream();
+		FastJsonUtils.toJson(actual, response);
+		System.out.println("fastjson输出一致：" + Arrays.equals(expected.toByteArray(), actual.toByteArray()) + "，"
+				+ actual.size() + "字节");
+		// Jackson按字节输出时把代理对转义成\\uXXXX，和toJsonBytes比较
+		expected.reset();
+		expected.write(jackson.toJsonBytes(response));
+		actual.reset();
+		jackson.toJson(Channels.newChannel(actual), response);
+		System.out.println("Jackson输出一致：" + Arrays.equals(expected.toByteArray(), actual.toByteArray()));
+
+		ByteBufferPool pool = new ByteBufferPool(1, 4 * 1024 * 1024);
+		ByteBuffer buffer = pool.acquire();
+		int size = FastJsonUtils.toJson(buffer, response);
+		buffer.clear();
+		System.out.println("fastjson写入direct buffer：" + size + "，Jackson：" + jackson.toJson(buffer, response));
+		pool.release(buffer);
+
+		final OutputStream sink = new OutputStream() {
+			@Override
+			public void write(int b) {
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) {
+			}
+		};
+		for (int r = 0; r < 3; r++) {
+			measure("fastjson String+getBytes", new Task() {
+				@Override
+				public void run() throws Exception {
+					sink.write(FastJsonUtils.toJson(response).getBytes("UTF-8"));
+				}
+			});
+			measure("fastjson toJsonBytes", new Task() {
+				@Override
+				public void run() throws Exception {
+					sink.write(FastJsonUtils.toJsonBytes(response));
+				}
+			});
+			measure("fastjson OutputStream", new Task() {
+				@Override
+				public void run() throws Exception {
+					FastJsonUtils.toJson(sink, response);
+				}
+			});
+			measure("Jackson String+getBytes", new Task() {
+				@Override
+				public void run() throws Exception {
+					sink.write(jackson.toJson(response).getBytes("UTF-8"));
+				}
+			});
+			measure("Jackson OutputStream", new Task() {
+				@Override
+				public void run() throws Exception {
+					jackson.toJson(Channels.newChannel(sink), response);
+				}
+			});
+		}
+	}
+
+	interface Task {
+		void run() throws Exception;
+	}
+
+	private static void measure(String name, Task task) throws Exception {
+		com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long id = Thread.currentThread().getId();
+		long allocated = bean.getThreadAllocatedBytes(id);
+		long d = System.nanoTime();
+		for (int i = 0; i < LOOP; i++) {
+			task.run();
+		}
+		long nanos = (System.nanoTime() - d) / LOOP;
+		allocated = (bean.getThreadAllocatedBytes(id) - allocated) / LOOP;
+		System.out.println(name + "：" + nanos / 1000 + " us，分配：" + allocated / 1024 + " KB");
+	}
+}
@@ -0,0 +1,98 @@
+package com.vteba.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.vteba.utils.charstr.Char;
+import com.vteba.utils.json.JacksonUtils;
+import com.vteba.utils.json.JsonRpc;
+import com.vteba.utils.json.JsonRpcBatch;
+import com.vteba.utils.json.JsonRpcException;
+import com.vteba.utils.json.JsonRpcHandler;
+import com.vteba.utils.json.JsonRpcProcessor;
+
+/**
+ * 一个页面50个调用，每个调用模拟5ms的IO：逐个请求和批量请求并行执行比较耗时，并检查响应的顺序、通知和错误。
+ */
+public class TestJsonRpcBatch {
+	private static final int CALLS = 50;
+	private static final AtomicInteger notified = new AtomicInteger();
+
+	public static void main(String[] args) throws Exception {
+		JsonRpcHandler handler = new JsonRpcHandler() {
+			@Override
+			public Object handle(String method, JsonNode params) throws Exception {
+				if ("log".equals(method)) {
+					notified.incrementAndGet();
+					return null;
+				}
+				if ("broken".equals(method)) {
+					return new Broken();
+				}
+				if (!"price".equals(method)) {
+					throw new JsonRpcException(JsonRpc.Error.METHOD_NOT_FOUND, "Method not found");
+				}
+				Thread.sleep(5);
+				return params.get(0).asInt() * 100;
+			}
+		};
+		ExecutorService executor = Executors.newFixedThreadPool(16);
+		JsonRpcProcessor processor = new JsonRpcProcessor(handler, executor);
+		JacksonUtils jacksonUtils = JacksonUtils.get();
+
+		List<JsonRpc<Object, Object>> calls = new ArrayList<JsonRpc<Object, Object>>();
+		for (int i = 0; i < CALLS; i++) {
+			calls.add(new JsonRpc<Object, Object>(i, "price", new int[] { i }));
+		}
+		calls.add(new JsonRpc<Object, Object>(null, "log", new String[] { "page" }));
+		calls.add(new JsonRpc<Object, Object>(CALLS, "unknown", null));
+		byte[] request = JsonRpcBatch.encode(jacksonUtils, calls);
+		byte[] response = processor.process(request);
+		List<JsonRpc<Object, JsonNode>> responses = JsonRpcBatch.decodeResponses(jacksonUtils, response);
+		boolean ordered = responses.size() == CALLS + 1;
+		for (int i = 0; i < CALLS && ordered; i++) {
+			ordered = responses.get(i).getId() == i && responses.get(i).getResult().asInt() == i * 100;
+		}
+		Thread.sleep(20);
+		System.out.println("响应顺序和结果正确：" + ordered + "，通知执行：" + notified.get()
+				+ "，方法不存在：" + responses.get(CALLS).getError().getCode());
+		List<JsonRpc<Object, Object>> mixed = new ArrayList<JsonRpc<Object, Object>>();
+		mixed.add(new JsonRpc<Object, Object>(1, "price", new int[] { 1 }));
+		mixed.add(new JsonRpc<Object, Object>(2, "broken", null));
+		mixed.add(new JsonRpc<Object, Object>(3, "price", new int[] { 3 }));
+		List<JsonRpc<Object, JsonNode>> mixedResponses = JsonRpcBatch.decodeResponses(jacksonUtils,
+				processor.process(JsonRpcBatch.encode(jacksonUtils, mixed)));
+		System.out.println("结果序列化出错不影响其他响应：" + (mixedResponses.size() == 3
+				&& mixedResponses.get(0).getResult().asInt() == 100
+				&& mixedResponses.get(1).getId() == 2 && mixedResponses.get(1).getError().getCode() == JsonRpc.Error.INTERNAL_ERROR
+				&& mixedResponses.get(2).getResult().asInt() == 300));
+		System.out.println(new String(processor.process("[]".getBytes(Char.UTF8)), Char.UTF8));
+		System.out.println(new String(processor.process("[1,{\"jsonrpc\":\"2.0\",\"method\":\"log\"}".getBytes(Char.UTF8)), Char.UTF8));
+		System.out.println(new String(processor.process("[1,{\"jsonrpc\":\"2.0\",\"method\":\"log\"}]".getBytes(Char.UTF8)), Char.UTF8));
+		System.out.println("全部是通知的响应长度：" + processor.process("[{\"jsonrpc\":\"2.0\",\"method\":\"log\"}]".getBytes(Char.UTF8)).length);
+
+		for (int r = 0; r < 3; r++) {
+			long d = System.nanoTime();
+			for (int i = 0; i < CALLS; i++) {
+				processor.process(jacksonUtils.toJsonBytes(calls.get(i)));
+			}
+			long single = (System.nanoTime() - d) / 1000000;
+			d = System.nanoTime();
+			processor.process(request);
+			long batch = (System.nanoTime() - d) / 1000000;
+			System.out.println("逐个请求：" + single + " ms，批量请求：" + batch + " ms");
+		}
+		executor.shutdown();
+	}
+
+	/** getter抛出异常，结果无法序列化。 */
+	public static class Broken {
+		public String getName() {
+			throw new IllegalStateException("broken");
+		}
+	}
+}
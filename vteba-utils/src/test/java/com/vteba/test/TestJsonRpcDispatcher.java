@@ -0,0 +1,108 @@
+package com.vteba.test;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vteba.test.TestJacksonAccess.Item;
+import com.vteba.utils.charstr.Char;
+import com.vteba.utils.json.JacksonUtils;
+import com.vteba.utils.json.JsonRpcDispatcher;
+import com.vteba.utils.json.JsonRpcProcessor;
+
+/**
+ * JsonRpcDispatcher按MethodAccess下标调用，和按方法名找Method、ObjectMapper转换参数、Method.invoke调用比较每次分发的耗时，
+ * 并通过JsonRpcProcessor检查数组参数、对象参数、泛型参数和错误。
+ */
+public class TestJsonRpcDispatcher {
+	private static final int LOOP = 1000000;
+
+	public static void main(String[] args) throws Exception {
+		JsonRpcDispatcher dispatcher = new JsonRpcDispatcher();
+		dispatcher.register("item", new ItemService());
+		dispatcher.register("batch", new ItemBatchService());
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		JsonRpcProcessor processor = new JsonRpcProcessor(dispatcher, executor);
+		String request = "[{\"jsonrpc\":\"2.0\",\"method\":\"item.add\",\"params\":[1,2],\"id\":1},"
+				+ "{\"jsonrpc\":\"2.0\",\"method\":\"item.price\",\"params\":{\"id\":7,\"price\":1999},\"id\":2},"
+				+ "{\"jsonrpc\":\"2.0\",\"method\":\"item.total\",\"params\":[[{\"price\":1},{\"price\":2}]],\"id\":3},"
+				+ "{\"jsonrpc\":\"2.0\",\"method\":\"item.name\",\"params\":[\"sku\"],\"id\":4},"
+				+ "{\"jsonrpc\":\"2.0\",\"method\":\"item.name\",\"params\":[\"sku\", 2],\"id\":5},"
+				+ "{\"jsonrpc\":\"2.0\",\"method\":\"item.add\",\"params\":[1],\"id\":6},"
+				+ "{\"jsonrpc\":\"2.0\",\"method\":\"item.add\",\"params\":[1,\"x\"],\"id\":7},"
+				+ "{\"jsonrpc\":\"2.0\",\"method\":\"item.none\",\"id\":8},"
+				+ "{\"jsonrpc\":\"2.0\",\"method\":\"batch.saveAll\",\"params\":[[{\"price\":1},{\"price\":2}]],\"id\":9}]";
+		System.out.println(new String(processor.process(request.getBytes(Char.UTF8)), Char.UTF8));
+		executor.shutdown();
+
+		ObjectMapper mapper = JacksonUtils.getObjectMapper();
+		JsonNode params = mapper.readTree("[3,4]");
+		Map<String, Method> methods = new HashMap<String, Method>();
+		for (Method method : ItemService.class.getMethods()) {
+			methods.put("item." + method.getName(), method);
+		}
+		ItemService service = new ItemService();
+		for (int r = 0; r < 3; r++) {
+			long d = System.nanoTime();
+			long sum = 0;
+			for (int i = 0; i < LOOP; i++) {
+				Method method = methods.get("item.add");
+				Type[] types = method.getGenericParameterTypes();
+				Object[] values = new Object[types.length];
+				for (int j = 0; j < types.length; j++) {
+					values[j] = mapper.convertValue(params.get(j), mapper.getTypeFactory().constructType(types[j]));
+				}
+				sum += (Integer) method.invoke(service, values);
+			}
+			long reflect = (System.nanoTime() - d) / (LOOP / 1000);
+			d = System.nanoTime();
+			for (int i = 0; i < LOOP; i++) {
+				sum += (Integer) dispatcher.handle("item.add", params);
+			}
+			long access = (System.nanoTime() - d) / (LOOP / 1000);
+			System.out.println("反射：" + reflect / 1000.0 + " ns/次，MethodAccess：" + access / 1000.0 + " ns/次 " + sum);
+		}
+	}
+
+	public static class ItemService {
+		public int add(int a, int b) {
+			return a + b;
+		}
+
+		public int price(Item item) {
+			return item.getPrice();
+		}
+
+		public int total(List<Item> items) {
+			int total = 0;
+			for (Item item : items) {
+				total += item.getPrice();
+			}
+			return total;
+		}
+
+		public String name(String sku) {
+			return "name-" + sku;
+		}
+
+		public String name(String sku, int i) {
+			return "name-" + sku + "-" + i;
+		}
+	}
+
+	/** 方法继承自泛型父类，参数的类型参数是TypeVariable。 */
+	public static class BaseService<T> {
+		public int saveAll(List<T> entities) {
+			return entities.size();
+		}
+	}
+
+	public static class ItemBatchService extends BaseService<Item> {
+	}
+}
@@ -0,0 +1,87 @@
+package com.vteba.test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+
+import com.vteba.utils.json.FastJsonUtils;
+import com.vteba.utils.json.JacksonUtils;
+import com.vteba.utils.json.JsonArrayIterator;
+import com.vteba.utils.json.Node;
+
+/**
+ * 流式读取一个一百万个元素的JSON数组，数据由另一个线程边写边读，比较Jackson和fastjson的耗时和读取中的内存占用。
+ */
+public class TestJsonStream {
+	private static final int COUNT = 1000000;
+
+	public static void main(String[] args) throws Exception {
+		for (int r = 0; r < 3; r++) {
+			long d = System.nanoTime();
+			JsonArrayIterator<Node> iterator = JacksonUtils.get().streamArray(produce(), Node.class);
+			long used = consume(iterator);
+			System.out.println("Jackson：" + (System.nanoTime() - d) / 1000000 + " ms，内存：" + used / 1024 / 1024 + " MB");
+
+			d = System.nanoTime();
+			iterator = FastJsonUtils.streamArray(produce(), Node.class);
+			used = consume(iterator);
+			System.out.println("fastjson：" + (System.nanoTime() - d) / 1000000 + " ms，内存：" + used / 1024 / 1024 + " MB");
+		}
+	}
+
+	private static long consume(JsonArrayIterator<Node> iterator) {
+		int count = 0;
+		long used = 0;
+		while (iterator.hasNext()) {
+			Node node = iterator.next();
+			if (node.getLevel() != count || !("节点\"" + count).equals(node.getName())) {
+				throw new IllegalStateException("第" + count + "个元素不对：" + node.getLevel());
+			}
+			if (++count == COUNT / 2) {
+				System.gc();
+				Runtime runtime = Runtime.getRuntime();
+				used = runtime.totalMemory() - runtime.freeMemory();
+			}
+		}
+		if (count != COUNT) {
+			throw new IllegalStateException("元素个数不对：" + count);
+		}
+		return used;
+	}
+
+	private static PipedInputStream produce() throws IOException {
+		PipedInputStream in = new PipedInputStream(64 * 1024);
+		final PipedOutputStream out = new PipedOutputStream(in);
+		new Thread() {
+			@Override
+			public void run() {
+				try {
+					write(out);
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+		}.start();
+		return in;
+	}
+
+	private static void write(OutputStream out) throws IOException {
+		StringBuilder sb = new StringBuilder(128 * 1024);
+		sb.append('[');
+		for (int i = 0; i < COUNT; i++) {
+			if (i > 0) {
+				sb.append(',');
+			}
+			sb.append("{\"id\":\"node-").append(i).append("\",\"name\":\"节点\\\"").append(i).append("\",\"level\":")
+					.append(i).append(",\"open\":true}");
+			if (sb.length() > 64 * 1024) {
+				out.write(sb.toString().getBytes("UTF-8"));
+				sb.setLength(0);
+			}
+		}
+		sb.append(']');
+		out.write(sb.toString().getBytes("UTF-8"));
+		out.close();
+	}
+}
@@ -0,0 +1,85 @@
+package com.vteba.test;
+
+import java.util.Date;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.objenesis.strategy.StdInstantiatorStrategy;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.vteba.utils.serialize.KryoPool;
+import com.vteba.utils.serialize.Kryos;
+
+/**
+ * Kryo池和原来ThreadLocal方式的吞吐量比较，分别在1、8、64个线程下测试。
+ * ThreadLocal方式每个线程第一次都要新建Kryo，线程多的时候构造成本很明显。
+ */
+public class TestKryoPool {
+	private static final int LOOP = 20000;
+	private static final KryoPool pool = Kryos.getPool();
+	private static final ThreadLocal<Kryo> threadLocal = new ThreadLocal<Kryo>();
+
+	public static void main(String[] args) throws Exception {
+		TestUser user = new TestUser();
+		user.setAge(34);
+		user.setDate(new Date());
+		user.setUserName("wojiao尹雷");
+
+		// 预热
+		run(8, user, false);
+		run(8, user, true);
+
+		for (int threads : new int[] { 1, 8, 64 }) {
+			long d = run(threads, user, false);
+			System.out.println(threads + "个线程，ThreadLocal吞吐量：" + (threads * LOOP * 1000L / Math.max(d, 1)) + " ops/s");
+			d = run(threads, user, true);
+			System.out.println(threads + "个线程，KryoPool吞吐量：" + (threads * LOOP * 1000L / Math.max(d, 1)) + " ops/s");
+		}
+	}
+
+	private static long run(int threads, final TestUser user, final boolean usePool) throws Exception {
+		// 每轮都用新线程，模拟容器线程池中的大量线程
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		final CountDownLatch latch = new CountDownLatch(threads);
+		long d = System.currentTimeMillis();
+		for (int t = 0; t < threads; t++) {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					for (int i = 0; i < LOOP; i++) {
+						Kryo kryo = usePool ? pool.borrow() : threadLocalKryo();
+						try {
+							Output output = new Output(2048, 2 * 1024 * 1024);
+							kryo.writeObject(output, user);
+							kryo.readObject(new Input(output.toBytes()), TestUser.class);
+						} finally {
+							if (usePool) {
+								pool.release(kryo);
+							}
+						}
+					}
+					latch.countDown();
+				}
+			});
+		}
+		latch.await();
+		executor.shutdown();
+		return System.currentTimeMillis() - d;
+	}
+
+	private static Kryo threadLocalKryo() {
+		Kryo kryo = threadLocal.get();
+		if (kryo == null) {
+			kryo = new Kryo();
+			kryo.setReferences(true);
+			kryo.setInstantiatorStrategy(new StdInstantiatorStrategy());
+			pool.getRegistry().apply(kryo);
+			kryo.register(TestUser.class);
+			threadLocal.set(kryo);
+		}
+		return kryo;
+	}
+}
@@ -0,0 +1,61 @@
+package com.vteba.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Output;
+import com.vteba.utils.json.Node;
+import com.vteba.utils.serialize.KryoPool;
+import com.vteba.utils.serialize.KryoRegistry;
+import com.vteba.utils.serialize.Kryos;
+
+/**
+ * 比较使用确定ID的注册表前后，每条消息的字节数。未注册的类写类名，注册后只写varint的类ID。
+ */
+public class TestKryoRegistry {
+
+	public static void main(String[] args) {
+		KryoRegistry defaults = Kryos.getPool().getRegistry();
+		List<Class<?>> fixtures = new ArrayList<Class<?>>();
+		fixtures.add(TestUser.class);
+		fixtures.add(Node.class);
+		KryoRegistry registry = defaults.merge(KryoRegistry.of(KryoRegistry.FIRST_USER_ID, fixtures));
+
+		KryoPool before = new KryoPool(1, defaults, false);
+		KryoPool after = new KryoPool(1, registry, false);
+		System.out.println("注册前：" + defaults + "，注册后：" + registry);
+		System.out.println("扫描json包：" + KryoRegistry.scan(KryoRegistry.FIRST_USER_ID, "com.vteba.utils.json").getClasses());
+
+		TestUser user = new TestUser();
+		user.setAge(34);
+		user.setDate(new Date());
+		user.setUserName("wojiao尹雷");
+
+		Node node = new Node(1L, "root", 0L);
+		List<Node> children = new ArrayList<Node>();
+		for (int i = 0; i < 3; i++) {
+			children.add(new Node(10L + i, "child" + i, 1L));
+		}
+		node.setChildren(children);
+
+		for (Object object : Arrays.asList(user, node)) {
+			int b = size(before, object);
+			int a = size(after, object);
+			System.out.println(object.getClass().getSimpleName() + " writeClassAndObject：注册前" + b + "字节，注册后" + a + "字节，节省" + (b - a) + "字节");
+		}
+	}
+
+	private static int size(KryoPool pool, Object object) {
+		Kryo kryo = pool.borrow();
+		try {
+			Output output = new Output(2048, -1);
+			kryo.writeClassAndObject(output, object);
+			return output.position();
+		} finally {
+			pool.release(kryo);
+		}
+	}
+}
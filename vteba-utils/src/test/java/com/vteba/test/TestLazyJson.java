@@ -0,0 +1,71 @@
+package com.vteba.test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import com.vteba.test.TestJacksonAccess.Item;
+import com.vteba.utils.charstr.Char;
+import com.vteba.utils.json.FastJsonUtils;
+import com.vteba.utils.json.LazyJson;
+
+/**
+ * 从约500KB的响应中读取几个节点：fastjson解析整个JSONObject，和LazyJson按路径扫描比较耗时，并检查结果是否一致。
+ */
+public class TestLazyJson {
+	private static final int LOOP = 500;
+
+	public static void main(String[] args) {
+		List<Item> items = new ArrayList<Item>();
+		for (int i = 0; i < 3000; i++) {
+			Item item = new Item();
+			item.setId(1000L + i);
+			item.setName("商品\"" + i + "\"");
+			item.setSku("SKU-" + i);
+			item.setPrice(1999 + i);
+			item.setStock(i * 7);
+			item.setCategoryId(30L + i);
+			item.setBrand("brand");
+			items.add(item);
+		}
+		Map<String, Object> data = new HashMap<String, Object>();
+		data.put("total", items.size());
+		data.put("items", items);
+		Map<String, Object> response = new HashMap<String, Object>();
+		response.put("data", data);
+		response.put("code", 0);
+		response.put("message", "ok");
+		byte[] bytes = FastJsonUtils.toJsonBytes(response);
+		System.out.println("响应大小：" + bytes.length / 1024 + " KB");
+
+		JSONObject object = JSON.parseObject(new String(bytes, Char.UTF8));
+		LazyJson json = new LazyJson(bytes);
+		JSONObject item = object.getJSONObject("data").getJSONArray("items").getJSONObject(2500);
+		System.out.println("结果一致：" + (item.getIntValue("price") == json.getInteger("data.items[2500].price"))
+				+ (item.getString("name").equals(json.getString("data.items[2500].name")))
+				+ (json.get("data.items[2500]", Item.class).getSku().equals(item.getString("sku")))
+				+ (json.size("data.items") == 3000) + (json.getString("data.items[3000].name") == null));
+
+		for (int r = 0; r < 3; r++) {
+			long d = System.nanoTime();
+			long sum = 0;
+			for (int i = 0; i < LOOP; i++) {
+				JSONObject o = JSON.parseObject(new String(bytes, Char.UTF8));
+				sum += o.getIntValue("code");
+				sum += o.getJSONObject("data").getJSONArray("items").getJSONObject(i).getIntValue("price");
+			}
+			long fastjson = (System.nanoTime() - d) / LOOP;
+			d = System.nanoTime();
+			for (int i = 0; i < LOOP; i++) {
+				LazyJson lazy = new LazyJson(bytes);
+				sum -= lazy.getInteger("code");
+				sum -= lazy.getInteger("data.items[" + i + "].price");
+			}
+			long lazy = (System.nanoTime() - d) / LOOP;
+			System.out.println("fastjson：" + fastjson / 1000 + " us，LazyJson：" + lazy / 1000 + " us，" + sum);
+		}
+	}
+}
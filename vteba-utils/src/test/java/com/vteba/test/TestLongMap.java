@@ -0,0 +1,144 @@
+package com.vteba.test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import com.vteba.lang.collection.DoubleArray;
+import com.vteba.lang.collection.FloatArray;
+import com.vteba.lang.collection.LongArray;
+import com.vteba.lang.collection.LongMap;
+
+/**
+ * LongMap和HashMap&lt;Long, V&gt;比较：随机操作的结果，雪花算法id作为键时每个条目占用的内存和put、get的耗时。
+ */
+public class TestLongMap {
+	private static final int SIZE = 1000000;
+
+	public static void main(String[] args) {
+		Random random = new Random(3);
+		LongMap<String> map = new LongMap<String>();
+		Map<Long, String> expected = new HashMap<Long, String>();
+		int mismatch = 0;
+		for (int i = 0; i < 500000; i++) {
+			long key = random.nextInt(4) == 0 ? random.nextInt(64) : snowflake(random);
+			int op = random.nextInt(10);
+			String value = random.nextInt(10) == 0 ? null : String.valueOf(i);
+			Object a, b;
+			if (op < 5) {
+				a = map.put(key, value);
+				b = expected.put(key, value);
+			} else if (op < 7) {
+				a = map.remove(key);
+				b = expected.remove(key);
+			} else if (op < 9) {
+				a = map.get(key, "none");
+				b = expected.containsKey(key) ? expected.get(key) : "none";
+			} else {
+				a = map.containsKey(key);
+				b = expected.containsKey(key);
+			}
+			if (a == null ? b != null : !a.equals(b)) {
+				mismatch++;
+			}
+		}
+		int iterated = 0;
+		for (LongMap.Entry<String> entry : map.entries()) {
+			String value = expected.get(entry.key);
+			if (expected.containsKey(entry.key) && (value == null ? entry.value == null : value.equals(entry.value))) {
+				iterated++;
+			}
+		}
+		LongMap.Keys keys = map.keys();
+		while (keys.hasNext) {
+			if (keys.next() % 2 == 0) {
+				keys.remove();
+			}
+		}
+		int removed = 0;
+		for (Long key : expected.keySet()) {
+			if (key % 2 == 0 ? map.containsKey(key) : !map.containsKey(key)) {
+				removed++;
+			}
+		}
+		System.out.println("不一致：" + mismatch + "，遍历一致：" + iterated + "/" + expected.size() + "，迭代器删除后不一致：" + removed);
+
+		LongArray longs = new LongArray(new long[] { 3, Long.MAX_VALUE, -1 });
+		longs.add(Long.MIN_VALUE);
+		longs.sort();
+		FloatArray floats = new FloatArray(new float[] { 1.5f, -2f });
+		floats.insert(1, 0.25f);
+		DoubleArray doubles = new DoubleArray();
+		doubles.addAll(new double[] { 0.1, 0.2 });
+		doubles.removeValue(0.1);
+		System.out.println(longs + " " + floats + " " + doubles);
+
+		long[] ids = new long[SIZE];
+		for (int i = 0; i < SIZE; i++) {
+			ids[i] = snowflake(random);
+		}
+		Object value = new Object();
+		long before = usedMemory();
+		LongMap<Object> longMap = new LongMap<Object>();
+		for (long id : ids) {
+			longMap.put(id, value);
+		}
+		long longMapBytes = usedMemory() - before;
+		before = usedMemory();
+		Map<Long, Object> hashMap = new HashMap<Long, Object>();
+		for (long id : ids) {
+			hashMap.put(id, value);
+		}
+		long hashMapBytes = usedMemory() - before;
+		System.out.println("每个条目 LongMap：" + longMapBytes / SIZE + " 字节，HashMap：" + hashMapBytes / SIZE + " 字节（" + longMap.size
+				+ "/" + hashMap.size() + "个）");
+
+		for (int r = 0; r < 5; r++) {
+			long d = System.nanoTime();
+			LongMap<Object> a = new LongMap<Object>();
+			for (long id : ids) {
+				a.put(id, value);
+			}
+			long longMapPut = (System.nanoTime() - d) / SIZE;
+			d = System.nanoTime();
+			Map<Long, Object> b = new HashMap<Long, Object>();
+			for (long id : ids) {
+				b.put(id, value);
+			}
+			long hashMapPut = (System.nanoTime() - d) / SIZE;
+			int found = 0;
+			d = System.nanoTime();
+			for (long id : ids) {
+				if (a.get(id) != null) {
+					found++;
+				}
+			}
+			long longMapGet = (System.nanoTime() - d) / SIZE;
+			d = System.nanoTime();
+			for (long id : ids) {
+				if (b.get(id) != null) {
+					found++;
+				}
+			}
+			long hashMapGet = (System.nanoTime() - d) / SIZE;
+			System.out.println("put LongMap：" + longMapPut + " ns，HashMap：" + hashMapPut + " ns；get LongMap：" + longMapGet
+					+ " ns，HashMap：" + hashMapGet + " ns（" + found + "）");
+		}
+	}
+
+	/**
+	 * 41位时间戳、10位机器号、12位序列号，序列号多数是0。
+	 */
+	private static long snowflake(Random random) {
+		long time = 1412784000000L - 1288834974657L + random.nextInt(1 << 30);
+		return time << 22 | (long) random.nextInt(4) << 12 | (random.nextInt(8) == 0 ? random.nextInt(4096) : 0);
+	}
+
+	private static long usedMemory() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 5; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
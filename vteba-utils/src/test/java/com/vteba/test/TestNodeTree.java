@@ -0,0 +1,111 @@
+package com.vteba.test;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vteba.utils.json.JacksonUtils;
+import com.vteba.utils.json.Node;
+import com.vteba.utils.json.NodeTreeBuilder;
+import com.vteba.utils.json.NodeTreeWriter;
+
+/**
+ * 平铺的节点列表连成树：两层循环和NodeTreeBuilder比较耗时；NodeTreeWriter和Jackson序列化比较结果和耗时；
+ * 异步加载只输出两层；10万层深的树不会栈溢出。
+ */
+public class TestNodeTree {
+
+	public static void main(String[] args) throws Exception {
+		List<Node> small = nodes(10000);
+		long d = System.nanoTime();
+		List<Node> roots = nestedLoop(small);
+		System.out.println("两层循环，1万个节点：" + (System.nanoTime() - d) / 1000000 + " ms，根节点" + roots.size());
+		for (int r = 0; r < 6; r++) {
+			small = nodes(10000);
+			d = System.nanoTime();
+			roots = NodeTreeBuilder.build(small);
+			System.out.println("NodeTreeBuilder，1万个节点：" + (System.nanoTime() - d) / 1000 + " us，根节点" + roots.size());
+		}
+
+		List<Node> nodes = nodes(100000);
+		d = System.nanoTime();
+		NodeTreeBuilder builder = new NodeTreeBuilder(nodes);
+		System.out.println("NodeTreeBuilder，10万个节点：" + (System.nanoTime() - d) / 1000000 + " ms，第5万个节点的层级"
+				+ builder.getNode(50000).getLevel());
+
+		ObjectMapper mapper = JacksonUtils.getObjectMapper();
+		String json = null;
+		for (int r = 0; r < 6; r++) {
+			d = System.nanoTime();
+			StringWriter writer = new StringWriter();
+			NodeTreeWriter.write(writer, builder.getRoots());
+			json = writer.toString();
+			long stream = (System.nanoTime() - d) / 1000000;
+			d = System.nanoTime();
+			String jackson = JacksonUtils.get().toJson(builder.getRoots());
+			long databind = (System.nanoTime() - d) / 1000000;
+			System.out.println("NodeTreeWriter：" + stream + " ms，Jackson：" + databind + " ms，结果一致："
+					+ mapper.readTree(json).equals(mapper.readTree(jackson)));
+		}
+		System.out.println("整个树：" + json.length() / 1024 + " KB");
+
+		StringWriter writer = new StringWriter();
+		NodeTreeWriter.write(writer, builder.getRoots(), 2);
+		System.out.println("异步加载两层：" + writer.toString().length() / 1024 + " KB，" + writer.toString().substring(0, 200));
+		writer = new StringWriter();
+		NodeTreeWriter.write(writer, builder.getChildren(3), 1);
+		System.out.println("展开节点3：" + writer.toString().substring(0, 200));
+
+		List<Node> chain = new ArrayList<Node>();
+		for (long i = 0; i < 100000; i++) {
+			chain.add(new Node(i, "n" + i, i == 0 ? null : i - 1));
+		}
+		writer = new StringWriter();
+		NodeTreeWriter.write(writer, NodeTreeBuilder.build(chain));
+		System.out.println("10万层深的树：" + writer.toString().length() / 1024 + " KB");
+
+		try {
+			List<Node> cycle = new ArrayList<Node>();
+			cycle.add(new Node(1L, "a", 2L));
+			cycle.add(new Node(2L, "b", 1L));
+			NodeTreeBuilder.build(cycle);
+		} catch (IllegalArgumentException e) {
+			System.out.println("有环：" + e.getMessage());
+		}
+	}
+
+	/**
+	 * 每个节点的父节点是前面的随机一个节点，前10个是根节点，打乱顺序。
+	 */
+	private static List<Node> nodes(int n) {
+		Random random = new Random(n);
+		List<Node> nodes = new ArrayList<Node>(n);
+		for (long i = 0; i < n; i++) {
+			Long parentId = i < 10 ? null : (long) random.nextInt((int) i);
+			nodes.add(new Node(i, "节点\"" + i, parentId));
+		}
+		Collections.shuffle(nodes, random);
+		return nodes;
+	}
+
+	private static List<Node> nestedLoop(List<Node> nodes) {
+		List<Node> roots = new ArrayList<Node>();
+		for (Node node : nodes) {
+			if (node.getParentId() == null) {
+				roots.add(node);
+			}
+			for (Node child : nodes) {
+				if (node.getNodeId().equals(child.getParentId())) {
+					if (node.getChildren() == null) {
+						node.setChildren(new ArrayList<Node>());
+					}
+					node.getChildren().add(child);
+				}
+			}
+		}
+		return roots;
+	}
+}
@@ -0,0 +1,159 @@
+package com.vteba.test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import com.vteba.lang.collection.IntIntMap;
+import com.vteba.lang.collection.IntLongMap;
+import com.vteba.lang.collection.LongLongMap;
+
+/**
+ * IntIntMap、IntLongMap、LongLongMap和HashMap比较：随机操作的结果，计数时每个条目占用的内存和耗时。
+ */
+public class TestPrimitiveMap {
+	private static final int SIZE = 1000000;
+
+	public static void main(String[] args) {
+		Random random = new Random(5);
+		IntIntMap intInt = new IntIntMap();
+		IntLongMap intLong = new IntLongMap();
+		LongLongMap longLong = new LongLongMap();
+		Map<Long, Long> expected = new HashMap<Long, Long>();
+		int mismatch = 0;
+		for (int i = 0; i < 500000; i++) {
+			int key = random.nextInt(4) == 0 ? random.nextInt(64) : random.nextInt();
+			long longKey = (long) key << 22;
+			int value = random.nextInt(1000);
+			Long old = expected.get((long) key);
+			long a, b, c, e;
+			switch (random.nextInt(5)) {
+			case 0:
+				intInt.put(key, value);
+				intLong.put(key, value);
+				longLong.put(longKey, value);
+				expected.put((long) key, (long) value);
+				a = b = c = e = 0;
+				break;
+			case 1:
+				a = intInt.getAndIncrement(key, -1, value);
+				b = intLong.getAndIncrement(key, -1, value);
+				c = longLong.getAndIncrement(longKey, -1, value);
+				e = old == null ? -1 : old;
+				expected.put((long) key, e + value);
+				break;
+			case 2:
+				a = intInt.addTo(key, value);
+				b = intLong.addTo(key, value);
+				c = longLong.addTo(longKey, value);
+				e = (old == null ? 0 : old) + value;
+				expected.put((long) key, e);
+				break;
+			case 3:
+				a = intInt.remove(key, -1);
+				b = intLong.remove(key, -1);
+				c = longLong.remove(longKey, -1);
+				expected.remove((long) key);
+				e = old == null ? -1 : old;
+				break;
+			default:
+				a = intInt.get(key, -1);
+				b = intLong.get(key, -1);
+				c = longLong.containsKey(longKey) ? longLong.get(longKey, -1) : -1;
+				e = old == null ? -1 : old;
+			}
+			if ((int) a != (int) e || b != e || c != e) {
+				mismatch++;
+			}
+		}
+		long sum = 0;
+		for (IntLongMap.Entry entry : intLong.entries()) {
+			sum += entry.value;
+		}
+		long expectedSum = 0;
+		for (Long value : expected.values()) {
+			expectedSum += value;
+		}
+		LongLongMap.Keys keys = longLong.keys();
+		while (keys.hasNext) {
+			if (keys.next() < 0) {
+				keys.remove();
+			}
+		}
+		int removed = 0;
+		for (Long key : expected.keySet()) {
+			if (key < 0 == longLong.containsKey(key << 22)) {
+				removed++;
+			}
+		}
+		System.out.println("不一致：" + mismatch + "，大小：" + intInt.size + "/" + intLong.size + "/" + expected.size() + "，值的和一致："
+				+ (sum == expectedSum) + "，迭代器删除后不一致：" + removed);
+
+		int[] keys32 = new int[SIZE];
+		for (int i = 0; i < SIZE; i++) {
+			keys32[i] = random.nextInt();
+		}
+		long before = usedMemory();
+		IntIntMap counter = new IntIntMap();
+		for (int key : keys32) {
+			counter.getAndIncrement(key, 0, 1);
+		}
+		long counterBytes = usedMemory() - before;
+		before = usedMemory();
+		Map<Integer, Integer> hashCounter = new HashMap<Integer, Integer>();
+		for (int key : keys32) {
+			Integer count = hashCounter.get(key);
+			hashCounter.put(key, count == null ? 1 : count + 1);
+		}
+		long hashCounterBytes = usedMemory() - before;
+		System.out.println("每个条目 IntIntMap：" + counterBytes / SIZE + " 字节，HashMap<Integer, Integer>：" + hashCounterBytes / SIZE
+				+ " 字节（" + counter.size + "/" + hashCounter.size() + "个）");
+		counter = null;
+		hashCounter = null;
+		before = usedMemory();
+		LongLongMap longCounter = new LongLongMap();
+		for (int key : keys32) {
+			longCounter.addTo((long) key << 22, 1);
+		}
+		long longCounterBytes = usedMemory() - before;
+		before = usedMemory();
+		Map<Long, Long> hashLongCounter = new HashMap<Long, Long>();
+		for (int key : keys32) {
+			Long count = hashLongCounter.get((long) key << 22);
+			hashLongCounter.put((long) key << 22, count == null ? 1 : count + 1);
+		}
+		long hashLongCounterBytes = usedMemory() - before;
+		System.out.println("每个条目 LongLongMap：" + longCounterBytes / SIZE + " 字节，HashMap<Long, Long>：" + hashLongCounterBytes
+				/ SIZE + " 字节（" + longCounter.size + "/" + hashLongCounter.size() + "个）");
+
+		for (int r = 0; r < 5; r++) {
+			long d = System.nanoTime();
+			IntIntMap a = new IntIntMap();
+			for (int i = 0; i < 4; i++) {
+				for (int key : keys32) {
+					a.getAndIncrement(key, 0, 1);
+				}
+			}
+			long intIntMap = (System.nanoTime() - d) / SIZE / 4;
+			d = System.nanoTime();
+			Map<Integer, Integer> b = new HashMap<Integer, Integer>();
+			for (int i = 0; i < 4; i++) {
+				for (int key : keys32) {
+					Integer count = b.get(key);
+					b.put(key, count == null ? 1 : count + 1);
+				}
+			}
+			long hashMap = (System.nanoTime() - d) / SIZE / 4;
+			System.out.println("计数 IntIntMap：" + intIntMap + " ns，HashMap：" + hashMap + " ns（" + a.get(keys32[0], 0) + "/"
+					+ b.get(keys32[0]) + "）");
+		}
+	}
+
+	private static long usedMemory() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 5; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
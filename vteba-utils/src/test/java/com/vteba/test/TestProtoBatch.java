@@ -0,0 +1,63 @@
+package com.vteba.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import com.vteba.utils.json.Node;
+import com.vteba.utils.serialize.Protos;
+
+/**
+ * Protos.writeDelimitedBatch和readDelimited的往返校验，消息中有嵌套消息和重复的嵌套消息（两层的子节点列表）。
+ */
+public class TestProtoBatch {
+	private static final int COUNT = 1000;
+
+	public static void main(String[] args) throws Exception {
+		List<Node> nodes = new ArrayList<Node>();
+		for (int i = 0; i < COUNT; i++) {
+			nodes.add(build("node-" + i, 0, 2));
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		int size = Protos.writeDelimitedBatch(out, nodes);
+
+		Iterator<Node> iterator = Protos.readDelimited(new ByteArrayInputStream(out.toByteArray()), Node.class);
+		int count = 0;
+		boolean equal = true;
+		while (iterator.hasNext()) {
+			Node node = iterator.next();
+			equal &= describe(node).equals(describe(nodes.get(count)));
+			count++;
+		}
+		System.out.println("写出字节数：" + size + "，流大小：" + out.size() + "，读出条数：" + count + "，结果一致：" + (equal && count == COUNT));
+	}
+
+	private static Node build(String id, int level, int depth) {
+		Node node = new Node(id, "节点" + id, level);
+		node.setOpen(level % 2 == 0);
+		if (level < depth) {
+			List<Node> children = new ArrayList<Node>();
+			for (int i = 0; i < 3; i++) {
+				children.add(build(id + "-" + i, level + 1, depth));
+			}
+			node.setChildren(children);
+		}
+		return node;
+	}
+
+	private static String describe(Node node) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(node.getId()).append(',').append(node.getName()).append(',').append(node.getLevel()).append(',')
+				.append(node.getOpen());
+		if (node.getChildren() != null) {
+			sb.append('[');
+			for (Node child : node.getChildren()) {
+				sb.append(describe(child)).append(';');
+			}
+			sb.append(']');
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,189 @@
+package com.vteba.test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Date;
+
+import com.dyuproject.protostuff.LinkedBuffer;
+import com.dyuproject.protostuff.ProtostuffIOUtil;
+import com.dyuproject.protostuff.Tag;
+import com.dyuproject.protostuff.runtime.RuntimeSchema;
+import com.vteba.utils.annotation.ProtoSchema;
+import com.vteba.utils.serialize.Protos;
+
+/**
+ * 编译期生成的Schema和RuntimeSchema第一次序列化耗时的比较，每次都在新的JVM中测试。
+ * 同时校验两者序列化的结果完全一致，包括使用@Tag和@Deprecated的类。
+ */
+public class TestProtoSchema {
+	private static final int RUNS = 5;
+
+	public static void main(String[] args) throws Exception {
+		if (args.length > 0) {
+			coldStart(args[0].equals("generated"));
+			return;
+		}
+		SchemaUser user = newUser(new SchemaUser());
+		byte[] generated = ProtostuffIOUtil.toByteArray(user, Protos.getSchema(SchemaUser.class), LinkedBuffer.allocate(512));
+		byte[] runtime = ProtostuffIOUtil.toByteArray(user, RuntimeSchema.getSchema(SchemaUser.class), LinkedBuffer.allocate(512));
+		System.out.println("Schema：" + Protos.getSchema(SchemaUser.class).getClass().getName()
+				+ "，结果一致：" + Arrays.equals(generated, runtime));
+
+		TaggedUser tagged = new TaggedUser();
+		tagged.id = 10001L;
+		tagged.nickname = "不序列化";
+		tagged.userName = "wojiao尹雷";
+		generated = ProtostuffIOUtil.toByteArray(tagged, Protos.getSchema(TaggedUser.class), LinkedBuffer.allocate(512));
+		runtime = ProtostuffIOUtil.toByteArray(tagged, RuntimeSchema.getSchema(TaggedUser.class), LinkedBuffer.allocate(512));
+		System.out.println("@Tag Schema：" + Protos.getSchema(TaggedUser.class).getClass().getName()
+				+ "，结果一致：" + Arrays.equals(generated, runtime) + "，uid编号："
+				+ Protos.getSchema(TaggedUser.class).getFieldNumber("uid"));
+
+		for (String mode : new String[] { "runtime", "generated" }) {
+			long total = 0;
+			for (int i = 0; i < RUNS; i++) {
+				total += fork(mode);
+			}
+			System.out.println(mode + "第一次序列化平均耗时：" + (total / RUNS / 1000) + " us");
+		}
+	}
+
+	private static void coldStart(boolean generated) {
+		long d = System.nanoTime();
+		if (generated) {
+			Protos.toByteArray(newUser(new SchemaUser()));
+		} else {
+			Protos.toByteArray(newUser(new PlainUser()));
+		}
+		System.out.println(System.nanoTime() - d);
+	}
+
+	private static long fork(String mode) throws Exception {
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+				TestProtoSchema.class.getName(), mode).start();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+		try {
+			return Long.parseLong(reader.readLine().trim());
+		} finally {
+			reader.close();
+			process.waitFor();
+		}
+	}
+
+	private static <T extends PlainUser> T newUser(T user) {
+		user.setId(10001L);
+		user.setUserName("wojiao尹雷");
+		user.setAge(34);
+		user.setMale(true);
+		user.setScore(98.5D);
+		user.setBalance(new BigDecimal("1024.50"));
+		user.setEmail("yinlei@vteba.com");
+		user.setMobile("13800000000");
+		user.setCreateDate(new Date());
+		return user;
+	}
+
+	public static class PlainUser {
+		private Long id;
+		private String userName;
+		private int age;
+		private boolean male;
+		private double score;
+		private BigDecimal balance;
+		private String email;
+		private String mobile;
+		private Date createDate;
+
+		public Long getId() {
+			return id;
+		}
+
+		public void setId(Long id) {
+			this.id = id;
+		}
+
+		public String getUserName() {
+			return userName;
+		}
+
+		public void setUserName(String userName) {
+			this.userName = userName;
+		}
+
+		public int getAge() {
+			return age;
+		}
+
+		public void setAge(int age) {
+			this.age = age;
+		}
+
+		public boolean isMale() {
+			return male;
+		}
+
+		public void setMale(boolean male) {
+			this.male = male;
+		}
+
+		public double getScore() {
+			return score;
+		}
+
+		public void setScore(double score) {
+			this.score = score;
+		}
+
+		public BigDecimal getBalance() {
+			return balance;
+		}
+
+		public void setBalance(BigDecimal balance) {
+			this.balance = balance;
+		}
+
+		public String getEmail() {
+			return email;
+		}
+
+		public void setEmail(String email) {
+			this.email = email;
+		}
+
+		public String getMobile() {
+			return mobile;
+		}
+
+		public void setMobile(String mobile) {
+			this.mobile = mobile;
+		}
+
+		public Date getCreateDate() {
+			return createDate;
+		}
+
+		public void setCreateDate(Date createDate) {
+			this.createDate = createDate;
+		}
+	}
+
+	@ProtoSchema
+	public static class SchemaUser extends PlainUser {
+	}
+
+	/** 编号取自@Tag，nickname是@Deprecated，不序列化 */
+	@ProtoSchema
+	public static class TaggedUser {
+		@Tag(3)
+		String userName;
+		@Tag(value = 1, alias = "uid")
+		long id;
+		@Deprecated
+		@Tag(2)
+		String nickname;
+	}
+}
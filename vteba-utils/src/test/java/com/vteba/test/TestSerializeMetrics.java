@@ -0,0 +1,75 @@
+package com.vteba.test;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.ObjectName;
+
+import com.vteba.utils.json.Node;
+import com.vteba.utils.serialize.Kryos;
+import com.vteba.utils.serialize.Protos;
+import com.vteba.utils.serialize.SerializeMetrics;
+import com.vteba.utils.serialize.SerializeMetrics.TypeStats;
+
+/**
+ * 序列化统计：打开前后Kryos的耗时比较，多线程调用后按类型输出统计，并从JMX读取。
+ */
+public class TestSerializeMetrics {
+	private static final int LOOP = 200000;
+	private static final int THREADS = 8;
+
+	public static void main(String[] args) throws Exception {
+		final Node node = new Node();
+		node.setId("node-1");
+		node.setName("节点");
+		node.setLevel(1);
+		final TestUser user = new TestUser();
+
+		SerializeMetrics kryoMetrics = SerializeMetrics.get("Kryos");
+		for (int r = 0; r < 3; r++) {
+			kryoMetrics.setEnabled(false);
+			long disabled = time(node);
+			kryoMetrics.setEnabled(true);
+			long enabled = time(node);
+			System.out.println("关闭：" + disabled + " ns，打开：" + enabled + " ns");
+		}
+		kryoMetrics.reset();
+		SerializeMetrics.get("Protos").setEnabled(true);
+
+		Thread[] threads = new Thread[THREADS];
+		for (int t = 0; t < THREADS; t++) {
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					for (int i = 0; i < LOOP / THREADS; i++) {
+						Kryos.fromBytes(Kryos.toBytes(node), Node.class);
+						if (i % 4 == 0) {
+							Kryos.fromBytes(Kryos.toBytes(user), TestUser.class);
+							Protos.toByteArray(node);
+						}
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		for (SerializeMetrics metrics : SerializeMetrics.getAll()) {
+			for (TypeStats stats : metrics.getTypeStats()) {
+				System.out.println(metrics.getName() + " " + stats);
+			}
+		}
+		ObjectName name = new ObjectName("com.vteba.utils.serialize:type=SerializeMetrics,name=Kryos");
+		Object[] stats = (Object[]) ManagementFactory.getPlatformMBeanServer().getAttribute(name, "TypeStats");
+		System.out.println("JMX中Kryos的类型数：" + stats.length);
+	}
+
+	private static long time(Node node) {
+		long d = System.nanoTime();
+		for (int i = 0; i < LOOP; i++) {
+			Kryos.fromBytes(Kryos.toBytes(node), Node.class);
+		}
+		return (System.nanoTime() - d) / LOOP;
+	}
+}
@@ -0,0 +1,32 @@
+package com.vteba.test;
+
+import java.util.Date;
+
+import com.vteba.utils.serialize.Serializer;
+import com.vteba.utils.serialize.SerializerRegistry;
+import com.vteba.utils.serialize.SerializerRegistry.Criterion;
+
+/**
+ * 用样本对象跑一遍所有序列化器，打印每个的大小和耗时，分别按大小和速度选择序列化器。
+ * TestUser没有实现Serializable，JDK和JBoss序列化会被跳过。
+ */
+public class TestSerializerRegistry {
+
+	public static void main(String[] args) {
+		TestUser user = new TestUser();
+		user.setAge(34);
+		user.setDate(new Date());
+		user.setUserName("wojiao尹雷");
+
+		SerializerRegistry registry = new SerializerRegistry(SerializerRegistry.get().getDefaultSerializer());
+		System.out.println(registry.profile(TestUser.class, user));
+
+		Serializer smallest = registry.choose(TestUser.class, user, Criterion.SIZE);
+		System.out.println("最小：" + smallest.getName());
+		Serializer fastest = registry.choose(TestUser.class, user, Criterion.SPEED);
+		System.out.println("最快：" + fastest.getName());
+
+		TestUser result = registry.fromBytes(registry.toBytes(user), TestUser.class);
+		System.out.println(result.getUserName() + "，" + result.getAge());
+	}
+}
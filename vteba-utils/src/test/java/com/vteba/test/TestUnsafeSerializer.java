@@ -0,0 +1,70 @@
+package com.vteba.test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import com.vteba.utils.serialize.Kryos;
+import com.vteba.utils.serialize.UnsafeSerializer;
+
+/**
+ * UnsafeSerializer和Kryo序列化数值型时间序列DTO的耗时比较，UnsafeSerializer写入direct buffer。
+ */
+public class TestUnsafeSerializer {
+	private static final int LOOP = 20000;
+	private static final int POINTS = 1024;
+
+	public static void main(String[] args) {
+		Series series = new Series();
+		series.id = 42;
+		series.start = System.currentTimeMillis();
+		series.step = 1000;
+		series.closed = true;
+		series.times = new long[POINTS];
+		series.values = new double[POINTS];
+		series.flags = new int[POINTS];
+		for (int i = 0; i < POINTS; i++) {
+			series.times[i] = series.start + i * series.step;
+			series.values[i] = Math.sin(i);
+			series.flags[i] = i & 7;
+		}
+
+		UnsafeSerializer<Series> serializer = UnsafeSerializer.get(Series.class);
+		ByteBuffer buffer = ByteBuffer.allocateDirect(serializer.sizeOf(series));
+		serializer.writeTo(buffer, series);
+		buffer.flip();
+		Series copy = serializer.readFrom(buffer);
+		System.out.println("字节数：" + buffer.limit() + "，Kryo字节数：" + Kryos.toBytes(series).length + "，结果正确："
+				+ (copy.id == series.id && copy.start == series.start && copy.closed && copy.tags == null
+						&& Arrays.equals(copy.times, series.times) && Arrays.equals(copy.values, series.values)
+						&& Arrays.equals(copy.flags, series.flags)));
+
+		for (int r = 0; r < 5; r++) {
+			long d = System.nanoTime();
+			for (int i = 0; i < LOOP; i++) {
+				buffer.clear();
+				serializer.writeTo(buffer, series);
+				buffer.flip();
+				serializer.readFrom(buffer);
+			}
+			long unsafe = System.nanoTime() - d;
+
+			d = System.nanoTime();
+			for (int i = 0; i < LOOP; i++) {
+				Kryos.fromBytes(Kryos.toBytes(series), Series.class);
+			}
+			long kryo = System.nanoTime() - d;
+			System.out.println("UnsafeSerializer：" + unsafe / LOOP + " ns，Kryo：" + kryo / LOOP + " ns");
+		}
+	}
+
+	public static class Series {
+		private int id;
+		private long start;
+		private int step;
+		private boolean closed;
+		private long[] times;
+		private double[] values;
+		private int[] flags;
+		private short[] tags;
+	}
+}